@@ -0,0 +1,106 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Primary node lookup of the Arcus ketama locators,
+ * with key strings and with {@link ArcusKey} handles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class KetamaLocatorBenchmark {
+
+  private static final int NUM_KEYS = 1024;
+
+  @Param({"3", "30"})
+  private int numNodes;
+
+  @Param({"false", "true"})
+  private boolean replication;
+
+  private ArcusKetamaNodeLocator locator;
+  private ArcusReplKetamaNodeLocator replLocator;
+  private final String[] keys = new String[NUM_KEYS];
+  private final ArcusKey[] arcusKeys = new ArcusKey[NUM_KEYS];
+  private int index = 0;
+
+  @Setup
+  public void setup() {
+    List<MemcachedNode> nodes = new ArrayList<>();
+    if (replication) {
+      StringBuilder names = new StringBuilder();
+      for (int i = 0; i < numNodes; i++) {
+        if (i > 0) {
+          names.append(',');
+        }
+        names.append("g").append(i).append("^M^10.0.").append(i / 250).append('.')
+            .append(i % 250 + 1).append(":11211");
+        names.append(",g").append(i).append("^S^10.1.").append(i / 250).append('.')
+            .append(i % 250 + 1).append(":11211");
+      }
+      for (InetSocketAddress addr : ArcusReplNodeAddress.getAddresses(names.toString())) {
+        nodes.add(new MockMemcachedNode(addr));
+      }
+      replLocator = new ArcusReplKetamaNodeLocator(nodes);
+    } else {
+      for (int i = 0; i < numNodes; i++) {
+        nodes.add(new MockMemcachedNode(InetSocketAddress.createUnresolved(
+            "10.0." + (i / 250) + "." + (i % 250 + 1), 11211)));
+      }
+      locator = new ArcusKetamaNodeLocator(nodes);
+    }
+    for (int i = 0; i < NUM_KEYS; i++) {
+      keys[i] = "benchmark:key" + i;
+      arcusKeys[i] = ArcusKey.of(keys[i]);
+    }
+  }
+
+  @Benchmark
+  public MemcachedNode stringKey() {
+    String key = keys[index++ & (NUM_KEYS - 1)];
+    return replication ? replLocator.getPrimary(key, ReplicaPick.MASTER)
+        : locator.getPrimary(key);
+  }
+
+  @Benchmark
+  public MemcachedNode arcusKey() {
+    ArcusKey key = arcusKeys[index++ & (NUM_KEYS - 1)];
+    return replication ? replLocator.getPrimary(key, ReplicaPick.MASTER)
+        : locator.getPrimary(key);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.collection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.spy.memcached.transcoders.CollectionTranscoder;
+import net.spy.memcached.transcoders.Transcoder;
+
+/**
+ * Encoding the commands of piped b+tree and list inserts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PipedInsertEncodingBenchmark {
+
+  @Param({"100", "500"})
+  private int itemCount;
+
+  @Param({"10", "1000"})
+  private int valueSize;
+
+  private final Transcoder<Object> tc = new CollectionTranscoder();
+  private final CollectionAttributes attr = new CollectionAttributes();
+  private Map<Long, Object> map;
+  private List<Object> list;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(0);
+    map = new TreeMap<>();
+    list = new ArrayList<>(itemCount);
+    for (int i = 0; i < itemCount; i++) {
+      StringBuilder sb = new StringBuilder(valueSize);
+      while (sb.length() < valueSize) {
+        sb.append((char) ('a' + random.nextInt(26)));
+      }
+      map.put((long) i, sb.toString());
+      list.add(sb.toString());
+    }
+  }
+
+  @Benchmark
+  public long bopInsert() {
+    return encode(new CollectionPipedInsert.BTreePipedInsert<>("benchmark:btree", map,
+        attr, tc));
+  }
+
+  @Benchmark
+  public long lopInsert() {
+    return encode(new CollectionPipedInsert.ListPipedInsert<>("benchmark:list", -1, list,
+        attr, tc));
+  }
+
+  private static long encode(CollectionPipedInsert<Object> insert) {
+    return insert.getAsciiCommand().remaining();
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.internal.result.GetResultImpl;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+import net.spy.memcached.transcoders.Transcoder;
+
+/**
+ * Completing a request future and getting its result,
+ * with the latch-free futures and with the latch futures.
+ *
+ * The completedBeforeGet benchmarks measure the creation and the uncontended
+ * completion of a future, run them with "-prof gc" for the allocation per request.
+ * The completedByIOThread benchmarks complete the future on another thread
+ * while the benchmark thread waits in get(), as the IO thread does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class OperationFutureBenchmark {
+
+  private static final long TIMEOUT = 10000;
+  private static final OperationStatus SUCCESS =
+      new OperationStatus(true, "END", StatusCode.SUCCESS);
+
+  private final Transcoder<Object> tc = new SerializingTranscoder();
+  private final CachedData cachedData = tc.encode("value");
+
+  private ExecutorService ioThread;
+
+  @Setup
+  public void setup() {
+    ioThread = Executors.newSingleThreadExecutor();
+  }
+
+  @TearDown
+  public void tearDown() {
+    ioThread.shutdownNow();
+  }
+
+  @Benchmark
+  public Boolean storeCompletedBeforeGetLatchFree() throws Exception {
+    OperationFuture<Boolean> future = new OperationFuture<>(TIMEOUT);
+    future.set(true, SUCCESS);
+    future.signalComplete();
+    return future.get();
+  }
+
+  @Benchmark
+  public Boolean storeCompletedBeforeGetLatch() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    OperationFuture<Boolean> future = new OperationFuture<>(latch, TIMEOUT);
+    future.set(true, SUCCESS);
+    latch.countDown();
+    return future.get();
+  }
+
+  @Benchmark
+  public Object getCompletedBeforeGetLatchFree() throws Exception {
+    GetFuture<Object> future = new GetFuture<>(TIMEOUT);
+    future.set(new GetResultImpl<>(cachedData, tc), SUCCESS);
+    future.signalComplete();
+    return future.get();
+  }
+
+  @Benchmark
+  public Object getCompletedBeforeGetLatch() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    GetFuture<Object> future = new GetFuture<>(latch, TIMEOUT);
+    future.set(new GetResultImpl<>(cachedData, tc), SUCCESS);
+    latch.countDown();
+    return future.get();
+  }
+
+  @Benchmark
+  public Boolean storeCompletedByIOThreadLatchFree() throws Exception {
+    final OperationFuture<Boolean> future = new OperationFuture<>(TIMEOUT);
+    ioThread.execute(new Runnable() {
+      public void run() {
+        future.set(true, SUCCESS);
+        future.signalComplete();
+      }
+    });
+    return future.get();
+  }
+
+  @Benchmark
+  public Boolean storeCompletedByIOThreadLatch() throws Exception {
+    final CountDownLatch latch = new CountDownLatch(1);
+    final OperationFuture<Boolean> future = new OperationFuture<>(latch, TIMEOUT);
+    ioThread.execute(new Runnable() {
+      public void run() {
+        future.set(true, SUCCESS);
+        latch.countDown();
+      }
+    });
+    return future.get();
+  }
+}
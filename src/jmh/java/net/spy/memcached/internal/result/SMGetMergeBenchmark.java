@@ -0,0 +1,84 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal.result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.spy.memcached.collection.SMGetElement;
+
+/**
+ * Merging the sorted smget results of the nodes into the final result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SMGetMergeBenchmark {
+
+  @Param({"4", "30"})
+  private int numNodes;
+
+  @Param({"100", "1000"})
+  private int count;
+
+  @Param({"false", "true"})
+  private boolean unique;
+
+  private final List<List<SMGetElement<Object>>> runs = new ArrayList<>();
+
+  @Setup
+  public void setup() {
+    Random random = new Random(0);
+    for (int n = 0; n < numNodes; n++) {
+      List<SMGetElement<Object>> run = new ArrayList<>(count);
+      long bkey = 0;
+      for (int i = 0; i < count; i++) {
+        // Sparse increasing bkeys with some duplicates across the nodes.
+        bkey += random.nextInt(numNodes * 2);
+        run.add(new SMGetElement<Object>("node" + n + ":key" + (i % 16), bkey, null, "value"));
+      }
+      runs.add(run);
+    }
+  }
+
+  @Benchmark
+  public List<SMGetElement<Object>> merge() {
+    SMGetResultImpl<Object> result = new SMGetResultImpl<>(count, unique, false);
+    for (List<SMGetElement<Object>> run : runs) {
+      result.mergeSMGetElements(run);
+    }
+    result.makeResultOperationStatus();
+    return result.getFinalResult();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Connected socket channel that discards everything written to it
+ * and never has anything to read.
+ */
+final class DiscardingSocketChannel extends SocketChannel {
+
+  private final SocketAddress remote = InetSocketAddress.createUnresolved("localhost", 11211);
+
+  DiscardingSocketChannel() {
+    super(SelectorProvider.provider());
+  }
+
+  @Override
+  public int write(ByteBuffer src) {
+    int n = src.remaining();
+    src.position(src.limit());
+    return n;
+  }
+
+  @Override
+  public long write(ByteBuffer[] srcs, int offset, int length) {
+    long n = 0;
+    for (int i = offset; i < offset + length; i++) {
+      n += write(srcs[i]);
+    }
+    return n;
+  }
+
+  @Override
+  public int read(ByteBuffer dst) {
+    return 0;
+  }
+
+  @Override
+  public long read(ByteBuffer[] dsts, int offset, int length) {
+    return 0;
+  }
+
+  @Override
+  public boolean isConnected() {
+    return true;
+  }
+
+  @Override
+  public boolean isConnectionPending() {
+    return false;
+  }
+
+  @Override
+  public boolean connect(SocketAddress sa) {
+    return true;
+  }
+
+  @Override
+  public boolean finishConnect() {
+    return true;
+  }
+
+  @Override
+  public SocketAddress getRemoteAddress() {
+    return remote;
+  }
+
+  @Override
+  public SocketAddress getLocalAddress() {
+    return null;
+  }
+
+  @Override
+  public SocketChannel bind(SocketAddress local) {
+    return this;
+  }
+
+  @Override
+  public <T> SocketChannel setOption(SocketOption<T> name, T value) {
+    return this;
+  }
+
+  @Override
+  public <T> T getOption(SocketOption<T> name) {
+    return null;
+  }
+
+  @Override
+  public Set<SocketOption<?>> supportedOptions() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public SocketChannel shutdownInput() {
+    return this;
+  }
+
+  @Override
+  public SocketChannel shutdownOutput() {
+    return this;
+  }
+
+  @Override
+  public Socket socket() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  protected void implCloseSelectableChannel() {
+  }
+
+  @Override
+  protected void implConfigureBlocking(boolean block) {
+  }
+}
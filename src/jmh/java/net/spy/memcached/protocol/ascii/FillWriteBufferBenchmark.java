@@ -0,0 +1,116 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreType;
+
+/**
+ * Moving queued operations into the write buffer of a node.
+ * Each invocation queues a batch of operations and writes them all out
+ * to a channel that discards the bytes, then clears the read queue.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FillWriteBufferBenchmark {
+
+  private static final int BUFFER_SIZE = 16384;
+
+  @Param({"get", "set"})
+  private String command;
+
+  @Param({"1", "100"})
+  private int batchSize;
+
+  @Param({"false", "true"})
+  private boolean optimize;
+
+  private final AsciiOperationFactory opFact = new AsciiOperationFactory();
+  private final byte[] value = new byte[100];
+  private AsciiMemcachedNodeImpl node;
+  private String[] keys;
+
+  private final GetOperation.Callback callback = new GetOperation.Callback() {
+    public void gotData(String key, int flags, byte[] data) {
+    }
+
+    public void receivedStatus(OperationStatus status) {
+    }
+
+    public void complete() {
+    }
+  };
+
+  @Setup
+  public void setup() {
+    node = new AsciiMemcachedNodeImpl("benchmark",
+        InetSocketAddress.createUnresolved("localhost", 11211), BUFFER_SIZE,
+        new ArrayBlockingQueue<Operation>(batchSize * 2),
+        new ArrayBlockingQueue<Operation>(batchSize * 2),
+        new ArrayBlockingQueue<Operation>(batchSize * 2), 1000L);
+    node.setChannel(new DiscardingSocketChannel());
+    keys = new String[batchSize];
+    for (int i = 0; i < batchSize; i++) {
+      keys[i] = "benchmark:key" + i;
+    }
+  }
+
+  @Benchmark
+  public int fillAndWrite() throws IOException {
+    boolean get = "get".equals(command);
+    for (String key : keys) {
+      Operation op = get ? opFact.get(key, callback)
+          : opFact.store(StoreType.set, key, 0, 0, value, callback);
+      node.addOpToInputQ(op);
+    }
+    node.copyInputQueue();
+
+    int written = 0;
+    do {
+      node.fillWriteBuffer(optimize);
+      written += node.writeSome();
+    } while (node.hasWriteOp());
+
+    while (node.hasReadOp()) {
+      node.removeCurrentReadOp();
+    }
+    return written;
+  }
+}
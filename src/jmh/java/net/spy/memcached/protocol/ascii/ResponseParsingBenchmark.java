@@ -0,0 +1,155 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.spy.memcached.collection.BTreeGet;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.ops.CollectionGetOperation;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+
+/**
+ * Parsing of get, mget and b+tree get responses.
+ * Each invocation creates a new operation and feeds it the whole response
+ * prepared in memory, as the IO thread does with the read buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ResponseParsingBenchmark {
+
+  @Param({"100", "4096"})
+  private int valueSize;
+
+  @Param({"1", "100"})
+  private int count;
+
+  private final AsciiOperationFactory opFact = new AsciiOperationFactory();
+  private final ResultCallback callback = new ResultCallback();
+
+  private List<String> keys;
+  private ByteBuffer getResponse;
+  private ByteBuffer mgetResponse;
+  private ByteBuffer bopGetResponse;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(0);
+    byte[] value = new byte[valueSize];
+    random.nextBytes(value);
+
+    keys = new ArrayList<>(count);
+    ByteBuffer mget = ByteBuffer.allocate(count * (valueSize + 64) + 16);
+    for (int i = 0; i < count; i++) {
+      String key = "benchmark:key" + i;
+      keys.add(key);
+      mget.put(ascii("VALUE " + key + " 0 " + valueSize + "\r\n"));
+      mget.put(value);
+      mget.put(ascii("\r\n"));
+    }
+    mget.put(ascii("END\r\n"));
+    mget.flip();
+    mgetResponse = mget;
+
+    ByteBuffer get = ByteBuffer.allocate(valueSize + 64);
+    get.put(ascii("VALUE " + keys.get(0) + " 0 " + valueSize + "\r\n"));
+    get.put(value);
+    get.put(ascii("\r\nEND\r\n"));
+    get.flip();
+    getResponse = get;
+
+    ByteBuffer bopGet = ByteBuffer.allocate(count * (valueSize + 32) + 32);
+    bopGet.put(ascii("VALUE 0 " + count + "\r\n"));
+    for (int i = 0; i < count; i++) {
+      bopGet.put(ascii(i + " " + valueSize + " "));
+      bopGet.put(value);
+      bopGet.put(ascii("\r\n"));
+    }
+    bopGet.put(ascii("END\r\n"));
+    bopGet.flip();
+    bopGetResponse = bopGet;
+  }
+
+  @Benchmark
+  public Object get() throws IOException {
+    return read(opFact.get(keys.get(0), callback), getResponse);
+  }
+
+  @Benchmark
+  public Object mget() throws IOException {
+    return read(opFact.mget(keys, callback), mgetResponse);
+  }
+
+  @Benchmark
+  public Object bopGet() throws IOException {
+    BTreeGet get = new BTreeGet(0, count - 1, 0, count, false, false,
+        ElementFlagFilter.DO_NOT_FILTER);
+    return read(opFact.collectionGet(keys.get(0), get, callback), bopGetResponse);
+  }
+
+  private Object read(Operation op, ByteBuffer response) throws IOException {
+    op.readFromBuffer(response.duplicate());
+    return callback.last;
+  }
+
+  private static byte[] ascii(String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static final class ResultCallback
+      implements GetOperation.Callback, CollectionGetOperation.Callback {
+    private Object last;
+
+    public void gotData(String key, int flags, byte[] data) {
+      last = data;
+    }
+
+    public void gotData(String subkey, int flags, byte[] data, byte[] eflag) {
+      last = data;
+    }
+
+    public void receivedStatus(OperationStatus status) {
+    }
+
+    public void complete() {
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.spy.memcached.CachedData;
+
+/**
+ * Encoding and decoding of values with each transcoder.
+ * Values larger than the default compression threshold are compressed
+ * by the transcoders that support compression.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TranscoderBenchmark {
+
+  @Param({"serializing", "whalin", "whalinV1", "collection", "inspectObjectSize"})
+  private String transcoder;
+
+  @Param({"string", "bytes", "object"})
+  private String valueType;
+
+  @Param({"100", "20000"})
+  private int valueSize;
+
+  private Transcoder<Object> tc;
+  private Object value;
+  private CachedData encoded;
+
+  private final IntegerTranscoder integerTranscoder = new IntegerTranscoder();
+  private final LongTranscoder longTranscoder = new LongTranscoder();
+  private final CachedData encodedInteger = integerTranscoder.encode(123456789);
+  private final CachedData encodedLong = longTranscoder.encode(1234567890123L);
+
+  @Setup
+  public void setup() {
+    if ("serializing".equals(transcoder)) {
+      tc = new SerializingTranscoder();
+    } else if ("whalin".equals(transcoder)) {
+      tc = new WhalinTranscoder();
+    } else if ("whalinV1".equals(transcoder)) {
+      tc = new WhalinV1Transcoder();
+    } else if ("collection".equals(transcoder)) {
+      tc = new CollectionTranscoder();
+    } else if ("inspectObjectSize".equals(transcoder)) {
+      tc = new InspectObjectSizeTranscoder(new InspectObjectSizeTranscoder.LoggingObjectSize() {
+        public void histogram(int size) {
+        }
+      });
+    } else {
+      throw new IllegalArgumentException("Unknown transcoder: " + transcoder);
+    }
+
+    // Text and numbers repeat so that large values are compressible.
+    Random random = new Random(0);
+    if ("string".equals(valueType)) {
+      StringBuilder sb = new StringBuilder(valueSize);
+      while (sb.length() < valueSize) {
+        sb.append((char) ('a' + random.nextInt(8)));
+      }
+      value = sb.toString();
+    } else if ("bytes".equals(valueType)) {
+      byte[] bytes = new byte[valueSize];
+      for (int i = 0; i < valueSize; i++) {
+        bytes[i] = (byte) random.nextInt(8);
+      }
+      value = bytes;
+    } else if ("object".equals(valueType)) {
+      ArrayList<Long> list = new ArrayList<>();
+      for (int i = 0; i < valueSize / 16; i++) {
+        list.add((long) random.nextInt(1000));
+      }
+      value = list;
+    } else {
+      throw new IllegalArgumentException("Unknown value type: " + valueType);
+    }
+    encoded = tc.encode(value);
+  }
+
+  @Benchmark
+  public CachedData encode() {
+    return tc.encode(value);
+  }
+
+  @Benchmark
+  public Object decode() {
+    return tc.decode(encoded);
+  }
+
+  @Benchmark
+  public CachedData encodeInteger() {
+    return integerTranscoder.encode(123456789);
+  }
+
+  @Benchmark
+  public Integer decodeInteger() {
+    return integerTranscoder.decode(encodedInteger);
+  }
+
+  @Benchmark
+  public CachedData encodeLong() {
+    return longTranscoder.encode(1234567890123L);
+  }
+
+  @Benchmark
+  public Long decodeLong() {
+    return longTranscoder.decode(encodedLong);
+  }
+}
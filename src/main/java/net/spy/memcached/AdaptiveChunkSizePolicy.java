@@ -0,0 +1,135 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chunk size policy that sizes the chunks of each node
+ * from the responses observed on that node.
+ *
+ * Two bounds are kept per node and the smaller one is used.
+ * <ul>
+ *   <li>The size bound keeps the response of a chunk around the target
+ *   response bytes, using a moving average of the value bytes per key.</li>
+ *   <li>The latency bound is halved when a chunk takes longer than the target
+ *   latency, and grows by a quarter while full chunks complete in time.</li>
+ * </ul>
+ * Large values therefore lead to small chunks, and small values to large chunks.
+ * Until a node has been observed, the default chunk size of the operation is used.
+ * The result is always kept within the min and max chunk sizes
+ * and the limit of the command.
+ */
+public class AdaptiveChunkSizePolicy implements ChunkSizePolicy {
+
+  public static final int DEFAULT_TARGET_RESPONSE_BYTES = 128 * 1024;
+  public static final long DEFAULT_TARGET_LATENCY_MILLIS = 100;
+
+  private static final double WEIGHT = 0.2;
+
+  private final int minChunkSize;
+  private final int maxChunkSize;
+  private final int targetResponseBytes;
+  private final long targetLatencyNanos;
+
+  private final Map<MemcachedNode, NodeState> states =
+      Collections.synchronizedMap(new WeakHashMap<MemcachedNode, NodeState>());
+
+  public AdaptiveChunkSizePolicy(int minChunkSize, int maxChunkSize) {
+    this(minChunkSize, maxChunkSize, DEFAULT_TARGET_RESPONSE_BYTES,
+        DEFAULT_TARGET_LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  public AdaptiveChunkSizePolicy(int minChunkSize, int maxChunkSize,
+                                 int targetResponseBytes,
+                                 long targetLatency, TimeUnit unit) {
+    if (minChunkSize <= 0) {
+      throw new IllegalArgumentException("minChunkSize must be a positive number.");
+    }
+    if (maxChunkSize < minChunkSize) {
+      throw new IllegalArgumentException("maxChunkSize must not be less than minChunkSize.");
+    }
+    if (targetResponseBytes <= 0) {
+      throw new IllegalArgumentException("targetResponseBytes must be a positive number.");
+    }
+    if (targetLatency <= 0) {
+      throw new IllegalArgumentException("targetLatency must be a positive number.");
+    }
+    this.minChunkSize = minChunkSize;
+    this.maxChunkSize = maxChunkSize;
+    this.targetResponseBytes = targetResponseBytes;
+    this.targetLatencyNanos = unit.toNanos(targetLatency);
+  }
+
+  @Override
+  public int getChunkSize(MemcachedNode node, int defaultSize, int limit) {
+    NodeState state = node == null ? null : states.get(node);
+    int size = state == null ? defaultSize : state.getChunkSize();
+    size = Math.max(minChunkSize, Math.min(maxChunkSize, size));
+    return Math.max(1, Math.min(limit, size));
+  }
+
+  @Override
+  public void chunkCompleted(MemcachedNode node, int keyCount,
+                             long responseBytes, long elapsedNanos) {
+    if (node == null || keyCount <= 0) {
+      return;
+    }
+    NodeState state;
+    synchronized (states) {
+      state = states.get(node);
+      if (state == null) {
+        state = new NodeState();
+        states.put(node, state);
+      }
+    }
+    state.update(keyCount, responseBytes, elapsedNanos);
+  }
+
+  public int getMinChunkSize() {
+    return minChunkSize;
+  }
+
+  public int getMaxChunkSize() {
+    return maxChunkSize;
+  }
+
+  private final class NodeState {
+    private double bytesPerKey = -1;
+    private int latencyBound = maxChunkSize;
+
+    private synchronized void update(int keyCount, long responseBytes, long elapsedNanos) {
+      double sample = (double) responseBytes / keyCount;
+      bytesPerKey = bytesPerKey < 0 ? sample :
+          bytesPerKey + WEIGHT * (sample - bytesPerKey);
+
+      if (elapsedNanos > targetLatencyNanos) {
+        latencyBound = Math.max(minChunkSize, keyCount / 2);
+      } else if (keyCount >= latencyBound) {
+        latencyBound = Math.min(maxChunkSize, latencyBound + Math.max(1, latencyBound / 4));
+      }
+    }
+
+    private synchronized int getChunkSize() {
+      double sizeBound = targetResponseBytes / Math.max(1.0, bytesPerKey);
+      return (int) Math.min(latencyBound, sizeBound);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import net.spy.memcached.metrics.LatencyWindow;
+import net.spy.memcached.ops.APIType;
+
+/**
+ * Derives the timeout of each operation from the recent response times
+ * of its API on its node, instead of applying one operation timeout to all.
+ *
+ * The timeout is the response time at the given percentile times
+ * the multiplier, bounded by the floor and the ceiling.
+ * Until enough response times are recorded, the ceiling is used.
+ * A response time is measured from when the operation is added to the
+ * connection until it completes, including the time queued on the node,
+ * as the timeout of the future covers that time as well.
+ * The timeout applies to {@code get()} of the future without a timeout
+ * argument and to the synchronous single key APIs.
+ */
+public final class AdaptiveTimeoutPolicy {
+
+  public static final double DEFAULT_PERCENTILE = 99.9;
+  public static final double DEFAULT_MULTIPLIER = 3.0;
+
+  /**
+   * Minimum number of response times to derive a timeout from.
+   */
+  static final int MIN_SAMPLES = 100;
+
+  private final long floor;
+  private final long ceiling;
+  private double percentile = DEFAULT_PERCENTILE;
+  private double multiplier = DEFAULT_MULTIPLIER;
+
+  /**
+   * Create a policy.
+   *
+   * @param floor   the minimum timeout in milliseconds
+   * @param ceiling the maximum timeout in milliseconds
+   */
+  public AdaptiveTimeoutPolicy(long floor, long ceiling) {
+    if (floor <= 0 || ceiling < floor) {
+      throw new IllegalArgumentException(
+          "Invalid timeout bounds : floor=" + floor + ", ceiling=" + ceiling);
+    }
+    this.floor = floor;
+    this.ceiling = ceiling;
+  }
+
+  /**
+   * Set the percentile of the response times the timeout is derived from.
+   */
+  public AdaptiveTimeoutPolicy setPercentile(double percentile) {
+    if (percentile <= 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be in (0, 100] : " + percentile);
+    }
+    this.percentile = percentile;
+    return this;
+  }
+
+  /**
+   * Set the multiplier applied to the response time at the percentile.
+   */
+  public AdaptiveTimeoutPolicy setMultiplier(double multiplier) {
+    if (multiplier < 1) {
+      throw new IllegalArgumentException("Multiplier must be at least 1 : " + multiplier);
+    }
+    this.multiplier = multiplier;
+    return this;
+  }
+
+  public long getFloor() {
+    return floor;
+  }
+
+  public long getCeiling() {
+    return ceiling;
+  }
+
+  public double getPercentile() {
+    return percentile;
+  }
+
+  public double getMultiplier() {
+    return multiplier;
+  }
+
+  /**
+   * Get the timeout of an operation of the given API on the given node.
+   *
+   * @return timeout in milliseconds
+   */
+  public long getTimeout(MemcachedNode node, APIType apiType) {
+    LatencyWindow window = node.getStatistics().getLatencies(apiType);
+    if (window == null || window.getCount() < MIN_SAMPLES) {
+      return ceiling;
+    }
+    double nanos = window.getValueAtPercentile(percentile) * multiplier;
+    long timeout = (long) Math.ceil(nanos / 1000000);
+    return Math.max(floor, Math.min(ceiling, timeout));
+  }
+
+  @Override
+  public String toString() {
+    return "AdaptiveTimeoutPolicy[floor=" + floor + ", ceiling=" + ceiling +
+        ", percentile=" + percentile + ", multiplier=" + multiplier + "]";
+  }
+}
@@ -23,6 +23,7 @@ import java.net.InetSocketAddress;
 import java.net.URL;
 import java.security.Security;
 import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -33,9 +34,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -96,12 +102,15 @@ import net.spy.memcached.collection.ListCreate;
 import net.spy.memcached.collection.ListDelete;
 import net.spy.memcached.collection.ListGet;
 import net.spy.memcached.collection.ListInsert;
+import net.spy.memcached.collection.LongBKeyElements;
+import net.spy.memcached.collection.LongBKeyGetResult;
 import net.spy.memcached.collection.MapCreate;
 import net.spy.memcached.collection.MapDelete;
 import net.spy.memcached.collection.MapGet;
 import net.spy.memcached.collection.MapInsert;
 import net.spy.memcached.collection.MapUpdate;
 import net.spy.memcached.collection.MapUpsert;
+import net.spy.memcached.collection.SMGetContinuation;
 import net.spy.memcached.collection.SMGetElement;
 import net.spy.memcached.collection.SMGetMode;
 import net.spy.memcached.collection.SetCreate;
@@ -113,6 +122,7 @@ import net.spy.memcached.collection.SetPipedExist;
 import net.spy.memcached.compat.log.Logger;
 import net.spy.memcached.compat.log.LoggerFactory;
 import net.spy.memcached.internal.BTreeStoreAndGetFuture;
+import net.spy.memcached.internal.BasicThreadFactory;
 import net.spy.memcached.internal.BroadcastFuture;
 import net.spy.memcached.internal.BulkOperationFuture;
 import net.spy.memcached.internal.CollectionFuture;
@@ -131,6 +141,9 @@ import net.spy.memcached.internal.result.MopGetResultImpl;
 import net.spy.memcached.internal.result.SMGetResultImpl;
 import net.spy.memcached.internal.result.SMGetResultOldImpl;
 import net.spy.memcached.internal.result.SopGetResultImpl;
+import net.spy.memcached.metrics.ArcusMetrics;
+import net.spy.memcached.metrics.InMemoryArcusMetrics;
+import net.spy.memcached.metrics.MetricsMBean;
 import net.spy.memcached.ops.BTreeFindPositionOperation;
 import net.spy.memcached.ops.BTreeFindPositionWithGetOperation;
 import net.spy.memcached.ops.BTreeGetBulkOperation;
@@ -153,6 +166,7 @@ import net.spy.memcached.ops.StoreType;
 import net.spy.memcached.plugin.FrontCacheMemcachedClient;
 import net.spy.memcached.transcoders.CollectionTranscoder;
 import net.spy.memcached.transcoders.Transcoder;
+import net.spy.memcached.util.BTreeCursor;
 import net.spy.memcached.util.BTreeUtil;
 
 /**
@@ -209,6 +223,11 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 
   private static final int MAX_DNS_CACHE_TTL = 300;
 
+  /* the number of chunks of a piped insert encoded or in flight at once */
+  private static final int PIPED_INSERT_WINDOW = 4;
+
+  private ExecutorService pipedInsertEncoder = null;
+
   private CacheManager cacheManager;
 
   public void setCacheManager(CacheManager cacheManager) {
@@ -359,7 +378,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     }
     collectionTranscoder = new CollectionTranscoder();
     smgetKeyChunkSize = cf.getDefaultMaxSMGetKeyChunkSize();
-    registerMbean(name);
+    registerMbean(name, cf.getMetrics());
   }
 
   /**
@@ -407,9 +426,10 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
   }
 
   /**
-   * Register mbean for Arcus client statistics.
+   * Register mbean for Arcus client statistics, and for the operation metrics
+   * if they are kept in memory.
    */
-  private void registerMbean(String name) {
+  private void registerMbean(String name, ArcusMetrics metrics) {
     if ("false".equals(System.getProperty("arcus.mbean", "false").toLowerCase())) {
       getLogger().info("Arcus client statistics MBean is NOT registered.");
       return;
@@ -427,6 +447,21 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     } catch (Exception e) {
       getLogger().warn("Failed to initialize statistics mbean.", e);
     }
+
+    if (metrics instanceof InMemoryArcusMetrics) {
+      try {
+        MetricsMBean mbean = new MetricsMBean((InMemoryArcusMetrics) metrics);
+        ArcusMBeanServer.getInstance().registMBean(
+                mbean,
+                mbean.getClass().getPackage().getName()
+                        + ":type=" + mbean.getClass().getSimpleName()
+                        + ",name=" + name);
+
+        getLogger().info("Arcus client metrics MBean is registered.");
+      } catch (Exception e) {
+        getLogger().warn("Failed to initialize metrics mbean.", e);
+      }
+    }
   }
 
   @Override
@@ -436,6 +471,14 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     if (cacheManager != null) {
       cacheManager.shutdown();
     }
+    synchronized (this) {
+      if (pipedInsertEncoder != null) {
+        // the callers waiting for the encodings not started fail instead of hanging.
+        for (Runnable encoding : pipedInsertEncoder.shutdownNow()) {
+          ((Future<?>) encoding).cancel(false);
+        }
+      }
+    }
     return result;
   }
 
@@ -530,9 +573,8 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
   private <T> CollectionFuture<List<T>> asyncLopGet(final String k,
                                                     final CollectionGet collectionGet,
                                                     final Transcoder<T> tc) {
-    final CountDownLatch latch = new CountDownLatch(1);
     final CollectionGetFuture<List<T>> rv =
-            new CollectionGetFuture<>(latch, operationTimeout);
+            new CollectionGetFuture<>(operationTimeout);
 
     Operation op = opFact.collectionGet(k, collectionGet,
         new CollectionGetOperation.Callback() {
@@ -557,7 +599,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
           }
 
           public void complete() {
-            latch.countDown();
+            rv.signalComplete();
           }
 
           public void gotData(String subkey, int flags, byte[] data, byte[] eflag) {
@@ -593,9 +635,8 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
   private <T> CollectionFuture<Set<T>> asyncSopGet(final String k,
                                                    final CollectionGet collectionGet,
                                                    final Transcoder<T> tc) {
-    final CountDownLatch latch = new CountDownLatch(1);
     final CollectionGetFuture<Set<T>> rv =
-            new CollectionGetFuture<>(latch, operationTimeout);
+            new CollectionGetFuture<>(operationTimeout);
 
     Operation op = opFact.collectionGet(k, collectionGet,
         new CollectionGetOperation.Callback() {
@@ -620,7 +661,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
           }
 
           public void complete() {
-            latch.countDown();
+            rv.signalComplete();
           }
 
           public void gotData(String subkey, int flags, byte[] data, byte[] eflag) {
@@ -645,11 +686,16 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
   private <T> CollectionFuture<Map<Long, Element<T>>> asyncBopGet(
           final String k, final CollectionGet collectionGet,
           final boolean reverse, final Transcoder<T> tc) {
-    final CountDownLatch latch = new CountDownLatch(1);
+    return asyncBopGet(ArcusKey.of(k), collectionGet, reverse, tc);
+  }
+
+  private <T> CollectionFuture<Map<Long, Element<T>>> asyncBopGet(
+          final ArcusKey k, final CollectionGet collectionGet,
+          final boolean reverse, final Transcoder<T> tc) {
     final CollectionGetFuture<Map<Long, Element<T>>> rv =
-            new CollectionGetFuture<>(latch, operationTimeout);
+            new CollectionGetFuture<>(operationTimeout);
 
-    Operation op = opFact.collectionGet(k, collectionGet,
+    Operation op = opFact.collectionGet(k.getKey(), collectionGet,
         new CollectionGetOperation.Callback() {
           private final HashMap<Long, CachedData> cachedDataMap = new HashMap<>();
           private final GetResult<Map<Long, Element<T>>> result =
@@ -673,7 +719,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
           }
 
           public void complete() {
-            latch.countDown();
+            rv.signalComplete();
           }
 
           public void gotData(String bKey, int flags, byte[] data, byte[] eflag) {
@@ -685,6 +731,65 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     return rv;
   }
 
+  /**
+   * Generic get operation for b+tree items, collecting the elements into
+   * {@link LongBKeyElements} instead of a map.
+   *
+   * @param k             b+tree item's key
+   * @param collectionGet operation parameters (element keys and so on)
+   * @param count         expected number of elements
+   * @param reverse       false=forward or true=backward
+   * @param tc            transcoder to serialize and unserialize value
+   * @return future holding the fetched elements
+   */
+  private <T> CollectionFuture<LongBKeyElements<T>> asyncBopGetElements(
+          final String k, final CollectionGet collectionGet, final int count,
+          final boolean reverse, final Transcoder<T> tc) {
+    final CollectionGetFuture<LongBKeyElements<T>> rv =
+            new CollectionGetFuture<>(operationTimeout);
+
+    Operation op = opFact.collectionGet(k, collectionGet,
+        new CollectionGetOperation.Callback() {
+          private final LongBKeyElements<T> elements =
+                  new LongBKeyElements<>(count, reverse, tc);
+          private final GetResult<LongBKeyElements<T>> result =
+              new GetResult<LongBKeyElements<T>>() {
+                @Override
+                public LongBKeyElements<T> getDecodedValue() {
+                  return elements;
+                }
+              };
+
+          public void receivedStatus(OperationStatus status) {
+            CollectionOperationStatus cstatus;
+            if (status instanceof CollectionOperationStatus) {
+              cstatus = (CollectionOperationStatus) status;
+            } else {
+              getLogger().warn("Unhandled state: " + status);
+              cstatus = new CollectionOperationStatus(status);
+            }
+            if (cstatus.isSuccess() || cstatus.getResponse() == CollectionResponse.NOT_FOUND_ELEMENT) {
+              rv.setResult(result, cstatus);
+              return;
+            }
+
+            rv.setResult(null, cstatus);
+            getLogger().debug("Operation failed for key(%s): %s", k, cstatus);
+          }
+
+          public void complete() {
+            rv.signalComplete();
+          }
+
+          public void gotData(String bKey, int flags, byte[] data, byte[] eflag) {
+            elements.add(Long.parseLong(bKey), flags, eflag, data);
+          }
+        });
+    rv.setOperation(op);
+    addOp(k, op);
+    return rv;
+  }
+
   /**
    * Generic get operation for map items. Public methods for b+tree items call this method.
    *
@@ -695,9 +800,8 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
    */
   private <T> CollectionFuture<Map<String, T>> asyncMopGet(
           final String k, final CollectionGet collectionGet, final Transcoder<T> tc) {
-    final CountDownLatch latch = new CountDownLatch(1);
     final CollectionGetFuture<Map<String, T>> rv =
-            new CollectionGetFuture<>(latch, operationTimeout);
+            new CollectionGetFuture<>(operationTimeout);
 
     Operation op = opFact.collectionGet(k, collectionGet,
         new CollectionGetOperation.Callback() {
@@ -723,7 +827,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
           }
 
           public void complete() {
-            latch.countDown();
+            rv.signalComplete();
           }
 
           public void gotData(String mkey, int flags, byte[] data, byte[] eflag) {
@@ -749,6 +853,13 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
                                                               String subkey,
                                                               CollectionInsert<T> collectionInsert,
                                                               Transcoder<T> tc) {
+    return asyncCollectionInsert(ArcusKey.of(key), subkey, collectionInsert, tc);
+  }
+
+  private <T> CollectionFuture<Boolean> asyncCollectionInsert(ArcusKey key,
+                                                              String subkey,
+                                                              CollectionInsert<T> collectionInsert,
+                                                              Transcoder<T> tc) {
     CachedData co = tc.encode(collectionInsert.getValue());
     collectionInsert.setFlags(co.getFlags());
     return asyncCollectionInsert(key, subkey, collectionInsert, co);
@@ -764,14 +875,14 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
    * @param co              transcoded value
    * @return future holding the success/failure of the operation
    */
-  <T> CollectionFuture<Boolean> asyncCollectionInsert(final String key,
+  <T> CollectionFuture<Boolean> asyncCollectionInsert(final ArcusKey key,
                                                       final String subkey,
                                                       final CollectionInsert<T> collectionInsert,
                                                       final CachedData co) {
     final CountDownLatch latch = new CountDownLatch(1);
     final CollectionFuture<Boolean> rv = new CollectionFuture<>(
             latch, operationTimeout);
-    Operation op = opFact.collectionInsert(key, subkey, collectionInsert,
+    Operation op = opFact.collectionInsert(key.getKey(), subkey, collectionInsert,
             co.getData(), new OperationCallback() {
               public void receivedStatus(OperationStatus status) {
                 CollectionOperationStatus cstatus;
@@ -1341,6 +1452,48 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     return asyncBopGet(key, get, reverse, tc);
   }
 
+  @Override
+  public CollectionFuture<Map<Long, Element<Object>>> asyncBopGet(ArcusKey key,
+                                                                  long from, long to,
+                                                                  ElementFlagFilter eFlagFilter,
+                                                                  int offset, int count,
+                                                                  boolean withDelete,
+                                                                  boolean dropIfEmpty) {
+    return asyncBopGet(key, from, to, eFlagFilter, offset, count, withDelete, dropIfEmpty,
+        collectionTranscoder);
+  }
+
+  @Override
+  public <T> CollectionFuture<Map<Long, Element<T>>> asyncBopGet(ArcusKey key,
+                                                                 long from, long to,
+                                                                 ElementFlagFilter eFlagFilter,
+                                                                 int offset, int count,
+                                                                 boolean withDelete,
+                                                                 boolean dropIfEmpty,
+                                                                 Transcoder<T> tc) {
+    BTreeUtil.validateBkey(from, to);
+    BTreeGet get = new BTreeGet(from, to, offset, count, withDelete, dropIfEmpty, eFlagFilter);
+    boolean reverse = from > to;
+    return asyncBopGet(key, get, reverse, tc);
+  }
+
+  @Override
+  public CollectionFuture<LongBKeyElements<Object>> asyncBopGetElements(
+          String key, long from, long to, ElementFlagFilter eFlagFilter, int offset, int count,
+          boolean withDelete, boolean dropIfEmpty) {
+    return asyncBopGetElements(key, from, to, eFlagFilter, offset, count,
+            withDelete, dropIfEmpty, collectionTranscoder);
+  }
+
+  @Override
+  public <T> CollectionFuture<LongBKeyElements<T>> asyncBopGetElements(
+          String key, long from, long to, ElementFlagFilter eFlagFilter, int offset, int count,
+          boolean withDelete, boolean dropIfEmpty, Transcoder<T> tc) {
+    BTreeUtil.validateBkey(from, to);
+    BTreeGet get = new BTreeGet(from, to, offset, count, withDelete, dropIfEmpty, eFlagFilter);
+    return asyncBopGetElements(key, get, count, from > to, tc);
+  }
+
 //  @Override
 //  public CollectionFuture<Map<String, Object>> asyncMopGet(String key) {
 //    return asyncMopGet(key, false, false);
@@ -1708,6 +1861,23 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     return asyncCollectionInsert(key, String.valueOf(bkey), bTreeInsert, tc);
   }
 
+  @Override
+  public CollectionFuture<Boolean> asyncBopInsert(ArcusKey key, long bkey,
+                                                  byte[] eFlag, Object value,
+                                                  CollectionAttributes attributesForCreate) {
+    return asyncBopInsert(key, bkey, eFlag, value, attributesForCreate, collectionTranscoder);
+  }
+
+  @Override
+  public <T> CollectionFuture<Boolean> asyncBopInsert(ArcusKey key, long bkey,
+                                                      byte[] eFlag, T value,
+                                                      CollectionAttributes attributesForCreate,
+                                                      Transcoder<T> tc) {
+    BTreeUtil.validateBkey(bkey);
+    BTreeInsert<T> bTreeInsert = new BTreeInsert<>(value, eFlag, null, attributesForCreate);
+    return asyncCollectionInsert(key, String.valueOf(bkey), bTreeInsert, tc);
+  }
+
   @Override
   public <T> CollectionFuture<Boolean> asyncMopInsert(String key, String mkey,
                                                       T value,
@@ -1989,6 +2159,8 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
   /**
    * Turn the list of keys into groups of keys.
    * All keys in a group belong to the same memcached server.
+   * The group size is the server limit of the operation, not the chunk size policy,
+   * since these operations do not report their chunks to the policy.
    *
    * @param keyList   list of keys
    * @param maxKeyCountPerGroup max size of the key group (number of keys)
@@ -2100,10 +2272,15 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
   private <T> SMGetFuture<List<SMGetElement<T>>> smget(
           final List<BTreeSMGet<T>> smGetList, final int count, final boolean unique,
           final boolean reverse, final Transcoder<T> tc) {
+    return smget(smGetList, new SMGetResultImpl<T>(count, unique, reverse), tc);
+  }
+
+  private <T> SMGetFuture<List<SMGetElement<T>>> smget(
+          final List<BTreeSMGet<T>> smGetList, final SMGetResultImpl<T> result,
+          final Transcoder<T> tc) {
 
     final CountDownLatch blatch = new CountDownLatch(smGetList.size());
     final ConcurrentLinkedQueue<Operation> ops = new ConcurrentLinkedQueue<>();
-    final SMGetResultImpl<T> result = new SMGetResultImpl<>(count, unique, reverse);
 
     // if processedSMGetCount is 0, then all smget is done.
     final AtomicInteger processedSMGetCount = new AtomicInteger(smGetList.size());
@@ -2481,6 +2658,32 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     return asyncBopExtendedGet(key, get, reverse, tc);
   }
 
+  @Override
+  public BTreeCursor<Object> bopCursor(String key, long from, long to,
+                                       ElementFlagFilter eFlagFilter, int pageSize) {
+    return bopCursor(key, from, to, eFlagFilter, pageSize, collectionTranscoder);
+  }
+
+  @Override
+  public <T> BTreeCursor<T> bopCursor(String key, long from, long to,
+                                      ElementFlagFilter eFlagFilter, int pageSize,
+                                      Transcoder<T> tc) {
+    return BTreeCursor.create(this, key, from, to, eFlagFilter, pageSize, tc);
+  }
+
+  @Override
+  public BTreeCursor<Object> bopCursor(String key, byte[] from, byte[] to,
+                                       ElementFlagFilter eFlagFilter, int pageSize) {
+    return bopCursor(key, from, to, eFlagFilter, pageSize, collectionTranscoder);
+  }
+
+  @Override
+  public <T> BTreeCursor<T> bopCursor(String key, byte[] from, byte[] to,
+                                      ElementFlagFilter eFlagFilter, int pageSize,
+                                      Transcoder<T> tc) {
+    return BTreeCursor.create(this, key, from, to, eFlagFilter, pageSize, tc);
+  }
+
   /**
    * Generic get operation for b+tree items using byte-array type bkeys.
    * Public methods for b+tree items call this method.
@@ -2632,6 +2835,81 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     return rv;
   }
 
+  @Override
+  public CollectionFuture<LongBKeyElements<Object>> asyncBopGetElementsByPosition(
+          String key, BTreeOrder order, int from, int to) {
+    return asyncBopGetElementsByPosition(key, order, from, to, collectionTranscoder);
+  }
+
+  @Override
+  public <T> CollectionFuture<LongBKeyElements<T>> asyncBopGetElementsByPosition(
+          final String k, BTreeOrder order, int from, int to, final Transcoder<T> tc) {
+    final BTreeGetByPosition get = new BTreeGetByPosition(order, from, to);
+    if (get.getOrder() == null) {
+      throw new IllegalArgumentException("BTreeOrder must not be null.");
+    }
+    if (get.getPosFrom() < 0 || get.getPosTo() < 0) {
+      throw new IllegalArgumentException("Position must be 0 or positive integer.");
+    }
+    // positions ascending in ascending order, or descending in descending order,
+    // are in ascending order of bkey.
+    final boolean reverse = (order == BTreeOrder.DESC) != (from > to);
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    final CollectionGetFuture<LongBKeyElements<T>> rv =
+            new CollectionGetFuture<>(latch, operationTimeout);
+
+    Operation op = opFact.bopGetByPosition(k, get, new BTreeGetByPositionOperation.Callback() {
+      private final LongBKeyElements<T> elements =
+              new LongBKeyElements<>(Math.abs(to - from) + 1, reverse, tc);
+      private final GetResult<LongBKeyElements<T>> result =
+          new GetResult<LongBKeyElements<T>>() {
+            @Override
+            public LongBKeyElements<T> getDecodedValue() {
+              return elements;
+            }
+          };
+      private boolean bkeyMismatch = false;
+
+      public void receivedStatus(OperationStatus status) {
+        CollectionOperationStatus cstatus;
+        if (bkeyMismatch) {
+          cstatus = new CollectionOperationStatus(false, "BKEY_MISMATCH",
+                  CollectionResponse.BKEY_MISMATCH);
+        } else if (status instanceof CollectionOperationStatus) {
+          cstatus = (CollectionOperationStatus) status;
+        } else {
+          getLogger().warn("Unhandled state: " + status);
+          cstatus = new CollectionOperationStatus(status);
+        }
+        if (cstatus.isSuccess() || cstatus.getResponse() == CollectionResponse.NOT_FOUND_ELEMENT) {
+          rv.setResult(result, cstatus);
+          return;
+        }
+
+        rv.setResult(null, cstatus);
+        getLogger().debug("Operation failed for key(%s): %s", k, cstatus);
+      }
+
+      @Override
+      public void complete() {
+        latch.countDown();
+      }
+
+      @Override
+      public void gotData(int pos, int flags, BKeyObject bkeyObject, byte[] eflag, byte[] data) {
+        if (!bkeyObject.isLong()) {
+          bkeyMismatch = true;
+          return;
+        }
+        elements.add(bkeyObject.getLongBKey(), flags, eflag, data);
+      }
+    });
+    rv.setOperation(op);
+    addOp(k, op);
+    return rv;
+  }
+
   @Override
   public CollectionFuture<Integer> asyncBopFindPosition(String key, long bkey,
                                                         BTreeOrder order) {
@@ -3114,10 +3392,67 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
             (BTreeUtil.compareByteArraysInLexOrder(from, to) > 0), collectionTranscoder);
   }
 
+  @Override
+  public SMGetFuture<List<SMGetElement<Object>>> asyncBopSortMergeGet(
+          SMGetContinuation continuation, int count) {
+    if (continuation == null) {
+      throw new IllegalArgumentException("Continuation is null.");
+    }
+    if (count < 1) {
+      throw new IllegalArgumentException("Count must be larger than 0.");
+    }
+    if (count > MAX_SMGET_COUNT) {
+      throw new IllegalArgumentException("The count must not exceed a maximum of "
+              + MAX_SMGET_COUNT + ".");
+    }
+    List<String> keyList = continuation.getKeyList();
+    validateKeys(keyList);
+    checkDupKey(keyList);
+
+    // Elements returned in the previous page at the start bkey are fetched again and skipped.
+    int requestCount = Math.min(count + continuation.getSkipCount(), MAX_SMGET_COUNT);
+    SMGetMode smgetMode = continuation.getSMGetMode();
+    SMGetResultImpl<Object> result = new SMGetResultImpl<>(count,
+            smgetMode == SMGetMode.UNIQUE, continuation.isReverse(), continuation, requestCount);
+    if (!continuation.hasNext()) {
+      result.makeResultOperationStatus();
+      return new SMGetFuture<>(new ArrayList<Operation>(), result,
+              new CountDownLatch(0), operationTimeout);
+    }
+
+    BKeyObject from = continuation.getFrom();
+    BKeyObject to = continuation.getTo();
+    Collection<Entry<MemcachedNode, List<String>>> arrangedKey =
+            groupingKeys(keyList, smgetKeyChunkSize);
+    List<BTreeSMGet<Object>> smGetList = new ArrayList<>(
+            arrangedKey.size());
+    for (Entry<MemcachedNode, List<String>> entry : arrangedKey) {
+      if (from.isLong()) {
+        smGetList.add(new BTreeSMGetWithLongTypeBkey<>(entry.getKey(), entry.getValue(),
+                from.getLongBKey(), to.getLongBKey(), continuation.getEFlagFilter(),
+                requestCount, smgetMode));
+      } else {
+        smGetList.add(new BTreeSMGetWithByteTypeBkey<>(entry.getKey(), entry.getValue(),
+                from.getByteArrayBKeyRaw(), to.getByteArrayBKeyRaw(),
+                continuation.getEFlagFilter(), requestCount, smgetMode));
+      }
+    }
+    return smget(smGetList, result, collectionTranscoder);
+  }
+
   /**
    * Generic pipelined insert operation for collection items.
    * Public methods for collection items call this method.
    *
+   * At most {@link #PIPED_INSERT_WINDOW} chunks are encoded or in flight at once,
+   * so the memory held by a large insert does not grow with its elements.
+   * The first chunks are encoded in parallel by the encoder threads of this client
+   * and added in order on the caller thread, and an exception of the transcoder
+   * is thrown to the caller. Each later chunk is encoded and added on an encoder
+   * thread when the chunk {@link #PIPED_INSERT_WINDOW} before it completes.
+   * If a later chunk cannot be encoded or an operation is cancelled,
+   * the remaining chunks are cancelled.
+   *
    * @param key       collection item's key
    * @param insertList list of operation parameters (element values and so on)
    * @return future holding the map of element index and the result of its insert operation
@@ -3128,46 +3463,238 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
     final CountDownLatch latch = new CountDownLatch(insertList.size());
     final PipedCollectionFuture<Integer, CollectionOperationStatus> rv =
             new PipedCollectionFuture<>(latch, operationTimeout);
+    new PipedInsertChunks<>(key, insertList, rv, latch).start();
+    return rv;
+  }
 
-    for (int i = 0; i < insertList.size(); i++) {
-      final CollectionPipedInsert<T> insert = insertList.get(i);
-      final int idx = i;
-
-      Operation op = opFact.collectionPipedInsert(key, insert,
-          new CollectionPipedInsertOperation.Callback() {
-            // each result status
-            public void receivedStatus(OperationStatus status) {
-              CollectionOperationStatus cstatus;
-
-              if (status instanceof CollectionOperationStatus) {
-                cstatus = (CollectionOperationStatus) status;
-              } else {
-                getLogger().warn("Unhandled state: " + status);
-                cstatus = new CollectionOperationStatus(status);
-              }
-              rv.setOperationStatus(cstatus);
-            }
+  /**
+   * The chunks of one piped insert, added within the window.
+   */
+  private final class PipedInsertChunks<T> {
+    private final String key;
+    private final List<CollectionPipedInsert<T>> insertList;
+    private final PipedCollectionFuture<Integer, CollectionOperationStatus> rv;
+    private final CountDownLatch latch;
+    private ExecutorService encoder = null;
+
+    /* guarded by this */
+    private int nextChunk = 0;
+    private final ArrayDeque<Integer> readyChunks = new ArrayDeque<>();
+    private boolean adding = false;
+
+    private PipedInsertChunks(String key, List<CollectionPipedInsert<T>> insertList,
+                              PipedCollectionFuture<Integer, CollectionOperationStatus> rv,
+                              CountDownLatch latch) {
+      this.key = key;
+      this.insertList = insertList;
+      this.rv = rv;
+      this.latch = latch;
+    }
 
-            // complete
-            public void complete() {
-              latch.countDown();
+    private void start() {
+      int first = Math.min(insertList.size(), PIPED_INSERT_WINDOW);
+      List<Future<?>> encodings = null;
+      if (insertList.size() > 1) {
+        encoder = getPipedInsertEncoder();
+        encodings = new ArrayList<>(first);
+        for (int i = 0; i < first; i++) {
+          encodings.add(submitEncoding(encoder, insertList.get(i)));
+        }
+      }
+      synchronized (this) {
+        nextChunk = first;
+      }
+      for (int i = 0; i < first; i++) {
+        if (encodings != null) {
+          try {
+            awaitEncoding(encodings, i);
+          } catch (RuntimeException | Error e) {
+            synchronized (this) {
+              // the future is not returned, so the later chunks are not added.
+              nextChunk = insertList.size();
             }
+            throw e;
+          }
+        }
+        Operation op = createOperation(i);
+        rv.addOperation(op);
+        addOp(key, op);
+      }
+    }
 
-            // got status
-            public void gotStatus(Integer index, OperationStatus status) {
-              if (status instanceof CollectionOperationStatus) {
-                rv.addEachResult(index + (idx * CollectionPipedInsert.MAX_PIPED_ITEM_COUNT),
-                                (CollectionOperationStatus) status);
-              } else {
-                rv.addEachResult(index + (idx * CollectionPipedInsert.MAX_PIPED_ITEM_COUNT),
-                                new CollectionOperationStatus(status));
-              }
+    /**
+     * Called when a chunk has completed or has been cancelled.
+     */
+    private void chunkCompleted(Operation op) {
+      latch.countDown();
+      boolean startAdding = false;
+      synchronized (this) {
+        if (nextChunk >= insertList.size()) {
+          return;
+        }
+        if (!op.isCancelled()) {
+          readyChunks.add(nextChunk++);
+          startAdding = !adding;
+          adding = true;
+        }
+      }
+      if (op.isCancelled()) {
+        cancelRemainingChunks("an earlier chunk is cancelled");
+      } else if (startAdding) {
+        try {
+          encoder.execute(new Runnable() {
+            public void run() {
+              addReadyChunks();
             }
           });
-      rv.addOperation(op);
-      addOp(key, op);
+        } catch (RejectedExecutionException e) {
+          cancelRemainingChunks("client shutdown");
+        }
+      }
+    }
+
+    /**
+     * Encode and add the ready chunks in order, on an encoder thread.
+     */
+    private void addReadyChunks() {
+      while (true) {
+        Integer index;
+        synchronized (this) {
+          index = readyChunks.poll();
+          if (index == null) {
+            adding = false;
+            return;
+          }
+        }
+        Operation op = createOperation(index);
+        rv.addOperation(op);
+        try {
+          insertList.get(index).encode();
+          addOp(key, op);
+        } catch (RuntimeException e) {
+          op.cancel("piped insert failed : " + e);
+        }
+      }
+    }
+
+    private void cancelRemainingChunks(String cause) {
+      int from;
+      synchronized (this) {
+        from = readyChunks.isEmpty() ? nextChunk : readyChunks.peek();
+        readyChunks.clear();
+        nextChunk = insertList.size();
+        adding = false;
+      }
+      for (int i = from; i < insertList.size(); i++) {
+        Operation op = createOperation(i);
+        rv.addOperation(op);
+        op.cancel(cause);
+      }
+    }
+
+    private Operation createOperation(int idx) {
+      ChunkCallback cb = new ChunkCallback(idx);
+      Operation op = opFact.collectionPipedInsert(key, insertList.get(idx), cb);
+      cb.op = op;
+      return op;
+    }
+
+    private final class ChunkCallback implements CollectionPipedInsertOperation.Callback {
+      private final int idx;
+      private Operation op;
+
+      private ChunkCallback(int idx) {
+        this.idx = idx;
+      }
+
+      // each result status
+      public void receivedStatus(OperationStatus status) {
+        CollectionOperationStatus cstatus;
+
+        if (status instanceof CollectionOperationStatus) {
+          cstatus = (CollectionOperationStatus) status;
+        } else {
+          getLogger().warn("Unhandled state: " + status);
+          cstatus = new CollectionOperationStatus(status);
+        }
+        rv.setOperationStatus(cstatus);
+      }
+
+      // complete
+      public void complete() {
+        chunkCompleted(op);
+      }
+
+      // got status
+      public void gotStatus(Integer index, OperationStatus status) {
+        if (status instanceof CollectionOperationStatus) {
+          rv.addEachResult(index + (idx * CollectionPipedInsert.MAX_PIPED_ITEM_COUNT),
+                          (CollectionOperationStatus) status);
+        } else {
+          rv.addEachResult(index + (idx * CollectionPipedInsert.MAX_PIPED_ITEM_COUNT),
+                          new CollectionOperationStatus(status));
+        }
+      }
+    }
+  }
+
+  private synchronized ExecutorService getPipedInsertEncoder() {
+    // the encoder is not created again after shutdown.
+    checkState();
+    if (pipedInsertEncoder == null) {
+      int threads = Math.min(PIPED_INSERT_WINDOW,
+          Runtime.getRuntime().availableProcessors());
+      pipedInsertEncoder = Executors.newFixedThreadPool(threads,
+          new BasicThreadFactory("ArcusPipedInsertEncoder", true));
+    }
+    return pipedInsertEncoder;
+  }
+
+  private static Future<?> submitEncoding(ExecutorService encoder,
+                                          final CollectionPipedInsert<?> insert) {
+    try {
+      return encoder.submit(new Runnable() {
+        public void run() {
+          insert.encode();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      throw new IllegalStateException("Shutting down", e);
+    }
+  }
+
+  /**
+   * Wait for the encoding of the given chunk.
+   * If it has failed, the encodings of the later chunks are cancelled
+   * and the failure is thrown, so that no operation is added for them.
+   */
+  private static void awaitEncoding(List<Future<?>> encodings, int index) {
+    try {
+      encodings.get(index).get();
+    } catch (InterruptedException e) {
+      cancelEncodings(encodings, index);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted encoding piped insert", e);
+    } catch (CancellationException e) {
+      cancelEncodings(encodings, index);
+      throw new IllegalStateException("Shutting down", e);
+    } catch (ExecutionException e) {
+      cancelEncodings(encodings, index);
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    }
+  }
+
+  private static void cancelEncodings(List<Future<?>> encodings, int index) {
+    for (int i = index; i < encodings.size(); i++) {
+      encodings.get(i).cancel(false);
     }
-    return rv;
   }
 
   @Override
@@ -3511,6 +4038,82 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
             latch, ops, result, operationTimeout);
   }
 
+  @Override
+  public CollectionGetBulkFuture<Map<String, LongBKeyGetResult<Object>>> asyncBopGetBulkElements(
+          List<String> keyList, long from, long to,
+          ElementFlagFilter eFlagFilter, int offset, int count) {
+    return asyncBopGetBulkElements(keyList, from, to, eFlagFilter, offset, count,
+            collectionTranscoder);
+  }
+
+  @Override
+  public <T> CollectionGetBulkFuture<Map<String, LongBKeyGetResult<T>>> asyncBopGetBulkElements(
+          List<String> keyList, final long from, final long to,
+          ElementFlagFilter eFlagFilter, int offset, int count, final Transcoder<T> tc) {
+    validateKeys(keyList);
+    checkDupKey(keyList);
+    if (offset < 0) {
+      throw new IllegalArgumentException("Offset must be 0 or positive integer.");
+    }
+    if (count < 1) {
+      throw new IllegalArgumentException("Count must be larger than 0.");
+    }
+    if (count > MAX_GETBULK_ELEMENT_COUNT) {
+      throw new IllegalArgumentException("Count must not exceed a maximum of "
+          + MAX_GETBULK_ELEMENT_COUNT + ".");
+    }
+
+    Collection<Entry<MemcachedNode, List<String>>> rearrangedKeys =
+            groupingKeys(keyList, BOPGET_BULK_CHUNK_SIZE);
+
+    final CountDownLatch latch = new CountDownLatch(rearrangedKeys.size());
+    final ConcurrentLinkedQueue<Operation> ops = new ConcurrentLinkedQueue<>();
+    final Map<String, LongBKeyGetResult<T>> resultMap = new HashMap<>();
+    final GetResult<Map<String, LongBKeyGetResult<T>>> result =
+        new GetResult<Map<String, LongBKeyGetResult<T>>>() {
+          @Override
+          public Map<String, LongBKeyGetResult<T>> getDecodedValue() {
+            return resultMap;
+          }
+        };
+
+    for (Entry<MemcachedNode, List<String>> entry : rearrangedKeys) {
+      BTreeGetBulk<T> getBulk = new BTreeGetBulkWithLongTypeBkey<>(entry.getKey(),
+              entry.getValue(), from, to, eFlagFilter, offset, count);
+      Operation op = opFact.bopGetBulk(getBulk, new BTreeGetBulkOperation.Callback() {
+        private LongBKeyElements<T> elements;
+
+        @Override
+        public void receivedStatus(OperationStatus status) {
+          // Nothing to do here because the user MUST search the result Map instance.
+        }
+
+        @Override
+        public void complete() {
+          latch.countDown();
+        }
+
+        @Override
+        public void gotKey(String key, int elementCount, OperationStatus status) {
+          elements = (elementCount > 0) ?
+              new LongBKeyElements<>(elementCount, from > to, tc) : null;
+          resultMap.put(key, new LongBKeyGetResult<>(elements,
+                  (CollectionOperationStatus) status));
+        }
+
+        @Override
+        public void gotElement(String key, int flags, Object bkey, byte[] eflag, byte[] data) {
+          assert elements != null : "Element list not prepared in bopGetBulk";
+          elements.add((Long) bkey, flags, eflag, data);
+        }
+      });
+      ops.add(op);
+      addOp(getBulk.getMemcachedNode(), op);
+    }
+
+    return new CollectionGetBulkFuture<>(latch, ops, result, operationTimeout);
+  }
+
   /**
    * Generic bulk get operation for b+tree items using byte-array type bkeys.
    * Public methods call this method.
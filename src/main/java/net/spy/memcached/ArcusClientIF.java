@@ -30,6 +30,9 @@ import net.spy.memcached.collection.Element;
 import net.spy.memcached.collection.ElementFlagFilter;
 import net.spy.memcached.collection.ElementFlagUpdate;
 import net.spy.memcached.collection.ElementValueType;
+import net.spy.memcached.collection.LongBKeyElements;
+import net.spy.memcached.collection.LongBKeyGetResult;
+import net.spy.memcached.collection.SMGetContinuation;
 import net.spy.memcached.collection.SMGetElement;
 import net.spy.memcached.collection.SMGetMode;
 import net.spy.memcached.internal.BTreeStoreAndGetFuture;
@@ -41,6 +44,7 @@ import net.spy.memcached.ops.CollectionOperationStatus;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.StoreType;
 import net.spy.memcached.transcoders.Transcoder;
+import net.spy.memcached.util.BTreeCursor;
 
 /**
  * Interface for Arcus specific commands
@@ -663,6 +667,104 @@ public interface ArcusClientIF {
                                                           boolean dropIfEmpty,
                                                           Transcoder<T> tc);
 
+  /**
+   * Retrieves count number of items in given bkey range(from..to)
+   * from offset in the b+tree of the key handle.
+   *
+   * @param key         key handle of a b+tree
+   * @param from        the first bkey
+   * @param to          the last bkey
+   * @param eFlagFilter element flag filter
+   * @param offset      0-based offset
+   * @param count       number of returning values (0 to all)
+   * @param withDelete  true to remove the returned item in the b+tree
+   * @param dropIfEmpty true to remove the key when all elements are removed.
+   * @return a future that will hold the return value map of the fetch
+   * @see #asyncBopGet(String, long, long, ElementFlagFilter, int, int, boolean, boolean)
+   */
+  CollectionFuture<Map<Long, Element<Object>>> asyncBopGet(ArcusKey key,
+                                                           long from, long to,
+                                                           ElementFlagFilter eFlagFilter,
+                                                           int offset, int count,
+                                                           boolean withDelete,
+                                                           boolean dropIfEmpty);
+
+  /**
+   * Retrieves count number of items in given bkey range(from..to)
+   * from offset in the b+tree of the key handle.
+   *
+   * @param <T>         the expected class of the value
+   * @param key         key handle of a b+tree
+   * @param from        the first bkey
+   * @param to          the last bkey
+   * @param eFlagFilter element flag filter
+   * @param offset      0-based offset
+   * @param count       number of returning values (0 to all)
+   * @param withDelete  true to remove the returned item in the b+tree
+   * @param dropIfEmpty true to remove the key when all elements are removed.
+   * @param tc          a transcoder to decode returned values
+   * @return a future that will hold the return value map of the fetch
+   * @see #asyncBopGet(String, long, long, ElementFlagFilter, int, int, boolean, boolean,
+   * Transcoder)
+   */
+  <T> CollectionFuture<Map<Long, Element<T>>> asyncBopGet(ArcusKey key,
+                                                          long from, long to,
+                                                          ElementFlagFilter eFlagFilter,
+                                                          int offset, int count,
+                                                          boolean withDelete,
+                                                          boolean dropIfEmpty,
+                                                          Transcoder<T> tc);
+
+  /**
+   * Retrieves count number of items in given bkey range(from..to)
+   * from offset in the b+tree, into {@link LongBKeyElements}.
+   * The returned elements are in the order of the given range.
+   * <pre>{@code
+   *  from >= to : in descending order
+   *  from < to  : in ascending order
+   * }</pre>
+   *
+   * @param key         key of a b+tree
+   * @param from        the first bkey
+   * @param to          the last bkey
+   * @param eFlagFilter element flag filter
+   * @param offset      0-based offset
+   * @param count       number of returning values (0 to all)
+   * @param withDelete  true to remove the returned item in the b+tree
+   * @param dropIfEmpty true to remove the key when all elements are removed.
+   *                    false b+ tree will remain empty even if all the elements are removed
+   * @return a future that will hold the elements of the fetch
+   */
+  CollectionFuture<LongBKeyElements<Object>> asyncBopGetElements(
+          String key, long from, long to, ElementFlagFilter eFlagFilter, int offset, int count,
+          boolean withDelete, boolean dropIfEmpty);
+
+  /**
+   * Retrieves count number of items in given bkey range(from..to)
+   * from offset in the b+tree, into {@link LongBKeyElements}.
+   * The returned elements are in the order of the given range.
+   * <pre>{@code
+   *  from >= to : in descending order
+   *  from < to  : in ascending order
+   * }</pre>
+   *
+   * @param <T>         the expected class of the value
+   * @param key         key of a b+tree
+   * @param from        the first bkey
+   * @param to          the last bkey
+   * @param eFlagFilter element flag filter
+   * @param offset      0-based offset
+   * @param count       number of returning values (0 to all)
+   * @param withDelete  true to remove the returned item in the b+tree
+   * @param dropIfEmpty true to remove the key when all elements are removed.
+   *                    false b+ tree will remain empty even if all the elements are removed
+   * @param tc          a transcoder to decode returned values
+   * @return a future that will hold the elements of the fetch
+   */
+  <T> CollectionFuture<LongBKeyElements<T>> asyncBopGetElements(
+          String key, long from, long to, ElementFlagFilter eFlagFilter, int offset, int count,
+          boolean withDelete, boolean dropIfEmpty, Transcoder<T> tc);
+
 //  /**
 //   * Retrieves all items from the map
 //   *
@@ -1206,6 +1308,41 @@ public interface ArcusClientIF {
                                                CollectionAttributes attributesForCreate,
                                                Transcoder<T> tc);
 
+  /**
+   * Inserts an item into the b+tree of the key handle.
+   *
+   * @param key                 key handle of a b+tree
+   * @param bkey                key of a b+tree node
+   * @param eFlag               element flag. Length of element flag is between 1 and 31.
+   *                            if this argument is null, Arcus don't assign element flag.
+   * @param value               a value to insert into the b+tree
+   * @param attributesForCreate attributes of the key
+   * @return a future indicating success, false if there was no key and
+   * attributesForCreate is null
+   */
+  CollectionFuture<Boolean> asyncBopInsert(ArcusKey key, long bkey,
+                                           byte[] eFlag, Object value,
+                                           CollectionAttributes attributesForCreate);
+
+  /**
+   * Inserts an item into the b+tree of the key handle.
+   *
+   * @param <T>                 the expected class of the value
+   * @param key                 key handle of a b+tree
+   * @param bkey                key of a b+tree node
+   * @param eFlag               element flag. Length of element flag is between 1 and 31.
+   *                            if this argument is null, Arcus don't assign element flag.
+   * @param value               a value to insert into the b+tree
+   * @param attributesForCreate attributes of the key
+   * @param tc                  a trancoder to encode the value
+   * @return a future indicating success, false if there was no key
+   * and attributesForCreate parameter is null.
+   */
+  <T> CollectionFuture<Boolean> asyncBopInsert(ArcusKey key, long bkey,
+                                               byte[] eFlag, T value,
+                                               CollectionAttributes attributesForCreate,
+                                               Transcoder<T> tc);
+
   /**
    * Inserts an item into the map
    *
@@ -1944,6 +2081,92 @@ public interface ArcusClientIF {
           int count, boolean withDelete, boolean dropIfEmpty,
           Transcoder<T> tc);
 
+  /**
+   * Iterate over the items in given bkey range(from..to) of the b+tree,
+   * fetching pageSize items at a time.
+   * The next page is fetched from the last bkey of the current page
+   * while the current page is consumed.
+   * <pre>{@code
+   *  from >= to : in descending order
+   *  from < to  : in ascending order
+   * }</pre>
+   *
+   * @param key         key of a b+tree
+   * @param from        the first bkey
+   * @param to          the last bkey
+   * @param eFlagFilter element flag filter
+   * @param pageSize    number of items fetched at a time
+   * @return a cursor over the items in the range
+   */
+  BTreeCursor<Object> bopCursor(String key, long from, long to,
+                                ElementFlagFilter eFlagFilter, int pageSize);
+
+  /**
+   * Iterate over the items in given bkey range(from..to) of the b+tree,
+   * fetching pageSize items at a time.
+   * The next page is fetched from the last bkey of the current page
+   * while the current page is consumed.
+   * <pre>{@code
+   *  from >= to : in descending order
+   *  from < to  : in ascending order
+   * }</pre>
+   *
+   * @param <T>         the expected class of the value
+   * @param key         key of a b+tree
+   * @param from        the first bkey
+   * @param to          the last bkey
+   * @param eFlagFilter element flag filter
+   * @param pageSize    number of items fetched at a time
+   * @param tc          a transcoder to decode returned values
+   * @return a cursor over the items in the range
+   */
+  <T> BTreeCursor<T> bopCursor(String key, long from, long to,
+                               ElementFlagFilter eFlagFilter, int pageSize,
+                               Transcoder<T> tc);
+
+  /**
+   * Iterate over the items in given bkey range(from..to) of the b+tree,
+   * fetching pageSize items at a time.
+   * The next page is fetched from the last bkey of the current page
+   * while the current page is consumed.
+   * <pre>{@code
+   *  from >= to : in descending order
+   *  from < to  : in ascending order
+   * }</pre>
+   *
+   * @param key         key of a b+tree
+   * @param from        the first bkey
+   * @param to          the last bkey
+   * @param eFlagFilter element flag filter
+   * @param pageSize    number of items fetched at a time
+   * @return a cursor over the items in the range
+   */
+  BTreeCursor<Object> bopCursor(String key, byte[] from, byte[] to,
+                                ElementFlagFilter eFlagFilter, int pageSize);
+
+  /**
+   * Iterate over the items in given bkey range(from..to) of the b+tree,
+   * fetching pageSize items at a time.
+   * The next page is fetched from the last bkey of the current page
+   * while the current page is consumed.
+   * <pre>{@code
+   *  from >= to : in descending order
+   *  from < to  : in ascending order
+   * }</pre>
+   *
+   * @param <T>         the expected class of the value
+   * @param key         key of a b+tree
+   * @param from        the first bkey
+   * @param to          the last bkey
+   * @param eFlagFilter element flag filter
+   * @param pageSize    number of items fetched at a time
+   * @param tc          a transcoder to decode returned values
+   * @return a cursor over the items in the range
+   */
+  <T> BTreeCursor<T> bopCursor(String key, byte[] from, byte[] to,
+                               ElementFlagFilter eFlagFilter, int pageSize,
+                               Transcoder<T> tc);
+
   /**
    * Get elements that matched both filter and bkey range criteria from
    * multiple b+tree. The result is sorted by order of bkey.
@@ -1977,6 +2200,21 @@ public interface ArcusClientIF {
           List<String> keyList, byte[] from, byte[] to, ElementFlagFilter eFlagFilter,
           int count, SMGetMode smgetMode);
 
+  /**
+   * Get the next page of elements that matched both filter and bkey range criteria
+   * from multiple b+tree. The result is sorted by order of bkey.
+   * The page resumes from the position given by the continuation token,
+   * so the elements of the previous pages are not fetched again.
+   * The token of the first page is created with the key list and the range,
+   * and the token of the following page is given by {@link SMGetFuture#getContinuation()}.
+   *
+   * @param continuation continuation token of the page
+   * @param count        number of returning values. must be larger than 0 and not more than 1000.
+   * @return a future that will hold the return value list of the fetch.
+   */
+  SMGetFuture<List<SMGetElement<Object>>> asyncBopSortMergeGet(
+          SMGetContinuation continuation, int count);
+
   /**
    * Insert one item into multiple b+trees at once.
    *
@@ -2086,6 +2324,41 @@ public interface ArcusClientIF {
           ElementFlagFilter eFlagFilter, int offset, int count,
           Transcoder<T> tc);
 
+  /**
+   * Get elements from multiple b+trees, into {@link LongBKeyElements}.
+   *
+   * @param keyList     key list of b+tree
+   * @param from        bkey from
+   * @param to          bkey to
+   * @param eFlagFilter element flag filter
+   * @param offset      0-based offset. must be 0 or positive.
+   * @param count       number of elements to retrieve from each b+tree.
+   *                    must be larger than 0 and not more than 50.
+   * @return future indicating result of each b+tree
+   */
+  CollectionGetBulkFuture<Map<String, LongBKeyGetResult<Object>>> asyncBopGetBulkElements(
+          List<String> keyList, long from, long to,
+          ElementFlagFilter eFlagFilter, int offset, int count);
+
+  /**
+   * Get elements from multiple b+trees, into {@link LongBKeyElements}.
+   *
+   * @param <T>         the expected class of the value
+   * @param keyList     key list of b+tree
+   * @param from        bkey from
+   * @param to          bkey to
+   * @param eFlagFilter element flag filter
+   * @param offset      0-based offset. must be 0 or positive.
+   * @param count       number of elements to retrieve from each b+tree.
+   *                    must be larger than 0 and not more than 50.
+   * @param tc          transcoder to decode value
+   * @return future indicating result of each b+tree
+   */
+  <T> CollectionGetBulkFuture<Map<String, LongBKeyGetResult<T>>> asyncBopGetBulkElements(
+          List<String> keyList, long from, long to,
+          ElementFlagFilter eFlagFilter, int offset, int count,
+          Transcoder<T> tc);
+
   /**
    * Increment the element's value in b+tree.
    *
@@ -2228,6 +2501,40 @@ public interface ArcusClientIF {
   <T> CollectionFuture<Map<Integer, Element<T>>> asyncBopGetByPosition(
           String key, BTreeOrder order, int from, int to, Transcoder<T> tc);
 
+  /**
+   * Get multiple elements from b+tree with long bkeys using positions,
+   * into {@link LongBKeyElements}.
+   * The element at index i of the result is at position from + i
+   * (from - i if from is larger than to).
+   * If the b+tree has byte array bkeys, the future holds null with BKEY_MISMATCH.
+   *
+   * @param key   b+tree item's key
+   * @param order ascending/descending order
+   * @param from  start position
+   * @param to    end position
+   * @return future holding the elements
+   */
+  CollectionFuture<LongBKeyElements<Object>> asyncBopGetElementsByPosition(
+          String key, BTreeOrder order, int from, int to);
+
+  /**
+   * Get multiple elements from b+tree with long bkeys using positions,
+   * into {@link LongBKeyElements}.
+   * The element at index i of the result is at position from + i
+   * (from - i if from is larger than to).
+   * If the b+tree has byte array bkeys, the future holds null with BKEY_MISMATCH.
+   *
+   * @param <T>   the expected class of the value
+   * @param key   b+tree item's key
+   * @param order ascending/descending order
+   * @param from  start position
+   * @param to    end position
+   * @param tc    transcoder to serialize and unserialize value
+   * @return future holding the elements
+   */
+  <T> CollectionFuture<LongBKeyElements<T>> asyncBopGetElementsByPosition(
+          String key, BTreeOrder order, int from, int to, Transcoder<T> tc);
+
   /**
    * Get the position of the element in b+tree.
    *
@@ -37,6 +37,9 @@ import net.spy.memcached.collection.Element;
 import net.spy.memcached.collection.ElementFlagFilter;
 import net.spy.memcached.collection.ElementFlagUpdate;
 import net.spy.memcached.collection.ElementValueType;
+import net.spy.memcached.collection.LongBKeyElements;
+import net.spy.memcached.collection.LongBKeyGetResult;
+import net.spy.memcached.collection.SMGetContinuation;
 import net.spy.memcached.collection.SMGetElement;
 import net.spy.memcached.collection.SMGetMode;
 import net.spy.memcached.internal.BTreeStoreAndGetFuture;
@@ -50,6 +53,7 @@ import net.spy.memcached.ops.CollectionOperationStatus;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.StoreType;
 import net.spy.memcached.transcoders.Transcoder;
+import net.spy.memcached.util.BTreeCursor;
 
 /**
  * Bags for ArcusClient
@@ -212,6 +216,16 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
     return this.getClient().set(key, exp, o);
   }
 
+  @Override
+  public <T> OperationFuture<Boolean> set(ArcusKey key, int exp, T o, Transcoder<T> tc) {
+    return this.getClient().set(key, exp, o, tc);
+  }
+
+  @Override
+  public OperationFuture<Boolean> set(ArcusKey key, int exp, Object o) {
+    return this.getClient().set(key, exp, o);
+  }
+
   @Override
   public <T> OperationFuture<Boolean> replace(String key, int exp, T o,
                                               Transcoder<T> tc) {
@@ -233,6 +247,16 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
     return this.getClient().asyncGet(key);
   }
 
+  @Override
+  public <T> GetFuture<T> asyncGet(ArcusKey key, Transcoder<T> tc) {
+    return this.getClient().asyncGet(key, tc);
+  }
+
+  @Override
+  public GetFuture<Object> asyncGet(ArcusKey key) {
+    return this.getClient().asyncGet(key);
+  }
+
   @Override
   public <T> GetFuture<CASValue<T>> asyncGets(String key, Transcoder<T> tc) {
     return this.getClient().asyncGets(key, tc);
@@ -265,6 +289,17 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
     return this.getClient().get(key);
   }
 
+  @Override
+  public <T> T get(ArcusKey key, Transcoder<T> tc)
+          throws OperationTimeoutException {
+    return this.getClient().get(key, tc);
+  }
+
+  @Override
+  public Object get(ArcusKey key) throws OperationTimeoutException {
+    return this.getClient().get(key);
+  }
+
   @Override
   public <T> BulkFuture<Map<String, T>> asyncGetBulk(Collection<String> keys,
                                                      Iterator<Transcoder<T>> tcs) {
@@ -295,6 +330,17 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
     return this.getClient().asyncGetBulk(keys);
   }
 
+  @Override
+  public <T> BulkFuture<Map<String, T>> asyncGetBulk(Transcoder<T> tc,
+                                                     ArcusKey... keys) {
+    return this.getClient().asyncGetBulk(tc, keys);
+  }
+
+  @Override
+  public BulkFuture<Map<String, Object>> asyncGetBulk(ArcusKey... keys) {
+    return this.getClient().asyncGetBulk(keys);
+  }
+
   @Override
   public <T> BulkFuture<Map<String, CASValue<T>>> asyncGetsBulk(Collection<String> keys,
                                                                 Iterator<Transcoder<T>> tcs) {
@@ -451,6 +497,11 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
     return this.getClient().delete(key);
   }
 
+  @Override
+  public OperationFuture<Boolean> delete(ArcusKey key) {
+    return this.getClient().delete(key);
+  }
+
   @Override
   public Future<Boolean> flush(int delay) {
     return this.getClient().flush(delay);
@@ -743,6 +794,45 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
             count, withDelete, dropIfEmpty, tc);
   }
 
+  @Override
+  public CollectionFuture<Map<Long, Element<Object>>> asyncBopGet(ArcusKey key,
+                                                                  long from, long to,
+                                                                  ElementFlagFilter eFlagFilter,
+                                                                  int offset, int count,
+                                                                  boolean withDelete,
+                                                                  boolean dropIfEmpty) {
+    return this.getClient().asyncBopGet(key, from, to, eFlagFilter, offset,
+            count, withDelete, dropIfEmpty);
+  }
+
+  @Override
+  public <T> CollectionFuture<Map<Long, Element<T>>> asyncBopGet(ArcusKey key,
+                                                                 long from, long to,
+                                                                 ElementFlagFilter eFlagFilter,
+                                                                 int offset, int count,
+                                                                 boolean withDelete,
+                                                                 boolean dropIfEmpty,
+                                                                 Transcoder<T> tc) {
+    return this.getClient().asyncBopGet(key, from, to, eFlagFilter, offset,
+            count, withDelete, dropIfEmpty, tc);
+  }
+
+  @Override
+  public CollectionFuture<LongBKeyElements<Object>> asyncBopGetElements(
+          String key, long from, long to, ElementFlagFilter eFlagFilter, int offset, int count,
+          boolean withDelete, boolean dropIfEmpty) {
+    return this.getClient().asyncBopGetElements(key, from, to, eFlagFilter, offset,
+            count, withDelete, dropIfEmpty);
+  }
+
+  @Override
+  public <T> CollectionFuture<LongBKeyElements<T>> asyncBopGetElements(
+          String key, long from, long to, ElementFlagFilter eFlagFilter, int offset, int count,
+          boolean withDelete, boolean dropIfEmpty, Transcoder<T> tc) {
+    return this.getClient().asyncBopGetElements(key, from, to, eFlagFilter, offset,
+            count, withDelete, dropIfEmpty, tc);
+  }
+
 //  @Override
 //  public CollectionFuture<Map<String, Object>> asyncMopGet(String key) {
 //    return this.getClient().asyncMopGet(key);
@@ -1015,6 +1105,23 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
             attributesForCreate);
   }
 
+  @Override
+  public CollectionFuture<Boolean> asyncBopInsert(ArcusKey key, long bkey,
+                                                  byte[] eFlag, Object value,
+                                                  CollectionAttributes attributesForCreate) {
+    return this.getClient().asyncBopInsert(key, bkey, eFlag, value,
+            attributesForCreate);
+  }
+
+  @Override
+  public <T> CollectionFuture<Boolean> asyncBopInsert(ArcusKey key, long bkey,
+                                                      byte[] eFlag, T value,
+                                                      CollectionAttributes attributesForCreate,
+                                                      Transcoder<T> tc) {
+    return this.getClient().asyncBopInsert(key, bkey, eFlag, value,
+            attributesForCreate, tc);
+  }
+
   @Override
   public <T> CollectionFuture<Boolean> asyncMopInsert(String key, String mkey,
                                                       T value,
@@ -1374,6 +1481,38 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
             count, withDelete, dropIfEmpty, tc);
   }
 
+  @Override
+  public BTreeCursor<Object> bopCursor(String key, long from, long to,
+                                       ElementFlagFilter eFlagFilter, int pageSize) {
+    return this.getClient().bopCursor(key, from, to, eFlagFilter, pageSize);
+  }
+
+  @Override
+  public <T> BTreeCursor<T> bopCursor(String key, long from, long to,
+                                      ElementFlagFilter eFlagFilter, int pageSize,
+                                      Transcoder<T> tc) {
+    return this.getClient().bopCursor(key, from, to, eFlagFilter, pageSize, tc);
+  }
+
+  @Override
+  public BTreeCursor<Object> bopCursor(String key, byte[] from, byte[] to,
+                                       ElementFlagFilter eFlagFilter, int pageSize) {
+    return this.getClient().bopCursor(key, from, to, eFlagFilter, pageSize);
+  }
+
+  @Override
+  public <T> BTreeCursor<T> bopCursor(String key, byte[] from, byte[] to,
+                                      ElementFlagFilter eFlagFilter, int pageSize,
+                                      Transcoder<T> tc) {
+    return this.getClient().bopCursor(key, from, to, eFlagFilter, pageSize, tc);
+  }
+
+  @Override
+  public SMGetFuture<List<SMGetElement<Object>>> asyncBopSortMergeGet(
+          SMGetContinuation continuation, int count) {
+    return this.getClient().asyncBopSortMergeGet(continuation, count);
+  }
+
   @Override
   public SMGetFuture<List<SMGetElement<Object>>> asyncBopSortMergeGet(
           List<String> keyList, byte[] from, byte[] to,
@@ -1440,6 +1579,23 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
             offset, count, tc);
   }
 
+  @Override
+  public CollectionGetBulkFuture<Map<String, LongBKeyGetResult<Object>>> asyncBopGetBulkElements(
+          List<String> keyList, long from, long to,
+          ElementFlagFilter eFlagFilter, int offset, int count) {
+    return this.getClient().asyncBopGetBulkElements(keyList, from, to, eFlagFilter,
+            offset, count);
+  }
+
+  @Override
+  public <T> CollectionGetBulkFuture<Map<String, LongBKeyGetResult<T>>> asyncBopGetBulkElements(
+          List<String> keyList, long from, long to,
+          ElementFlagFilter eFlagFilter, int offset, int count,
+          Transcoder<T> tc) {
+    return this.getClient().asyncBopGetBulkElements(keyList, from, to, eFlagFilter,
+            offset, count, tc);
+  }
+
   @Override
   public CollectionFuture<Long> asyncBopIncr(String key, long bkey, int by) {
     return this.getClient().asyncBopIncr(key, bkey, by);
@@ -1508,6 +1664,18 @@ public class ArcusClientPool implements MemcachedClientIF, ArcusClientIF {
     return this.getClient().asyncBopGetByPosition(key, order, from, to, tc);
   }
 
+  @Override
+  public CollectionFuture<LongBKeyElements<Object>> asyncBopGetElementsByPosition(
+          String key, BTreeOrder order, int from, int to) {
+    return this.getClient().asyncBopGetElementsByPosition(key, order, from, to);
+  }
+
+  @Override
+  public <T> CollectionFuture<LongBKeyElements<T>> asyncBopGetElementsByPosition(
+          String key, BTreeOrder order, int from, int to, Transcoder<T> tc) {
+    return this.getClient().asyncBopGetElementsByPosition(key, order, from, to, tc);
+  }
+
   @Override
   public CollectionFuture<Integer> asyncBopFindPosition(String key,
                                                         long longBKey, BTreeOrder order) {
@@ -154,6 +154,10 @@ public class ArcusKetamaNodeLocator extends SpyObject implements NodeLocator {
     return getNodeForKey(hashAlg.hash(k));
   }
 
+  MemcachedNode getPrimary(final ArcusKey k) {
+    return getNodeForKey(k.hash(hashAlg));
+  }
+
   MemcachedNode getNodeForKey(long hash) {
     lock.lock();
     try {
@@ -0,0 +1,118 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+/**
+ * Key handle that caches the work derived from a key string.
+ *
+ * The UTF-8 bytes are encoded once on creation. The ketama hash used to
+ * locate the node and the result of the key validation are computed on the
+ * first request and reused by every later request with the same handle.
+ * Applications that access the same hot keys over and over can keep the
+ * handles and pass them to the client instead of the key strings.
+ *
+ * An ArcusKey is immutable from the user's point of view and can be shared
+ * by multiple threads and multiple clients.
+ */
+public final class ArcusKey {
+
+  private static final int NOT_VALIDATED = Integer.MIN_VALUE;
+
+  private final String key;
+  private final byte[] keyBytes;
+
+  // Both caches may be computed more than once by racing threads,
+  // but every thread computes the same value.
+  // They are volatile, as a long field may otherwise be read half written.
+  private volatile long ketamaHash = -1;
+  private volatile int validatedDelimiter = NOT_VALIDATED;
+
+  private ArcusKey(String key) {
+    if (key == null) {
+      throw new IllegalArgumentException("Key is null.");
+    }
+    this.key = key;
+    this.keyBytes = KeyUtil.getKeyBytes(key);
+  }
+
+  /**
+   * Create a key handle for the given key string.
+   *
+   * @param key the key string
+   * @return the key handle
+   */
+  public static ArcusKey of(String key) {
+    return new ArcusKey(key);
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * Get the UTF-8 bytes of the key.
+   * The returned array is shared and must not be modified.
+   */
+  byte[] getKeyBytes() {
+    return keyBytes;
+  }
+
+  /**
+   * Get the hash of the key with the given algorithm.
+   * Only the ketama hash is cached, other algorithms hash the key string.
+   */
+  long hash(HashAlgorithm hashAlg) {
+    if (hashAlg != HashAlgorithm.KETAMA_HASH) {
+      return hashAlg.hash(key);
+    }
+    long h = ketamaHash;
+    if (h < 0) {
+      h = HashAlgorithm.ketamaHash(HashAlgorithm.computeMd5(keyBytes));
+      ketamaHash = h;
+    }
+    return h;
+  }
+
+  boolean isValidated(byte delimiter) {
+    return validatedDelimiter == delimiter;
+  }
+
+  void setValidated(byte delimiter) {
+    validatedDelimiter = delimiter;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ArcusKey)) {
+      return false;
+    }
+    return key.equals(((ArcusKey) o).key);
+  }
+
+  @Override
+  public int hashCode() {
+    return key.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return key;
+  }
+}
@@ -178,6 +178,10 @@ public class ArcusReplKetamaNodeLocator extends SpyObject implements NodeLocator
     return getNodeForKey(hashAlg.hash(k), pick);
   }
 
+  MemcachedNode getPrimary(final ArcusKey k, ReplicaPick pick) {
+    return getNodeForKey(k.hash(hashAlg), pick);
+  }
+
   private MemcachedNode getNodeForKey(long hash, ReplicaPick pick) {
     lock.lock();
     try {
@@ -33,6 +33,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import net.spy.memcached.ArcusClientException.InitializeClientException;
 import net.spy.memcached.compat.SpyThread;
+import net.spy.memcached.metrics.FlightRecorderEvents;
 
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.WatchedEvent;
@@ -454,6 +455,9 @@ public class CacheManager extends SpyThread implements Watcher,
           + "To=" + children + ", "
           + "[serviceCode=" + serviceCode + ", adminSessionId=0x"
           + Long.toHexString(zk.getSessionId()));
+      FlightRecorderEvents.cacheListChanged(serviceCode,
+          prevCacheList == null ? 0 : prevCacheList.size(), children.size(),
+          String.join(",", children));
     }
 
     // Store the current children.
@@ -529,6 +533,7 @@ public class CacheManager extends SpyThread implements Watcher,
     }
 
     state = newState;
+    FlightRecorderEvents.migrationStateChanged(serviceCode, type.name(), state.name());
 
     for (ArcusClient ac : client) {
       MemcachedConnection conn = ac.getMemcachedConnection();
@@ -569,6 +574,7 @@ public class CacheManager extends SpyThread implements Watcher,
     if (type != MigrationType.UNKNOWN || state != MigrationState.UNKNOWN) {
       type = MigrationType.UNKNOWN;
       state = MigrationState.UNKNOWN;
+      FlightRecorderEvents.migrationStateChanged(serviceCode, type.name(), state.name());
 
       for (ArcusClient ac : client) {
         MemcachedConnection conn = ac.getMemcachedConnection();
@@ -0,0 +1,49 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+/**
+ * Policy that decides how many keys are sent in one chunk of a get bulk operation.
+ *
+ * Get bulk and gets bulk operations split their keys per node and then into chunks.
+ * The policy is asked for the chunk size of each node before splitting,
+ * and is told how each chunk performed.
+ * Other bulk operations use the fixed chunk size limited by the server.
+ */
+public interface ChunkSizePolicy {
+
+  /**
+   * Get the chunk size for the given node.
+   *
+   * @param node        the node the chunks are sent to, or null if no node is available
+   * @param defaultSize the chunk size used for the operation without a policy
+   * @param limit       the largest chunk size the command allows
+   * @return the number of keys in a chunk, between 1 and limit
+   */
+  int getChunkSize(MemcachedNode node, int defaultSize, int limit);
+
+  /**
+   * Called when a chunk sent to the given node has completed.
+   * A chunk cancelled before it is written to the node is not reported.
+   *
+   * @param node          the node the chunk was sent to
+   * @param keyCount      the number of keys in the chunk
+   * @param responseBytes the number of value bytes received for the chunk
+   * @param elapsedNanos  the time from writing the chunk to the node to its completion
+   */
+  void chunkCompleted(MemcachedNode node, int keyCount, long responseBytes, long elapsedNanos);
+}
@@ -0,0 +1,263 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.metrics.SlidingTimeoutWindow;
+import net.spy.memcached.ops.Operation;
+
+/**
+ * Circuit breaker of a node. See {@link CircuitBreakerPolicy} for the behavior.
+ *
+ * The IO thread records the completed operations, including the errors and
+ * the operations lost with the connection, whether or not their futures are
+ * waited for. The timeouts are recorded by the threads waiting for the
+ * operations, as a timed out operation may never complete. A half-open circuit tracks the probe
+ * operations it let through, and the IO thread resolves them when they complete,
+ * whether or not their futures are waited for. The state changes without locks.
+ */
+public final class CircuitBreaker extends SpyObject {
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  private final String nodeName;
+  private final int failureRateThreshold;
+  private final long slowCallNanos;
+  private final int slowCallRateThreshold;
+  private final long openNanos;
+  private final int probeCount;
+  private final long halfOpenTimeoutNanos;
+  private final SlidingTimeoutWindow failures;
+  private final SlidingTimeoutWindow slowCalls;
+
+  private final AtomicReference<Circuit> circuit =
+      new AtomicReference<>(new Circuit(State.CLOSED, 0, 0));
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder opened = new LongAdder();
+
+  public CircuitBreaker(String nodeName, CircuitBreakerPolicy policy) {
+    this.nodeName = nodeName;
+    failureRateThreshold = policy.getFailureRateThreshold();
+    slowCallNanos = TimeUnit.MILLISECONDS.toNanos(policy.getSlowCallThreshold());
+    slowCallRateThreshold = policy.getSlowCallRateThreshold();
+    openNanos = TimeUnit.MILLISECONDS.toNanos(policy.getOpenDuration());
+    probeCount = policy.getProbes();
+    halfOpenTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(policy.getHalfOpenTimeout());
+    failures = new SlidingTimeoutWindow(policy.getWindow(), TimeUnit.MILLISECONDS);
+    slowCalls = slowCallNanos > 0
+        ? new SlidingTimeoutWindow(policy.getWindow(), TimeUnit.MILLISECONDS) : null;
+  }
+
+  public State getState() {
+    checkProbes();
+    return circuit.get().state;
+  }
+
+  /**
+   * Get the number of operations rejected while the circuit was not closed.
+   */
+  public long getRejectedCount() {
+    return rejected.sum();
+  }
+
+  /**
+   * Get the number of times the circuit has opened.
+   */
+  public long getOpenedCount() {
+    return opened.sum();
+  }
+
+  /**
+   * Check if an operation can be sent to the node.
+   * A half-open circuit lets only the probe operations through.
+   *
+   * @param op the operation to send, tracked as a probe by a half-open circuit
+   */
+  public boolean allowRequest(Operation op) {
+    while (true) {
+      Circuit c = circuit.get();
+      if (c.state == State.CLOSED) {
+        return true;
+      }
+      long now = System.nanoTime();
+      if (c.state == State.OPEN) {
+        if (now - c.sinceNanos < openNanos) {
+          rejected.increment();
+          return false;
+        }
+        if (circuit.compareAndSet(c, new Circuit(State.HALF_OPEN, now, probeCount))) {
+          getLogger().info("Circuit of %s is half-open.", nodeName);
+        }
+        continue;
+      }
+      if (!checkProbes(c, now)) {
+        continue;
+      }
+      if (c.takeProbeSlot()) {
+        c.probes.put(op, now);
+        return true;
+      }
+      rejected.increment();
+      return false;
+    }
+  }
+
+  /**
+   * Record the timeout of an operation waited for by the application.
+   * A half-open circuit ignores the timeouts, as its probes are resolved
+   * when they complete and the others may have been sent before it opened.
+   */
+  public void recordTimeout() {
+    Circuit c = circuit.get();
+    if (c.state == State.CLOSED) {
+      recordFailure(c, true);
+    }
+  }
+
+  /**
+   * Record the completion of an operation. Only called by the IO thread.
+   * An operation that has errored, or has been cancelled as its connection
+   * was lost, is a failure.
+   *
+   * @param op the completed or cancelled operation
+   * @param responseNanos the time from the end of the request to the end of the response,
+   *                      or negative if unknown
+   */
+  public void operationCompleted(Operation op, long responseNanos) {
+    boolean failed = op.hasErrored() || op.isCancelled();
+    Circuit c = circuit.get();
+    if (c.state == State.HALF_OPEN) {
+      Long admitted = c.probes.remove(op);
+      if (admitted == null) {
+        return;
+      }
+      if (failed) {
+        open(c, "probe failed");
+      } else if (System.nanoTime() - admitted > halfOpenTimeoutNanos) {
+        open(c, "probe timed out");
+      } else if (slowCalls != null && responseNanos > slowCallNanos) {
+        open(c, "slow probe");
+      } else if (c.probeSuccesses.incrementAndGet() >= probeCount) {
+        close(c);
+      }
+    } else if (c.state == State.CLOSED) {
+      recordFailure(c, failed);
+      if (!failed && slowCalls != null && responseNanos >= 0) {
+        boolean slow = responseNanos > slowCallNanos;
+        slowCalls.record(slow);
+        if (slow && slowCalls.getTimeoutRatio() >= slowCallRateThreshold) {
+          open(c, "slow call ratio " + slowCalls.getTimeoutRatio() + "%");
+        }
+      }
+    }
+  }
+
+  private void recordFailure(Circuit c, boolean failed) {
+    failures.record(failed);
+    if (failed && failures.getTimeoutRatio() >= failureRateThreshold) {
+      open(c, "failure ratio " + failures.getTimeoutRatio() + "%");
+    }
+  }
+
+  /**
+   * Open a half-open circuit again if one of its probes has been cancelled
+   * or has not completed within the half-open timeout.
+   */
+  public void checkProbes() {
+    Circuit c = circuit.get();
+    if (c.state == State.HALF_OPEN) {
+      checkProbes(c, System.nanoTime());
+    }
+  }
+
+  /**
+   * @return false if the circuit has opened
+   */
+  private boolean checkProbes(Circuit c, long now) {
+    for (Map.Entry<Operation, Long> probe : c.probes.entrySet()) {
+      if (probe.getKey().isCancelled()) {
+        open(c, "probe cancelled");
+        return false;
+      }
+      if (now - probe.getValue() > halfOpenTimeoutNanos) {
+        open(c, "probe timed out");
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void open(Circuit from, String cause) {
+    if (circuit.compareAndSet(from, new Circuit(State.OPEN, System.nanoTime(), 0))) {
+      opened.increment();
+      getLogger().warn("Circuit of %s is open : %s", nodeName, cause);
+    }
+  }
+
+  private void close(Circuit from) {
+    if (circuit.compareAndSet(from, new Circuit(State.CLOSED, System.nanoTime(), 0))) {
+      failures.reset();
+      if (slowCalls != null) {
+        slowCalls.reset();
+      }
+      getLogger().info("Circuit of %s is closed.", nodeName);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "CircuitBreaker[" + nodeName + ", " + circuit.get().state + "]";
+  }
+
+  /**
+   * A state of the circuit. A half-open circuit has its own probes,
+   * so the probes of an earlier half-open state are not counted.
+   */
+  private static final class Circuit {
+    private final State state;
+    private final long sinceNanos;
+    private final AtomicInteger probeSlots;
+    private final AtomicInteger probeSuccesses = new AtomicInteger(0);
+    private final Map<Operation, Long> probes = new ConcurrentHashMap<>();
+
+    private Circuit(State state, long sinceNanos, int probeSlots) {
+      this.state = state;
+      this.sinceNanos = sinceNanos;
+      this.probeSlots = new AtomicInteger(probeSlots);
+    }
+
+    private boolean takeProbeSlot() {
+      int p = probeSlots.get();
+      while (p > 0) {
+        if (probeSlots.compareAndSet(p, p - 1)) {
+          return true;
+        }
+        p = probeSlots.get();
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+/**
+ * Settings of the circuit breaker of each node.
+ *
+ * The circuit of a node opens when the ratio of failed operations, or of
+ * operations slower than the slow call threshold, reaches its threshold in the
+ * sliding window. An operation fails when it times out, gets an error response
+ * or is lost with its connection. Operations to a node with an open circuit fail fast instead
+ * of waiting for the timeout, or go to another node when the failure mode is
+ * {@link FailureMode#Redistribute} or a read can be served by a replica.
+ * After the open duration, the circuit is half-open and lets the given number
+ * of probe operations through. It closes when they all succeed and opens
+ * again when a probe fails, is cancelled or does not complete within the
+ * half-open timeout.
+ */
+public final class CircuitBreakerPolicy {
+
+  public static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+  public static final long DEFAULT_SLOW_CALL_THRESHOLD = 0;
+  public static final int DEFAULT_SLOW_CALL_RATE_THRESHOLD = 80;
+  public static final long DEFAULT_WINDOW = 10000;
+  public static final long DEFAULT_OPEN_DURATION = 5000;
+  public static final int DEFAULT_PROBES = 10;
+  public static final long DEFAULT_HALF_OPEN_TIMEOUT = 1000;
+
+  private int failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+  private long slowCallThreshold = DEFAULT_SLOW_CALL_THRESHOLD;
+  private int slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+  private long window = DEFAULT_WINDOW;
+  private long openDuration = DEFAULT_OPEN_DURATION;
+  private int probes = DEFAULT_PROBES;
+  private long halfOpenTimeout = DEFAULT_HALF_OPEN_TIMEOUT;
+
+  /**
+   * Set the percentage of failed operations in the window
+   * at which the circuit opens, 1~100.
+   */
+  public CircuitBreakerPolicy setFailureRateThreshold(int threshold) {
+    checkPercentage(threshold);
+    failureRateThreshold = threshold;
+    return this;
+  }
+
+  /**
+   * Set the response time in milliseconds over which an operation is a slow call,
+   * 0 not to open the circuit on slow calls.
+   */
+  public CircuitBreakerPolicy setSlowCallThreshold(long threshold) {
+    if (threshold < 0) {
+      throw new IllegalArgumentException("Slow call threshold must not be negative.");
+    }
+    slowCallThreshold = threshold;
+    return this;
+  }
+
+  /**
+   * Set the percentage of slow calls in the window at which the circuit opens, 1~100.
+   */
+  public CircuitBreakerPolicy setSlowCallRateThreshold(int threshold) {
+    checkPercentage(threshold);
+    slowCallRateThreshold = threshold;
+    return this;
+  }
+
+  /**
+   * Set the length in milliseconds of the sliding window the rates are computed in.
+   */
+  public CircuitBreakerPolicy setWindow(long window) {
+    if (window <= 0) {
+      throw new IllegalArgumentException("Window must be positive.");
+    }
+    this.window = window;
+    return this;
+  }
+
+  /**
+   * Set the time in milliseconds the circuit stays open before the probes.
+   */
+  public CircuitBreakerPolicy setOpenDuration(long duration) {
+    if (duration <= 0) {
+      throw new IllegalArgumentException("Open duration must be positive.");
+    }
+    openDuration = duration;
+    return this;
+  }
+
+  /**
+   * Set the number of probe operations let through by a half-open circuit.
+   */
+  public CircuitBreakerPolicy setProbes(int probes) {
+    if (probes <= 0) {
+      throw new IllegalArgumentException("Probes must be positive.");
+    }
+    this.probes = probes;
+    return this;
+  }
+
+  /**
+   * Set the time in milliseconds a probe operation may take
+   * before the half-open circuit opens again.
+   */
+  public CircuitBreakerPolicy setHalfOpenTimeout(long timeout) {
+    if (timeout <= 0) {
+      throw new IllegalArgumentException("Half-open timeout must be positive.");
+    }
+    halfOpenTimeout = timeout;
+    return this;
+  }
+
+  private static void checkPercentage(int threshold) {
+    if (threshold < 1 || threshold > 100) {
+      throw new IllegalArgumentException("Rate threshold range is 1~100 : " + threshold);
+    }
+  }
+
+  public int getFailureRateThreshold() {
+    return failureRateThreshold;
+  }
+
+  public long getSlowCallThreshold() {
+    return slowCallThreshold;
+  }
+
+  public int getSlowCallRateThreshold() {
+    return slowCallRateThreshold;
+  }
+
+  public long getWindow() {
+    return window;
+  }
+
+  public long getOpenDuration() {
+    return openDuration;
+  }
+
+  public int getProbes() {
+    return probes;
+  }
+
+  public long getHalfOpenTimeout() {
+    return halfOpenTimeout;
+  }
+
+  @Override
+  public String toString() {
+    return "CircuitBreakerPolicy[failureRateThreshold=" + failureRateThreshold +
+        ", slowCallThreshold=" + slowCallThreshold +
+        ", slowCallRateThreshold=" + slowCallRateThreshold + ", window=" + window +
+        ", openDuration=" + openDuration + ", probes=" + probes +
+        ", halfOpenTimeout=" + halfOpenTimeout + "]";
+  }
+}
@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 
 import net.spy.memcached.auth.AuthDescriptor;
+import net.spy.memcached.metrics.ArcusMetrics;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.transcoders.Transcoder;
@@ -151,6 +152,11 @@ public interface ConnectionFactory {
    */
   boolean shouldOptimize();
 
+  /**
+   * If true, concurrent gets of the same key share one get operation.
+   */
+  boolean shouldCoalesceGets();
+
   /**
    * Get the read buffer size set at construct time.
    */
@@ -183,6 +189,11 @@ public interface ConnectionFactory {
    */
   int getTimeoutRatioThreshold();
 
+  /**
+   * Length in milliseconds of the sliding window in which the timeout ratio is computed
+   */
+  long getTimeoutRatioWindow();
+
   /**
    * Maximum timeout duration in milliseconds for shutdown connection
    */
@@ -198,6 +209,12 @@ public interface ConnectionFactory {
    */
   int getFrontCacheExpireTime();
 
+  /**
+   * Get the maximum off-heap memory size in bytes for front cache.
+   * If it is 0, front cache values are stored on the java heap.
+   */
+  long getMaxFrontCacheOffHeapSize();
+
   /**
    * get front cache name
    */
@@ -218,6 +235,65 @@ public interface ConnectionFactory {
    */
   int getDefaultMaxSMGetKeyChunkSize();
 
+  /**
+   * Get the policy that decides the chunk size of get bulk operations.
+   */
+  ChunkSizePolicy getChunkSizePolicy();
+
+  /**
+   * Get the metrics that operations are recorded to.
+   *
+   * @return null if operation metrics are not recorded
+   */
+  ArcusMetrics getMetrics();
+
+  /**
+   * If true, the timestamps of the lifecycle events of operations are recorded
+   * and added to the timeout exception messages.
+   */
+  boolean shouldTraceOperations();
+
+  /**
+   * Get the threshold in milliseconds over which completed operations are logged
+   * with their lifecycle timestamps and the queue status of their node.
+   * Operations are traced when the threshold is set.
+   *
+   * @return 0 if slow operations are not logged
+   */
+  long getSlowOperationThreshold();
+
+  /**
+   * Get the policy that derives the timeout of each operation
+   * from the recent response times of its API on its node.
+   *
+   * @return null if the operation timeout applies to all operations
+   */
+  AdaptiveTimeoutPolicy getAdaptiveTimeoutPolicy();
+
+  /**
+   * Get the policy of the circuit breaker of each node.
+   *
+   * @return null if the circuit breaker is not used
+   */
+  CircuitBreakerPolicy getCircuitBreakerPolicy();
+
+  /**
+   * Length in milliseconds of the window in which the in-flight operations
+   * to a reconnected node are limited, 0 not to limit them.
+   */
+  long getReconnectRampWindow();
+
+  /**
+   * Maximum number of in-flight operations to a node just reconnected.
+   * The limit is doubled every tenth of the reconnect ramp window.
+   */
+  int getReconnectRampInitialOps();
+
+  /**
+   * Interval in milliseconds of the keepalive probes to idle nodes, 0 not to probe them.
+   */
+  long getKeepAliveProbeInterval();
+
   /**
    * get delimiter
    */
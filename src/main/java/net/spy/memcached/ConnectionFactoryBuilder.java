@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 
 import net.spy.memcached.auth.AuthDescriptor;
+import net.spy.memcached.metrics.ArcusMetrics;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationQueueFactory;
@@ -58,6 +59,7 @@ public class ConnectionFactoryBuilder {
   private long opTimeout = -1;
   private boolean isDaemon = true;
   private boolean shouldOptimize = false;
+  private boolean shouldCoalesceGets = false;
   private boolean useNagle = false;
   private boolean keepAlive = false;
   private boolean dnsCacheTtlCheck = true;
@@ -74,16 +76,31 @@ public class ConnectionFactoryBuilder {
   //     DefaultConnectionFactory.DEFAULT_MAX_TIMEOUTEXCEPTION_THRESHOLD;
   private int timeoutExceptionThreshold = 10;
   private int timeoutRatioThreshold = DefaultConnectionFactory.DEFAULT_MAX_TIMEOUTRATIO_THRESHOLD;
+  private long timeoutRatioWindow = DefaultConnectionFactory.DEFAULT_TIMEOUTRATIO_WINDOW;
   private int timeoutDurationThreshold = 1000;
 
   private int maxFrontCacheElements = DefaultConnectionFactory.DEFAULT_MAX_FRONTCACHE_ELEMENTS;
   private int frontCacheExpireTime = DefaultConnectionFactory.DEFAULT_FRONTCACHE_EXPIRETIME;
+  private long maxFrontCacheOffHeapSize =
+      DefaultConnectionFactory.DEFAULT_MAX_FRONTCACHE_OFFHEAP_SIZE;
   private String frontCacheName = "ArcusFrontCache_" + this.hashCode();
   private boolean frontCacheCopyOnRead = DefaultConnectionFactory.DEFAULT_FRONT_CACHE_COPY_ON_READ;
   private boolean frontCacheCopyOnWrite =
       DefaultConnectionFactory.DEFAULT_FRONT_CACHE_COPY_ON_WRITE;
 
   private int maxSMGetChunkSize = DefaultConnectionFactory.DEFAULT_MAX_SMGET_KEY_CHUNK_SIZE;
+  private ChunkSizePolicy chunkSizePolicy = DefaultConnectionFactory.DEFAULT_CHUNK_SIZE_POLICY;
+  private ArcusMetrics metrics = DefaultConnectionFactory.DEFAULT_METRICS;
+  private boolean traceOperations = DefaultConnectionFactory.DEFAULT_TRACE_OPERATIONS;
+  private long slowOperationThreshold = DefaultConnectionFactory.DEFAULT_SLOW_OPERATION_THRESHOLD;
+  private AdaptiveTimeoutPolicy adaptiveTimeoutPolicy =
+      DefaultConnectionFactory.DEFAULT_ADAPTIVE_TIMEOUT_POLICY;
+  private CircuitBreakerPolicy circuitBreakerPolicy =
+      DefaultConnectionFactory.DEFAULT_CIRCUIT_BREAKER_POLICY;
+  private long reconnectRampWindow = DefaultConnectionFactory.DEFAULT_RECONNECT_RAMP_WINDOW;
+  private int reconnectRampInitialOps =
+      DefaultConnectionFactory.DEFAULT_RECONNECT_RAMP_INITIAL_OPS;
+  private long keepAliveProbeInterval = DefaultConnectionFactory.DEFAULT_KEEPALIVE_PROBE_INTERVAL;
   private byte delimiter = DefaultConnectionFactory.DEFAULT_DELIMITER;
 
   /* ENABLE_REPLICATION if */
@@ -245,6 +262,18 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set to true if concurrent gets of the same key should share one get operation.
+   *
+   * A get for a key that already has an unsent or in-flight get operation
+   * attaches to that operation's result instead of sending another operation.
+   * Note that cancelling one of the coalesced futures cancels the shared operation.
+   */
+  public ConnectionFactoryBuilder setShouldCoalesceGets(boolean c) {
+    shouldCoalesceGets = c;
+    return this;
+  }
+
   /**
    * Set the read buffer size.
    */
@@ -335,6 +364,18 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set the length in milliseconds of the sliding window
+   * in which the timeout ratio is computed (default 1000).
+   */
+  public ConnectionFactoryBuilder setTimeoutRatioWindow(long window) {
+    if (window <= 0) {
+      throw new IllegalArgumentException("Timeout ratio window must be positive.");
+    }
+    timeoutRatioWindow = window;
+    return this;
+  }
+
   /**
    * Set the maximum timeout duration threshold
    */
@@ -364,6 +405,17 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set the maximum off-heap memory size in bytes for front cache.
+   * If it is positive, front cache keeps encoded values in off-heap memory
+   * instead of the java objects in ehcache.
+   */
+  public ConnectionFactoryBuilder setMaxFrontCacheOffHeapSize(long bytes) {
+    assert bytes >= 0 : "Front cache's off-heap size must not be a negative number";
+    maxFrontCacheOffHeapSize = bytes;
+    return this;
+  }
+
   /**
    * Set front cache copyOnRead property
    */
@@ -388,6 +440,103 @@ public class ConnectionFactoryBuilder {
     return this;
   }
 
+  /**
+   * Set the policy that decides how many keys are sent in one chunk of get bulk operations.
+   * Use {@link AdaptiveChunkSizePolicy} to size the chunks from observed responses.
+   */
+  public ConnectionFactoryBuilder setChunkSizePolicy(ChunkSizePolicy policy) {
+    assert policy != null : "Chunk size policy must not be null";
+    chunkSizePolicy = policy;
+    return this;
+  }
+
+  /**
+   * Set the metrics that operations are recorded to, null not to record them.
+   * Use {@link net.spy.memcached.metrics.InMemoryArcusMetrics} to keep them in memory
+   * and export them to JMX.
+   */
+  public ConnectionFactoryBuilder setMetrics(ArcusMetrics metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
+  /**
+   * Set whether the timestamps of the lifecycle events of operations are recorded.
+   * They are added to the timeout exception messages to show where the time went.
+   */
+  public ConnectionFactoryBuilder setTraceOperations(boolean trace) {
+    traceOperations = trace;
+    return this;
+  }
+
+  /**
+   * Set the threshold in milliseconds over which completed operations are logged,
+   * 0 not to log them. Slow operations are logged at most once a second
+   * and operations are traced while the threshold is set.
+   */
+  public ConnectionFactoryBuilder setSlowOperationThreshold(long threshold) {
+    assert threshold >= 0 : "Slow operation threshold must not be negative";
+    slowOperationThreshold = threshold;
+    return this;
+  }
+
+  /**
+   * Set the policy that derives the timeout of each operation from the recent
+   * response times of its API on its node, null to apply the operation timeout
+   * to all operations.
+   */
+  public ConnectionFactoryBuilder setAdaptiveTimeoutPolicy(AdaptiveTimeoutPolicy policy) {
+    adaptiveTimeoutPolicy = policy;
+    return this;
+  }
+
+  /**
+   * Set the policy of the circuit breaker of each node, null not to use it.
+   */
+  public ConnectionFactoryBuilder setCircuitBreakerPolicy(CircuitBreakerPolicy policy) {
+    circuitBreakerPolicy = policy;
+    return this;
+  }
+
+  /**
+   * Set the length in milliseconds of the window in which the in-flight operations
+   * to a reconnected node are limited (default 0, not limited).
+   */
+  public ConnectionFactoryBuilder setReconnectRampWindow(long window) {
+    if (window < 0) {
+      throw new IllegalArgumentException("Reconnect ramp window must not be negative.");
+    }
+    reconnectRampWindow = window;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of in-flight operations to a node just reconnected
+   * (default 16). The limit is doubled every tenth of the reconnect ramp window.
+   */
+  public ConnectionFactoryBuilder setReconnectRampInitialOps(int ops) {
+    if (ops <= 0) {
+      throw new IllegalArgumentException("Reconnect ramp initial ops must be positive.");
+    }
+    reconnectRampInitialOps = ops;
+    return this;
+  }
+
+  /**
+   * Set the interval in milliseconds of the keepalive probes (default 0, not probed).
+   * A version operation is sent to each node that had no response in the interval,
+   * and the node is reconnected when the probe is not answered in the next interval.
+   * With replication, a switchover keeps the socket of the old master
+   * if no operation is in flight on it.
+   */
+  public ConnectionFactoryBuilder setKeepAliveProbeInterval(long interval) {
+    if (interval < 0) {
+      throw new IllegalArgumentException("Keepalive probe interval must not be negative.");
+    }
+    keepAliveProbeInterval = interval;
+    return this;
+  }
+
   /**
    * Set delimiter to separate key and prefix
    */
@@ -574,6 +723,11 @@ public class ConnectionFactoryBuilder {
         return shouldOptimize;
       }
 
+      @Override
+      public boolean shouldCoalesceGets() {
+        return shouldCoalesceGets;
+      }
+
       @Override
       public boolean useNagleAlgorithm() {
         return useNagle;
@@ -615,6 +769,11 @@ public class ConnectionFactoryBuilder {
         return timeoutRatioThreshold;
       }
 
+      @Override
+      public long getTimeoutRatioWindow() {
+        return timeoutRatioWindow;
+      }
+
       @Override
       public int getTimeoutDurationThreshold() {
         return timeoutDurationThreshold;
@@ -630,6 +789,11 @@ public class ConnectionFactoryBuilder {
         return frontCacheExpireTime;
       }
 
+      @Override
+      public long getMaxFrontCacheOffHeapSize() {
+        return maxFrontCacheOffHeapSize;
+      }
+
       @Override
       public String getFrontCacheName() {
         return frontCacheName;
@@ -650,6 +814,51 @@ public class ConnectionFactoryBuilder {
         return maxSMGetChunkSize;
       }
 
+      @Override
+      public ChunkSizePolicy getChunkSizePolicy() {
+        return chunkSizePolicy;
+      }
+
+      @Override
+      public ArcusMetrics getMetrics() {
+        return metrics;
+      }
+
+      @Override
+      public boolean shouldTraceOperations() {
+        return traceOperations;
+      }
+
+      @Override
+      public long getSlowOperationThreshold() {
+        return slowOperationThreshold;
+      }
+
+      @Override
+      public AdaptiveTimeoutPolicy getAdaptiveTimeoutPolicy() {
+        return adaptiveTimeoutPolicy;
+      }
+
+      @Override
+      public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+        return circuitBreakerPolicy;
+      }
+
+      @Override
+      public long getReconnectRampWindow() {
+        return reconnectRampWindow;
+      }
+
+      @Override
+      public int getReconnectRampInitialOps() {
+        return reconnectRampInitialOps;
+      }
+
+      @Override
+      public long getKeepAliveProbeInterval() {
+        return keepAliveProbeInterval;
+      }
+
       @Override
       public byte getDelimiter() {
         return delimiter;
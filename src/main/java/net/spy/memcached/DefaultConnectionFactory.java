@@ -32,6 +32,7 @@ import java.util.concurrent.TimeUnit;
 
 import net.spy.memcached.auth.AuthDescriptor;
 import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.metrics.ArcusMetrics;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.protocol.ascii.AsciiMemcachedNodeImpl;
@@ -112,6 +113,11 @@ public class DefaultConnectionFactory extends SpyObject
    */
   public static final int DEFAULT_MAX_TIMEOUTRATIO_THRESHOLD = 0;
 
+  /**
+   * Length in milliseconds of the sliding window for the timeout ratio
+   */
+  public static final long DEFAULT_TIMEOUTRATIO_WINDOW = 1000;
+
   /**
    * Maximum timeout duration in milliseconds for shutdown connection
    */
@@ -127,6 +133,11 @@ public class DefaultConnectionFactory extends SpyObject
    */
   public static final int DEFAULT_FRONTCACHE_EXPIRETIME = 5;
 
+  /**
+   * Maximum off-heap memory size of front cache. 0 means on-heap front cache.
+   */
+  public static final long DEFAULT_MAX_FRONTCACHE_OFFHEAP_SIZE = 0;
+
   /**
    * Default front cache name
    */
@@ -148,6 +159,51 @@ public class DefaultConnectionFactory extends SpyObject
    */
   public static final int DEFAULT_MAX_SMGET_KEY_CHUNK_SIZE = 500;
 
+  /**
+   * The default chunk size policy, which keeps the chunk size of each operation.
+   */
+  public static final ChunkSizePolicy DEFAULT_CHUNK_SIZE_POLICY = new FixedChunkSizePolicy();
+
+  /**
+   * The default metrics, which do not record operation metrics.
+   */
+  public static final ArcusMetrics DEFAULT_METRICS = null;
+
+  /**
+   * Do not trace operations by default.
+   */
+  public static final boolean DEFAULT_TRACE_OPERATIONS = false;
+
+  /**
+   * Do not log slow operations by default.
+   */
+  public static final long DEFAULT_SLOW_OPERATION_THRESHOLD = 0;
+
+  /**
+   * The operation timeout applies to all operations by default.
+   */
+  public static final AdaptiveTimeoutPolicy DEFAULT_ADAPTIVE_TIMEOUT_POLICY = null;
+
+  /**
+   * The circuit breaker is not used by default.
+   */
+  public static final CircuitBreakerPolicy DEFAULT_CIRCUIT_BREAKER_POLICY = null;
+
+  /**
+   * The in-flight operations to a reconnected node are not limited by default.
+   */
+  public static final long DEFAULT_RECONNECT_RAMP_WINDOW = 0;
+
+  /**
+   * Maximum number of in-flight operations to a node just reconnected
+   */
+  public static final int DEFAULT_RECONNECT_RAMP_INITIAL_OPS = 16;
+
+  /**
+   * Idle nodes are not probed by default.
+   */
+  public static final long DEFAULT_KEEPALIVE_PROBE_INTERVAL = 0;
+
   /**
    * The default delimiter that separates the key and prefix
    */
@@ -313,6 +369,10 @@ public class DefaultConnectionFactory extends SpyObject
     return false;
   }
 
+  public boolean shouldCoalesceGets() {
+    return false;
+  }
+
   public long getMaxReconnectDelay() {
     return DEFAULT_MAX_RECONNECT_DELAY;
   }
@@ -329,6 +389,10 @@ public class DefaultConnectionFactory extends SpyObject
     return DEFAULT_MAX_TIMEOUTRATIO_THRESHOLD;
   }
 
+  public long getTimeoutRatioWindow() {
+    return DEFAULT_TIMEOUTRATIO_WINDOW;
+  }
+
   public int getTimeoutDurationThreshold() {
     return DEFAULT_MAX_TIMEOUTDURATION_THRESHOLD;
   }
@@ -341,6 +405,11 @@ public class DefaultConnectionFactory extends SpyObject
     return DEFAULT_FRONTCACHE_EXPIRETIME;
   }
 
+  @Override
+  public long getMaxFrontCacheOffHeapSize() {
+    return DEFAULT_MAX_FRONTCACHE_OFFHEAP_SIZE;
+  }
+
   @Override
   public String getFrontCacheName() {
     return DEFAULT_FRONT_CACHE_NAME;
@@ -361,6 +430,51 @@ public class DefaultConnectionFactory extends SpyObject
     return DEFAULT_MAX_SMGET_KEY_CHUNK_SIZE;
   }
 
+  @Override
+  public ChunkSizePolicy getChunkSizePolicy() {
+    return DEFAULT_CHUNK_SIZE_POLICY;
+  }
+
+  @Override
+  public ArcusMetrics getMetrics() {
+    return DEFAULT_METRICS;
+  }
+
+  @Override
+  public boolean shouldTraceOperations() {
+    return DEFAULT_TRACE_OPERATIONS;
+  }
+
+  @Override
+  public long getSlowOperationThreshold() {
+    return DEFAULT_SLOW_OPERATION_THRESHOLD;
+  }
+
+  @Override
+  public AdaptiveTimeoutPolicy getAdaptiveTimeoutPolicy() {
+    return DEFAULT_ADAPTIVE_TIMEOUT_POLICY;
+  }
+
+  @Override
+  public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+    return DEFAULT_CIRCUIT_BREAKER_POLICY;
+  }
+
+  @Override
+  public long getReconnectRampWindow() {
+    return DEFAULT_RECONNECT_RAMP_WINDOW;
+  }
+
+  @Override
+  public int getReconnectRampInitialOps() {
+    return DEFAULT_RECONNECT_RAMP_INITIAL_OPS;
+  }
+
+  @Override
+  public long getKeepAliveProbeInterval() {
+    return DEFAULT_KEEPALIVE_PROBE_INTERVAL;
+  }
+
   @Override
   public byte getDelimiter() {
     return DEFAULT_DELIMITER;
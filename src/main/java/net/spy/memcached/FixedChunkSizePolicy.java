@@ -0,0 +1,34 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+/**
+ * Chunk size policy that always uses the default chunk size of the operation.
+ */
+public class FixedChunkSizePolicy implements ChunkSizePolicy {
+
+  @Override
+  public int getChunkSize(MemcachedNode node, int defaultSize, int limit) {
+    return Math.min(defaultSize, limit);
+  }
+
+  @Override
+  public void chunkCompleted(MemcachedNode node, int keyCount,
+                             long responseBytes, long elapsedNanos) {
+    // nothing to do
+  }
+}
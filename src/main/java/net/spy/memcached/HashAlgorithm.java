@@ -112,11 +112,7 @@ public enum HashAlgorithm {
         }
         break;
       case KETAMA_HASH:
-        byte[] bKey = computeMd5(k);
-        rv = ((long) (bKey[3] & 0xFF) << 24)
-                | ((long) (bKey[2] & 0xFF) << 16)
-                | ((long) (bKey[1] & 0xFF) << 8)
-                | (bKey[0] & 0xFF);
+        rv = ketamaHash(computeMd5(k));
         break;
       default:
         assert false;
@@ -128,13 +124,30 @@ public enum HashAlgorithm {
    * Get the md5 of the given key.
    */
   public static byte[] computeMd5(String k) {
+    return computeMd5(KeyUtil.getKeyBytes(k));
+  }
+
+  /**
+   * Get the md5 of the given key bytes.
+   */
+  public static byte[] computeMd5(byte[] keyBytes) {
     MessageDigest md5;
     try {
       md5 = (MessageDigest) MD5_DIGEST.clone();
     } catch (CloneNotSupportedException e) {
       throw new RuntimeException("clone of MD5 not supported", e);
     }
-    md5.update(KeyUtil.getKeyBytes(k));
+    md5.update(keyBytes);
     return md5.digest();
   }
+
+  /**
+   * Get the ketama hash from the md5 of a key.
+   */
+  static long ketamaHash(byte[] md5) {
+    return (((long) (md5[3] & 0xFF) << 24)
+            | ((long) (md5[2] & 0xFF) << 16)
+            | ((long) (md5[1] & 0xFF) << 8)
+            | (md5[0] & 0xFF)) & 0xffffffffL;
+  }
 }
@@ -24,6 +24,7 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedSelectorException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -65,6 +66,7 @@ import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.StatsOperation;
 import net.spy.memcached.ops.StoreType;
+import net.spy.memcached.protocol.CoalescedGetCallback;
 import net.spy.memcached.transcoders.Transcoder;
 
 /**
@@ -134,6 +136,10 @@ public class MemcachedClient extends SpyThread
 
   private final byte delimiter;
 
+  private final ConcurrentMap<String, CoalescedGetCallback> inflightGets;
+
+  private final ChunkSizePolicy chunkSizePolicy;
+
   private static final String DEFAULT_MEMCACHED_CLIENT_NAME = "MemcachedClient";
 
   private static final int GET_BULK_CHUNK_SIZE = 200;
@@ -221,6 +227,9 @@ public class MemcachedClient extends SpyThread
       addObserver(this);
     }
     delimiter = cf.getDelimiter();
+    inflightGets = cf.shouldCoalesceGets() ?
+        new ConcurrentHashMap<String, CoalescedGetCallback>() : null;
+    chunkSizePolicy = cf.getChunkSizePolicy();
     setName("Memcached IO over " + conn);
     setDaemon(cf.isDaemon());
     start();
@@ -287,9 +296,23 @@ public class MemcachedClient extends SpyThread
   }
 
   protected void validateKey(String key) {
+    validateKey(key, KeyUtil.getKeyBytes(key));
+  }
+
+  /**
+   * Validate the key handle.
+   * The handle remembers the result, so it is validated only once per delimiter.
+   */
+  protected void validateKey(ArcusKey key) {
+    if (!key.isValidated(delimiter)) {
+      validateKey(key.getKey(), key.getKeyBytes());
+      key.setValidated(delimiter);
+    }
+  }
+
+  private void validateKey(String key, byte[] keyBytes) {
     boolean hasPrefix = false;
 
-    byte[] keyBytes = KeyUtil.getKeyBytes(key);
     if (keyBytes.length > MAX_KEY_LENGTH) {
       throw new IllegalArgumentException("Key is too long (maxlen = "
               + MAX_KEY_LENGTH + ")");
@@ -351,6 +374,13 @@ public class MemcachedClient extends SpyThread
     return op;
   }
 
+  protected Operation addOp(final ArcusKey key, final Operation op) {
+    validateKey(key);
+    checkState();
+    conn.addOperation(key, op);
+    return op;
+  }
+
   protected Operation addOp(final MemcachedNode node, final Operation op) {
     checkState();
     conn.addOperation(node, op);
@@ -366,18 +396,21 @@ public class MemcachedClient extends SpyThread
 
   private <T> OperationFuture<Boolean> asyncStore(StoreType storeType, String key,
                                                   int exp, T value, Transcoder<T> tc) {
+    return asyncStore(storeType, ArcusKey.of(key), exp, value, tc);
+  }
+
+  private <T> OperationFuture<Boolean> asyncStore(StoreType storeType, ArcusKey key,
+                                                  int exp, T value, Transcoder<T> tc) {
     CachedData co = tc.encode(value);
-    final CountDownLatch latch = new CountDownLatch(1);
-    final OperationFuture<Boolean> rv = new OperationFuture<>(latch,
-            operationTimeout);
-    Operation op = opFact.store(storeType, key, co.getFlags(),
+    final OperationFuture<Boolean> rv = new OperationFuture<>(operationTimeout);
+    Operation op = opFact.store(storeType, key.getKey(), co.getFlags(),
             exp, co.getData(), new OperationCallback() {
               public void receivedStatus(OperationStatus val) {
                 rv.set(val.isSuccess(), val);
               }
 
               public void complete() {
-                latch.countDown();
+                rv.signalComplete();
               }
             });
     rv.setOperation(op);
@@ -612,7 +645,7 @@ public class MemcachedClient extends SpyThread
                              Transcoder<T> tc) {
     OperationFuture<CASResponse> future = asyncCAS(key, casId, exp, value, tc);
     try {
-      return future.get(operationTimeout, TimeUnit.MILLISECONDS);
+      return future.get(future.getTimeout(), TimeUnit.MILLISECONDS);
     } catch (InterruptedException e) {
       future.cancel(true);
       throw new RuntimeException("Interrupted waiting for value", e);
@@ -799,6 +832,39 @@ public class MemcachedClient extends SpyThread
     return asyncStore(StoreType.set, key, exp, o, transcoder);
   }
 
+  /**
+   * Set an object in the cache regardless of any existing value.
+   *
+   * @param <T>
+   * @param key the key handle under which this object should be added
+   * @param exp the expiration of this object
+   * @param o   the object to store
+   * @param tc  the transcoder to serialize and unserialize the value
+   * @return a future representing the processing of this operation
+   * @throws IllegalStateException in the rare circumstance where queue
+   *                               is too full to accept any more requests
+   * @see #set(String, int, Object, Transcoder)
+   */
+  public <T> OperationFuture<Boolean> set(ArcusKey key, int exp, T o, Transcoder<T> tc) {
+    return asyncStore(StoreType.set, key, exp, o, tc);
+  }
+
+  /**
+   * Set an object in the cache (using the default transcoder)
+   * regardless of any existing value.
+   *
+   * @param key the key handle under which this object should be added
+   * @param exp the expiration of this object
+   * @param o   the object to store
+   * @return a future representing the processing of this operation
+   * @throws IllegalStateException in the rare circumstance where queue
+   *                               is too full to accept any more requests
+   * @see #set(String, int, Object)
+   */
+  public OperationFuture<Boolean> set(ArcusKey key, int exp, Object o) {
+    return asyncStore(StoreType.set, key, exp, o, transcoder);
+  }
+
   /**
    * Replace an object with the given value iff there is already a value
    * for the given key.
@@ -883,32 +949,86 @@ public class MemcachedClient extends SpyThread
    *                               is too full to accept any more requests
    */
   public <T> GetFuture<T> asyncGet(final String key, final Transcoder<T> tc) {
+    return asyncGet(ArcusKey.of(key), tc);
+  }
 
-    final CountDownLatch latch = new CountDownLatch(1);
-    final GetFuture<T> future = new GetFuture<>(latch, operationTimeout);
+  /**
+   * Get the given key handle asynchronously.
+   *
+   * @param <T>
+   * @param key the key handle to fetch
+   * @param tc  the transcoder to serialize and unserialize value
+   * @return a future that will hold the return value of the fetch
+   * @throws IllegalStateException in the rare circumstance where queue
+   *                               is too full to accept any more requests
+   */
+  public <T> GetFuture<T> asyncGet(final ArcusKey key, final Transcoder<T> tc) {
 
-    Operation op = opFact.get(key,
-        new GetOperation.Callback() {
-          private GetResult<T> result = null;
+    final GetFuture<T> future = new GetFuture<>(operationTimeout);
 
-          public void receivedStatus(OperationStatus status) {
-            future.set(result, status);
-          }
+    GetOperation.Callback cb = new GetOperation.Callback() {
+      private GetResult<T> result = null;
 
-          public void gotData(String k, int flags, byte[] data) {
-            assert key.equals(k) : "Wrong key returned";
-            result = new GetResultImpl<>(new CachedData(flags, data, tc.getMaxSize()), tc);
-          }
+      public void receivedStatus(OperationStatus status) {
+        future.set(result, status);
+      }
 
-          public void complete() {
-            latch.countDown();
-          }
-        });
+      public void gotData(String k, int flags, byte[] data) {
+        assert key.getKey().equals(k) : "Wrong key returned";
+        result = new GetResultImpl<>(new CachedData(flags, data, tc.getMaxSize()), tc);
+      }
+
+      public void complete() {
+        future.signalComplete();
+      }
+    };
+    if (inflightGets != null) {
+      future.setOperation(addCoalescedGetOp(key, cb));
+      return future;
+    }
+    Operation op = opFact.get(key.getKey(), cb);
     future.setOperation(op);
     addOp(key, op);
     return future;
   }
 
+  /**
+   * Attach the callback to the unsent or in-flight get operation of the key.
+   * If there is no such operation, a new get operation is added.
+   *
+   * @param key the key to fetch
+   * @param cb  the callback to receive the result
+   * @return the operation that will complete the callback
+   */
+  private Operation addCoalescedGetOp(final ArcusKey key, GetOperation.Callback cb) {
+    validateKey(key);
+    String k = key.getKey();
+    while (true) {
+      CoalescedGetCallback inflight = inflightGets.get(k);
+      if (inflight != null) {
+        if (inflight.attach(cb)) {
+          return inflight.getOperation();
+        }
+        inflightGets.remove(k, inflight);
+        continue;
+      }
+      inflight = new CoalescedGetCallback(inflightGets, k, cb);
+      Operation op = opFact.get(k, inflight);
+      inflight.setOperation(op);
+      if (inflightGets.putIfAbsent(k, inflight) != null) {
+        continue;
+      }
+      try {
+        addOp(key, op);
+      } catch (RuntimeException e) {
+        // complete the callbacks attached in the meantime.
+        op.cancel("failed to add the coalesced get operation.");
+        throw e;
+      }
+      return op;
+    }
+  }
+
   /**
    * Get the given key asynchronously and decode with the default
    * transcoder.
@@ -922,6 +1042,19 @@ public class MemcachedClient extends SpyThread
     return asyncGet(key, transcoder);
   }
 
+  /**
+   * Get the given key handle asynchronously and decode with the default
+   * transcoder.
+   *
+   * @param key the key handle to fetch
+   * @return a future that will hold the return value of the fetch
+   * @throws IllegalStateException in the rare circumstance where queue
+   *                               is too full to accept any more requests
+   */
+  public GetFuture<Object> asyncGet(final ArcusKey key) {
+    return asyncGet(key, transcoder);
+  }
+
   /**
    * Gets (with CAS support) the given key asynchronously.
    *
@@ -989,7 +1122,7 @@ public class MemcachedClient extends SpyThread
   public <T> CASValue<T> gets(String key, Transcoder<T> tc) {
     GetFuture<CASValue<T>> future = asyncGets(key, tc);
     try {
-      return future.get(operationTimeout, TimeUnit.MILLISECONDS);
+      return future.get(future.getTimeout(), TimeUnit.MILLISECONDS);
     } catch (InterruptedException e) {
       future.cancel(true);
       throw new RuntimeException("Interrupted waiting for value", e);
@@ -1029,9 +1162,25 @@ public class MemcachedClient extends SpyThread
    *                                   is too full to accept any more requests
    */
   public <T> T get(String key, Transcoder<T> tc) {
-    Future<T> future = asyncGet(key, tc);
+    return get(ArcusKey.of(key), tc);
+  }
+
+  /**
+   * Get with a single key handle.
+   *
+   * @param <T>
+   * @param key the key handle to get
+   * @param tc  the transcoder to serialize and unserialize value
+   * @return the result from the cache (null if there is none)
+   * @throws OperationTimeoutException if the global operation timeout is
+   *                                   exceeded
+   * @throws IllegalStateException     in the rare circumstance where queue
+   *                                   is too full to accept any more requests
+   */
+  public <T> T get(ArcusKey key, Transcoder<T> tc) {
+    GetFuture<T> future = asyncGet(key, tc);
     try {
-      return future.get(operationTimeout, TimeUnit.MILLISECONDS);
+      return future.get(future.getTimeout(), TimeUnit.MILLISECONDS);
     } catch (InterruptedException e) {
       future.cancel(true);
       throw new RuntimeException("Interrupted waiting for value", e);
@@ -1058,6 +1207,20 @@ public class MemcachedClient extends SpyThread
     return get(key, transcoder);
   }
 
+  /**
+   * Get with a single key handle and decode using the default transcoder.
+   *
+   * @param key the key handle to get
+   * @return the result from the cache (null if there is none)
+   * @throws OperationTimeoutException if the global operation timeout is
+   *                                   exceeded
+   * @throws IllegalStateException     in the rare circumstance where queue
+   *                                   is too full to accept any more requests
+   */
+  public Object get(ArcusKey key) {
+    return get(key, transcoder);
+  }
+
   /**
    * Asynchronously get a bunch of objects from the cache.
    *
@@ -1074,8 +1237,6 @@ public class MemcachedClient extends SpyThread
    */
   public <T> BulkFuture<Map<String, T>> asyncGetBulk(Collection<String> keys,
                                                      Iterator<Transcoder<T>> tc_iter) {
-    final Map<String, GetResult<T>> rvMap = new ConcurrentHashMap<>();
-
     // This map does not need to be a ConcurrentHashMap
     // because it is fully populated when it is used and
     // used only to read the transcoder for a key.
@@ -1092,9 +1253,50 @@ public class MemcachedClient extends SpyThread
       validateKey(key);
       addKeyToMap(keyMap, key);
     }
-    int wholeChunkSize = getWholeChunkSize(keyMap);
-    final CountDownLatch latch = new CountDownLatch(wholeChunkSize);
-    final Collection<Operation> ops = new ArrayList<>(wholeChunkSize);
+    return asyncGetBulk(keyMap, tc_map);
+  }
+
+  /**
+   * Asynchronously get a bunch of key handles from the cache.
+   *
+   * @param <T>
+   * @param tc   the transcoder to serialize and unserialize values
+   * @param keys the key handles to request
+   * @return a Future result of that fetch
+   * @throws IllegalStateException in the rare circumstance where queue
+   *                               is too full to accept any more requests
+   */
+  public <T> BulkFuture<Map<String, T>> asyncGetBulk(Transcoder<T> tc, ArcusKey... keys) {
+    final Map<String, Transcoder<T>> tc_map = new HashMap<>();
+    final Map<MemcachedNode, List<String>> keyMap = new HashMap<>();
+
+    for (ArcusKey key : keys) {
+      tc_map.put(key.getKey(), tc);
+      validateKey(key);
+      addKeyToMap(keyMap, key);
+    }
+    return asyncGetBulk(keyMap, tc_map);
+  }
+
+  /**
+   * Asynchronously get a bunch of key handles from the cache and decode them
+   * with the default transcoder.
+   *
+   * @param keys the key handles to request
+   * @return a Future result of that fetch
+   * @throws IllegalStateException in the rare circumstance where queue
+   *                               is too full to accept any more requests
+   */
+  public BulkFuture<Map<String, Object>> asyncGetBulk(ArcusKey... keys) {
+    return asyncGetBulk(transcoder, keys);
+  }
+
+  private <T> BulkFuture<Map<String, T>> asyncGetBulk(
+          Map<MemcachedNode, List<String>> keyMap, final Map<String, Transcoder<T>> tc_map) {
+    final Map<String, GetResult<T>> rvMap = new ConcurrentHashMap<>();
+    List<Map.Entry<MemcachedNode, List<String>>> chunks = splitIntoChunks(keyMap);
+    final CountDownLatch latch = new CountDownLatch(chunks.size());
+    final Collection<Operation> ops = new ArrayList<>(chunks.size());
 
     GetOperation.Callback cb = new GetOperation.Callback() {
       public void receivedStatus(OperationStatus status) {
@@ -1119,22 +1321,20 @@ public class MemcachedClient extends SpyThread
     // Now that we know how many servers it breaks down into, and the latch
     // is all set up, convert all of these strings collections to operations
     checkState();
-    for (Map.Entry<MemcachedNode, List<String>> entry : keyMap.entrySet()) {
-      MemcachedNode node = entry.getKey();
-      List<String> keyList = entry.getValue();
-
-      for (int i = 0; i < keyList.size(); i += GET_BULK_CHUNK_SIZE) {
-        List<String> lk = keyList.subList(i, Math.min(keyList.size(), i + GET_BULK_CHUNK_SIZE));
-        Operation op;
-        if (node == null) {
-          op = opFact.mget(lk, cb);
-        } else {
-          op = node.enabledMGetOp() ? opFact.mget(lk, cb)
-                                    : opFact.get(lk, cb);
-        }
-        conn.addOperation(node, op);
-        ops.add(op);
+    for (Map.Entry<MemcachedNode, List<String>> chunk : chunks) {
+      MemcachedNode node = chunk.getKey();
+      List<String> lk = chunk.getValue();
+      ChunkGetCallback chunkCb = new ChunkGetCallback(cb, node, lk.size());
+      Operation op;
+      if (node == null) {
+        op = opFact.mget(lk, chunkCb);
+      } else {
+        op = node.enabledMGetOp() ? opFact.mget(lk, chunkCb)
+                                  : opFact.get(lk, chunkCb);
       }
+      chunkCb.op = op;
+      conn.addOperation(node, op);
+      ops.add(op);
     }
     return new BulkGetFuture<>(rvMap, ops, latch, operationTimeout);
   }
@@ -1236,9 +1436,9 @@ public class MemcachedClient extends SpyThread
       addKeyToMap(keyMap, key);
     }
 
-    int wholeChunkSize = getWholeChunkSize(keyMap);
-    final CountDownLatch latch = new CountDownLatch(wholeChunkSize);
-    final Collection<Operation> ops = new ArrayList<>(wholeChunkSize);
+    List<Map.Entry<MemcachedNode, List<String>>> chunks = splitIntoChunks(keyMap);
+    final CountDownLatch latch = new CountDownLatch(chunks.size());
+    final Collection<Operation> ops = new ArrayList<>(chunks.size());
 
     GetsOperation.Callback cb = new GetsOperation.Callback() {
       public void receivedStatus(OperationStatus status) {
@@ -1263,22 +1463,20 @@ public class MemcachedClient extends SpyThread
     // Now that we know how many servers it breaks down into, and the latch
     // is all set up, convert all of these strings collections to operations
     checkState();
-    for (Map.Entry<MemcachedNode, List<String>> entry : keyMap.entrySet()) {
-      MemcachedNode node = entry.getKey();
-      List<String> keyList = entry.getValue();
-
-      for (int i = 0; i < keyList.size(); i += GET_BULK_CHUNK_SIZE) {
-        List<String> lk = keyList.subList(i, Math.min(keyList.size(), i + GET_BULK_CHUNK_SIZE));
-        Operation op;
-        if (node == null) {
-          op = opFact.mgets(lk, cb);
-        } else {
-          op = node.enabledMGetsOp() ? opFact.mgets(lk, cb)
-                                     : opFact.gets(lk, cb);
-        }
-        conn.addOperation(node, op);
-        ops.add(op);
+    for (Map.Entry<MemcachedNode, List<String>> chunk : chunks) {
+      MemcachedNode node = chunk.getKey();
+      List<String> lk = chunk.getValue();
+      ChunkGetsCallback chunkCb = new ChunkGetsCallback(cb, node, lk.size());
+      Operation op;
+      if (node == null) {
+        op = opFact.mgets(lk, chunkCb);
+      } else {
+        op = node.enabledMGetsOp() ? opFact.mgets(lk, chunkCb)
+                                   : opFact.gets(lk, chunkCb);
       }
+      chunkCb.op = op;
+      conn.addOperation(node, op);
+      ops.add(op);
     }
     return new BulkGetFuture<>(rvMap, ops, latch, operationTimeout);
   }
@@ -1299,17 +1497,106 @@ public class MemcachedClient extends SpyThread
     keyList.add(key);
   }
 
+  private void addKeyToMap(Map<MemcachedNode, List<String>> keyMap, ArcusKey key) {
+    MemcachedNode node = conn.findNodeByKey(key);
+    List<String> keyList = keyMap.get(node);
+
+    if (keyList == null) {
+      keyList = new ArrayList<>();
+      keyMap.put(node, keyList);
+    }
+    keyList.add(key.getKey());
+  }
+
   /**
-   * get size of whole chunk by node
+   * Split the keys of each node into chunks sized by the chunk size policy.
    * @param keyMap collection list that grouped by node
-   * @return size of whole chunk
+   * @return list of chunks with their node
+   */
+  private List<Map.Entry<MemcachedNode, List<String>>> splitIntoChunks(
+          Map<MemcachedNode, List<String>> keyMap) {
+    List<Map.Entry<MemcachedNode, List<String>>> chunks = new ArrayList<>();
+    for (Map.Entry<MemcachedNode, List<String>> entry : keyMap.entrySet()) {
+      MemcachedNode node = entry.getKey();
+      List<String> keyList = entry.getValue();
+      int chunkSize = chunkSizePolicy.getChunkSize(node, GET_BULK_CHUNK_SIZE, Integer.MAX_VALUE);
+
+      for (int i = 0; i < keyList.size(); i += chunkSize) {
+        chunks.add(new AbstractMap.SimpleEntry<>(node,
+                keyList.subList(i, Math.min(keyList.size(), i + chunkSize))));
+      }
+    }
+    return chunks;
+  }
+
+  /**
+   * Get callback of a get bulk chunk that reports the chunk to the chunk size policy.
+   */
+  private final class ChunkGetCallback implements GetOperation.Callback {
+    private final GetOperation.Callback cb;
+    private final MemcachedNode node;
+    private final int keyCount;
+    private Operation op = null;
+    private long responseBytes = 0;
+
+    private ChunkGetCallback(GetOperation.Callback cb, MemcachedNode node, int keyCount) {
+      this.cb = cb;
+      this.node = node;
+      this.keyCount = keyCount;
+    }
+
+    public void receivedStatus(OperationStatus status) {
+      cb.receivedStatus(status);
+    }
+
+    public void gotData(String key, int flags, byte[] data) {
+      responseBytes += data.length;
+      cb.gotData(key, flags, data);
+    }
+
+    public void complete() {
+      // measured from the write, so that the time queued in the client is not counted.
+      if (op != null && op.isWriteCompleted()) {
+        chunkSizePolicy.chunkCompleted(node, keyCount, responseBytes,
+                System.nanoTime() - op.getWriteCompletedNanos());
+      }
+      cb.complete();
+    }
+  }
+
+  /**
+   * Gets callback of a gets bulk chunk that reports the chunk to the chunk size policy.
    */
-  private int getWholeChunkSize(Map<MemcachedNode, List<String>> keyMap) {
-    int wholeChunkSize = 0;
-    for (List<String> keys : keyMap.values()) {
-      wholeChunkSize += (((keys.size() - 1) / GET_BULK_CHUNK_SIZE) + 1);
+  private final class ChunkGetsCallback implements GetsOperation.Callback {
+    private final GetsOperation.Callback cb;
+    private final MemcachedNode node;
+    private final int keyCount;
+    private Operation op = null;
+    private long responseBytes = 0;
+
+    private ChunkGetsCallback(GetsOperation.Callback cb, MemcachedNode node, int keyCount) {
+      this.cb = cb;
+      this.node = node;
+      this.keyCount = keyCount;
+    }
+
+    public void receivedStatus(OperationStatus status) {
+      cb.receivedStatus(status);
+    }
+
+    public void gotData(String key, int flags, long cas, byte[] data) {
+      responseBytes += data.length;
+      cb.gotData(key, flags, cas, data);
+    }
+
+    public void complete() {
+      // measured from the write, so that the time queued in the client is not counted.
+      if (op != null && op.isWriteCompleted()) {
+        chunkSizePolicy.chunkCompleted(node, keyCount, responseBytes,
+                System.nanoTime() - op.getWriteCompletedNanos());
+      }
+      cb.complete();
     }
-    return wholeChunkSize;
   }
 
   /**
@@ -1660,7 +1947,7 @@ public class MemcachedClient extends SpyThread
   private long mutate(Mutator m, String key, int by, long def, int exp) {
     OperationFuture<Long> rv = asyncMutate(m, key, by, def, exp);
     try {
-      return rv.get(operationTimeout, TimeUnit.MILLISECONDS);
+      return rv.get(rv.getTimeout(), TimeUnit.MILLISECONDS);
     } catch (InterruptedException e) {
       rv.cancel(true);
       throw new RuntimeException("Interrupted waiting for value", e);
@@ -1926,10 +2213,22 @@ public class MemcachedClient extends SpyThread
    *                               is too full to accept any more requests
    */
   public OperationFuture<Boolean> delete(String key) {
+    return delete(ArcusKey.of(key));
+  }
+
+  /**
+   * Delete the given key handle from the cache.
+   *
+   * @param key the key handle to delete
+   * @return whether or not the operation was performed
+   * @throws IllegalStateException in the rare circumstance where queue
+   *                               is too full to accept any more requests
+   */
+  public OperationFuture<Boolean> delete(ArcusKey key) {
     final CountDownLatch latch = new CountDownLatch(1);
     final OperationFuture<Boolean> rv = new OperationFuture<>(latch,
             operationTimeout);
-    DeleteOperation op = opFact.delete(key,
+    DeleteOperation op = opFact.delete(key.getKey(),
         new OperationCallback() {
           public void receivedStatus(OperationStatus s) {
             rv.set(s.isSuccess(), s);
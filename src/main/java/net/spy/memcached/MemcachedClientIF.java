@@ -68,6 +68,10 @@ public interface MemcachedClientIF {
 
   Future<Boolean> set(String key, int exp, Object o);
 
+  <T> Future<Boolean> set(ArcusKey key, int exp, T o, Transcoder<T> tc);
+
+  Future<Boolean> set(ArcusKey key, int exp, Object o);
+
   <T> Future<Boolean> replace(String key, int exp, T o,
                               Transcoder<T> tc);
 
@@ -77,6 +81,10 @@ public interface MemcachedClientIF {
 
   Future<Object> asyncGet(String key);
 
+  <T> Future<T> asyncGet(ArcusKey key, Transcoder<T> tc);
+
+  Future<Object> asyncGet(ArcusKey key);
+
   <T> Future<CASValue<T>> asyncGets(String key,
                                     Transcoder<T> tc);
 
@@ -92,6 +100,11 @@ public interface MemcachedClientIF {
 
   Object get(String key) throws OperationTimeoutException;
 
+  <T> T get(ArcusKey key, Transcoder<T> tc)
+          throws OperationTimeoutException;
+
+  Object get(ArcusKey key) throws OperationTimeoutException;
+
   <T> BulkFuture<Map<String, T>> asyncGetBulk(Collection<String> keys,
                                               Iterator<Transcoder<T>> tcs);
 
@@ -105,6 +118,11 @@ public interface MemcachedClientIF {
 
   BulkFuture<Map<String, Object>> asyncGetBulk(String... keys);
 
+  <T> BulkFuture<Map<String, T>> asyncGetBulk(Transcoder<T> tc,
+                                              ArcusKey... keys);
+
+  BulkFuture<Map<String, Object>> asyncGetBulk(ArcusKey... keys);
+
   <T> BulkFuture<Map<String, CASValue<T>>> asyncGetsBulk(Collection<String> keys,
                                                          Iterator<Transcoder<T>> tcs);
 
@@ -174,6 +192,8 @@ public interface MemcachedClientIF {
 
   Future<Boolean> delete(String key);
 
+  Future<Boolean> delete(ArcusKey key);
+
   Future<Boolean> flush(int delay);
 
   Future<Boolean> flush();
@@ -40,6 +40,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
+import java.util.Random;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -50,11 +51,15 @@ import java.util.concurrent.atomic.AtomicReference;
 import net.spy.memcached.compat.SpyObject;
 import net.spy.memcached.compat.log.LoggerFactory;
 import net.spy.memcached.internal.ReconnDelay;
+import net.spy.memcached.metrics.ArcusMetrics;
+import net.spy.memcached.metrics.FlightRecorderEvents;
+import net.spy.memcached.metrics.NodeStatistics;
 import net.spy.memcached.ops.KeyedOperation;
 import net.spy.memcached.ops.MultiOperationCallback;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationException;
+import net.spy.memcached.ops.OperationLifecycle;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 
@@ -72,10 +77,24 @@ public final class MemcachedConnection extends SpyObject {
   // easy to write a bug that causes it to loop uncontrollably.  This helps
   // find those bugs and often works around them.
   private static final int EXCESSIVE_EMPTY = 0x1000000;
+  // The minimum interval between the logs of slow operations.
+  private static final long SLOW_OPERATION_LOG_INTERVAL = TimeUnit.SECONDS.toNanos(1);
 
   private final int timeoutExceptionThreshold;
   private final int timeoutRatioThreshold;
+  private final long timeoutRatioWindow;
+  private final AdaptiveTimeoutPolicy adaptiveTimeoutPolicy;
+  private final CircuitBreakerPolicy circuitBreakerPolicy;
+  private final long reconnectRampWindow;
+  private final int reconnectRampInitialOps;
+  private final KeepAliveProbes keepAliveProbes;
   private final int timeoutDurationThreshold;
+  private final ArcusMetrics metrics;
+  private final boolean traceOperations;
+  private final long slowOperationThresholdNanos;
+  private long lastSlowOperationLogNanos = 0;
+  private boolean slowOperationLogged = false;
+  private int unloggedSlowOperations = 0;
 
   private final String connName;
   private Selector selector = null;
@@ -140,14 +159,26 @@ public final class MemcachedConnection extends SpyObject {
     opFactory = opfactory;
     timeoutExceptionThreshold = f.getTimeoutExceptionThreshold();
     timeoutRatioThreshold = f.getTimeoutRatioThreshold();
+    timeoutRatioWindow = f.getTimeoutRatioWindow();
+    adaptiveTimeoutPolicy = f.getAdaptiveTimeoutPolicy();
+    circuitBreakerPolicy = f.getCircuitBreakerPolicy();
+    reconnectRampWindow = f.getReconnectRampWindow();
+    reconnectRampInitialOps = f.getReconnectRampInitialOps();
+    keepAliveProbes = f.getKeepAliveProbeInterval() > 0
+        ? new KeepAliveProbes(f.getKeepAliveProbeInterval()) : null;
     timeoutDurationThreshold = f.getTimeoutDurationThreshold();
+    metrics = f.getMetrics();
+    slowOperationThresholdNanos = TimeUnit.MILLISECONDS.toNanos(f.getSlowOperationThreshold());
+    // the adaptive timeouts are derived from the time since an operation is added.
+    traceOperations = f.shouldTraceOperations() || slowOperationThresholdNanos > 0 ||
+        adaptiveTimeoutPolicy != null;
     selector = Selector.open();
     List<MemcachedNode> connections = new ArrayList<>(a.size());
     for (SocketAddress sa : a) {
       connections.add(makeMemcachedNode(connName, sa));
     }
     locator = f.createLocator(connections);
-    reconnectQueue = new ReconnectQueue(f.getMaxReconnectDelay());
+    reconnectQueue = new ReconnectQueue(f.getMaxReconnectDelay(), new Random());
   }
 
   /* ENABLE_REPLICATION if */
@@ -242,6 +273,10 @@ public final class MemcachedConnection extends SpyObject {
       delay = (delay > 0) ? Math.min(minSwitchoverDelay, delay) : minSwitchoverDelay;
     }
     /* ENABLE_REPLICATION end */
+    if (keepAliveProbes != null) {
+      long probeDelay = keepAliveProbes.getDelayMillis();
+      delay = (delay > 0) ? Math.min(probeDelay, delay) : probeDelay;
+    }
     getLogger().debug("Selecting with delay of %sms", delay);
     assert selectorsMakeSense() : "Selectors don't make sense.";
     int selected = selector.select(delay);
@@ -295,6 +330,10 @@ public final class MemcachedConnection extends SpyObject {
                 mn.getNodeName(), timeoutRatioThreshold, mn.getOpQueueStatus());
         lostConnection(mn, ReconnDelay.DEFAULT, "high timeout ratio");
       }
+      CircuitBreaker breaker = mn.getCircuitBreaker();
+      if (breaker != null) {
+        breaker.checkProbes();
+      }
     }
 
     /* ENABLE_REPLICATION if */
@@ -307,6 +346,10 @@ public final class MemcachedConnection extends SpyObject {
     // Deal with the memcached server group that's been added by CacheManager.
     handleCacheNodesChange();
 
+    if (keepAliveProbes != null) {
+      keepAliveProbes.probe();
+    }
+
     if (!reconnectQueue.isEmpty()) {
       attemptReconnects();
     }
@@ -495,11 +538,14 @@ public final class MemcachedConnection extends SpyObject {
             delayedSwitchoverGroups.put(oldGroup);
           } else {
             changeRoleGroups.add(oldGroup);
+            boolean reconnect = needsReconnectToMove(oldMasterNode);
             taskList.add(new MoveOperationTask(
                 oldMasterNode, oldGroup.getMasterCandidate(), false));
-            taskList.add(new QueueReconnectTask(
-                oldMasterNode, ReconnDelay.IMMEDIATE,
-                "Discarded all pending reading state operation to move operations."));
+            if (reconnect) {
+              taskList.add(new QueueReconnectTask(
+                  oldMasterNode, ReconnDelay.IMMEDIATE,
+                  "Discarded all pending reading state operation to move operations."));
+            }
           }
         } else {
           changeRoleGroups.add(oldGroup);
@@ -597,14 +643,29 @@ public final class MemcachedConnection extends SpyObject {
       if (((ArcusReplNodeAddress) node.getSocketAddress()).isMaster()) {
         ((ArcusReplKetamaNodeLocator) locator).switchoverReplGroup(group);
       }
-      node.moveOperations(group.getMasterNode(), cancelNonIdempotent);
+      boolean reconnect = needsReconnectToMove(node);
+      int moved = node.moveOperations(group.getMasterNode(), cancelNonIdempotent);
+      FlightRecorderEvents.switchover(group.getGroupName(), node, group.getMasterNode(), moved);
       addedQueue.offer(group.getMasterNode());
-      queueReconnect(node, ReconnDelay.IMMEDIATE,
-          "Discarded all pending reading state operation to move operations.");
+      if (reconnect) {
+        queueReconnect(node, ReconnDelay.IMMEDIATE,
+            "Discarded all pending reading state operation to move operations.");
+      } else {
+        node.fixupOps();
+      }
     } else {
       getLogger().warn("Delay switchover because invalid group state : " + group);
     }
   }
+
+  /**
+   * Check if the socket of a node must be reconnected after its operations are moved.
+   * The operations in flight are sent again to the other node, so their responses
+   * must be discarded. A probed socket with nothing in flight is kept as it is.
+   */
+  private boolean needsReconnectToMove(MemcachedNode node) {
+    return keepAliveProbes == null || node.hasInFlightOperations();
+  }
   /* ENABLE_REPLICATION end */
 
   private MemcachedNode attachMemcachedNode(SocketAddress sa) throws IOException {
@@ -624,7 +685,13 @@ public final class MemcachedConnection extends SpyObject {
                                           SocketAddress sa) throws IOException {
     MemcachedNode qa = connFactory.createMemcachedNode(name, sa, connFactory.getReadBufSize());
     if (timeoutRatioThreshold > 0) {
-      qa.enableTimeoutRatio();
+      qa.enableTimeoutRatio(timeoutRatioWindow);
+    }
+    if (circuitBreakerPolicy != null) {
+      qa.enableCircuitBreaker(circuitBreakerPolicy);
+    }
+    if (reconnectRampWindow > 0) {
+      qa.enableReconnectRamp(reconnectRampWindow, reconnectRampInitialOps);
     }
 
     SocketChannel ch = SocketChannel.open();
@@ -910,6 +977,7 @@ public final class MemcachedConnection extends SpyObject {
   // reconnect
   private void handleIO(SelectionKey sk) {
     MemcachedNode qa = (MemcachedNode) sk.attachment();
+    qa.getStatistics().selected();
     try {
       getLogger().debug(
               "Handling IO for:  %s (r=%s, w=%s, c=%s, op=%s)",
@@ -976,31 +1044,105 @@ public final class MemcachedConnection extends SpyObject {
     qa.fillWriteBuffer(optimizeGetOp);
     boolean canWriteMore = qa.getBytesRemainingToWrite() > 0;
     while (canWriteMore) {
+      int toWrite = qa.getBytesRemainingToWrite();
       int wrote = qa.writeSome();
+      qa.getStatistics().bytesWritten(wrote, wrote < toWrite);
       qa.fillWriteBuffer(optimizeGetOp);
       canWriteMore = wrote > 0 && qa.getBytesRemainingToWrite() > 0;
     }
   }
 
+  /**
+   * Log the operation completed later than the slow operation threshold,
+   * at most once a second. The slow operations not logged in between are counted.
+   */
+  private void logSlowOperation(MemcachedNode qa, Operation op) {
+    if (!op.isLifecycleRecorded(OperationLifecycle.CREATED) ||
+        !op.isLifecycleRecorded(OperationLifecycle.COMPLETED)) {
+      return;
+    }
+    long created = op.getLifecycleTimestamp(OperationLifecycle.CREATED);
+    long completed = op.getLifecycleTimestamp(OperationLifecycle.COMPLETED);
+    if (completed - created < slowOperationThresholdNanos) {
+      return;
+    }
+    if (slowOperationLogged &&
+        completed - lastSlowOperationLogNanos < SLOW_OPERATION_LOG_INTERVAL) {
+      unloggedSlowOperations++;
+      return;
+    }
+    getLogger().warn("Slow %s operation (%d ms >= %d ms) on %s %s [%s]%s",
+        op.getAPIType(), TimeUnit.NANOSECONDS.toMillis(completed - created),
+        TimeUnit.NANOSECONDS.toMillis(slowOperationThresholdNanos), qa.getNodeName(),
+        TimedOutMessageFactory.createLifecycleMessage(op), qa.getOpQueueStatus(),
+        unloggedSlowOperations > 0
+            ? " (" + unloggedSlowOperations + " slow operations not logged before)" : "");
+    lastSlowOperationLogNanos = completed;
+    slowOperationLogged = true;
+    unloggedSlowOperations = 0;
+  }
+
+  /**
+   * Check whether no response has been read for the last write of the traced operation.
+   */
+  private static boolean isFirstResponse(Operation op) {
+    if (!op.isLifecycleRecorded(OperationLifecycle.WRITE_STARTED)) {
+      return false;
+    }
+    return !op.isLifecycleRecorded(OperationLifecycle.FIRST_RESPONSE) ||
+        op.getLifecycleTimestamp(OperationLifecycle.FIRST_RESPONSE) -
+            op.getLifecycleTimestamp(OperationLifecycle.WRITE_STARTED) < 0;
+  }
+
   private void handleReads(MemcachedNode qa)
           throws IOException {
     Operation currentOp = qa.getCurrentReadOp();
     ByteBuffer rbuf = qa.getRbuf();
     final SocketChannel channel = qa.getChannel();
+    NodeStatistics statistics = qa.getStatistics();
     int read = channel.read(rbuf);
     while (read > 0) {
       getLogger().debug("Read %d bytes", read);
+      long readNanos = System.nanoTime();
+      statistics.bytesRead(read);
       ((Buffer) rbuf).flip();
       while (rbuf.remaining() > 0) {
         if (currentOp == null) {
           throw new IllegalStateException("No read operation.");
         }
+        if (isFirstResponse(currentOp)) {
+          currentOp.recordLifecycle(OperationLifecycle.FIRST_RESPONSE);
+        }
+        int position = rbuf.position();
         currentOp.readFromBuffer(rbuf);
+        currentOp.addBytesRead(rbuf.position() - position);
+        if (currentOp.getMetrics() != null) {
+          currentOp.getMetrics().bytesRead(currentOp.getAPIType(),
+              currentOp.getOperationType(), rbuf.position() - position);
+        }
         if (currentOp.getState() == OperationState.COMPLETE) {
           getLogger().debug("Completed read op: %s and giving the next %d bytes",
                   currentOp, rbuf.remaining());
           Operation op = qa.removeCurrentReadOp();
           assert op == currentOp : "Expected to pop " + currentOp + " got " + op;
+          long responseNanos = currentOp.isWriteCompleted()
+              ? readNanos - currentOp.getWriteCompletedNanos() : -1;
+          statistics.operationCompleted(responseNanos);
+          if (adaptiveTimeoutPolicy != null &&
+              currentOp.isLifecycleRecorded(OperationLifecycle.CREATED)) {
+            // including the queueing time, as the timeout of the future does.
+            statistics.apiCompleted(currentOp.getAPIType(),
+                readNanos - currentOp.getLifecycleTimestamp(OperationLifecycle.CREATED));
+          }
+          CircuitBreaker breaker = qa.getCircuitBreaker();
+          if (breaker != null &&
+              (keepAliveProbes == null || !keepAliveProbes.isProbe(qa, currentOp))) {
+            breaker.operationCompleted(currentOp, responseNanos);
+          }
+          FlightRecorderEvents.operationCompleted(qa, currentOp, responseNanos);
+          if (slowOperationThresholdNanos > 0) {
+            logSlowOperation(qa, currentOp);
+          }
           currentOp = qa.getCurrentReadOp();
         /* ENABLE_REPLICATION if */
         } else if (currentOp.getState() == OperationState.MOVING) {
@@ -1196,6 +1338,7 @@ public final class MemcachedConnection extends SpyObject {
 
     getLogger().warn("Closing, and reopening %s, attempt %d.", qa,
             qa.getReconnectCount());
+    FlightRecorderEvents.reconnectQueued(qa, type == ReconnDelay.IMMEDIATE, cause);
     try {
       qa.closeChannel();
     } catch (IOException e) {
@@ -1400,6 +1543,24 @@ public final class MemcachedConnection extends SpyObject {
     return locator.getPrimary(key);
   }
 
+  /**
+   * Get the primary node for the key handle.
+   * The cached hash of the key is used if the locator is a ketama locator of Arcus.
+   *
+   * @param key the key the operation is operating upon
+   */
+  public MemcachedNode getPrimaryNode(final ArcusKey key) {
+    /* ENABLE_REPLICATION if */
+    if (this.arcusReplEnabled) {
+      return ((ArcusReplKetamaNodeLocator) locator).getPrimary(key, getReplicaPick());
+    }
+    /* ENABLE_REPLICATION end */
+    if (locator instanceof ArcusKetamaNodeLocator) {
+      return ((ArcusKetamaNodeLocator) locator).getPrimary(key);
+    }
+    return locator.getPrimary(key.getKey());
+  }
+
   /**
    * Get the primary node for the key string and the operation.
    *
@@ -1454,7 +1615,23 @@ public final class MemcachedConnection extends SpyObject {
     addOperation(findNodeByKey(key), o);
   }
 
+  /**
+   * Add an operation to the given connection.
+   *
+   * @param key the key handle the operation is operating upon
+   * @param o   the operation
+   */
+  public void addOperation(final ArcusKey key, final Operation o) {
+    addOperation(findNodeByKey(key), o);
+  }
+
   public void insertOperation(final MemcachedNode node, final Operation o) {
+    if (metrics != null) {
+      o.setMetrics(metrics);
+    }
+    if (traceOperations) {
+      o.traceLifecycle();
+    }
     node.insertOp(o);
     addedQueue.offer(node);
     Selector s = selector.wakeup();
@@ -1462,7 +1639,13 @@ public final class MemcachedConnection extends SpyObject {
     getLogger().debug("Added %s to %s", o, node);
   }
 
-  public void addOperation(final MemcachedNode node, final Operation o) {
+  public void addOperation(MemcachedNode node, final Operation o) {
+    if (metrics != null) {
+      o.setMetrics(metrics);
+    }
+    if (traceOperations) {
+      o.traceLifecycle();
+    }
     if (node == null) {
       o.cancel("no node");
       return;
@@ -1473,6 +1656,19 @@ public final class MemcachedConnection extends SpyObject {
       o.cancel("inactive node");
       return;
     }
+    CircuitBreaker breaker = node.getCircuitBreaker();
+    if (breaker != null && !breaker.allowRequest(o)) {
+      MemcachedNode alternative = findAlternativeNode(node, o);
+      if (alternative == null) {
+        o.setHandlingNode(node);
+        o.cancel("circuit open");
+        return;
+      }
+      node = alternative;
+    }
+    if (adaptiveTimeoutPolicy != null) {
+      o.setTimeout(adaptiveTimeoutPolicy.getTimeout(node, o.getAPIType()));
+    }
     node.addOpToInputQ(o);
     addedQueue.offer(node);
     Selector s = selector.wakeup();
@@ -1526,6 +1722,7 @@ public final class MemcachedConnection extends SpyObject {
    */
   public static void opTimedOut(Operation op) {
     MemcachedConnection.setTimeout(op, true);
+    recordTimeout(op);
   }
 
   /**
@@ -1536,6 +1733,7 @@ public final class MemcachedConnection extends SpyObject {
   public static void opsTimedOut(Collection<Operation> ops) {
     Collection<String> timedOutNodes = new HashSet<>();
     for (Operation op : ops) {
+      recordTimeout(op);
       try {
         MemcachedNode node = op.getHandlingNode();
         if (node == null) {
@@ -1553,6 +1751,12 @@ public final class MemcachedConnection extends SpyObject {
     }
   }
 
+  private static void recordTimeout(Operation op) {
+    if (op != null && op.getMetrics() != null) {
+      op.getMetrics().operationTimedOut(op.getAPIType(), op.getOperationType());
+    }
+  }
+
   /**
    * helper method: reset timeout counter
    *
@@ -1606,7 +1810,20 @@ public final class MemcachedConnection extends SpyObject {
    * @return a memcached node
    */
   public MemcachedNode findNodeByKey(String key) {
-    MemcachedNode node = getPrimaryNode(key);
+    return findActiveNode(getPrimaryNode(key), key);
+  }
+
+  /**
+   * find memcachednode for key handle
+   *
+   * @param key
+   * @return a memcached node
+   */
+  public MemcachedNode findNodeByKey(ArcusKey key) {
+    return findActiveNode(getPrimaryNode(key), key.getKey());
+  }
+
+  private MemcachedNode findActiveNode(MemcachedNode node, String key) {
     if (node == null) {
       return null;
     }
@@ -1626,6 +1843,50 @@ public final class MemcachedConnection extends SpyObject {
     return node;
   }
 
+  /**
+   * Find a node to send the operation to instead of the node with an open circuit.
+   * A read operation goes to another node of the replica group, and a single key
+   * operation goes to the next node of the key in the redistribute failure mode.
+   *
+   * @return null if there is no such node
+   */
+  private MemcachedNode findAlternativeNode(MemcachedNode node, Operation o) {
+    /* ENABLE_REPLICATION if */
+    if (arcusReplEnabled && o.isReadOperation() && node.getReplicaGroup() != null) {
+      MemcachedReplicaGroup group = node.getReplicaGroup();
+      List<MemcachedNode> candidates = new ArrayList<>(group.getSlaveNodes());
+      candidates.add(group.getMasterNode());
+      for (MemcachedNode n : candidates) {
+        if (isAlternative(n, node)) {
+          return n;
+        }
+      }
+      return null;
+    }
+    /* ENABLE_REPLICATION end */
+    if (failureMode == FailureMode.Redistribute && o instanceof KeyedOperation) {
+      Collection<String> keys = ((KeyedOperation) o).getKeys();
+      if (keys.size() == 1) {
+        Iterator<MemcachedNode> iter = getNodeSequence(keys.iterator().next(), o);
+        while (iter.hasNext()) {
+          MemcachedNode n = iter.next();
+          if (isAlternative(n, node)) {
+            return n;
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  private boolean isAlternative(MemcachedNode n, MemcachedNode node) {
+    if (n == null || n == node || !n.isActive()) {
+      return false;
+    }
+    CircuitBreaker breaker = n.getCircuitBreaker();
+    return breaker == null || breaker.getState() == CircuitBreaker.State.CLOSED;
+  }
+
   public int getAddedQueueSize() {
     return addedQueue.size();
   }
@@ -1633,9 +1894,22 @@ public final class MemcachedConnection extends SpyObject {
   public static class ReconnectQueue {
     // maximum amount of time to wait between reconnect attempts
     private final long maxReconnectDelaySeconds;
+    // spreads the delayed reconnects of the clients that lost a server together
+    private final Random jitter;
 
     public ReconnectQueue(long maxReconnectDelaySeconds) {
+      this(maxReconnectDelaySeconds, null);
+    }
+
+    /**
+     * Create a queue that picks each delay at random between the half of
+     * the exponential backoff and the backoff itself.
+     *
+     * @param jitter null to use the exponential backoff as is
+     */
+    public ReconnectQueue(long maxReconnectDelaySeconds, Random jitter) {
       this.maxReconnectDelaySeconds = maxReconnectDelaySeconds;
+      this.jitter = jitter;
     }
 
     private final Map<MemcachedNode, Long/*reconnect nano time*/> reconMap =
@@ -1646,9 +1920,13 @@ public final class MemcachedConnection extends SpyObject {
     private long newReconnectNanoTime(MemcachedNode node, ReconnDelay type) {
       long newReconTime = System.nanoTime();
       if (type == ReconnDelay.DEFAULT) {
-        newReconTime += TimeUnit.SECONDS.toNanos(
+        long delay = TimeUnit.SECONDS.toNanos(
             (long) Math.min(maxReconnectDelaySeconds,
                 Math.pow(2, node.getReconnectCount() + 1)));
+        if (jitter != null) {
+          delay -= (long) (jitter.nextDouble() * (delay / 2));
+        }
+        newReconTime += delay;
       }
       // Avoid potential condition where two connections are scheduled
       // for reconnect at the exact same time.  This is expected to be
@@ -1664,9 +1942,13 @@ public final class MemcachedConnection extends SpyObject {
     }
 
     public void replace(MemcachedNode node, ReconnDelay type) {
+      if (type == ReconnDelay.DEFAULT && jitter != null) {
+        // only another jitter of the same backoff, keep the queued reconnect.
+        return;
+      }
       long oldReconTime = reconMap.get(node);
       long newReconTime = newReconnectNanoTime(node, type);
-      if (newReconTime < oldReconTime) {
+      if (newReconTime - oldReconTime < 0) {
         reconSortedMap.remove(oldReconTime);
         reconMap.put(node, newReconTime);
         reconSortedMap.put(newReconTime, node);
@@ -1711,6 +1993,96 @@ public final class MemcachedConnection extends SpyObject {
     }
   }
 
+  /**
+   * Version operations sent to the nodes that had no response in an interval,
+   * e.g. the slaves not read under ReadPriority.MASTER. A connection that does not
+   * answer the probe until the next interval is reconnected before it is needed.
+   */
+  private class KeepAliveProbes {
+    private final long intervalNanos;
+    private long lastProbeNanos = System.nanoTime();
+    private Map<MemcachedNode, Long> completedCounts = new HashMap<>();
+    private Map<MemcachedNode, Operation> probes = new HashMap<>();
+
+    public KeepAliveProbes(long intervalMillis) {
+      this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    public long getDelayMillis() {
+      return Math.max(
+          TimeUnit.NANOSECONDS.toMillis(lastProbeNanos + intervalNanos - System.nanoTime()), 1);
+    }
+
+    public void probe() {
+      long now = System.nanoTime();
+      if (now - lastProbeNanos < intervalNanos) {
+        return;
+      }
+      lastProbeNanos = now;
+      Map<MemcachedNode, Long> counts = new HashMap<>();
+      Map<MemcachedNode, Operation> sent = new HashMap<>();
+      for (MemcachedNode node : locator.getAll()) {
+        if (!node.isActive()) {
+          continue;
+        }
+        Operation probe = probes.get(node);
+        if (probe != null && !probe.isCancelled() &&
+            probe.getState() != OperationState.COMPLETE) {
+          if (probe.isWriteCompleted() &&
+              now - probe.getWriteCompletedNanos() >= intervalNanos) {
+            getLogger().warn("%s has not answered the keepalive probe. (%s)",
+                node.getNodeName(), node.getOpQueueStatus());
+            lostConnection(node, ReconnDelay.DEFAULT, "keepalive probe timeout");
+            continue;
+          }
+          // still queued behind other operations or written just before.
+          sent.put(node, probe);
+          counts.put(node, node.getStatistics().getCompleted());
+          continue;
+        }
+        long completed = node.getStatistics().getCompleted();
+        Long last = completedCounts.get(node);
+        if (last != null && last == completed) {
+          sent.put(node, sendProbe(node));
+          // the probe itself does not make the node busy
+          completed++;
+        }
+        counts.put(node, completed);
+      }
+      completedCounts = counts;
+      probes = sent;
+    }
+
+    public boolean isProbe(MemcachedNode node, Operation op) {
+      return probes.get(node) == op;
+    }
+
+    /**
+     * Send a probe on the IO thread. It is put in front of the input queue
+     * of the node and is not an operation of the application, so it has
+     * no metrics, lifecycle, adaptive timeout or circuit breaker check.
+     */
+    private Operation sendProbe(final MemcachedNode node) {
+      Operation op = opFactory.version(new OperationCallback() {
+        @Override
+        public void receivedStatus(OperationStatus status) {
+          if (status.isSuccess()) {
+            node.setVersion(status.getMessage());
+          }
+        }
+
+        @Override
+        public void complete() {
+          // the state of the probe is checked in the next interval
+        }
+      });
+      node.insertOp(op);
+      addedQueue.offer(node);
+      getLogger().debug("Added keepalive probe %s to %s", op, node);
+      return op;
+    }
+  }
+
   /* ENABLE_REPLICATION if */
   private interface Task {
     void doTask();
@@ -24,6 +24,7 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.Collection;
 
+import net.spy.memcached.metrics.NodeStatistics;
 import net.spy.memcached.ops.Operation;
 
 /**
@@ -268,7 +269,12 @@ public interface MemcachedNode {
 
   int getContinuousTimeout();
 
-  void enableTimeoutRatio();
+  /**
+   * Start tracking the timeout ratio of the operations completed in a sliding window.
+   *
+   * @param window the length of the window in milliseconds
+   */
+  void enableTimeoutRatio(long window);
 
   int getTimeoutRatioNow();
 
@@ -292,6 +298,31 @@ public interface MemcachedNode {
    */
   String getOpQueueStatus();
 
+  /**
+   * Get the network counters and response times of the node.
+   */
+  NodeStatistics getStatistics();
+
+  /**
+   * Start breaking the circuit of the node by the given policy.
+   */
+  void enableCircuitBreaker(CircuitBreakerPolicy policy);
+
+  /**
+   * Limit the in-flight operations for a while after each reconnect.
+   *
+   * @param window the length of the ramp in milliseconds
+   * @param initialOps the limit just after a reconnect, doubled every tenth of the window
+   */
+  void enableReconnectRamp(long window, int initialOps);
+
+  /**
+   * Get the circuit breaker of the node.
+   *
+   * @return null if the circuit breaker is not enabled
+   */
+  CircuitBreaker getCircuitBreaker();
+
   /* ENABLE_REPLICATION if */
   void setReplicaGroup(MemcachedReplicaGroup g);
 
@@ -300,5 +331,11 @@ public interface MemcachedNode {
   int moveOperations(final MemcachedNode toNode, boolean cancelNonIdempotent);
 
   boolean hasNonIdempotentOperationInReadQ();
+
+  /**
+   * Check if any operation has been written to the socket and not yet answered,
+   * except the one answered with a switchover.
+   */
+  boolean hasInFlightOperations();
   /* ENABLE_REPLICATION end */
 }
@@ -24,6 +24,7 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.Collection;
 
+import net.spy.memcached.metrics.NodeStatistics;
 import net.spy.memcached.ops.Operation;
 
 public class MemcachedNodeROImpl implements MemcachedNode {
@@ -101,6 +102,22 @@ public class MemcachedNodeROImpl implements MemcachedNode {
     return root.getReconnectCount();
   }
 
+  public NodeStatistics getStatistics() {
+    return root.getStatistics();
+  }
+
+  public void enableCircuitBreaker(CircuitBreakerPolicy policy) {
+    throw new UnsupportedOperationException();
+  }
+
+  public CircuitBreaker getCircuitBreaker() {
+    return root.getCircuitBreaker();
+  }
+
+  public void enableReconnectRamp(long window, int initialOps) {
+    throw new UnsupportedOperationException();
+  }
+
   public int getSelectionOps() {
     return root.getSelectionOps();
   }
@@ -213,7 +230,7 @@ public class MemcachedNodeROImpl implements MemcachedNode {
     throw new UnsupportedOperationException();
   }
 
-  public void enableTimeoutRatio() {
+  public void enableTimeoutRatio(long window) {
     throw new UnsupportedOperationException();
   }
 
@@ -256,5 +273,10 @@ public class MemcachedNodeROImpl implements MemcachedNode {
   public boolean hasNonIdempotentOperationInReadQ() {
     throw new UnsupportedOperationException();
   }
+
+  @Override
+  public boolean hasInFlightOperations() {
+    throw new UnsupportedOperationException();
+  }
   /* ENABLE_REPLICATION end */
 }
@@ -17,40 +17,28 @@
 package net.spy.memcached;
 
 import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Partitions of a map by the given size.
+ * The entries are referenced once into a list and each partition is a read-only view
+ * over a range of it, so neither keys nor values are copied into new maps.
+ */
 public class PartitionedMap<K, V> extends AbstractList<Map<K, V>> {
 
-  private final List<Map<K, V>> mapList;
+  private final List<Map.Entry<K, V>> entries;
+  private final int size;
 
   public PartitionedMap(Map<K, V> map, int size) {
-    int expectSize = (map.size() + size - 1) / size;
-    int splitBy = size;
-    int parsedSize = 0;
-
-    int mapSize = map.size();
-    int counter = 0;
-    int listIndex = 0;
-
-    mapList = new ArrayList<>(expectSize);
-    for (int i = 0; i < expectSize; i++) {
-      mapList.add(new HashMap<>());
-    }
-
-    for (Map.Entry<K, V> entry : map.entrySet()) {
-      parsedSize++;
-      counter++;
-
-      mapList.get(listIndex).put(entry.getKey(), entry.getValue());
-
-      if (parsedSize == splitBy || counter == mapSize) {
-        parsedSize = 0;
-        listIndex++;
-      }
-    }
+    this.entries = new ArrayList<>(map.entrySet());
+    this.size = size;
   }
 
   @Override
@@ -71,16 +59,47 @@ public class PartitionedMap<K, V> extends AbstractList<Map<K, V>> {
           + " must be less than size " + listSize);
     }
 
-    return mapList.get(index);
+    int start = index * size;
+    int end = Math.min(start + size, entries.size());
+    return new Partition<>(entries.subList(start, end));
   }
 
   @Override
   public int size() {
-    return mapList.size();
+    return (entries.size() + size - 1) / size;
   }
 
   @Override
   public boolean isEmpty() {
-    return mapList.isEmpty();
+    return entries.isEmpty();
+  }
+
+  private static final class Partition<K, V> extends AbstractMap<K, V> {
+
+    private final List<Map.Entry<K, V>> entries;
+
+    private Partition(List<Map.Entry<K, V>> entries) {
+      this.entries = entries;
+    }
+
+    @Override
+    public int size() {
+      return entries.size();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+      return new AbstractSet<Map.Entry<K, V>>() {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+          return Collections.unmodifiableList(entries).iterator();
+        }
+
+        @Override
+        public int size() {
+          return entries.size();
+        }
+      };
+    }
   }
 }
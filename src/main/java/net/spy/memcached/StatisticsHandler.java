@@ -31,6 +31,8 @@ import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanInfo;
 
 import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.metrics.AtomicHistogram;
+import net.spy.memcached.metrics.NodeStatistics;
 import net.spy.memcached.protocol.TCPMemcachedNodeImpl;
 
 /**
@@ -45,6 +47,22 @@ public class StatisticsHandler extends SpyObject implements DynamicMBean {
   private static final String RECONN_CNT = "reconnectCount";
   private static final String CONT_TIMEOUT = "continuousTimeout";
   private static final String VERSION = "version";
+  private static final String GROUP = "group";
+  private static final String ROLE = "role";
+  private static final String BYTES_READ = "bytesRead";
+  private static final String BYTES_WRITTEN = "bytesWritten";
+  private static final String COMPLETED = "completed";
+  private static final String COMPLETED_PER_SEC = "completedPerSecond";
+  private static final String SELECTS = "selects";
+  private static final String PARTIAL_WRITES = "partialWrites";
+  private static final String RTT_MEAN = "rttMean";
+  private static final String RTT_P50 = "rttP50";
+  private static final String RTT_P99 = "rttP99";
+  private static final String RTT_P999 = "rttP999";
+  private static final String RTT_MAX = "rttMax";
+  private static final String CIRCUIT_STATE = "circuitState";
+  private static final String CIRCUIT_OPENED = "circuitOpened";
+  private static final String CIRCUIT_REJECTED = "circuitRejected";
 
   private static final String DELIMETER = "-";
 
@@ -57,7 +75,7 @@ public class StatisticsHandler extends SpyObject implements DynamicMBean {
 
   @Override
   public Object getAttribute(String attribute) throws AttributeNotFoundException {
-    if (attribute.contains(ADDED_Q)) {
+    if (ADDED_Q.equals(attribute)) {
       return client.getAddedQueueSize();
     }
 
@@ -67,32 +85,63 @@ public class StatisticsHandler extends SpyObject implements DynamicMBean {
       return null;
     }
 
-    if (attribute.contains(RECONN_CNT)) {
-      return node.getReconnectCount();
+    NodeStatistics statistics = node.getStatistics();
+    AtomicHistogram rtt = statistics.getResponseTime();
+    CircuitBreaker breaker = node.getCircuitBreaker();
+    switch (attribute.split(DELIMETER, 2)[0]) {
+      case RECONN_CNT:
+        return node.getReconnectCount();
+      case CONT_TIMEOUT:
+        return node.getContinuousTimeout();
+      case INPUT_Q:
+        return node.getInputQueueSize();
+      case READ_Q:
+        return node.getReadQueueSize();
+      case WRITE_Q:
+        return node.getWriteQueueSize();
+      case VERSION:
+        return node.getVersion();
+      /* ENABLE_REPLICATION if */
+      case GROUP:
+        return node.getReplicaGroup() == null ? null : node.getReplicaGroup().getGroupName();
+      case ROLE:
+        if (node.getReplicaGroup() == null) {
+          return null;
+        }
+        return node.getReplicaGroup().getMasterNode() == node ? "master" : "slave";
+      /* ENABLE_REPLICATION end */
+      case BYTES_READ:
+        return statistics.getBytesRead();
+      case BYTES_WRITTEN:
+        return statistics.getBytesWritten();
+      case COMPLETED:
+        return statistics.getCompleted();
+      case COMPLETED_PER_SEC:
+        return statistics.getCompletedPerSecond();
+      case SELECTS:
+        return statistics.getSelects();
+      case PARTIAL_WRITES:
+        return statistics.getPartialWrites();
+      case RTT_MEAN:
+        return rtt.getMean() / 1000.0;
+      case RTT_P50:
+        return rtt.getValueAtPercentile(50.0) / 1000;
+      case RTT_P99:
+        return rtt.getValueAtPercentile(99.0) / 1000;
+      case RTT_P999:
+        return rtt.getValueAtPercentile(99.9) / 1000;
+      case RTT_MAX:
+        return rtt.getMax() / 1000;
+      case CIRCUIT_STATE:
+        return breaker == null ? null : breaker.getState().name();
+      case CIRCUIT_OPENED:
+        return breaker == null ? null : breaker.getOpenedCount();
+      case CIRCUIT_REJECTED:
+        return breaker == null ? null : breaker.getRejectedCount();
+      default:
+        throw new AttributeNotFoundException("Atrribute '" + attribute
+                + "' is not defined.");
     }
-
-    if (attribute.contains(CONT_TIMEOUT)) {
-      return node.getContinuousTimeout();
-    }
-
-    if (attribute.contains(INPUT_Q)) {
-      return node.getInputQueueSize();
-    }
-
-    if (attribute.contains(READ_Q)) {
-      return node.getReadQueueSize();
-    }
-
-    if (attribute.contains(WRITE_Q)) {
-      return node.getWriteQueueSize();
-    }
-
-    if (attribute.contains(VERSION)) {
-      return node.getVersion();
-    }
-
-    throw new AttributeNotFoundException("Atrribute '" + attribute
-            + "' is not defined.");
   }
 
   private MemcachedNode getNode(String attribute) {
@@ -140,35 +189,92 @@ public class StatisticsHandler extends SpyObject implements DynamicMBean {
 
     // statistics information on each connection
     for (Entry<String, MemcachedNode> entry : nodes.entrySet()) {
+      String address = entry.getValue().getSocketAddress().toString();
+
       // reconnect count
       attributes.add(new MBeanAttributeInfo(RECONN_CNT + DELIMETER
-              + entry.getValue().getSocketAddress().toString(), "int",
+              + address, "int",
               "reconnect count", true, false, false));
 
       // continuous timeout count
       attributes.add(new MBeanAttributeInfo(CONT_TIMEOUT + DELIMETER
-              + entry.getValue().getSocketAddress().toString(), "int",
+              + address, "int",
               "continuous timeout count", true, false, false));
 
       // read queue
       attributes.add(new MBeanAttributeInfo(INPUT_Q + DELIMETER
-              + entry.getValue().getSocketAddress().toString(), "int",
+              + address, "int",
               "input queue count", true, false, false));
 
       // read queue
       attributes.add(new MBeanAttributeInfo(READ_Q + DELIMETER
-              + entry.getValue().getSocketAddress().toString(), "int",
+              + address, "int",
               "read queue count", true, false, false));
 
       // write queue
       attributes.add(new MBeanAttributeInfo(WRITE_Q + DELIMETER
-              + entry.getValue().getSocketAddress().toString(), "int",
+              + address, "int",
               "write queue count", true, false, false));
 
       // version
       attributes.add(new MBeanAttributeInfo(VERSION + DELIMETER
-              + entry.getValue().getSocketAddress().toString(), "String",
+              + address, "String",
               "version", true, false, false));
+
+      /* ENABLE_REPLICATION if */
+      // replica group and role
+      if (entry.getValue().getSocketAddress() instanceof ArcusReplNodeAddress) {
+        attributes.add(new MBeanAttributeInfo(GROUP + DELIMETER
+                + address, "String",
+                "replica group", true, false, false));
+        attributes.add(new MBeanAttributeInfo(ROLE + DELIMETER
+                + address, "String",
+                "replica role, master or slave", true, false, false));
+      }
+      /* ENABLE_REPLICATION end */
+
+      // network counters
+      attributes.add(new MBeanAttributeInfo(BYTES_READ + DELIMETER
+              + address, "long",
+              "bytes read", true, false, false));
+      attributes.add(new MBeanAttributeInfo(BYTES_WRITTEN + DELIMETER
+              + address, "long",
+              "bytes written", true, false, false));
+      attributes.add(new MBeanAttributeInfo(COMPLETED + DELIMETER
+              + address, "long",
+              "operations completed by a response", true, false, false));
+      attributes.add(new MBeanAttributeInfo(COMPLETED_PER_SEC + DELIMETER
+              + address, "double",
+              "operations completed per second", true, false, false));
+      attributes.add(new MBeanAttributeInfo(SELECTS + DELIMETER
+              + address, "long",
+              "selector wakeups", true, false, false));
+      attributes.add(new MBeanAttributeInfo(PARTIAL_WRITES + DELIMETER
+              + address, "long",
+              "writes not taken fully by the socket", true, false, false));
+
+      // response time from the end of the request to the end of the response
+      attributes.add(new MBeanAttributeInfo(RTT_MEAN + DELIMETER
+              + address, "double",
+              "mean response time(us)", true, false, false));
+      for (String rtt : new String[]{RTT_P50, RTT_P99, RTT_P999, RTT_MAX}) {
+        attributes.add(new MBeanAttributeInfo(rtt + DELIMETER
+                + address, "long",
+                rtt + " response time(us)", true, false, false));
+      }
+
+      // circuit breaker
+      if (entry.getValue().getCircuitBreaker() != null) {
+        attributes.add(new MBeanAttributeInfo(CIRCUIT_STATE + DELIMETER
+                + address, "String",
+                "circuit state, CLOSED, OPEN or HALF_OPEN", true, false, false));
+        attributes.add(new MBeanAttributeInfo(CIRCUIT_OPENED + DELIMETER
+                + address, "long",
+                "number of times the circuit has opened", true, false, false));
+        attributes.add(new MBeanAttributeInfo(CIRCUIT_REJECTED + DELIMETER
+                + address, "long",
+                "operations rejected by the circuit", true, false, false));
+      }
     }
 
     getLogger().info("retrieve client statistics mbean informations.");
@@ -5,6 +5,7 @@ import java.util.concurrent.TimeUnit;
 
 import net.spy.memcached.ops.DeleteOperation;
 import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationLifecycle;
 import net.spy.memcached.ops.StoreOperation;
 
 public final class TimedOutMessageFactory {
@@ -52,10 +53,42 @@ public final class TimedOutMessageFactory {
           rv.append(" (Not connected yet)");
         }
       }
+      if (op != null && op.isLifecycleRecorded(OperationLifecycle.CREATED)) {
+        rv.append(" ").append(createLifecycleMessage(op));
+      }
     }
     return rv.toString();
   }
 
+  /**
+   * Create the message of the lifecycle timestamps of a traced operation.
+   * Each event is given in microseconds from the creation of the operation,
+   * or "-" if it has not happened, e.g.
+   * "[enqueued +3us, writeQueued +40us, writeStarted +52us, writeCompleted +52us,
+   * firstResponse -, completed -]".
+   */
+  public static String createLifecycleMessage(Operation op) {
+    long created = op.getLifecycleTimestamp(OperationLifecycle.CREATED);
+    StringBuilder rv = new StringBuilder("[");
+    for (OperationLifecycle event : OperationLifecycle.values()) {
+      if (event == OperationLifecycle.CREATED) {
+        continue;
+      }
+      if (rv.length() > 1) {
+        rv.append(", ");
+      }
+      rv.append(event.getLabel());
+      if (!op.isLifecycleRecorded(event) ||
+          !op.isLifecycleRecorded(OperationLifecycle.CREATED)) {
+        rv.append(" -");
+      } else {
+        long timestamp = op.getLifecycleTimestamp(event);
+        rv.append(" +").append(TimeUnit.NANOSECONDS.toMicros(timestamp - created)).append("us");
+      }
+    }
+    return rv.append("]").toString();
+  }
+
   /**
    * check bulk operation or not
    * @param op operation
@@ -17,10 +17,12 @@
  */
 package net.spy.memcached.collection;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -28,6 +30,20 @@ import net.spy.memcached.CachedData;
 import net.spy.memcached.KeyUtil;
 import net.spy.memcached.transcoders.Transcoder;
 
+
+/**
+ * Piped insert of collection elements.
+ *
+ * The command of every element is encoded once into a buffer of the exact size.
+ * The key and the create clause are encoded once for all elements.
+ * Encoding transcodes the values and iterates the given elements, so it is done
+ * before the operation is handed to the IO thread: by {@link #encode()} in advance,
+ * or when the operation is initialized on the thread that adds it.
+ * When the operation is sent again from the next operation index,
+ * the command is sliced from the encoded buffer instead of being encoded again.
+ * The encoded buffer and its element offsets are published together, so a
+ * release by a cancelling thread is seen as a whole by the IO thread.
+ */
 public abstract class CollectionPipedInsert<T> extends CollectionPipe {
 
   public static final int MAX_PIPED_ITEM_COUNT = 500;
@@ -36,12 +52,127 @@ public abstract class CollectionPipedInsert<T> extends CollectionPipe {
   protected final CollectionAttributes attribute;
   protected final Transcoder<T> tc;
 
+  private final byte[] commandBytes;
+  private volatile Encoded encoded = null;
+
   protected CollectionPipedInsert(String key, CollectionAttributes attribute,
-                                  Transcoder<T> tc, int itemCount) {
+                                  Transcoder<T> tc, int itemCount, String command) {
     super(itemCount);
     this.key = key;
     this.attribute = attribute;
     this.tc = tc;
+    this.commandBytes = KeyUtil.getKeyBytes(command);
+  }
+
+  /**
+   * Position the element cursor at the given index.
+   */
+  protected abstract void seek(int index);
+
+  /**
+   * Get the value of the next element.
+   * The arguments placed between the key and the value length
+   * (index, bkey, eflag or mkey) are added to the given list.
+   */
+  protected abstract T nextElement(int index, List<Object> args);
+
+  /**
+   * Encode the commands of all elements, if they are not encoded yet.
+   * Exceptions of the transcoder are thrown to the caller.
+   */
+  public void encode() {
+    if (encoded == null) {
+      encodeCommands();
+    }
+  }
+
+  private Encoded encodeCommands() {
+    byte[] keyBytes = KeyUtil.getKeyBytes(key);
+    byte[] createOption = null;
+    byte[][] lines = new byte[itemCount][];
+    byte[][] values = new byte[itemCount][];
+    int capacity = 0;
+
+    ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+    List<Object> args = new ArrayList<>(2);
+    seek(0);
+    for (int i = 0; i < itemCount; i++) {
+      args.clear();
+      CachedData cd = tc.encode(nextElement(i, args));
+      if (createOption == null) {
+        createOption = attribute != null ?
+            KeyUtil.getKeyBytes(CollectionCreate.makeCreateClause(attribute, cd.getFlags())) :
+            new byte[0];
+      }
+      line.reset();
+      line.write(commandBytes, 0, commandBytes.length);
+      writeToken(line, keyBytes);
+      for (Object arg : args) {
+        writeToken(line, KeyUtil.getKeyBytes(String.valueOf(arg)));
+      }
+      writeToken(line, KeyUtil.getKeyBytes(String.valueOf(cd.getData().length)));
+      writeToken(line, createOption);
+      if (i < itemCount - 1) {
+        writeToken(line, KeyUtil.getKeyBytes(PIPE));
+      }
+      line.write(CRLF, 0, CRLF.length);
+      lines[i] = line.toByteArray();
+      values[i] = cd.getData();
+      capacity += lines[i].length + values[i].length + CRLF.length;
+    }
+
+    ByteBuffer bb = ByteBuffer.allocate(capacity);
+    int[] elementOffsets = new int[itemCount];
+    for (int i = 0; i < itemCount; i++) {
+      elementOffsets[i] = bb.position();
+      bb.put(lines[i]);
+      bb.put(values[i]);
+      bb.put(CRLF);
+    }
+    ((Buffer) bb).flip();
+    Encoded e = new Encoded(bb, elementOffsets);
+    encoded = e;
+    return e;
+  }
+
+  private static void writeToken(ByteArrayOutputStream line, byte[] token) {
+    if (token.length > 0) {
+      line.write(' ');
+      line.write(token, 0, token.length);
+    }
+  }
+
+  /**
+   * Get the command from the next operation index.
+   * The returned buffer shares the encoded bytes of this insert.
+   */
+  public ByteBuffer getAsciiCommand() {
+    // read once, as a cancelling thread may release it meanwhile.
+    Encoded e = encoded;
+    if (e == null) {
+      e = encodeCommands();
+    }
+    ByteBuffer bb = e.buffer.duplicate();
+    ((Buffer) bb).position(nextOpIndex < itemCount ? e.offsets[nextOpIndex] : bb.limit());
+    return bb.slice();
+  }
+
+  /**
+   * Release the encoded commands once the operation has completed or has been cancelled.
+   * It may be called by any thread. A released insert is encoded again if needed.
+   */
+  public void release() {
+    encoded = null;
+  }
+
+  private static final class Encoded {
+    private final ByteBuffer buffer;
+    private final int[] offsets;
+
+    private Encoded(ByteBuffer buffer, int[] offsets) {
+      this.buffer = buffer;
+      this.offsets = offsets;
+    }
   }
 
   /**
@@ -52,10 +183,11 @@ public abstract class CollectionPipedInsert<T> extends CollectionPipe {
     private static final String COMMAND = "lop insert";
     private final Collection<T> list;
     private final int index;
+    private Iterator<T> iterator;
 
     public ListPipedInsert(String key, int index, Collection<T> list,
                            CollectionAttributes attr, Transcoder<T> tc) {
-      super(key, attr, tc, list.size());
+      super(key, attr, tc, list.size(), COMMAND);
       if (attr != null) { /* item creation option */
         CollectionCreate.checkOverflowAction(CollectionType.list, attr.getOverflowAction());
       }
@@ -63,47 +195,18 @@ public abstract class CollectionPipedInsert<T> extends CollectionPipe {
       this.list = list;
     }
 
-    public ByteBuffer getAsciiCommand() {
-      int capacity = 0;
-
-      // encode values
-      List<byte[]> encodedList = new ArrayList<>(list.size());
-      CachedData cd = null;
-      for (T each : list) {
-        cd = tc.encode(each);
-        encodedList.add(cd.getData());
-      }
-
-      // estimate the buffer capacity
-      for (byte[] each : encodedList) {
-        capacity += KeyUtil.getKeyBytes(key).length;
-        capacity += each.length;
-        capacity += 128;
-      }
-
-      // allocate the buffer
-      ByteBuffer bb = ByteBuffer.allocate(capacity);
-
-      // create ascii operation string
-      int eSize = encodedList.size();
-      String createOption = attribute != null ?
-          CollectionCreate.makeCreateClause(attribute, cd.getFlags()) : "";
-      for (int i = this.nextOpIndex; i < eSize; i++) {
-        byte[] each = encodedList.get(i);
-        int eIndex = index;
-        if (index >= 0) {
-          eIndex += i;
-        }
-        setArguments(bb, COMMAND, key, eIndex, each.length,
-                     createOption, (i < eSize - 1) ? PIPE : "");
-        bb.put(each);
-        bb.put(CRLF);
+    @Override
+    protected void seek(int i) {
+      iterator = list.iterator();
+      for (; i > 0; i--) {
+        iterator.next();
       }
+    }
 
-      // flip the buffer
-      ((Buffer) bb).flip();
-
-      return bb;
+    @Override
+    protected T nextElement(int i, List<Object> args) {
+      args.add(index >= 0 ? index + i : index);
+      return iterator.next();
     }
   }
 
@@ -114,53 +217,28 @@ public abstract class CollectionPipedInsert<T> extends CollectionPipe {
 
     private static final String COMMAND = "sop insert";
     private final Collection<T> set;
+    private Iterator<T> iterator;
 
     public SetPipedInsert(String key, Collection<T> set,
                           CollectionAttributes attr, Transcoder<T> tc) {
-      super(key, attr, tc, set.size());
+      super(key, attr, tc, set.size(), COMMAND);
       if (attr != null) { /* item creation option */
         CollectionCreate.checkOverflowAction(CollectionType.set, attr.getOverflowAction());
       }
       this.set = set;
     }
 
-    public ByteBuffer getAsciiCommand() {
-      int capacity = 0;
-
-      // encode values
-      List<byte[]> encodedList = new ArrayList<>(set.size());
-      CachedData cd = null;
-      for (T each : set) {
-        cd = tc.encode(each);
-        encodedList.add(cd.getData());
+    @Override
+    protected void seek(int i) {
+      iterator = set.iterator();
+      for (; i > 0; i--) {
+        iterator.next();
       }
+    }
 
-      // estimate the buffer capacity
-      for (byte[] each : encodedList) {
-        capacity += KeyUtil.getKeyBytes(key).length;
-        capacity += each.length;
-        capacity += 128;
-      }
-
-      // allocate the buffer
-      ByteBuffer bb = ByteBuffer.allocate(capacity);
-
-      // create ascii operation string
-      int eSize = encodedList.size();
-      String createOption = attribute != null ?
-          CollectionCreate.makeCreateClause(attribute, cd.getFlags()) : "";
-      for (int i = this.nextOpIndex; i < eSize; i++) {
-        byte[] each = encodedList.get(i);
-        setArguments(bb, COMMAND, key, each.length,
-            createOption, (i < eSize - 1) ? PIPE : "");
-        bb.put(each);
-        bb.put(CRLF);
-      }
-
-      // flip the buffer
-      ((Buffer) bb).flip();
-
-      return bb;
+    @Override
+    protected T nextElement(int i, List<Object> args) {
+      return iterator.next();
     }
   }
 
@@ -171,57 +249,30 @@ public abstract class CollectionPipedInsert<T> extends CollectionPipe {
 
     private static final String COMMAND = "bop insert";
     private final Map<Long, T> map;
+    private Iterator<Map.Entry<Long, T>> iterator;
 
     public BTreePipedInsert(String key, Map<Long, T> map,
                             CollectionAttributes attr, Transcoder<T> tc) {
-      super(key, attr, tc, map.size());
+      super(key, attr, tc, map.size(), COMMAND);
       if (attr != null) { /* item creation option */
         CollectionCreate.checkOverflowAction(CollectionType.btree, attr.getOverflowAction());
       }
       this.map = map;
     }
 
-    public ByteBuffer getAsciiCommand() {
-      int capacity = 0;
-
-      // encode parameters
-      List<byte[]> encodedList = new ArrayList<>(map.size());
-      CachedData cd = null;
-      for (T each : map.values()) {
-        cd = tc.encode(each);
-        encodedList.add(cd.getData());
-      }
-
-      // estimate the buffer capacity
-      int i = 0;
-      for (Long eachBkey : map.keySet()) {
-        capacity += KeyUtil.getKeyBytes(key).length;
-        capacity += KeyUtil.getKeyBytes(String.valueOf(eachBkey)).length;
-        capacity += encodedList.get(i++).length;
-        capacity += 128;
+    @Override
+    protected void seek(int i) {
+      iterator = map.entrySet().iterator();
+      for (; i > 0; i--) {
+        iterator.next();
       }
+    }
 
-      // allocate the buffer
-      ByteBuffer bb = ByteBuffer.allocate(capacity);
-
-      // create ascii operation string
-      int keySize = map.keySet().size();
-      List<Long> keyList = new ArrayList<>(map.keySet());
-      String createOption = attribute != null ?
-          CollectionCreate.makeCreateClause(attribute, cd.getFlags()) : "";
-      for (i = this.nextOpIndex; i < keySize; i++) {
-        Long bkey = keyList.get(i);
-        byte[] value = encodedList.get(i);
-        setArguments(bb, COMMAND, key, bkey, value.length,
-            createOption, (i < keySize - 1) ? PIPE : "");
-        bb.put(value);
-        bb.put(CRLF);
-      }
-
-      // flip the buffer
-      ((Buffer) bb).flip();
-
-      return bb;
+    @Override
+    protected T nextElement(int i, List<Object> args) {
+      Map.Entry<Long, T> entry = iterator.next();
+      args.add(entry.getKey());
+      return entry.getValue();
     }
   }
 
@@ -236,55 +287,24 @@ public abstract class CollectionPipedInsert<T> extends CollectionPipe {
 
     public ByteArraysBTreePipedInsert(String key, List<Element<T>> elements,
                                       CollectionAttributes attr, Transcoder<T> tc) {
-      super(key, attr, tc, elements.size());
+      super(key, attr, tc, elements.size(), COMMAND);
       if (attr != null) { /* item creation option */
         CollectionCreate.checkOverflowAction(CollectionType.btree, attr.getOverflowAction());
       }
       this.elements = elements;
     }
 
-    public ByteBuffer getAsciiCommand() {
-      int capacity = 0;
-
-      // encode parameters
-      List<byte[]> encodedList = new ArrayList<>(elements.size());
-      CachedData cd = null;
-      for (Element<T> each : elements) {
-        cd = tc.encode(each.getValue());
-        encodedList.add(cd.getData());
-      }
-
-      // estimate the buffer capacity
-      int i = 0;
-      for (Element<T> each : elements) {
-        capacity += KeyUtil.getKeyBytes(key).length;
-        capacity += KeyUtil.getKeyBytes(each.getStringBkey()).length;
-        capacity += KeyUtil.getKeyBytes(each.getStringEFlag()).length;
-        capacity += encodedList.get(i++).length;
-        capacity += 128;
-      }
-
-      // allocate the buffer
-      ByteBuffer bb = ByteBuffer.allocate(capacity);
-
-      // create ascii operation string
-      int eSize = elements.size();
-      String createOption = attribute != null ?
-          CollectionCreate.makeCreateClause(attribute, cd.getFlags()) : "";
-      for (i = this.nextOpIndex; i < eSize; i++) {
-        Element<T> element = elements.get(i);
-        byte[] value = encodedList.get(i);
-        setArguments(bb, COMMAND, key,
-                     element.getStringBkey(), element.getStringEFlag(), value.length,
-                     createOption, (i < eSize - 1) ? PIPE : "");
-        bb.put(value);
-        bb.put(CRLF);
-      }
-
-      // flip the buffer
-      ((Buffer) bb).flip();
+    @Override
+    protected void seek(int i) {
+      // elements are accessed by index.
+    }
 
-      return bb;
+    @Override
+    protected T nextElement(int i, List<Object> args) {
+      Element<T> element = elements.get(i);
+      args.add(element.getStringBkey());
+      args.add(element.getStringEFlag());
+      return element.getValue();
     }
   }
 
@@ -295,57 +315,30 @@ public abstract class CollectionPipedInsert<T> extends CollectionPipe {
 
     private static final String COMMAND = "mop insert";
     private final Map<String, T> map;
+    private Iterator<Map.Entry<String, T>> iterator;
 
     public MapPipedInsert(String key, Map<String, T> map,
                           CollectionAttributes attr, Transcoder<T> tc) {
-      super(key, attr, tc, map.size());
+      super(key, attr, tc, map.size(), COMMAND);
       if (attr != null) { /* item creation option */
         CollectionCreate.checkOverflowAction(CollectionType.map, attr.getOverflowAction());
       }
       this.map = map;
     }
 
-    public ByteBuffer getAsciiCommand() {
-      int capacity = 0;
-
-      // encode values
-      List<byte[]> encodedList = new ArrayList<>(map.size());
-      CachedData cd = null;
-      for (T each : map.values()) {
-        cd = tc.encode(each);
-        encodedList.add(cd.getData());
-      }
-
-      // estimate the buffer capacity
-      int i = 0;
-      for (String eachMkey : map.keySet()) {
-        capacity += KeyUtil.getKeyBytes(key).length;
-        capacity += KeyUtil.getKeyBytes(eachMkey).length;
-        capacity += encodedList.get(i++).length;
-        capacity += 128;
+    @Override
+    protected void seek(int i) {
+      iterator = map.entrySet().iterator();
+      for (; i > 0; i--) {
+        iterator.next();
       }
+    }
 
-      // allocate the buffer
-      ByteBuffer bb = ByteBuffer.allocate(capacity);
-
-      // create ascii operation string
-      int mkeySize = map.keySet().size();
-      List<String> keyList = new ArrayList<>(map.keySet());
-      String createOption = attribute != null ?
-          CollectionCreate.makeCreateClause(attribute, cd.getFlags()) : "";
-      for (i = this.nextOpIndex; i < mkeySize; i++) {
-        String mkey = keyList.get(i);
-        byte[] value = encodedList.get(i);
-        setArguments(bb, COMMAND, key, mkey, value.length,
-                     createOption, (i < mkeySize - 1) ? PIPE : "");
-        bb.put(value);
-        bb.put(CRLF);
-      }
-
-      // flip the buffer
-      ((Buffer) bb).flip();
-
-      return bb;
+    @Override
+    protected T nextElement(int i, List<Object> args) {
+      Map.Entry<String, T> entry = iterator.next();
+      args.add(entry.getKey());
+      return entry.getValue();
     }
   }
 }
@@ -0,0 +1,174 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.collection;
+
+import java.util.Arrays;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.Transcoder;
+
+/**
+ * B+tree elements with long bkeys, kept in parallel arrays in server order.
+ *
+ * Unlike the map results of b+tree get, the result keeps bkeys in a long array
+ * and holds no map entry or {@link Element} per element. Parsing the response
+ * still creates a temporary String or Long for each bkey, which is discarded
+ * once the element is added. Values are decoded on access.
+ * Elements are ordered by bkey in the direction of the request, so a bkey is
+ * found by binary search.
+ *
+ * @param <T> the expected class of the value
+ */
+public final class LongBKeyElements<T> {
+
+  private final boolean reverse;
+  private final Transcoder<T> tc;
+
+  private long[] bkeys;
+  private int[] flags;
+  private byte[][] eflags;
+  private byte[][] data;
+  private int size = 0;
+  private boolean sorted = true;
+
+  public LongBKeyElements(int capacity, boolean reverse, Transcoder<T> tc) {
+    int initial = Math.max(capacity, 1);
+    this.reverse = reverse;
+    this.tc = tc;
+    this.bkeys = new long[initial];
+    this.flags = new int[initial];
+    this.eflags = new byte[initial][];
+    this.data = new byte[initial][];
+  }
+
+  /**
+   * Append an element received from the server.
+   */
+  public void add(long bkey, int flag, byte[] eflag, byte[] value) {
+    if (size == bkeys.length) {
+      int capacity = size * 2;
+      bkeys = Arrays.copyOf(bkeys, capacity);
+      flags = Arrays.copyOf(flags, capacity);
+      eflags = Arrays.copyOf(eflags, capacity);
+      data = Arrays.copyOf(data, capacity);
+    }
+    if (size > 0 && (reverse ? bkey >= bkeys[size - 1] : bkey <= bkeys[size - 1])) {
+      sorted = false;
+    }
+    bkeys[size] = bkey;
+    flags[size] = flag;
+    eflags[size] = eflag;
+    data[size] = value;
+    size++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Check if the elements are in descending order of bkey.
+   */
+  public boolean isReverse() {
+    return reverse;
+  }
+
+  public long getBkey(int index) {
+    checkIndex(index);
+    return bkeys[index];
+  }
+
+  public byte[] getEFlag(int index) {
+    checkIndex(index);
+    return eflags[index];
+  }
+
+  /**
+   * Decode the value of the element at the index.
+   */
+  public T getValue(int index) {
+    checkIndex(index);
+    return tc.decode(new CachedData(flags[index], data[index], tc.getMaxSize()));
+  }
+
+  /**
+   * Create an {@link Element} of the element at the index.
+   */
+  public Element<T> getElement(int index) {
+    return new Element<>(getBkey(index), getValue(index), eflags[index]);
+  }
+
+  /**
+   * Find the index of the element with the given bkey.
+   *
+   * @return the index of the element, or -1 if not found
+   */
+  public int indexOf(long bkey) {
+    if (!sorted) {
+      for (int i = 0; i < size; i++) {
+        if (bkeys[i] == bkey) {
+          return i;
+        }
+      }
+      return -1;
+    }
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midBkey = bkeys[mid];
+      if (midBkey == bkey) {
+        return mid;
+      }
+      if (reverse ? midBkey > bkey : midBkey < bkey) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Decode the value of the element with the given bkey.
+   *
+   * @return the value, or null if not found
+   */
+  public T get(long bkey) {
+    int index = indexOf(bkey);
+    return index < 0 ? null : getValue(index);
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("LongBKeyElements {SIZE:").append(size);
+    if (size > 0) {
+      sb.append(", FIRST:").append(bkeys[0]).append(", LAST:").append(bkeys[size - 1]);
+    }
+    return sb.append("}").toString();
+  }
+}
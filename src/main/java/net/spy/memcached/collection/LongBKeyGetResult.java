@@ -0,0 +1,47 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.collection;
+
+import net.spy.memcached.ops.CollectionOperationStatus;
+
+/**
+ * Result of a b+tree in a bulk get, holding its elements in {@link LongBKeyElements}.
+ *
+ * @param <T> the expected class of the value
+ */
+public class LongBKeyGetResult<T> {
+  private final CollectionOperationStatus opStatus;
+  private final LongBKeyElements<T> elements;
+
+  public LongBKeyGetResult(LongBKeyElements<T> elements, CollectionOperationStatus opStatus) {
+    this.elements = elements;
+    this.opStatus = opStatus;
+  }
+
+  /**
+   * Get the elements of the b+tree.
+   *
+   * @return null if no element is found
+   */
+  public LongBKeyElements<T> getElements() {
+    return elements;
+  }
+
+  public CollectionOperationStatus getCollectionResponse() {
+    return opStatus;
+  }
+}
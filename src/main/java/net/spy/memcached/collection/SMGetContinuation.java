@@ -0,0 +1,233 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.collection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.spy.memcached.ops.CollectionOperationStatus;
+import net.spy.memcached.util.BTreeUtil;
+
+/**
+ * Continuation token of a paginated sort-merge get.
+ *
+ * The token remembers the position of the last element returned and the keys
+ * that no longer need to be queried. The next page resumes from that position
+ * on every node, so the server does not scan the elements of previous pages again.
+ *
+ * A token is immutable. If a page fails, the same token can be used to retry it.
+ */
+public final class SMGetContinuation {
+
+  private final List<String> keyList;
+  private final BKeyObject from;
+  private final BKeyObject to;
+  private final ElementFlagFilter eFlagFilter;
+  private final SMGetMode smgetMode;
+  private final boolean reverse;
+
+  private final BKeyObject lastBkey;
+  private final Set<String> lastKeys;
+  private final Map<String, CollectionOperationStatus> missedKeys;
+  private final Map<String, BKeyObject> trimmedKeys;
+  private final boolean hasNext;
+
+  public SMGetContinuation(List<String> keyList, long from, long to,
+                           ElementFlagFilter eFlagFilter, SMGetMode smgetMode) {
+    this(keyList, new BKeyObject(from), new BKeyObject(to), eFlagFilter, smgetMode,
+        from > to);
+  }
+
+  public SMGetContinuation(List<String> keyList, byte[] from, byte[] to,
+                           ElementFlagFilter eFlagFilter, SMGetMode smgetMode) {
+    this(keyList, new BKeyObject(from), new BKeyObject(to), eFlagFilter, smgetMode,
+        BTreeUtil.compareByteArraysInLexOrder(from, to) > 0);
+  }
+
+  private SMGetContinuation(List<String> keyList, BKeyObject from, BKeyObject to,
+                            ElementFlagFilter eFlagFilter, SMGetMode smgetMode,
+                            boolean reverse) {
+    if (keyList == null) {
+      throw new IllegalArgumentException("Key list is null.");
+    }
+    if (smgetMode == null) {
+      throw new IllegalArgumentException("SMGetMode is null.");
+    }
+    this.keyList = Collections.unmodifiableList(new ArrayList<>(keyList));
+    this.from = from;
+    this.to = to;
+    this.eFlagFilter = eFlagFilter;
+    this.smgetMode = smgetMode;
+    this.reverse = reverse;
+    this.lastBkey = null;
+    this.lastKeys = Collections.emptySet();
+    this.missedKeys = Collections.emptyMap();
+    this.trimmedKeys = Collections.emptyMap();
+    this.hasNext = true;
+  }
+
+  private SMGetContinuation(SMGetContinuation prev, List<String> keyList,
+                            BKeyObject lastBkey, Set<String> lastKeys,
+                            Map<String, CollectionOperationStatus> missedKeys,
+                            Map<String, BKeyObject> trimmedKeys, boolean hasNext) {
+    this.keyList = Collections.unmodifiableList(keyList);
+    this.from = prev.from;
+    this.to = prev.to;
+    this.eFlagFilter = prev.eFlagFilter;
+    this.smgetMode = prev.smgetMode;
+    this.reverse = prev.reverse;
+    this.lastBkey = lastBkey;
+    this.lastKeys = Collections.unmodifiableSet(lastKeys);
+    this.missedKeys = Collections.unmodifiableMap(missedKeys);
+    this.trimmedKeys = Collections.unmodifiableMap(trimmedKeys);
+    this.hasNext = hasNext;
+  }
+
+  /**
+   * Check if the next page may have elements.
+   */
+  public boolean hasNext() {
+    return hasNext && !keyList.isEmpty();
+  }
+
+  /**
+   * Get the keys that are queried for the next page.
+   */
+  public List<String> getKeyList() {
+    return keyList;
+  }
+
+  /**
+   * Get the bkey that the next page starts from.
+   */
+  public BKeyObject getFrom() {
+    return lastBkey != null ? lastBkey : from;
+  }
+
+  public BKeyObject getTo() {
+    return to;
+  }
+
+  public ElementFlagFilter getEFlagFilter() {
+    return eFlagFilter;
+  }
+
+  public SMGetMode getSMGetMode() {
+    return smgetMode;
+  }
+
+  public boolean isReverse() {
+    return reverse;
+  }
+
+  /**
+   * Get the bkey of the last element returned, or null before the first page.
+   */
+  public BKeyObject getLastBkey() {
+    return lastBkey;
+  }
+
+  /**
+   * Get the missed keys of all pages so far.
+   */
+  public Map<String, CollectionOperationStatus> getMissedKeys() {
+    return missedKeys;
+  }
+
+  /**
+   * Get the trimmed keys of all pages so far.
+   */
+  public Map<String, BKeyObject> getTrimmedKeys() {
+    return trimmedKeys;
+  }
+
+  /**
+   * Get the number of elements at the start position that were returned
+   * in the previous page and will be skipped in the next page.
+   */
+  public int getSkipCount() {
+    if (lastBkey == null) {
+      return 0;
+    }
+    return smgetMode == SMGetMode.UNIQUE ? 1 : lastKeys.size();
+  }
+
+  /**
+   * Check if the element was already returned in the previous pages.
+   */
+  public boolean isReturned(SMGetElement<?> element) {
+    if (lastBkey == null || element.getBkeyObject().compareTo(lastBkey) != 0) {
+      return false;
+    }
+    return smgetMode == SMGetMode.UNIQUE || lastKeys.contains(element.getKey());
+  }
+
+  /**
+   * Make the token of the page that follows the given page.
+   *
+   * @param page        elements returned in the page
+   * @param exhausted   true if no node has more elements in the range
+   * @param missed      missed keys of the page
+   * @param trimmed     trimmed keys of the page whose trimmed bkey was passed
+   * @return the token of the next page
+   */
+  public <T> SMGetContinuation next(List<SMGetElement<T>> page, boolean exhausted,
+                                    Map<String, CollectionOperationStatus> missed,
+                                    Map<String, BKeyObject> trimmed) {
+    Map<String, CollectionOperationStatus> newMissedKeys = new HashMap<>(missedKeys);
+    newMissedKeys.putAll(missed);
+    Map<String, BKeyObject> newTrimmedKeys = new HashMap<>(trimmedKeys);
+    newTrimmedKeys.putAll(trimmed);
+
+    List<String> newKeyList = new ArrayList<>(keyList.size());
+    for (String key : keyList) {
+      if (!missed.containsKey(key) && !trimmed.containsKey(key)) {
+        newKeyList.add(key);
+      }
+    }
+
+    BKeyObject newLastBkey = lastBkey;
+    Set<String> newLastKeys = new HashSet<>(lastKeys);
+    if (!page.isEmpty()) {
+      BKeyObject bkey = page.get(page.size() - 1).getBkeyObject();
+      if (lastBkey == null || bkey.compareTo(lastBkey) != 0) {
+        newLastKeys.clear();
+      }
+      newLastBkey = bkey;
+      for (int i = page.size() - 1; i >= 0; i--) {
+        SMGetElement<T> element = page.get(i);
+        if (element.getBkeyObject().compareTo(bkey) != 0) {
+          break;
+        }
+        newLastKeys.add(element.getKey());
+      }
+    }
+    return new SMGetContinuation(this, newKeyList, newLastBkey, newLastKeys,
+        newMissedKeys, newTrimmedKeys, !exhausted);
+  }
+
+  @Override
+  public String toString() {
+    return "SMGetContinuation {KEYS:" + keyList.size() + ", FROM:" + getFrom() +
+        ", TO:" + to + ", HAS_NEXT:" + hasNext() + "}";
+  }
+}
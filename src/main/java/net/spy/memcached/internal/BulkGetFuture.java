@@ -26,10 +26,12 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import net.spy.memcached.CachedData;
 import net.spy.memcached.MemcachedConnection;
 import net.spy.memcached.OperationTimeoutException;
 import net.spy.memcached.compat.log.LoggerFactory;
 import net.spy.memcached.internal.result.GetResult;
+import net.spy.memcached.internal.result.GetResultImpl;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationState;
 
@@ -77,7 +79,7 @@ public class BulkGetFuture<T> implements BulkFuture<Map<String, T>> {
   @Override
   public Map<String, T> get() throws InterruptedException, ExecutionException {
     try {
-      return get(timeout, TimeUnit.MILLISECONDS);
+      return get(OperationFuture.timeoutOf(ops, timeout), TimeUnit.MILLISECONDS);
     } catch (TimeoutException e) {
       throw new OperationTimeoutException(e);
     }
@@ -177,6 +179,17 @@ public class BulkGetFuture<T> implements BulkFuture<Map<String, T>> {
     }
     return resultMap;
   }
+  /**
+   * Get the value of the key as received from the server, before it is decoded.
+   *
+   * @param key the key of the value
+   * @return the encoded value, or null if the value is not found
+   */
+  protected CachedData getCachedData(String key) {
+    GetResult<T> result = rvMap.get(key);
+    return result instanceof GetResultImpl ? ((GetResultImpl<T>) result).getCachedData() : null;
+  }
+
   /*
    * set to true if timeout was reached.
    *
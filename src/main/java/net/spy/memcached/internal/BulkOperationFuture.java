@@ -59,7 +59,7 @@ public class BulkOperationFuture<T> implements Future<Map<String, T>> {
   @Override
   public Map<String, T> get() throws InterruptedException, ExecutionException {
     try {
-      return get(timeout, TimeUnit.MILLISECONDS);
+      return get(OperationFuture.timeoutOf(ops, timeout), TimeUnit.MILLISECONDS);
     } catch (TimeoutException e) {
       throw new OperationTimeoutException(e);
     }
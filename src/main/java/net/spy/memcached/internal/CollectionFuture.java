@@ -32,6 +32,10 @@ import net.spy.memcached.ops.OperationState;
 public class CollectionFuture<T> extends OperationFuture<T> {
   protected CollectionOperationStatus collectionOpStatus;
 
+  public CollectionFuture(long opTimeout) {
+    super(opTimeout);
+  }
+
   public CollectionFuture(CountDownLatch l, long opTimeout) {
     this(l, new AtomicReference<>(null), opTimeout);
   }
@@ -42,7 +46,7 @@ public class CollectionFuture<T> extends OperationFuture<T> {
   }
 
   public void set(T o, CollectionOperationStatus status) {
-    objRef.set(o);
+    setValue(o);
     collectionOpStatus = status;
   }
 
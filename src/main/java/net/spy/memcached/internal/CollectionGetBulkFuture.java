@@ -51,7 +51,7 @@ public class CollectionGetBulkFuture<T> implements Future<T> {
   @Override
   public T get() throws InterruptedException, ExecutionException {
     try {
-      return get(timeout, TimeUnit.MILLISECONDS);
+      return get(OperationFuture.timeoutOf(ops, timeout), TimeUnit.MILLISECONDS);
     } catch (TimeoutException e) {
       throw new OperationTimeoutException(e);
     }
@@ -11,6 +11,10 @@ import net.spy.memcached.ops.CollectionOperationStatus;
 public class CollectionGetFuture<T> extends CollectionFuture<T> {
   private GetResult<T> result;
 
+  public CollectionGetFuture(long opTimeout) {
+    super(opTimeout);
+  }
+
   public CollectionGetFuture(CountDownLatch l, long opTimeout) {
     super(l, opTimeout);
   }
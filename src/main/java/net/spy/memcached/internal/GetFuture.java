@@ -5,7 +5,9 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import net.spy.memcached.CachedData;
 import net.spy.memcached.internal.result.GetResult;
+import net.spy.memcached.internal.result.GetResultImpl;
 import net.spy.memcached.ops.OperationStatus;
 
 /**
@@ -18,6 +20,10 @@ import net.spy.memcached.ops.OperationStatus;
 public class GetFuture<T> extends OperationFuture<T> {
   private GetResult<T> result;
 
+  public GetFuture(long opTimeout) {
+    super(opTimeout);
+  }
+
   public GetFuture(CountDownLatch l, long opTimeout) {
     super(l, opTimeout);
   }
@@ -29,6 +35,16 @@ public class GetFuture<T> extends OperationFuture<T> {
     return result == null ? null : result.getDecodedValue();
   }
 
+  /**
+   * Get the value as received from the server, before it is decoded.
+   *
+   * @return the encoded value, or null if the value is not found
+   *         or is not a single encoded value
+   */
+  public CachedData getCachedData() {
+    return result instanceof GetResultImpl ? ((GetResultImpl<T>) result).getCachedData() : null;
+  }
+
   public void set(GetResult<T> result, OperationStatus status) {
     super.set(null, status);
     this.result = result;
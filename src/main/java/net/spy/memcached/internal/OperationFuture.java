@@ -16,12 +16,15 @@
  */
 package net.spy.memcached.internal;
 
+import java.util.Collection;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
 
 import net.spy.memcached.MemcachedConnection;
 import net.spy.memcached.OperationTimeoutException;
@@ -34,18 +37,43 @@ import net.spy.memcached.ops.StatusCode;
 /**
  * Managed future for operations.
  *
+ * A future created without a latch completes itself:
+ * the operation callback calls {@link #signalComplete()} instead of counting
+ * down a latch, and the result is kept in a plain field. Threads calling get()
+ * before the completion are parked until it is signaled, so no latch and no
+ * atomic reference have to be allocated for each request.
+ *
  * Not intended for general use.
  *
  * @param <T> Type of object returned from this future.
  */
 public class OperationFuture<T> extends SpyObject implements Future<T> {
 
+  @SuppressWarnings("rawtypes")
+  private static final AtomicReferenceFieldUpdater<OperationFuture, Waiter> WAITERS =
+      AtomicReferenceFieldUpdater.newUpdater(OperationFuture.class, Waiter.class, "waiters");
+
   protected final CountDownLatch latch;
   protected final AtomicReference<T> objRef;
   protected OperationStatus status;
   protected final long timeout;
   protected Operation op;
 
+  // used only if this future is created without a latch.
+  private T value;
+  private volatile boolean completed = false;
+  private volatile Waiter waiters;
+
+  /**
+   * Create a future that completes itself with {@link #signalComplete()}.
+   */
+  public OperationFuture(long opTimeout) {
+    super();
+    latch = null;
+    objRef = null;
+    timeout = opTimeout;
+  }
+
   public OperationFuture(CountDownLatch l, long opTimeout) {
     this(l, new AtomicReference<>(null), opTimeout);
   }
@@ -65,7 +93,7 @@ public class OperationFuture<T> extends SpyObject implements Future<T> {
 
   public T get() throws InterruptedException, ExecutionException {
     try {
-      return get(timeout, TimeUnit.MILLISECONDS);
+      return get(getTimeout(), TimeUnit.MILLISECONDS);
     } catch (TimeoutException e) {
       throw new OperationTimeoutException(e);
     }
@@ -75,7 +103,7 @@ public class OperationFuture<T> extends SpyObject implements Future<T> {
           throws InterruptedException, TimeoutException, ExecutionException {
 
     long beforeAwait = System.currentTimeMillis();
-    if (!latch.await(duration, unit)) {
+    if (!await(duration, unit)) {
       // whenever timeout occurs, continuous timeout counter will increase by 1.
       MemcachedConnection.opTimedOut(op);
 
@@ -92,7 +120,31 @@ public class OperationFuture<T> extends SpyObject implements Future<T> {
       throw new ExecutionException(new RuntimeException(op.getCancelCause()));
     }
 
-    return objRef.get();
+    return getValue();
+  }
+
+  /**
+   * Get the timeout in milliseconds {@link #get()} waits for.
+   * It is the timeout given to the operation by the adaptive timeout policy,
+   * or the operation timeout if the policy is not set.
+   */
+  public long getTimeout() {
+    return op != null && op.getTimeout() > 0 ? op.getTimeout() : timeout;
+  }
+
+  /**
+   * Get the longest timeout given to the operations by the adaptive timeout policy,
+   * or the given timeout if any of the operations has none.
+   */
+  static long timeoutOf(Collection<Operation> ops, long timeout) {
+    long longest = 0;
+    for (Operation op : ops) {
+      if (op.getTimeout() <= 0) {
+        return timeout;
+      }
+      longest = Math.max(longest, op.getTimeout());
+    }
+    return longest > 0 ? longest : timeout;
   }
 
   public OperationStatus getStatus() {
@@ -109,10 +161,80 @@ public class OperationFuture<T> extends SpyObject implements Future<T> {
   }
 
   public void set(T o, OperationStatus s) {
-    objRef.set(o);
+    setValue(o);
     status = s;
   }
 
+  protected void setValue(T o) {
+    if (objRef != null) {
+      objRef.set(o);
+    } else {
+      value = o;
+    }
+  }
+
+  protected T getValue() {
+    return objRef != null ? objRef.get() : value;
+  }
+
+  /**
+   * Complete this future and wake up the waiting threads.
+   * The result must be set before this method is called.
+   * Only for a future created without a latch.
+   */
+  public void signalComplete() {
+    completed = true;
+    Waiter w = WAITERS.getAndSet(this, null);
+    while (w != null) {
+      Thread t = w.thread;
+      if (t != null) {
+        w.thread = null;
+        LockSupport.unpark(t);
+      }
+      w = w.next;
+    }
+  }
+
+  /**
+   * Wait for the completion of the operation.
+   *
+   * @return false if the waiting time elapsed before the completion
+   */
+  protected boolean await(long duration, TimeUnit unit) throws InterruptedException {
+    if (latch != null) {
+      return latch.await(duration, unit);
+    }
+    if (completed) {
+      return true;
+    }
+    long deadline = System.nanoTime() + unit.toNanos(duration);
+    Waiter w = new Waiter(Thread.currentThread());
+    do {
+      w.next = waiters;
+    } while (!WAITERS.compareAndSet(this, w.next, w));
+
+    try {
+      while (!completed) {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        long nanos = deadline - System.nanoTime();
+        if (nanos <= 0) {
+          return false;
+        }
+        LockSupport.parkNanos(this, nanos);
+      }
+      return true;
+    } finally {
+      // the node is dropped from the list when the future completes.
+      w.thread = null;
+    }
+  }
+
+  protected boolean isCompleted() {
+    return latch != null ? latch.getCount() == 0 : completed;
+  }
+
   public void setOperation(Operation to) {
     op = to;
   }
@@ -124,7 +246,16 @@ public class OperationFuture<T> extends SpyObject implements Future<T> {
 
   public boolean isDone() {
     assert op != null : "No operation";
-    return latch.getCount() == 0 ||
+    return isCompleted() ||
             op.isCancelled() || op.getState() == OperationState.COMPLETE;
   }
+
+  private static final class Waiter {
+    private volatile Thread thread;
+    private Waiter next;
+
+    private Waiter(Thread thread) {
+      this.thread = thread;
+    }
+  }
 }
@@ -50,12 +50,8 @@ public class PipedCollectionFuture<K, V>
 
   @Override
   public boolean isDone() {
-    for (Operation op : ops) {
-      if (!(op.getState() == OperationState.COMPLETE || op.isCancelled())) {
-        return false;
-      }
-    }
-    return true;
+    // the operations of a piped insert may be added while the earlier ones complete.
+    return latch.getCount() == 0;
   }
 
   @Override
@@ -28,6 +28,7 @@ import java.util.concurrent.TimeoutException;
 
 import net.spy.memcached.MemcachedConnection;
 import net.spy.memcached.OperationTimeoutException;
+import net.spy.memcached.collection.SMGetContinuation;
 import net.spy.memcached.collection.SMGetTrimKey;
 import net.spy.memcached.internal.result.SMGetResult;
 import net.spy.memcached.ops.CollectionOperationStatus;
@@ -94,7 +95,7 @@ public final class SMGetFuture<T extends List<?>> implements Future<T> {
   @Override
   public T get() throws InterruptedException, ExecutionException {
     try {
-      return get(timeout, TimeUnit.MILLISECONDS);
+      return get(OperationFuture.timeoutOf(ops, timeout), TimeUnit.MILLISECONDS);
     } catch (TimeoutException e) {
       throw new OperationTimeoutException(e);
     }
@@ -144,4 +145,13 @@ public final class SMGetFuture<T extends List<?>> implements Future<T> {
   public CollectionOperationStatus getOperationStatus() {
     return result.getOperationStatus();
   }
+
+  /**
+   * Get the continuation token to fetch the next page of a paginated smget.
+   *
+   * @return null if the smget is not paginated or has not succeeded
+   */
+  public SMGetContinuation getContinuation() {
+    return result.getNextContinuation();
+  }
 }
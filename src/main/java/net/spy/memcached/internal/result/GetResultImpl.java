@@ -20,4 +20,8 @@ public final class GetResultImpl<T> implements GetResult<T> {
     }
     return decodedValue;
   }
+
+  public CachedData getCachedData() {
+    return cachedData;
+  }
 }
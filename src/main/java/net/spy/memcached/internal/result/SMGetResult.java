@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 
 import net.spy.memcached.collection.BKeyObject;
+import net.spy.memcached.collection.SMGetContinuation;
 import net.spy.memcached.collection.SMGetElement;
 import net.spy.memcached.collection.SMGetTrimKey;
 import net.spy.memcached.ops.CollectionOperationStatus;
@@ -90,6 +91,15 @@ public abstract class SMGetResult<T>  {
     return false;
   }
 
+  /**
+   * Get the continuation token of the next page.
+   *
+   * @return null if the smget is not paginated or has not succeeded
+   */
+  public SMGetContinuation getNextContinuation() {
+    return null;
+  }
+
   public abstract List<SMGetElement<T>> getFinalResult();
   public abstract void makeResultOperationStatus();
 }
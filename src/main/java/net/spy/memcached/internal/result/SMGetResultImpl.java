@@ -1,11 +1,14 @@
 package net.spy.memcached.internal.result;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 
 import net.spy.memcached.collection.BKeyObject;
+import net.spy.memcached.collection.SMGetContinuation;
 import net.spy.memcached.collection.SMGetElement;
 import net.spy.memcached.ops.CollectionOperationStatus;
 import net.spy.memcached.ops.OperationStatus;
@@ -13,16 +16,35 @@ import net.spy.memcached.ops.OperationStatus;
 public final class SMGetResultImpl<T> extends SMGetResult<T> {
   private final int count;
   private final boolean unique;
+  private final List<List<SMGetElement<T>>> sortedRuns = new ArrayList<>();
+
+  private final SMGetContinuation continuation;
+  private final int requestCount;
+  private volatile boolean exhausted = true;
+  private volatile SMGetContinuation nextContinuation = null;
 
   public SMGetResultImpl(int count, boolean unique, boolean reverse) {
+    this(count, unique, reverse, null, count);
+  }
+
+  /**
+   * Create the result of a page that resumes from the given continuation.
+   * Each node is requested requestCount elements, which includes the elements
+   * of the previous page to be skipped.
+   */
+  public SMGetResultImpl(int count, boolean unique, boolean reverse,
+                         SMGetContinuation continuation, int requestCount) {
     super(count, reverse);
 
     this.count = count;
     this.unique = unique;
+    this.continuation = continuation;
+    this.requestCount = requestCount;
   }
 
   @Override
   public List<SMGetElement<T>> getFinalResult() {
+    mergeSortedRuns();
     return mergedResult;
   }
 
@@ -30,128 +52,77 @@ public final class SMGetResultImpl<T> extends SMGetResult<T> {
     if (failedOperationStatus == null) {
       failedOperationStatus = new CollectionOperationStatus(status);
     }
+    sortedRuns.clear();
     mergedResult.clear();
     trimmedKeyMap.clear();
     missedKeyList.clear();
     missedKeyMap.clear();
   }
 
-  @Deprecated
-  private void mergeSMGetElementsOld(final List<SMGetElement<T>> eachResult) {
-    if (mergedResult.isEmpty()) {
-      mergedResult.addAll(eachResult);
-
-      // remove elements that exceed the count
-      while (mergedResult.size() > count) {
-        mergedResult.remove(count);
-      }
+  /**
+   * Add the sorted smget result of one node.
+   * The results of all nodes are merged at once when every node has responded.
+   */
+  public void mergeSMGetElements(final List<SMGetElement<T>> eachResult) {
+    if (failedOperationStatus != null) {
       return;
     }
-
-    // do sort merge
-    int comp, pos = 0;
-    for (SMGetElement<T> result : eachResult) {
-      boolean doInsert = true;
-      for (; pos < mergedResult.size(); pos++) {
-        comp = result.compareBkeyTo(mergedResult.get(pos));
-        if ((reverse) ? (comp > 0) : (comp < 0)) {
-          break;
-        }
-        if (comp == 0) {
-          // Duplicated bkey. Compare the "cache key".
-          int keyComp = result.compareKeyTo(mergedResult.get(pos));
-          if ((reverse) ? (keyComp > 0) : (keyComp < 0)) {
-            if (unique) {
-              // Remove duplicated bkey.
-              mergedResult.remove(pos);
-            }
-            break;
-          } else {
-            if (unique) {
-              // NOT the first cache key with the same bkey. do NOT insert.
-              doInsert = false;
-              break;
-            }
-          }
-        }
-      }
-      if (!doInsert) { // UNIQUE
-        continue;
-      }
-      if (pos >= count) {
-        // The next element of eachResult must be positioned behind
-        // the elements of the mergedResult whose size is count.
-        // So, stop the current sort-merge task.
-        break;
-      }
-      mergedResult.add(pos, result);
-      if (mergedResult.size() > count) {
-        mergedResult.remove(count);
-      }
-      pos += 1;
+    if (eachResult.size() >= requestCount) {
+      exhausted = false;
+    }
+    if (eachResult.isEmpty()) {
+      return;
     }
+    sortedRuns.add(eachResult);
   }
 
-  public void mergeSMGetElements(final List<SMGetElement<T>> eachResult) {
-    if (mergedResult.isEmpty()) {
-      // merged result is empty, add all.
-      mergedResult.addAll(eachResult);
-
-      while (mergedResult.size() > count) {
-        mergedResult.remove(count);
-      }
+  /**
+   * Merge the sorted results of each node with a k-way merge on a heap,
+   * stopping once count elements are produced.
+   * In unique mode, only the first element of the same bkey is taken.
+   * Elements left in the runs when the merge stops belong to the next page.
+   */
+  private void mergeSortedRuns() {
+    if (sortedRuns.isEmpty()) {
       return;
     }
 
-    final int eachSize = eachResult.size();
-    final int oldMergedSize = mergedResult.size();
-    final List<SMGetElement<T>> newMergedResult = new ArrayList<>(count);
-
-    int eachPos = 0, oldMergedPos = 0, comp;
-    boolean bkeyDuplicated;
-
-    while (eachPos < eachSize && oldMergedPos < oldMergedSize && newMergedResult.size() < count) {
-      final SMGetElement<T> eachElem = eachResult.get(eachPos);
-      final SMGetElement<T> oldMergedElem = mergedResult.get(oldMergedPos);
+    final PriorityQueue<SortedRun<T>> heap =
+        new PriorityQueue<>(sortedRuns.size(), new Comparator<SortedRun<T>>() {
+          @Override
+          public int compare(SortedRun<T> o1, SortedRun<T> o2) {
+            int comp = o1.head().compareTo(o2.head());
+            return (reverse) ? -comp : comp;
+          }
+        });
+    for (List<SMGetElement<T>> run : sortedRuns) {
+      heap.add(new SortedRun<>(run));
+    }
+    sortedRuns.clear();
 
-      comp = eachElem.compareBkeyTo(oldMergedElem);
-      bkeyDuplicated = (comp == 0);
-      if (bkeyDuplicated) {
-        // Duplicated bkey. Compare the "cache key".
-        comp = eachElem.compareKeyTo(oldMergedElem);
-        assert comp != 0 : "Unexpected smget elements. Duplicated cache key : " + eachElem.getKey();
+    final List<SMGetElement<T>> newMergedResult = new ArrayList<>(count);
+    SMGetElement<T> last = null;
+    while (!heap.isEmpty() && newMergedResult.size() < count) {
+      SortedRun<T> run = heap.poll();
+      SMGetElement<T> elem = run.head();
+      boolean returned = continuation != null && continuation.isReturned(elem);
+      if (!returned && (!unique || last == null || elem.compareBkeyTo(last) != 0)) {
+        newMergedResult.add(elem);
+        last = elem;
       }
-      if ((reverse) ? (comp > 0) : (comp < 0)) {
-        newMergedResult.add(eachElem);
-        eachPos++;
-
-        if (unique && bkeyDuplicated) {
-          // NOT the first cache key with the same bkey. do NOT insert.
-          oldMergedPos++;
-        }
-      } else {
-        newMergedResult.add(oldMergedElem);
-        oldMergedPos++;
-
-        if (unique && bkeyDuplicated) {
-          // NOT the first cache key with the same bkey. do NOT insert.
-          eachPos++;
-        }
+      if (run.advance()) {
+        heap.add(run);
       }
     }
-
-    while (eachPos < eachSize && newMergedResult.size() < count) {
-      newMergedResult.add(eachResult.get(eachPos++));
-    }
-    while (oldMergedPos < oldMergedSize && newMergedResult.size() < count) {
-      newMergedResult.add(mergedResult.get(oldMergedPos++));
+    if (!heap.isEmpty()) {
+      exhausted = false;
     }
-
     mergedResult = newMergedResult;
   }
 
   @Override
   public void makeResultOperationStatus() {
+    mergeSortedRuns();
     refineTrimmedKeys();
 
     final OperationStatus status;
@@ -161,6 +132,16 @@ public final class SMGetResultImpl<T> extends SMGetResult<T> {
       status = new OperationStatus(true, "END");
     }
     resultOperationStatus = new CollectionOperationStatus(status);
+
+    if (continuation != null) {
+      nextContinuation = continuation.next(mergedResult, exhausted,
+          missedKeyMap, trimmedKeyMap);
+    }
+  }
+
+  @Override
+  public SMGetContinuation getNextContinuation() {
+    return nextContinuation;
   }
 
   /**
@@ -184,4 +165,21 @@ public final class SMGetResultImpl<T> extends SMGetResult<T> {
       }
     }
   }
+
+  private static final class SortedRun<T> {
+    private final List<SMGetElement<T>> elements;
+    private int pos = 0;
+
+    private SortedRun(List<SMGetElement<T>> elements) {
+      this.elements = elements;
+    }
+
+    private SMGetElement<T> head() {
+      return elements.get(pos);
+    }
+
+    private boolean advance() {
+      return ++pos < elements.size();
+    }
+  }
 }
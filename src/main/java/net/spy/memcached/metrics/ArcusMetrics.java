@@ -0,0 +1,74 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.metrics;
+
+import net.spy.memcached.ops.APIType;
+import net.spy.memcached.ops.OperationType;
+
+/**
+ * Receiver of the metrics of operations, keyed by the {@link APIType}
+ * and the {@link OperationType} of each operation.
+ * The operation type is the one of the operation itself,
+ * e.g. a b+tree get with delete is a write.
+ *
+ * Every operation ends with exactly one of completed, failed and cancelled.
+ * The methods are called on the I/O thread of the client and on the threads
+ * waiting for futures, so an implementation must be thread safe and must not
+ * block. Set an implementation with
+ * {@link net.spy.memcached.ConnectionFactoryBuilder#setMetrics(ArcusMetrics)}.
+ *
+ * @see InMemoryArcusMetrics
+ */
+public interface ArcusMetrics {
+
+  /**
+   * The operation has received its response.
+   *
+   * @param latencyNanos nanoseconds from adding the operation to its completion
+   */
+  void operationCompleted(APIType apiType, OperationType opType, long latencyNanos);
+
+  /**
+   * The operation has ended with an error response or a protocol error.
+   *
+   * @param latencyNanos nanoseconds from adding the operation to its completion
+   */
+  void operationFailed(APIType apiType, OperationType opType, long latencyNanos);
+
+  /**
+   * The operation has been cancelled, by the caller or by a lost connection.
+   *
+   * @param latencyNanos nanoseconds from adding the operation to its cancellation
+   */
+  void operationCancelled(APIType apiType, OperationType opType, long latencyNanos);
+
+  /**
+   * A caller has given up waiting for the operation.
+   * The operation itself may still complete or be cancelled later.
+   */
+  void operationTimedOut(APIType apiType, OperationType opType);
+
+  /**
+   * Bytes of the operation have been written to the socket buffer.
+   */
+  void bytesWritten(APIType apiType, OperationType opType, int bytes);
+
+  /**
+   * Bytes of the response of the operation have been read.
+   */
+  void bytesRead(APIType apiType, OperationType opType, int bytes);
+}
@@ -0,0 +1,194 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values, recorded without locks.
+ *
+ * Values below 128 are counted exactly. Larger values are counted in
+ * 64 buckets per power of two, so a percentile is reported with at most
+ * 1.6% of relative error over the whole long range in a fixed 30KB.
+ * A histogram of lower precision can be created for smaller footprints.
+ *
+ * Recording is a few atomic increments and can run concurrently with reads.
+ * A read is not an atomic snapshot, so values recorded meanwhile may be
+ * partly seen.
+ */
+public final class AtomicHistogram {
+
+  private static final int SUB_BUCKET_BITS = 7;
+
+  private final int subBucketBits;
+  private final AtomicLongArray counts;
+  private final AtomicLong totalCount = new AtomicLong();
+  private final AtomicLong totalValue = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public AtomicHistogram() {
+    this(SUB_BUCKET_BITS);
+  }
+
+  /**
+   * Create a histogram that counts values in 2^(subBucketBits - 1) buckets
+   * per power of two.
+   */
+  AtomicHistogram(int subBucketBits) {
+    if (subBucketBits < 1 || subBucketBits > SUB_BUCKET_BITS) {
+      throw new IllegalArgumentException("Invalid sub bucket bits : " + subBucketBits);
+    }
+    this.subBucketBits = subBucketBits;
+    int subBuckets = 1 << subBucketBits;
+    counts = new AtomicLongArray(subBuckets + (64 - subBucketBits) * (subBuckets / 2));
+  }
+
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    counts.incrementAndGet(indexOf(value, subBucketBits));
+    totalCount.incrementAndGet();
+    totalValue.addAndGet(value);
+    long m = max.get();
+    while (value > m && !max.compareAndSet(m, value)) {
+      m = max.get();
+    }
+  }
+
+  /**
+   * Add the values of another histogram of the same precision.
+   */
+  public void add(AtomicHistogram other) {
+    if (other.subBucketBits != subBucketBits) {
+      throw new IllegalArgumentException("Histograms of different precisions");
+    }
+    for (int i = 0; i < counts.length(); i++) {
+      long c = other.counts.get(i);
+      if (c != 0) {
+        counts.addAndGet(i, c);
+      }
+    }
+    totalCount.addAndGet(other.totalCount.get());
+    totalValue.addAndGet(other.totalValue.get());
+    long value = other.max.get();
+    long m = max.get();
+    while (value > m && !max.compareAndSet(m, value)) {
+      m = max.get();
+    }
+  }
+
+  public long getCount() {
+    return totalCount.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public double getMean() {
+    long count = totalCount.get();
+    return count == 0 ? 0 : (double) totalValue.get() / count;
+  }
+
+  /**
+   * Get the value at the given percentile.
+   * The highest value that falls into the same bucket is returned,
+   * so the result is never smaller than the real percentile.
+   *
+   * @param percentile percentile between 0 and 100
+   */
+  public long getValueAtPercentile(double percentile) {
+    return getValueAtPercentile(percentile, this);
+  }
+
+  /**
+   * Get the value at the given percentile of the values of all given histograms.
+   * The histograms must have the same precision.
+   */
+  static long getValueAtPercentile(double percentile, AtomicHistogram... histograms) {
+    int length = histograms[0].counts.length();
+    int bits = histograms[0].subBucketBits;
+    long count = 0;
+    long highest = 0;
+    for (AtomicHistogram h : histograms) {
+      assert h.subBucketBits == bits : "Histograms of different precisions";
+      for (int i = 0; i < length; i++) {
+        count += h.counts.get(i);
+      }
+      highest = Math.max(highest, h.max.get());
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+    long sum = 0;
+    for (int i = 0; i < length; i++) {
+      for (AtomicHistogram h : histograms) {
+        sum += h.counts.get(i);
+      }
+      if (sum >= target) {
+        return Math.min(highestValueOf(i, bits), highest);
+      }
+    }
+    return highest;
+  }
+
+  /**
+   * Clear the histogram. Values recorded meanwhile may be partly lost.
+   */
+  public void reset() {
+    for (int i = 0; i < counts.length(); i++) {
+      counts.set(i, 0);
+    }
+    totalCount.set(0);
+    totalValue.set(0);
+    max.set(0);
+  }
+
+  static int indexOf(long value) {
+    return indexOf(value, SUB_BUCKET_BITS);
+  }
+
+  static long highestValueOf(int index) {
+    return highestValueOf(index, SUB_BUCKET_BITS);
+  }
+
+  static int indexOf(long value, int subBucketBits) {
+    int subBuckets = 1 << subBucketBits;
+    if (value < subBuckets) {
+      return (int) value;
+    }
+    int halfSubBuckets = subBuckets / 2;
+    int shift = 63 - Long.numberOfLeadingZeros(value) - (subBucketBits - 1);
+    int sub = (int) (value >>> shift);
+    return subBuckets + (shift - 1) * halfSubBuckets + (sub - halfSubBuckets);
+  }
+
+  static long highestValueOf(int index, int subBucketBits) {
+    int subBuckets = 1 << subBucketBits;
+    if (index < subBuckets) {
+      return index;
+    }
+    int halfSubBuckets = subBuckets / 2;
+    int shift = (index - subBuckets) / halfSubBuckets + 1;
+    long sub = (index - subBuckets) % halfSubBuckets + halfSubBuckets;
+    long next = (sub + 1) << shift;
+    return next <= 0 ? Long.MAX_VALUE : next - 1;
+  }
+}
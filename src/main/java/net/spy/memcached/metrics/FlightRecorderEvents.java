@@ -0,0 +1,68 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.metrics;
+
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.ops.Operation;
+
+/**
+ * Java Flight Recorder events of the client.
+ *
+ * This class does nothing. The jar is a multi-release jar, and on Java 11
+ * or later this class is replaced by the one in src/main/java11 that commits
+ * the events, so the methods of the two classes must be kept the same.
+ */
+public final class FlightRecorderEvents {
+
+  private FlightRecorderEvents() {
+  }
+
+  /**
+   * An operation is completed by a response.
+   * Only some of the operations are recorded, see the Java 11 version.
+   *
+   * @param responseNanos the time from the end of the request to the end of the response
+   */
+  public static void operationCompleted(MemcachedNode node, Operation op, long responseNanos) {
+  }
+
+  /**
+   * The connection to a node is closed and queued to be reconnected.
+   */
+  public static void reconnectQueued(MemcachedNode node, boolean immediate, String cause) {
+  }
+
+  /**
+   * The operations of a replica group are moved to its new master.
+   */
+  public static void switchover(String group, MemcachedNode from, MemcachedNode to,
+                                int movedOperations) {
+  }
+
+  /**
+   * The migration type or state of a cluster is changed.
+   */
+  public static void migrationStateChanged(String serviceCode, String type, String state) {
+  }
+
+  /**
+   * The cache list of a cluster is changed.
+   */
+  public static void cacheListChanged(String serviceCode, int previousSize, int size,
+                                      String cacheList) {
+  }
+}
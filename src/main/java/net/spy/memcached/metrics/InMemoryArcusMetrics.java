@@ -0,0 +1,139 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.spy.memcached.ops.APIType;
+import net.spy.memcached.ops.OperationType;
+
+/**
+ * Metrics kept in memory per {@link APIType} and per {@link OperationType}.
+ *
+ * The stats of a type are created on its first operation, so only the types
+ * in use take memory. Recording takes no locks.
+ * With the "arcus.mbean" system property set to true, the metrics of a client
+ * are exported to JMX by {@link MetricsMBean}.
+ */
+public class InMemoryArcusMetrics implements ArcusMetrics {
+
+  private final AtomicReferenceArray<OperationStats> apiStats =
+      new AtomicReferenceArray<>(APIType.values().length);
+  private final AtomicReferenceArray<OperationStats> opTypeStats =
+      new AtomicReferenceArray<>(OperationType.values().length);
+
+  private static OperationStats statsOf(AtomicReferenceArray<OperationStats> array, int index) {
+    OperationStats stats = array.get(index);
+    if (stats == null) {
+      array.compareAndSet(index, null, new OperationStats());
+      stats = array.get(index);
+    }
+    return stats;
+  }
+
+  private OperationStats statsOf(APIType apiType) {
+    return statsOf(apiStats, apiType.ordinal());
+  }
+
+  private OperationStats statsOf(OperationType opType) {
+    return statsOf(opTypeStats, opType.ordinal());
+  }
+
+  @Override
+  public void operationCompleted(APIType apiType, OperationType opType, long latencyNanos) {
+    statsOf(apiType).completed(latencyNanos);
+    statsOf(opType).completed(latencyNanos);
+  }
+
+  @Override
+  public void operationFailed(APIType apiType, OperationType opType, long latencyNanos) {
+    statsOf(apiType).failed(latencyNanos);
+    statsOf(opType).failed(latencyNanos);
+  }
+
+  @Override
+  public void operationCancelled(APIType apiType, OperationType opType, long latencyNanos) {
+    statsOf(apiType).cancelled();
+    statsOf(opType).cancelled();
+  }
+
+  @Override
+  public void operationTimedOut(APIType apiType, OperationType opType) {
+    statsOf(apiType).timedOut();
+    statsOf(opType).timedOut();
+  }
+
+  @Override
+  public void bytesWritten(APIType apiType, OperationType opType, int bytes) {
+    statsOf(apiType).bytesWritten(bytes);
+    statsOf(opType).bytesWritten(bytes);
+  }
+
+  @Override
+  public void bytesRead(APIType apiType, OperationType opType, int bytes) {
+    statsOf(apiType).bytesRead(bytes);
+    statsOf(opType).bytesRead(bytes);
+  }
+
+  /**
+   * Get the stats of the API type.
+   *
+   * @return null if no operation of the type has been recorded
+   */
+  public OperationStats getStats(APIType apiType) {
+    return apiStats.get(apiType.ordinal());
+  }
+
+  /**
+   * Get the stats of the operation type.
+   *
+   * @return null if no operation of the type has been recorded
+   */
+  public OperationStats getStats(OperationType opType) {
+    return opTypeStats.get(opType.ordinal());
+  }
+
+  /**
+   * Get the stats of every API type that has been recorded.
+   */
+  public Map<APIType, OperationStats> getAPIStats() {
+    Map<APIType, OperationStats> map = new EnumMap<>(APIType.class);
+    for (APIType type : APIType.values()) {
+      OperationStats stats = getStats(type);
+      if (stats != null) {
+        map.put(type, stats);
+      }
+    }
+    return map;
+  }
+
+  /**
+   * Get the stats of every operation type that has been recorded.
+   */
+  public Map<OperationType, OperationStats> getOperationTypeStats() {
+    Map<OperationType, OperationStats> map = new EnumMap<>(OperationType.class);
+    for (OperationType type : OperationType.values()) {
+      OperationStats stats = getStats(type);
+      if (stats != null) {
+        map.put(type, stats);
+      }
+    }
+    return map;
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recent response times of one API on one node.
+ *
+ * The response times are counted in histograms of 25% bucket width, in two
+ * generations. The older generation is dropped when the newer one has enough
+ * values or becomes too old, so the percentiles follow the recent latency
+ * of the node. Only the IO thread records values, and other threads read them.
+ * A read is not an atomic snapshot, so a generation dropped meanwhile may be
+ * partly seen.
+ */
+public final class LatencyWindow {
+
+  /**
+   * 4 buckets per power of two.
+   */
+  static final int SUB_BUCKET_BITS = 3;
+
+  static final int GENERATION_SIZE = 1000;
+  static final long GENERATION_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  /**
+   * A cached percentile is computed again after this many values
+   * or when a generation is dropped.
+   */
+  private static final int RECOMPUTE_INTERVAL = 64;
+
+  private volatile AtomicHistogram current = new AtomicHistogram(SUB_BUCKET_BITS);
+  private volatile AtomicHistogram previous = new AtomicHistogram(SUB_BUCKET_BITS);
+  private volatile long recorded = 0;
+  private volatile long generation = 0;
+  private long generationStart;
+  private volatile Percentile cached = null;
+
+  public LatencyWindow() {
+    this(System.nanoTime());
+  }
+
+  LatencyWindow(long now) {
+    generationStart = now;
+  }
+
+  /**
+   * Record a response time. Only called by the IO thread.
+   */
+  public void record(long nanos) {
+    record(nanos, System.nanoTime());
+  }
+
+  void record(long nanos, long now) {
+    long age = now - generationStart;
+    if (age >= 2 * GENERATION_NANOS) {
+      current.reset();
+      previous.reset();
+      generationStart = now;
+      generation++;
+    } else if (current.getCount() >= GENERATION_SIZE || age >= GENERATION_NANOS) {
+      AtomicHistogram dropped = previous;
+      previous = current;
+      dropped.reset();
+      current = dropped;
+      generationStart = now;
+      generation++;
+    }
+    current.record(nanos);
+    recorded++;
+  }
+
+  /**
+   * Get the number of response times in the window.
+   */
+  public long getCount() {
+    return previous.getCount() + current.getCount();
+  }
+
+  /**
+   * Get the response time at the given percentile in nanoseconds.
+   * The highest value of the bucket is returned, so the result is
+   * never smaller than the real percentile.
+   *
+   * @param percentile percentile between 0 and 100
+   * @return the response time, or 0 if there is no value in the window
+   */
+  public long getValueAtPercentile(double percentile) {
+    long gen = generation;
+    long now = recorded;
+    Percentile p = cached;
+    if (p != null && p.percentile == percentile && p.generation == gen &&
+        now - p.recorded < RECOMPUTE_INTERVAL) {
+      return p.value;
+    }
+    long value = AtomicHistogram.getValueAtPercentile(percentile, previous, current);
+    cached = new Percentile(percentile, gen, now, value);
+    return value;
+  }
+
+  private static final class Percentile {
+    private final double percentile;
+    private final long generation;
+    private final long recorded;
+    private final long value;
+
+    private Percentile(double percentile, long generation, long recorded, long value) {
+      this.percentile = percentile;
+      this.generation = generation;
+      this.recorded = recorded;
+      this.value = value;
+    }
+  }
+}
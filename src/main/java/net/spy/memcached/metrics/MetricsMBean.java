@@ -0,0 +1,180 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+
+import net.spy.memcached.ops.APIType;
+import net.spy.memcached.ops.OperationType;
+
+/**
+ * JMX exporter of {@link InMemoryArcusMetrics}.
+ *
+ * Each recorded API type and operation type has attributes named
+ * "metric-TYPE", e.g. "count-GET", "p99-BOP_GET" or "timedOut-READ".
+ * Latencies are given in microseconds.
+ */
+public class MetricsMBean implements DynamicMBean {
+
+  private static final String COUNT = "count";
+  private static final String COMPLETED = "completed";
+  private static final String FAILED = "failed";
+  private static final String CANCELLED = "cancelled";
+  private static final String TIMED_OUT = "timedOut";
+  private static final String BYTES_WRITTEN = "bytesWritten";
+  private static final String BYTES_READ = "bytesRead";
+  private static final String MEAN = "mean";
+  private static final String P50 = "p50";
+  private static final String P99 = "p99";
+  private static final String P999 = "p999";
+  private static final String MAX = "max";
+
+  private static final String[] COUNTERS = {
+      COUNT, COMPLETED, FAILED, CANCELLED, TIMED_OUT, BYTES_WRITTEN, BYTES_READ};
+  private static final String[] LATENCIES = {P50, P99, P999, MAX};
+
+  private static final String DELIMETER = "-";
+
+  private final InMemoryArcusMetrics metrics;
+
+  public MetricsMBean(InMemoryArcusMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    String[] names = attribute.split(DELIMETER, 2);
+    if (names.length != 2) {
+      throw new AttributeNotFoundException("Atrribute '" + attribute
+          + "' is not defined.");
+    }
+    OperationStats stats = getStats(names[1]);
+    if (stats == null) {
+      return null;
+    }
+
+    switch (names[0]) {
+      case COUNT:
+        return stats.getCount();
+      case COMPLETED:
+        return stats.getCompleted();
+      case FAILED:
+        return stats.getFailed();
+      case CANCELLED:
+        return stats.getCancelled();
+      case TIMED_OUT:
+        return stats.getTimedOut();
+      case BYTES_WRITTEN:
+        return stats.getBytesWritten();
+      case BYTES_READ:
+        return stats.getBytesRead();
+      case MEAN:
+        return stats.getLatency().getMean() / 1000.0;
+      case P50:
+        return stats.getLatency().getValueAtPercentile(50.0) / 1000;
+      case P99:
+        return stats.getLatency().getValueAtPercentile(99.0) / 1000;
+      case P999:
+        return stats.getLatency().getValueAtPercentile(99.9) / 1000;
+      case MAX:
+        return stats.getLatency().getMax() / 1000;
+      default:
+        throw new AttributeNotFoundException("Atrribute '" + attribute
+            + "' is not defined.");
+    }
+  }
+
+  private OperationStats getStats(String type) throws AttributeNotFoundException {
+    for (OperationType opType : OperationType.values()) {
+      if (opType.name().equals(type)) {
+        return metrics.getStats(opType);
+      }
+    }
+    try {
+      return metrics.getStats(APIType.valueOf(type));
+    } catch (IllegalArgumentException e) {
+      throw new AttributeNotFoundException("Type '" + type + "' is not defined.");
+    }
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    AttributeList list = new AttributeList();
+
+    for (String attribute : attributes) {
+      try {
+        list.add(new Attribute(attribute, getAttribute(attribute)));
+      } catch (Exception e) {
+        // Failed to get attributes.
+      }
+    }
+
+    return list;
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    List<MBeanAttributeInfo> attributes = new ArrayList<>();
+
+    for (OperationType type : metrics.getOperationTypeStats().keySet()) {
+      addAttributes(attributes, type.name());
+    }
+    for (APIType type : metrics.getAPIStats().keySet()) {
+      addAttributes(attributes, type.name());
+    }
+
+    return new MBeanInfo(this.getClass().getName(),
+        "Arcus client operation metrics MBean",
+        attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+  }
+
+  private void addAttributes(List<MBeanAttributeInfo> attributes, String type) {
+    for (String counter : COUNTERS) {
+      attributes.add(new MBeanAttributeInfo(counter + DELIMETER + type, "long",
+          counter + " of " + type, true, false, false));
+    }
+    attributes.add(new MBeanAttributeInfo(MEAN + DELIMETER + type, "double",
+        "mean latency(us) of " + type, true, false, false));
+    for (String latency : LATENCIES) {
+      attributes.add(new MBeanAttributeInfo(latency + DELIMETER + type, "long",
+          latency + " latency(us) of " + type, true, false, false));
+    }
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature) {
+    return null;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) {
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return null;
+  }
+
+}
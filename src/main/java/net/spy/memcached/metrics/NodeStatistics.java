@@ -0,0 +1,157 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.spy.memcached.ops.APIType;
+
+/**
+ * Network counters and response time histogram of one memcached node.
+ * They are recorded by the IO thread and read by the statistics MBean.
+ */
+public final class NodeStatistics {
+
+  private static final long RATE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder selects = new LongAdder();
+  private final LongAdder partialWrites = new LongAdder();
+  private final AtomicHistogram responseTime = new AtomicHistogram();
+  private final AtomicReferenceArray<LatencyWindow> apiLatencies =
+      new AtomicReferenceArray<>(APIType.values().length);
+
+  private long rateStartNanos = System.nanoTime();
+  private long rateStartCompleted = 0;
+  private double completedPerSecond = 0;
+
+  public void selected() {
+    selects.increment();
+  }
+
+  public void bytesRead(int bytes) {
+    bytesRead.add(bytes);
+  }
+
+  /**
+   * Record a write to the socket.
+   *
+   * @param bytes   the number of bytes written
+   * @param partial true if the socket did not take all the bytes to write
+   */
+  public void bytesWritten(int bytes, boolean partial) {
+    bytesWritten.add(bytes);
+    if (partial) {
+      partialWrites.increment();
+    }
+  }
+
+  /**
+   * Record an operation completed by a response.
+   *
+   * @param responseNanos the time from the end of the request to the end of the response,
+   *                      or a negative value if it is not known
+   */
+  public void operationCompleted(long responseNanos) {
+    completed.increment();
+    if (responseNanos >= 0) {
+      responseTime.record(responseNanos);
+    }
+  }
+
+  /**
+   * Record the response time of an API for the adaptive timeouts.
+   * Only called by the IO thread.
+   *
+   * @param responseNanos the time from adding the operation to the end of the response
+   */
+  public void apiCompleted(APIType apiType, long responseNanos) {
+    LatencyWindow window = apiLatencies.get(apiType.ordinal());
+    if (window == null) {
+      window = new LatencyWindow();
+      apiLatencies.set(apiType.ordinal(), window);
+    }
+    window.record(responseNanos);
+  }
+
+  /**
+   * Get the recent response times of an API.
+   *
+   * @return null if no response time of the API has been recorded
+   */
+  public LatencyWindow getLatencies(APIType apiType) {
+    return apiLatencies.get(apiType.ordinal());
+  }
+
+  public long getBytesRead() {
+    return bytesRead.sum();
+  }
+
+  public long getBytesWritten() {
+    return bytesWritten.sum();
+  }
+
+  /**
+   * Get the number of operations completed by a response from this node.
+   */
+  public long getCompleted() {
+    return completed.sum();
+  }
+
+  /**
+   * Get the number of operations completed per second,
+   * measured over at least a second since the previous measurement.
+   */
+  public synchronized double getCompletedPerSecond() {
+    long now = System.nanoTime();
+    if (now - rateStartNanos >= RATE_INTERVAL) {
+      long count = completed.sum();
+      completedPerSecond = (count - rateStartCompleted)
+          * (double) TimeUnit.SECONDS.toNanos(1) / (now - rateStartNanos);
+      rateStartNanos = now;
+      rateStartCompleted = count;
+    }
+    return completedPerSecond;
+  }
+
+  /**
+   * Get the number of times the selector has woken up for this node.
+   */
+  public long getSelects() {
+    return selects.sum();
+  }
+
+  /**
+   * Get the number of writes in which the socket did not take all the bytes.
+   * Many partial writes mean that the socket send buffer or the node is saturated.
+   */
+  public long getPartialWrites() {
+    return partialWrites.sum();
+  }
+
+  /**
+   * Get the response times in nanoseconds, from the end of the request
+   * to the end of the response.
+   */
+  public AtomicHistogram getResponseTime() {
+    return responseTime;
+  }
+}
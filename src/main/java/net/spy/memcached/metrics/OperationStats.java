@@ -0,0 +1,99 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histogram of one kind of operation.
+ */
+public final class OperationStats {
+
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder cancelled = new LongAdder();
+  private final LongAdder timedOut = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder bytesRead = new LongAdder();
+  private final AtomicHistogram latency = new AtomicHistogram();
+
+  void completed(long latencyNanos) {
+    completed.increment();
+    latency.record(latencyNanos);
+  }
+
+  void failed(long latencyNanos) {
+    failed.increment();
+    latency.record(latencyNanos);
+  }
+
+  void cancelled() {
+    cancelled.increment();
+  }
+
+  void timedOut() {
+    timedOut.increment();
+  }
+
+  void bytesWritten(int bytes) {
+    bytesWritten.add(bytes);
+  }
+
+  void bytesRead(int bytes) {
+    bytesRead.add(bytes);
+  }
+
+  /**
+   * Get the number of operations ended, whether completed, failed or cancelled.
+   */
+  public long getCount() {
+    return completed.sum() + failed.sum() + cancelled.sum();
+  }
+
+  public long getCompleted() {
+    return completed.sum();
+  }
+
+  public long getFailed() {
+    return failed.sum();
+  }
+
+  public long getCancelled() {
+    return cancelled.sum();
+  }
+
+  public long getTimedOut() {
+    return timedOut.sum();
+  }
+
+  public long getBytesWritten() {
+    return bytesWritten.sum();
+  }
+
+  public long getBytesRead() {
+    return bytesRead.sum();
+  }
+
+  /**
+   * Get the latencies in nanoseconds of the completed and failed operations.
+   * Cancelled operations are not included, as their latency is mostly
+   * decided by the cause of the cancellation.
+   */
+  public AtomicHistogram getLatency() {
+    return latency;
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timeout ratio of the operations completed in a sliding time window.
+ * The window is divided into buckets of striped counters, so the threads
+ * completing operations do not contend on a lock, and the IO thread can
+ * read the ratio at any time.
+ * The counts are approximate while a bucket is being reused for a new interval.
+ *
+ * Under light load, when fewer than {@link #MIN_SAMPLES} operations are completed
+ * in the window, the ratio is taken over the last {@link #MIN_SAMPLES} operations
+ * regardless of their time, as the former count-based window did.
+ */
+public final class SlidingTimeoutWindow {
+
+  private static final int BUCKETS = 10;
+
+  /**
+   * The ratio of the time window is used only if it has at least this many operations,
+   * so that a few timeouts under light load do not make a high ratio.
+   */
+  static final int MIN_SAMPLES = 100;
+
+  private final long bucketNanos;
+  private final Bucket[] buckets = new Bucket[BUCKETS];
+
+  // the timeouts of the last MIN_SAMPLES operations, one bit for each.
+  private final AtomicLong recorded = new AtomicLong(0);
+  private final AtomicLongArray lastTimeouts = new AtomicLongArray((MIN_SAMPLES + 63) / 64);
+
+  /**
+   * Create a window.
+   *
+   * @param window the length of the window
+   * @param unit   the unit of the window
+   */
+  public SlidingTimeoutWindow(long window, TimeUnit unit) {
+    if (window <= 0) {
+      throw new IllegalArgumentException("Window must be positive : " + window);
+    }
+    bucketNanos = Math.max(1, unit.toNanos(window) / BUCKETS);
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = new Bucket();
+    }
+  }
+
+  /**
+   * Record a completed operation.
+   *
+   * @param timedOut true if the operation has timed out
+   */
+  public void record(boolean timedOut) {
+    record(timedOut, System.nanoTime());
+  }
+
+  void record(boolean timedOut, long nanos) {
+    long interval = Math.floorDiv(nanos, bucketNanos);
+    Bucket bucket = buckets[(int) Math.floorMod(interval, (long) BUCKETS)];
+    long current = bucket.interval.get();
+    if (current != interval && bucket.interval.compareAndSet(current, interval)) {
+      // the bucket was holding an interval out of the window.
+      bucket.total.reset();
+      bucket.timedOut.reset();
+    }
+    bucket.total.increment();
+    if (timedOut) {
+      bucket.timedOut.increment();
+    }
+    setLastTimeout((int) (recorded.getAndIncrement() % MIN_SAMPLES), timedOut);
+  }
+
+  private void setLastTimeout(int slot, boolean timedOut) {
+    int word = slot >>> 6;
+    long bit = 1L << (slot & 63);
+    long current;
+    do {
+      current = lastTimeouts.get(word);
+      if (((current & bit) != 0) == timedOut) {
+        return;
+      }
+    } while (!lastTimeouts.compareAndSet(word, current, current ^ bit));
+  }
+
+  /**
+   * Get the percentage of timed out operations in the window.
+   */
+  public int getTimeoutRatio() {
+    return getTimeoutRatio(System.nanoTime());
+  }
+
+  int getTimeoutRatio(long nanos) {
+    long interval = Math.floorDiv(nanos, bucketNanos);
+    long total = 0;
+    long timedOut = 0;
+    for (Bucket bucket : buckets) {
+      long i = bucket.interval.get();
+      if (i <= interval && i > interval - BUCKETS) {
+        total += bucket.total.sum();
+        timedOut += bucket.timedOut.sum();
+      }
+    }
+    if (total >= MIN_SAMPLES) {
+      return (int) (timedOut * 100 / total);
+    }
+    int lastTimedOut = 0;
+    for (int i = 0; i < lastTimeouts.length(); i++) {
+      lastTimedOut += Long.bitCount(lastTimeouts.get(i));
+    }
+    return lastTimedOut * 100 / MIN_SAMPLES;
+  }
+
+  /**
+   * Clear the window. Values recorded meanwhile may be lost.
+   */
+  public void reset() {
+    for (Bucket bucket : buckets) {
+      bucket.interval.set(Long.MIN_VALUE);
+      bucket.total.reset();
+      bucket.timedOut.reset();
+    }
+    for (int i = 0; i < lastTimeouts.length(); i++) {
+      lastTimeouts.set(i, 0);
+    }
+  }
+
+  private static final class Bucket {
+    private final AtomicLong interval = new AtomicLong(Long.MIN_VALUE);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+  }
+}
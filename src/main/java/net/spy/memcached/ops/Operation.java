@@ -22,6 +22,7 @@ import java.nio.ByteBuffer;
 
 import net.spy.memcached.MemcachedNode;
 import net.spy.memcached.RedirectHandler;
+import net.spy.memcached.metrics.ArcusMetrics;
 
 
 /**
@@ -134,4 +135,96 @@ public interface Operation {
   /* ENABLE_MIGRATION end */
 
   APIType getAPIType();
+
+  /**
+   * Start recording the metrics of this operation.
+   * The latency of the operation is measured from this call.
+   * Calls after the first are ignored.
+   */
+  void setMetrics(ArcusMetrics metrics);
+
+  /**
+   * Get the metrics this operation is recorded to.
+   *
+   * @return null if the metrics are not recorded
+   */
+  ArcusMetrics getMetrics();
+
+  /**
+   * Start recording the timestamps of the lifecycle events of this operation,
+   * from the {@link OperationLifecycle#CREATED} event.
+   * Calls after the first are ignored.
+   */
+  void traceLifecycle();
+
+  /**
+   * Record the timestamp of the given lifecycle event
+   * if the lifecycle of this operation is traced.
+   * The timestamp of an event that happens again is overwritten.
+   */
+  void recordLifecycle(OperationLifecycle event);
+
+  /**
+   * Check whether the timestamp of the given lifecycle event has been recorded.
+   */
+  boolean isLifecycleRecorded(OperationLifecycle event);
+
+  /**
+   * Get the timestamp of the given lifecycle event.
+   * Any value, including 0, is a valid timestamp,
+   * so check {@link #isLifecycleRecorded(OperationLifecycle)} first.
+   *
+   * @return the value of {@link System#nanoTime()} at the event,
+   *         or 0 if the event has not been recorded
+   */
+  long getLifecycleTimestamp(OperationLifecycle event);
+
+  /**
+   * Check whether the last byte of this operation has been copied to the write buffer.
+   */
+  boolean isWriteCompleted();
+
+  /**
+   * Get the time the last byte of this operation was copied to the write buffer.
+   * It is valid only if {@link #isWriteCompleted()} is true.
+   *
+   * @return the value of {@link System#nanoTime()} at the time
+   */
+  long getWriteCompletedNanos();
+
+  /**
+   * Add the number of bytes of this operation copied to the write buffer.
+   */
+  void addBytesWritten(int bytes);
+
+  /**
+   * Add the number of bytes of the response read by this operation.
+   */
+  void addBytesRead(int bytes);
+
+  /**
+   * Get the number of bytes written, including the bytes of the earlier attempts
+   * if this operation has been resent.
+   */
+  int getBytesWritten();
+
+  /**
+   * Get the number of bytes read, including the bytes of the earlier attempts
+   * if this operation has been resent.
+   */
+  int getBytesRead();
+
+  /**
+   * Set the timeout of this operation given by the adaptive timeout policy.
+   *
+   * @param timeout timeout in milliseconds
+   */
+  void setTimeout(long timeout);
+
+  /**
+   * Get the timeout of this operation given by the adaptive timeout policy.
+   *
+   * @return timeout in milliseconds, or 0 if the operation timeout of the future applies
+   */
+  long getTimeout();
 }
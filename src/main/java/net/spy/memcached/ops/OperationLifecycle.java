@@ -0,0 +1,62 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.ops;
+
+/**
+ * Lifecycle events of an operation whose timestamps are recorded
+ * when the operation is traced.
+ */
+public enum OperationLifecycle {
+  /**
+   * The operation is handed to the connection.
+   */
+  CREATED("created"),
+  /**
+   * The operation is added to the input queue of a node.
+   */
+  ENQUEUED("enqueued"),
+  /**
+   * The operation is moved to the write queue of a node.
+   */
+  WRITE_QUEUED("writeQueued"),
+  /**
+   * The first byte of the operation is copied to the write buffer.
+   */
+  WRITE_STARTED("writeStarted"),
+  /**
+   * The last byte of the operation is copied to the write buffer.
+   */
+  WRITE_COMPLETED("writeCompleted"),
+  /**
+   * The first byte of the response is read.
+   */
+  FIRST_RESPONSE("firstResponse"),
+  /**
+   * The operation is completed or cancelled.
+   */
+  COMPLETED("completed");
+
+  private final String label;
+
+  OperationLifecycle(String label) {
+    this.label = label;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+}
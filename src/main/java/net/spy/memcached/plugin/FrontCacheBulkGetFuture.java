@@ -1,5 +1,6 @@
 package net.spy.memcached.plugin;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -7,6 +8,7 @@ import java.util.concurrent.TimeoutException;
 
 import net.spy.memcached.OperationTimeoutException;
 import net.spy.memcached.internal.BulkGetFuture;
+import net.spy.memcached.transcoders.Transcoder;
 
 import static net.spy.memcached.DefaultConnectionFactory.DEFAULT_OPERATION_TIMEOUT;
 
@@ -15,14 +17,25 @@ public class FrontCacheBulkGetFuture<T> extends BulkGetFuture<T> {
 
   private final Map<String, T> localCachedData;
 
+  private final Map<String, Transcoder<T>> transcoders;
+
   private Map<String, T> result = null;
 
   public FrontCacheBulkGetFuture(LocalCacheManager localCacheManager,
                                  BulkGetFuture<T> parentFuture,
                                  Map<String, T> localCachedData) {
+    this(localCacheManager, parentFuture, localCachedData,
+        Collections.<String, Transcoder<T>>emptyMap());
+  }
+
+  public FrontCacheBulkGetFuture(LocalCacheManager localCacheManager,
+                                 BulkGetFuture<T> parentFuture,
+                                 Map<String, T> localCachedData,
+                                 Map<String, Transcoder<T>> transcoders) {
     super(parentFuture);
     this.localCacheManager = localCacheManager;
     this.localCachedData = localCachedData;
+    this.transcoders = transcoders;
   }
 
   @Override
@@ -69,7 +82,7 @@ public class FrontCacheBulkGetFuture<T> extends BulkGetFuture<T> {
       String key = entry.getKey();
       T value = entry.getValue();
       if (value != null) {
-        localCacheManager.put(key, value);
+        localCacheManager.put(key, value, transcoders.get(key), getCachedData(key));
       }
     }
   }
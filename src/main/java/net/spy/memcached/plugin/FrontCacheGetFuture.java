@@ -23,6 +23,7 @@ import java.util.concurrent.TimeoutException;
 
 import net.spy.memcached.internal.GetFuture;
 import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.transcoders.Transcoder;
 
 import static net.spy.memcached.DefaultConnectionFactory.DEFAULT_OPERATION_TIMEOUT;
 
@@ -37,18 +38,25 @@ public class FrontCacheGetFuture<T> extends GetFuture<T> {
   private final GetFuture<T> parent;
   private final LocalCacheManager localCacheManager;
   private final String key;
+  private final Transcoder<T> tc;
 
   public FrontCacheGetFuture(LocalCacheManager localCacheManager, String key, GetFuture<T> parent) {
+    this(localCacheManager, key, parent, null);
+  }
+
+  public FrontCacheGetFuture(LocalCacheManager localCacheManager, String key, GetFuture<T> parent,
+                             Transcoder<T> tc) {
     super(new CountDownLatch(0), DEFAULT_OPERATION_TIMEOUT);
     this.parent = parent;
     this.localCacheManager = localCacheManager;
     this.key = key;
+    this.tc = tc;
   }
 
   @Override
   public T get() throws InterruptedException, ExecutionException {
     T t = parent.get();
-    localCacheManager.put(key, t);
+    localCacheManager.put(key, t, tc, parent.getCachedData());
     return t;
   }
 
@@ -56,7 +64,7 @@ public class FrontCacheGetFuture<T> extends GetFuture<T> {
   public T get(long timeout, TimeUnit unit) throws InterruptedException,
           ExecutionException, TimeoutException {
     T t = parent.get(timeout, unit);
-    localCacheManager.put(key, t);
+    localCacheManager.put(key, t, tc, parent.getCachedData());
     return t;
   }
 
@@ -18,6 +18,7 @@ package net.spy.memcached.plugin;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -25,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import net.spy.memcached.ArcusKey;
 import net.spy.memcached.ConnectionFactory;
 import net.spy.memcached.MemcachedClient;
 import net.spy.memcached.internal.BulkFuture;
@@ -42,6 +44,8 @@ import net.spy.memcached.transcoders.Transcoder;
  * it is returned from the front cache.  If not, the get command goes to the server as usual.
  *
  * Cache parameters (name, size, expiration time) are from ConnectionFactory.
+ * If an off-heap size is given, the values are kept encoded in off-heap memory
+ * and decoded through the transcoder on every front cache hit.
  *
  * @see net.spy.memcached.ConnectionFactoryBuilder
  * @see net.spy.memcached.plugin.LocalCacheManager
@@ -71,8 +75,15 @@ public class FrontCacheMemcachedClient extends MemcachedClient {
       // TODO add an additional option
       // int timeToIdleSeconds = timeToLiveSeconds;
 
-      localCacheManager = new LocalCacheManager(cacheName, maxElements,
-              timeToLiveSeconds, copyOnRead, copyOnWrite);
+      long maxOffHeapSize = cf.getMaxFrontCacheOffHeapSize();
+
+      if (maxOffHeapSize > 0) {
+        localCacheManager = new OffHeapLocalCacheManager(cacheName, maxElements,
+                timeToLiveSeconds, maxOffHeapSize, cf.getDefaultTranscoder());
+      } else {
+        localCacheManager = new LocalCacheManager(cacheName, maxElements,
+                timeToLiveSeconds, copyOnRead, copyOnWrite);
+      }
     }
   }
 
@@ -80,17 +91,19 @@ public class FrontCacheMemcachedClient extends MemcachedClient {
    * Get the value of the key.
    * Check the local cache first. If the key is not found, send the command to the server.
    *
-   * @param key the key to fetch
+   * Both the key strings and the key handles come here.
+   *
+   * @param key the key handle to fetch
    * @param tc  the transcoder to serialize and unserialize value
    * @return a future that will hold the value of the key
    */
   @Override
-  public <T> GetFuture<T> asyncGet(final String key, final Transcoder<T> tc) {
+  public <T> GetFuture<T> asyncGet(final ArcusKey key, final Transcoder<T> tc) {
     if (localCacheManager == null) {
       return super.asyncGet(key, tc);
     }
 
-    final T t = localCacheManager.get(key);
+    final T t = localCacheManager.get(key.getKey(), tc);
     if (t != null) {
       return new GetFuture<T>(null, 0) {
         @Override
@@ -120,7 +133,7 @@ public class FrontCacheMemcachedClient extends MemcachedClient {
       };
     }
     GetFuture<T> parent = super.asyncGet(key, tc);
-    return new FrontCacheGetFuture<>(localCacheManager, key, parent);
+    return new FrontCacheGetFuture<>(localCacheManager, key.getKey(), parent, tc);
   }
 
   /**
@@ -159,7 +172,7 @@ public class FrontCacheMemcachedClient extends MemcachedClient {
     while (keyIter.hasNext() && tc_iter.hasNext()) {
       String key = keyIter.next();
       Transcoder<T> tc = tc_iter.next();
-      T value = localCacheManager.get(key);
+      T value = localCacheManager.get(key, tc);
       if (value != null) {
         frontCacheHit.put(key, value);
         continue;
@@ -172,20 +185,59 @@ public class FrontCacheMemcachedClient extends MemcachedClient {
     BulkGetFuture<T> parent = (BulkGetFuture<T>) super.asyncGetBulk(
             frontCacheMiss.keySet(), frontCacheMiss.values().iterator());
 
-    return new FrontCacheBulkGetFuture<>(localCacheManager, parent, frontCacheHit);
+    return new FrontCacheBulkGetFuture<>(localCacheManager, parent, frontCacheHit,
+            frontCacheMiss);
+  }
+
+  /**
+   * Asynchronously gets a bunch of key handles from the cache.
+   * If used with front cache, the front cache is checked first.
+   *
+   * @param <T>
+   * @param tc   the transcoder to serialize and unserialize values
+   * @param keys the key handles to request
+   * @return a Future result of that fetch
+   * @throws IllegalStateException in the rare circumstance where queue
+   *                               is too full to accept any more requests
+   */
+  @Override
+  public <T> BulkFuture<Map<String, T>> asyncGetBulk(Transcoder<T> tc, ArcusKey... keys) {
+    if (localCacheManager == null) {
+      return super.asyncGetBulk(tc, keys);
+    }
+    final Map<String, T> frontCacheHit = new HashMap<>();
+    final Map<String, Transcoder<T>> frontCacheMiss = new HashMap<>();
+    List<ArcusKey> missKeys = new ArrayList<>();
+
+    for (ArcusKey key : keys) {
+      T value = localCacheManager.get(key.getKey(), tc);
+      if (value != null) {
+        frontCacheHit.put(key.getKey(), value);
+        continue;
+      }
+      frontCacheMiss.put(key.getKey(), tc);
+      missKeys.add(key);
+    }
+    BulkGetFuture<T> parent = (BulkGetFuture<T>) super.asyncGetBulk(
+            tc, missKeys.toArray(new ArcusKey[0]));
+
+    return new FrontCacheBulkGetFuture<>(localCacheManager, parent, frontCacheHit,
+            frontCacheMiss);
   }
 
   /**
    * Delete the key.
    * Delete the key from the local cache before sending the command to the server.
    *
-   * @param key the key to delete
+   * Both the key strings and the key handles come here.
+   *
+   * @param key the key handle to delete
    * @return a future that will hold success/error status of the operation
    */
   @Override
-  public OperationFuture<Boolean> delete(String key) {
+  public OperationFuture<Boolean> delete(ArcusKey key) {
     if (localCacheManager != null) {
-      localCacheManager.delete(key);
+      localCacheManager.delete(key.getKey());
     }
     return super.delete(key);
   }
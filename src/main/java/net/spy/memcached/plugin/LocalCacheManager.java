@@ -31,8 +31,10 @@ import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.config.PersistenceConfiguration;
 import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
 
+import net.spy.memcached.CachedData;
 import net.spy.memcached.compat.log.Logger;
 import net.spy.memcached.compat.log.LoggerFactory;
+import net.spy.memcached.transcoders.Transcoder;
 
 /**
  * Local cache storage based on ehcache.
@@ -44,6 +46,12 @@ public class LocalCacheManager {
   protected Cache cache;
   protected String name;
 
+  /**
+   * Constructor for subclasses that do not store items in ehcache.
+   */
+  protected LocalCacheManager() {
+  }
+
   public LocalCacheManager(String name) {
     this.name = name;
     // create a undecorated Cache object.
@@ -92,6 +100,14 @@ public class LocalCacheManager {
     return null;
   }
 
+  /**
+   * Get the locally cached value of the key.
+   * The transcoder is only used by storages that keep encoded values.
+   */
+  public <T> T get(String key, Transcoder<T> tc) {
+    return get(key);
+  }
+
   public <T> Future<T> asyncGet(final String key) {
     Task<T> task = new Task<>(new Callable<T>() {
       public T call() throws Exception {
@@ -123,6 +139,23 @@ public class LocalCacheManager {
     }
   }
 
+  /**
+   * Put the value of the key into the local cache.
+   * The transcoder is only used by storages that keep encoded values.
+   */
+  public <T> boolean put(String k, T v, Transcoder<T> tc) {
+    return put(k, v);
+  }
+
+  /**
+   * Put the value of the key into the local cache.
+   * Storages that keep encoded values store the given encoded value
+   * as received from the server instead of encoding the value again.
+   */
+  public <T> boolean put(String k, T v, Transcoder<T> tc, CachedData cd) {
+    return put(k, v, tc);
+  }
+
   public <T> boolean put(String k, Future<T> future, long timeout) {
     if (future == null) {
       return false;
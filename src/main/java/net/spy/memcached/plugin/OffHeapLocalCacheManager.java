@@ -0,0 +1,323 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.sf.ehcache.Element;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.compat.log.Logger;
+import net.spy.memcached.compat.log.LoggerFactory;
+import net.spy.memcached.transcoders.Transcoder;
+
+/**
+ * Local cache storage that keeps encoded values in off-heap memory.
+ *
+ * Each entry is stored as the flags and the bytes of its {@link CachedData}
+ * in fixed-size blocks of direct memory slabs, so a large front cache does not
+ * grow the java heap. Values are decoded through the transcoder on every hit,
+ * which means callers always receive their own copy of the cached object.
+ *
+ * The total slab memory never exceeds the given budget. When either the budget
+ * or the maximum number of elements is reached, the least recently used
+ * entries are evicted.
+ */
+public class OffHeapLocalCacheManager extends LocalCacheManager {
+
+  static final int BLOCK_SIZE = 256;
+  static final int SLAB_SIZE = 1024 * 1024;
+  private static final int MAX_SEGMENTS = 16;
+
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  private final Transcoder<Object> defaultTranscoder;
+  private final long maxBytes;
+  private final long expireMillis;
+  private final Segment[] segments;
+
+  public OffHeapLocalCacheManager(String name, int maxElements, int exptime,
+                                  long maxBytes, Transcoder<Object> defaultTranscoder) {
+    super();
+    if (maxElements <= 0) {
+      throw new IllegalArgumentException("maxElements must be a positive number.");
+    }
+    if (maxBytes < BLOCK_SIZE) {
+      throw new IllegalArgumentException("maxBytes must be at least " + BLOCK_SIZE + ".");
+    }
+    this.name = name;
+    this.maxBytes = maxBytes;
+    this.expireMillis = exptime * 1000L;
+    this.defaultTranscoder = defaultTranscoder;
+
+    int segmentCount = 1;
+    while (segmentCount < MAX_SEGMENTS &&
+        maxBytes / (segmentCount * 2) >= SLAB_SIZE &&
+        maxElements / (segmentCount * 2) > 0) {
+      segmentCount *= 2;
+    }
+    this.segments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment(maxBytes / segmentCount / BLOCK_SIZE,
+          (maxElements + segmentCount - 1) / segmentCount);
+    }
+
+    logger.info("Arcus k/v off-heap local cache is enabled : %s", toString());
+  }
+
+  private Segment segmentFor(String key) {
+    int h = key.hashCode();
+    h ^= (h >>> 16);
+    return segments[h & (segments.length - 1)];
+  }
+
+  @Override
+  public <T> T get(String key) {
+    @SuppressWarnings("unchecked")
+    Transcoder<T> tc = (Transcoder<T>) defaultTranscoder;
+    return get(key, tc);
+  }
+
+  @Override
+  public <T> T get(String key, Transcoder<T> tc) {
+    if (tc == null) {
+      return get(key);
+    }
+    try {
+      CachedData cd = segmentFor(key).get(key, tc.getMaxSize());
+      if (cd != null) {
+        logger.debug("ArcusFrontCache: local cache hit for %s", key);
+        return tc.decode(cd);
+      }
+    } catch (Exception e) {
+      logger.info("failed to get from the local cache : %s", e.getMessage());
+    }
+    return null;
+  }
+
+  @Override
+  public Element getElement(String key) {
+    Object value = get(key);
+    return value == null ? null : new Element(key, value);
+  }
+
+  @Override
+  public <T> boolean put(String k, T v) {
+    @SuppressWarnings("unchecked")
+    Transcoder<T> tc = (Transcoder<T>) defaultTranscoder;
+    return put(k, v, tc);
+  }
+
+  @Override
+  public <T> boolean put(String k, T v, Transcoder<T> tc) {
+    if (v == null) {
+      return false;
+    }
+    if (tc == null) {
+      return put(k, v);
+    }
+    try {
+      CachedData cd = tc.encode(v);
+      return segmentFor(k).put(k, cd, System.currentTimeMillis() + expireMillis);
+    } catch (Exception e) {
+      logger.info("failed to put to the local cache : %s", e.getMessage());
+      return false;
+    }
+  }
+
+  @Override
+  public <T> boolean put(String k, T v, Transcoder<T> tc, CachedData cd) {
+    if (v == null) {
+      return false;
+    }
+    if (cd == null) {
+      return put(k, v, tc);
+    }
+    return segmentFor(k).put(k, cd, System.currentTimeMillis() + expireMillis);
+  }
+
+  @Override
+  public void delete(String k) {
+    segmentFor(k).remove(k);
+  }
+
+  /**
+   * Get the number of entries currently stored.
+   */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  /**
+   * Get the number of bytes of slab memory currently allocated.
+   */
+  public long getAllocatedBytes() {
+    long bytes = 0;
+    for (Segment segment : segments) {
+      bytes += segment.allocatedBytes();
+    }
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    return "OffHeapLocalCache[name=" + name + ", segments=" + segments.length +
+        ", maxBytes=" + maxBytes + ", allocatedBytes=" + getAllocatedBytes() +
+        ", size=" + size() + "]";
+  }
+
+  private static final class Entry {
+    private final int flags;
+    private final int length;
+    private final long expireAt;
+    private final int[] blocks;
+
+    private Entry(int flags, int length, long expireAt, int[] blocks) {
+      this.flags = flags;
+      this.length = length;
+      this.expireAt = expireAt;
+      this.blocks = blocks;
+    }
+  }
+
+  /**
+   * A lock-guarded part of the cache with its own slabs and LRU order.
+   * Slabs are allocated lazily until the block budget of the segment is used.
+   */
+  private static final class Segment {
+    private static final int BLOCKS_PER_SLAB = SLAB_SIZE / BLOCK_SIZE;
+
+    private final LinkedHashMap<String, Entry> entries =
+        new LinkedHashMap<>(16, 0.75f, true);
+    private final ByteBuffer[] slabs;
+    private final long maxBlocks;
+    private final int maxElements;
+    private final int[] freeBlocks;
+    private int freeCount = 0;
+    private int slabCount = 0;
+
+    private Segment(long maxBlocks, int maxElements) {
+      this.maxBlocks = maxBlocks;
+      this.maxElements = maxElements;
+      this.slabs = new ByteBuffer[(int) ((maxBlocks + BLOCKS_PER_SLAB - 1) / BLOCKS_PER_SLAB)];
+      this.freeBlocks = new int[(int) maxBlocks];
+    }
+
+    private synchronized CachedData get(String key, int maxSize) {
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      if (entry.expireAt <= System.currentTimeMillis()) {
+        entries.remove(key);
+        release(entry);
+        return null;
+      }
+      byte[] data = new byte[entry.length];
+      int offset = 0;
+      for (int block : entry.blocks) {
+        int len = Math.min(BLOCK_SIZE, entry.length - offset);
+        ByteBuffer slab = slabs[block / BLOCKS_PER_SLAB];
+        slab.position((block % BLOCKS_PER_SLAB) * BLOCK_SIZE);
+        slab.get(data, offset, len);
+        offset += len;
+      }
+      return new CachedData(entry.flags, data, maxSize);
+    }
+
+    private synchronized boolean put(String key, CachedData cd, long expireAt) {
+      byte[] data = cd.getData();
+      int needed = (data.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+      Entry old = entries.remove(key);
+      if (old != null) {
+        release(old);
+      }
+      if (needed > maxBlocks) {
+        return false;
+      }
+      while (entries.size() >= maxElements || !reserve(needed)) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        Entry eldest = it.next().getValue();
+        it.remove();
+        release(eldest);
+      }
+
+      int[] blocks = new int[needed];
+      int offset = 0;
+      for (int i = 0; i < needed; i++) {
+        int block = freeBlocks[--freeCount];
+        int len = Math.min(BLOCK_SIZE, data.length - offset);
+        ByteBuffer slab = slabs[block / BLOCKS_PER_SLAB];
+        slab.position((block % BLOCKS_PER_SLAB) * BLOCK_SIZE);
+        slab.put(data, offset, len);
+        offset += len;
+        blocks[i] = block;
+      }
+      entries.put(key, new Entry(cd.getFlags(), data.length, expireAt, blocks));
+      return true;
+    }
+
+    private synchronized void remove(String key) {
+      Entry entry = entries.remove(key);
+      if (entry != null) {
+        release(entry);
+      }
+    }
+
+    private synchronized int size() {
+      return entries.size();
+    }
+
+    private synchronized long allocatedBytes() {
+      long bytes = 0;
+      for (int i = 0; i < slabCount; i++) {
+        bytes += slabs[i].capacity();
+      }
+      return bytes;
+    }
+
+    /**
+     * Make sure that the given number of blocks are free,
+     * allocating new slabs within the budget if needed.
+     */
+    private boolean reserve(int needed) {
+      while (freeCount < needed && slabCount < slabs.length) {
+        int first = slabCount * BLOCKS_PER_SLAB;
+        int count = (int) Math.min(BLOCKS_PER_SLAB, maxBlocks - first);
+        slabs[slabCount++] = ByteBuffer.allocateDirect(count * BLOCK_SIZE);
+        for (int block = first + count - 1; block >= first; block--) {
+          freeBlocks[freeCount++] = block;
+        }
+      }
+      return freeCount >= needed;
+    }
+
+    private void release(Entry entry) {
+      for (int block : entry.blocks) {
+        freeBlocks[freeCount++] = block;
+      }
+    }
+  }
+}
@@ -21,16 +21,19 @@ import java.io.IOException;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import net.spy.memcached.MemcachedNode;
 import net.spy.memcached.MemcachedReplicaGroup;
 import net.spy.memcached.RedirectHandler;
 import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.metrics.ArcusMetrics;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.CancelledOperationStatus;
 import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationErrorType;
 import net.spy.memcached.ops.OperationException;
+import net.spy.memcached.ops.OperationLifecycle;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.OperationType;
@@ -46,6 +49,8 @@ public abstract class BaseOperationImpl extends SpyObject {
    */
   public static final OperationStatus CANCELLED =
           new CancelledOperationStatus();
+  // the index of the bits of the recorded lifecycle events.
+  private static final int LIFECYCLE_RECORDED = OperationLifecycle.values().length;
   private OperationState state = OperationState.WRITE_QUEUED;
   private ByteBuffer cmd = null;
   private boolean cancelled = false;
@@ -58,6 +63,16 @@ public abstract class BaseOperationImpl extends SpyObject {
   private OperationType opType = OperationType.UNDEFINED;
   private APIType apiType = APIType.UNDEFINED;
 
+  private ArcusMetrics metrics = null;
+  private long metricsStartNanos = 0;
+  // the timestamps of the lifecycle events, followed by the bits of the recorded events.
+  private AtomicLongArray lifecycle = null;
+  private long writeCompletedNanos = 0;
+  private volatile boolean writeCompleted = false;
+  private int bytesWritten = 0;
+  private int bytesRead = 0;
+  private long timeout = 0;
+
   /* ENABLE_MIGRATION if */
   private RedirectHandler redirectHandler = null;
   /* ENABLE_MIGRATION end */
@@ -100,6 +115,8 @@ public abstract class BaseOperationImpl extends SpyObject {
       }
       cancelCause = "Cancelled (" + cause + ")";
       wasCancelled();
+      recordLifecycle(OperationLifecycle.COMPLETED);
+      recordCompletion();
       callback.complete();
       return true;
     }
@@ -222,15 +239,22 @@ public abstract class BaseOperationImpl extends SpyObject {
     }
     if (state == OperationState.COMPLETE &&
             callbacked.compareAndSet(false, true)) {
+      recordLifecycle(OperationLifecycle.COMPLETED);
+      recordCompletion();
       callback.complete();
     }
   }
 
   public final void writing() {
+    recordLifecycle(OperationLifecycle.WRITE_STARTED);
     transitionState(OperationState.WRITING);
   }
 
   public final void writeComplete() {
+    long now = System.nanoTime();
+    writeCompletedNanos = now;
+    writeCompleted = true;
+    recordLifecycle(OperationLifecycle.WRITE_COMPLETED, now);
     transitionState(OperationState.READING);
   }
 
@@ -302,6 +326,100 @@ public abstract class BaseOperationImpl extends SpyObject {
     this.apiType = type;
   }
 
+  public final void setMetrics(ArcusMetrics metrics) {
+    if (this.metrics == null) {
+      this.metricsStartNanos = System.nanoTime();
+      this.metrics = metrics;
+    }
+  }
+
+  public final ArcusMetrics getMetrics() {
+    return metrics;
+  }
+
+  public final void traceLifecycle() {
+    if (lifecycle == null) {
+      AtomicLongArray timestamps = new AtomicLongArray(LIFECYCLE_RECORDED + 1);
+      timestamps.set(OperationLifecycle.CREATED.ordinal(), System.nanoTime());
+      timestamps.set(LIFECYCLE_RECORDED, 1L << OperationLifecycle.CREATED.ordinal());
+      lifecycle = timestamps;
+    }
+  }
+
+  public final void recordLifecycle(OperationLifecycle event) {
+    recordLifecycle(event, System.nanoTime());
+  }
+
+  private void recordLifecycle(OperationLifecycle event, long nanos) {
+    AtomicLongArray timestamps = lifecycle;
+    if (timestamps != null) {
+      timestamps.set(event.ordinal(), nanos);
+      long bit = 1L << event.ordinal();
+      long recorded;
+      do {
+        recorded = timestamps.get(LIFECYCLE_RECORDED);
+      } while ((recorded & bit) == 0 &&
+          !timestamps.compareAndSet(LIFECYCLE_RECORDED, recorded, recorded | bit));
+    }
+  }
+
+  public final boolean isLifecycleRecorded(OperationLifecycle event) {
+    AtomicLongArray timestamps = lifecycle;
+    return timestamps != null &&
+        (timestamps.get(LIFECYCLE_RECORDED) & (1L << event.ordinal())) != 0;
+  }
+
+  public final long getLifecycleTimestamp(OperationLifecycle event) {
+    return isLifecycleRecorded(event) ? lifecycle.get(event.ordinal()) : 0;
+  }
+
+  public final boolean isWriteCompleted() {
+    return writeCompleted;
+  }
+
+  public final long getWriteCompletedNanos() {
+    return writeCompletedNanos;
+  }
+
+  public final void addBytesWritten(int bytes) {
+    bytesWritten += bytes;
+  }
+
+  public final void addBytesRead(int bytes) {
+    bytesRead += bytes;
+  }
+
+  public final int getBytesWritten() {
+    return bytesWritten;
+  }
+
+  public final int getBytesRead() {
+    return bytesRead;
+  }
+
+  public final void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  public final long getTimeout() {
+    return timeout;
+  }
+
+  private void recordCompletion() {
+    ArcusMetrics m = metrics;
+    if (m == null) {
+      return;
+    }
+    long latency = System.nanoTime() - metricsStartNanos;
+    if (cancelled) {
+      m.operationCancelled(apiType, opType, latency);
+    } else if (exception != null) {
+      m.operationFailed(apiType, opType, latency);
+    } else {
+      m.operationCompleted(apiType, opType, latency);
+    }
+  }
+
   public abstract boolean isBulkOperation();
 
   public abstract boolean isPipeOperation();
@@ -0,0 +1,104 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+
+/**
+ * Callback of a get operation shared by concurrent gets of the same key.
+ *
+ * The callback is registered in the in-flight table of the client until the
+ * operation completes. Gets issued for the same key in the meantime attach
+ * their callbacks here instead of sending another operation.
+ * The result is dispatched to every attached callback on completion.
+ */
+public class CoalescedGetCallback implements GetOperation.Callback {
+
+  private final ConcurrentMap<String, CoalescedGetCallback> inflight;
+  private final String key;
+  private final List<GetOperation.Callback> callbacks = new ArrayList<>();
+  private volatile Operation operation;
+  private boolean completed = false;
+
+  private int flags;
+  private byte[] data;
+  private OperationStatus status;
+
+  public CoalescedGetCallback(ConcurrentMap<String, CoalescedGetCallback> inflight,
+                              String key, GetOperation.Callback cb) {
+    this.inflight = inflight;
+    this.key = key;
+    this.callbacks.add(cb);
+  }
+
+  public Operation getOperation() {
+    return operation;
+  }
+
+  public void setOperation(Operation op) {
+    this.operation = op;
+  }
+
+  /**
+   * Attach the callback to this in-flight get.
+   *
+   * @return false if the get has already completed
+   */
+  public synchronized boolean attach(GetOperation.Callback cb) {
+    if (completed) {
+      return false;
+    }
+    callbacks.add(cb);
+    return true;
+  }
+
+  public synchronized int numCallbacks() {
+    return callbacks.size();
+  }
+
+  public void gotData(String k, int f, byte[] d) {
+    assert key.equals(k) : "Wrong key returned";
+    flags = f;
+    data = d;
+  }
+
+  public void receivedStatus(OperationStatus s) {
+    status = s;
+  }
+
+  public void complete() {
+    inflight.remove(key, this);
+    synchronized (this) {
+      completed = true;
+    }
+    for (GetOperation.Callback cb : callbacks) {
+      if (data != null) {
+        cb.gotData(key, flags, data);
+      }
+      if (status != null) {
+        cb.receivedStatus(status);
+      }
+      cb.complete();
+    }
+  }
+}
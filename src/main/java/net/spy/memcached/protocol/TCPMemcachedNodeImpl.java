@@ -32,15 +32,18 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import net.spy.memcached.AddrUtil;
 import net.spy.memcached.ArcusReplNodeAddress;
+import net.spy.memcached.CircuitBreaker;
+import net.spy.memcached.CircuitBreakerPolicy;
 import net.spy.memcached.MemcachedNode;
 import net.spy.memcached.MemcachedReplicaGroup;
 import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.metrics.NodeStatistics;
+import net.spy.memcached.metrics.SlidingTimeoutWindow;
 import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationLifecycle;
 import net.spy.memcached.ops.OperationState;
 
 /**
@@ -76,52 +79,29 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
   // operation Future.get timeout counter
   private final AtomicInteger continuousTimeout = new AtomicInteger(0);
   private final AtomicLong timeoutStartNanos = new AtomicLong(0);
-  private boolean toRatioEnabled = false;
-  private int[] toCountArray;
-  private final static int MAX_TOCOUNT = 100;   /* to count array size */
-  private int toCountIdx;         /* to count array index */
-  private int toRatioMax;         /* maximum timeout ratio */
-  private int toRatioNow;         /* current timeout ratio */
-  private final Lock toRatioLock = new ReentrantLock();
+  private volatile SlidingTimeoutWindow timeoutWindow = null;
+  private volatile CircuitBreaker circuitBreaker = null;
+
+  // limit of the in-flight operations after a reconnect
+  private static final int RAMP_STEPS = 10;
+  private long rampNanos = 0;
+  private int rampInitialOps = 0;
+  private volatile long rampStartNanos = 0;
+  private volatile boolean ramping = false;
 
   // # of operations added into inputQueue as a hint.
   private final AtomicLong addOpCount;
 
+  private final NodeStatistics statistics = new NodeStatistics();
+
   /* ENABLE_REPLICATION if */
   private MemcachedReplicaGroup replicaGroup;
   /* ENABLE_REPLICATION end */
 
   private void resetTimeoutRatioCount() {
-    if (toRatioEnabled) {
-      toRatioLock.lock();
-      for (int i = 0; i < MAX_TOCOUNT; i++) {
-        toCountArray[i] = 0;
-      }
-      toCountIdx = -1;
-      toRatioMax = 0;
-      toRatioNow = 0;
-      toRatioLock.unlock();
-    }
-  }
-
-  private void addTimeoutRatioCount(boolean timedOut) {
-    if (toRatioEnabled) {
-      toRatioLock.lock();
-      if ((++toCountIdx) >= MAX_TOCOUNT) {
-        toCountIdx = 0;
-      }
-      if (toCountArray[toCountIdx] > 0) {
-        toRatioNow -= toCountArray[toCountIdx];
-        toCountArray[toCountIdx] = 0;
-      }
-      if (timedOut) {
-        toCountArray[toCountIdx] = 1;
-        toRatioNow += 1;
-        if (toRatioNow > toRatioMax) {
-          toRatioMax = toRatioNow;
-        }
-      }
-      toRatioLock.unlock();
+    SlidingTimeoutWindow window = timeoutWindow;
+    if (window != null) {
+      window.reset();
     }
   }
 
@@ -158,6 +138,9 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 
     // don't drain more than we have space to place
     inputQueue.drainTo(tmp, writeQ.remainingCapacity());
+    for (Operation op : tmp) {
+      op.recordLifecycle(OperationLifecycle.WRITE_QUEUED);
+    }
 
     writeQ.addAll(tmp);
   }
@@ -215,6 +198,10 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
       if (op != getCurrentWriteOp()) {
         getLogger().warn("Discarding partially completed op: %s", op);
         op.cancel(cause);
+        if (circuitBreaker != null) {
+          // the request was sent, but the connection was lost before its response.
+          circuitBreaker.operationCompleted(op, -1);
+        }
       }
     }
 
@@ -258,6 +245,10 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
         byte[] b = new byte[bytesToCopy];
         obuf.get(b);
         getWbuf().put(b);
+        o.addBytesWritten(bytesToCopy);
+        if (o.getMetrics() != null) {
+          o.getMetrics().bytesWritten(o.getAPIType(), o.getOperationType(), bytesToCopy);
+        }
         getLogger().debug("After copying stuff from %s: %s",
                 o, getWbuf());
         if (!o.getBuffer().hasRemaining()) {
@@ -315,6 +306,8 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
         getLogger().debug("Not writing cancelled op.");
         Operation cancelledOp = removeCurrentWriteOp();
         assert o == cancelledOp;
+      } else if (isRampLimited()) {
+        return null;
       } else {
         o.writing();
         readQ.add(o);
@@ -356,6 +349,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
         getLogger().debug("Canceled operation %s", op.toString());
         return;
       }
+      op.recordLifecycle(OperationLifecycle.ENQUEUED);
       if (!inputQueue.offer(op, opQueueMaxBlockTime,
               TimeUnit.MILLISECONDS)) {
         throw new IllegalStateException("Timed out waiting to add "
@@ -373,6 +367,8 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
   public final boolean addOpToWriteQ(Operation op) {
     op.setHandlingNode(this);
     op.reset();
+    op.recordLifecycle(OperationLifecycle.ENQUEUED);
+    op.recordLifecycle(OperationLifecycle.WRITE_QUEUED);
     if (!writeQ.offer(op)) {
       op.cancel("write queue overflow");
       return false;
@@ -384,6 +380,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
   public final void insertOp(Operation op) {
     op.setHandlingNode(this);
     op.initialize();
+    op.recordLifecycle(OperationLifecycle.ENQUEUED);
     ArrayList<Operation> tmp = new ArrayList<>(
             inputQueue.size() + 1);
     tmp.add(op);
@@ -398,7 +395,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
       if (hasReadOp()) {
         rv |= SelectionKey.OP_READ;
       }
-      if (toWrite > 0 || hasWriteOp()) {
+      if (toWrite > 0 || (hasWriteOp() && !isRampLimited())) {
         rv |= SelectionKey.OP_WRITE;
       }
     } else {
@@ -450,6 +447,10 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
   }
 
   public final void connected() {
+    if (rampNanos > 0 && !isFirstConnecting) {
+      rampStartNanos = System.nanoTime();
+      ramping = true;
+    }
     reconnectAttempt.set(0);
     isFirstConnecting = false;
     continuousTimeout.set(0);
@@ -569,8 +570,14 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
   }
 
   public void setContinuousTimeout(boolean timedOut) {
-    if (isActive()) {
-      addTimeoutRatioCount(timedOut);
+    SlidingTimeoutWindow window = timeoutWindow;
+    if (window != null && isActive()) {
+      window.record(timedOut);
+    }
+    CircuitBreaker breaker = circuitBreaker;
+    if (breaker != null && timedOut && isActive()) {
+      // the other outcomes are recorded by the IO thread.
+      breaker.recordTimeout();
     }
     if (timedOut && isActive()) {
       if (timeoutStartNanos.get() == 0) {
@@ -587,20 +594,13 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
     return continuousTimeout.get();
   }
 
-  public void enableTimeoutRatio() {
-    toRatioEnabled = true;
-    toCountArray = new int[MAX_TOCOUNT];
-    resetTimeoutRatioCount();
+  public void enableTimeoutRatio(long window) {
+    timeoutWindow = new SlidingTimeoutWindow(window, TimeUnit.MILLISECONDS);
   }
 
   public int getTimeoutRatioNow() {
-    int ratio = -1; // invalid
-    if (toRatioEnabled) {
-      toRatioLock.lock();
-      ratio = toRatioNow;
-      toRatioLock.unlock();
-    }
-    return ratio;
+    SlidingTimeoutWindow window = timeoutWindow;
+    return window == null ? -1 : window.getTimeoutRatio(); // -1 is invalid
   }
 
   public long getTimeoutDuration() {
@@ -696,6 +696,45 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
         " #TR=" + getTimeoutRatioNow();
   }
 
+  @Override
+  public NodeStatistics getStatistics() {
+    return statistics;
+  }
+
+  @Override
+  public void enableCircuitBreaker(CircuitBreakerPolicy policy) {
+    circuitBreaker = new CircuitBreaker(getNodeName(), policy);
+  }
+
+  @Override
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  @Override
+  public void enableReconnectRamp(long window, int initialOps) {
+    rampNanos = TimeUnit.MILLISECONDS.toNanos(window);
+    rampInitialOps = initialOps;
+  }
+
+  /**
+   * Check if the in-flight operations have reached the limit of a reconnected node.
+   * The limit starts from the initial ops and is doubled every tenth of the ramp window,
+   * so the backlog is not sent to a cold server at once.
+   */
+  private boolean isRampLimited() {
+    if (!ramping) {
+      return false;
+    }
+    long elapsed = System.nanoTime() - rampStartNanos;
+    if (elapsed >= rampNanos) {
+      ramping = false;
+      return false;
+    }
+    int doublings = (int) (elapsed * RAMP_STEPS / rampNanos);
+    return readQ.size() >= ((long) rampInitialOps << doublings);
+  }
+
   /* ENABLE_REPLICATION if */
   public void setReplicaGroup(MemcachedReplicaGroup g) {
     replicaGroup = g;
@@ -765,5 +804,14 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
     }
     return false;
   }
+
+  public boolean hasInFlightOperations() {
+    for (Operation op : readQ) {
+      if (op.getState() != OperationState.MOVING) {
+        return true;
+      }
+    }
+    return toWrite > 0;
+  }
   /* ENABLE_REPLICATION end */
 }
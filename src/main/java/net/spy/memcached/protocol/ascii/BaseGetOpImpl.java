@@ -17,10 +17,8 @@
  */
 package net.spy.memcached.protocol.ascii;
 
-import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.Collection;
-import java.util.Iterator;
 
 import net.spy.memcached.ops.GetOperation;
 import net.spy.memcached.ops.GetsOperation;
@@ -37,7 +35,6 @@ abstract class BaseGetOpImpl extends OperationImpl {
 
   private static final OperationStatus END =
           new OperationStatus(true, "END", StatusCode.SUCCESS);
-  private static final String RN_STRING = "\r\n";
   private final String cmd;
   private final Collection<String> keys;
   private String currentKey = null;
@@ -173,59 +170,7 @@ abstract class BaseGetOpImpl extends OperationImpl {
 
   @Override
   public final void initialize() {
-    int size;
-    StringBuilder commandBuilder = new StringBuilder();
-    byte[] commandLine;
-    ByteBuffer b;
-
-    String keysString = generateKeysString();
-
-    if (cmd.equals("get") || cmd.equals("gets")) {
-      // syntax: get <keys...>\r\n
-      commandBuilder.append(cmd);
-      commandBuilder.append(' ');
-      commandBuilder.append(keysString);
-      commandBuilder.append(RN_STRING);
-    } else {
-      assert (cmd.equals("mget") || cmd.equals("mgets"))
-          : "Unknown Command " + cmd;
-      // syntax: mget <lenKeys> <numkeys>\r\n<keys>\r\n
-      int lenKeys = keysString.getBytes().length;
-      int numKeys = keys.size();
-      commandBuilder.append(cmd);
-      commandBuilder.append(' ');
-      commandBuilder.append(lenKeys);
-      commandBuilder.append(' ');
-      commandBuilder.append(numKeys);
-      commandBuilder.append(RN_STRING);
-      commandBuilder.append(keysString);
-      commandBuilder.append(RN_STRING);
-    }
-
-    commandLine = commandBuilder.toString().getBytes();
-    size = commandLine.length;
-
-    b = ByteBuffer.allocate(size);
-    b.put(commandLine);
-    ((Buffer) b).flip();
-    setBuffer(b);
-  }
-
-  private String generateKeysString() {
-    StringBuilder keyString = new StringBuilder();
-    Iterator<String> iterator = keys.iterator();
-
-    // make keys line
-    while (true) {
-      keyString.append(iterator.next());
-      if (iterator.hasNext()) {
-        keyString.append(' ');
-      } else {
-        break;
-      }
-    }
-
-    return keyString.toString();
+    setBuffer(GetCommandBuilder.build(cmd, keys));
   }
 
   @Override
@@ -125,6 +125,7 @@ public class CollectionPipedInsertOperationImpl extends OperationImpl
         cb.gotStatus(index, status);
         cb.receivedStatus(FAILED_END);
       }
+      insert.release();
       transitionState(OperationState.COMPLETE);
       return;
     }
@@ -144,6 +145,7 @@ public class CollectionPipedInsertOperationImpl extends OperationImpl
       }
       /* ENABLE_MIGRATION end */
       cb.receivedStatus((successAll) ? END : FAILED_END);
+      insert.release();
       transitionState(OperationState.COMPLETE);
     } else if (line.startsWith("RESPONSE ")) {
       getLogger().debug("Got line %s", line);
@@ -175,12 +177,14 @@ public class CollectionPipedInsertOperationImpl extends OperationImpl
 
     if (getLogger().isDebugEnabled()) {
       getLogger().debug("Request in ascii protocol: %s",
-              (new String(buffer.array())).replaceAll("\\r\\n", "\n"));
+              (new String(buffer.array(), buffer.arrayOffset(), buffer.remaining()))
+                  .replaceAll("\\r\\n", "\n"));
     }
   }
 
   @Override
   protected void wasCancelled() {
+    insert.release();
     getCallback().receivedStatus(STORE_CANCELED);
   }
 
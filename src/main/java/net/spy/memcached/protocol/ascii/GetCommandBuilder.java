@@ -0,0 +1,111 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import net.spy.memcached.KeyUtil;
+
+/**
+ * Builder of get, gets, mget and mgets commands.
+ *
+ * The exact command length is computed first, and the keys are written
+ * straight into one buffer of that size. Keys of ASCII characters, which
+ * is the usual case, are written char by char without an intermediate byte
+ * array. Other keys are encoded in UTF-8 once and reused for both passes.
+ */
+final class GetCommandBuilder {
+
+  private static final byte[] CRLF = {'\r', '\n'};
+
+  private GetCommandBuilder() {
+  }
+
+  /**
+   * Build the command.
+   * <pre>
+   * get|gets &lt;keys...&gt;\r\n
+   * mget|mgets &lt;lenKeys&gt; &lt;numKeys&gt;\r\n&lt;keys...&gt;\r\n
+   * </pre>
+   */
+  static ByteBuffer build(String cmd, Collection<String> keys) {
+    byte[][] encodedKeys = null;
+    int lenKeys = keys.size() - 1; // spaces between keys
+    int i = 0;
+    for (String key : keys) {
+      if (isAscii(key)) {
+        lenKeys += key.length();
+      } else {
+        if (encodedKeys == null) {
+          encodedKeys = new byte[keys.size()][];
+        }
+        encodedKeys[i] = KeyUtil.getKeyBytes(key);
+        lenKeys += encodedKeys[i].length;
+      }
+      i++;
+    }
+
+    ByteBuffer bb;
+    if (cmd.equals("get") || cmd.equals("gets")) {
+      bb = ByteBuffer.allocate(cmd.length() + 1 + lenKeys + CRLF.length);
+      putAscii(bb, cmd);
+      bb.put((byte) ' ');
+    } else {
+      assert (cmd.equals("mget") || cmd.equals("mgets"))
+          : "Unknown Command " + cmd;
+      String header = cmd + ' ' + lenKeys + ' ' + keys.size();
+      bb = ByteBuffer.allocate(header.length() + CRLF.length + lenKeys + CRLF.length);
+      putAscii(bb, header);
+      bb.put(CRLF);
+    }
+
+    i = 0;
+    for (String key : keys) {
+      if (i > 0) {
+        bb.put((byte) ' ');
+      }
+      if (encodedKeys != null && encodedKeys[i] != null) {
+        bb.put(encodedKeys[i]);
+      } else {
+        putAscii(bb, key);
+      }
+      i++;
+    }
+    bb.put(CRLF);
+
+    assert !bb.hasRemaining() : "Wrong command length of " + cmd;
+    ((Buffer) bb).flip();
+    return bb;
+  }
+
+  private static boolean isAscii(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void putAscii(ByteBuffer bb, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      bb.put((byte) s.charAt(i));
+    }
+  }
+}
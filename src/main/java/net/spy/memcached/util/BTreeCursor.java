@@ -0,0 +1,280 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.util;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+
+import net.spy.memcached.ArcusClientIF;
+import net.spy.memcached.CollectionOperationException;
+import net.spy.memcached.collection.CollectionResponse;
+import net.spy.memcached.collection.Element;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.internal.CollectionFuture;
+import net.spy.memcached.ops.CollectionOperationStatus;
+import net.spy.memcached.transcoders.Transcoder;
+
+/**
+ * Iterator that pages through the elements of a bkey range in a b+tree.
+ *
+ * Each page is fetched with a b+tree get starting right after the last bkey
+ * of the previous page, so no offset has to be computed and the server does
+ * not skip elements again. While the caller consumes a page, the next page
+ * is already being fetched. At most two pages are held at any time.
+ *
+ * Elements are returned in the order of the range:
+ * ascending if from is smaller than to, descending otherwise.
+ * The iteration ends when a page is empty, the end of the range is reached,
+ * the b+tree does not exist or the rest of the range has been trimmed.
+ * A page with fewer elements than requested does not end the iteration,
+ * because the server may limit the number of elements of a response.
+ * Other failures are thrown as {@link CollectionOperationException}.
+ *
+ * @param <T> the expected class of the value
+ */
+public abstract class BTreeCursor<T> implements Iterator<Element<T>>, Closeable {
+
+  protected final ArcusClientIF client;
+  protected final String key;
+  protected final ElementFlagFilter eFlagFilter;
+  protected final int pageSize;
+  protected final Transcoder<T> tc;
+
+  private Iterator<Element<T>> page = Collections.<Element<T>>emptyList().iterator();
+  private CollectionFuture<Map<Object, Element<T>>> nextPage;
+  private Element<T> lastElement = null;
+
+  protected BTreeCursor(ArcusClientIF client, String key, ElementFlagFilter eFlagFilter,
+                        int pageSize, Transcoder<T> tc) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("pageSize must be a positive number.");
+    }
+    this.client = client;
+    this.key = key;
+    this.eFlagFilter = eFlagFilter;
+    this.pageSize = pageSize;
+    this.tc = tc;
+  }
+
+  /**
+   * Create a cursor over the long bkey range(from..to) of the b+tree.
+   */
+  public static <T> BTreeCursor<T> create(ArcusClientIF client, String key,
+                                          long from, long to,
+                                          ElementFlagFilter eFlagFilter,
+                                          int pageSize, Transcoder<T> tc) {
+    BTreeUtil.validateBkey(from, to);
+    BTreeCursor<T> cursor = new LongBKeyCursor<>(client, key, from, to,
+        eFlagFilter, pageSize, tc);
+    cursor.fetchFirst();
+    return cursor;
+  }
+
+  /**
+   * Create a cursor over the byte array bkey range(from..to) of the b+tree.
+   */
+  public static <T> BTreeCursor<T> create(ArcusClientIF client, String key,
+                                          byte[] from, byte[] to,
+                                          ElementFlagFilter eFlagFilter,
+                                          int pageSize, Transcoder<T> tc) {
+    BTreeUtil.validateBkey(from, to);
+    BTreeCursor<T> cursor = new ByteArrayBKeyCursor<>(client, key, from, to,
+        eFlagFilter, pageSize, tc);
+    cursor.fetchFirst();
+    return cursor;
+  }
+
+  /**
+   * Fetch the first page of the range.
+   */
+  protected abstract CollectionFuture<Map<Object, Element<T>>> fetchFirstPage();
+
+  /**
+   * Fetch the page that follows the given element.
+   *
+   * @return null if the given element is the end of the range
+   */
+  protected abstract CollectionFuture<Map<Object, Element<T>>> fetchPageAfter(Element<T> last);
+
+  /**
+   * Check if the element is the same as the last element of the previous page.
+   */
+  protected abstract boolean isSameBKey(Element<T> e1, Element<T> e2);
+
+  private void fetchFirst() {
+    nextPage = fetchFirstPage();
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!page.hasNext()) {
+      if (nextPage == null) {
+        return false;
+      }
+      CollectionFuture<Map<Object, Element<T>>> future = nextPage;
+      List<Element<T>> elements = waitForPage(future);
+      nextPage = null;
+
+      if (lastElement != null && !elements.isEmpty() &&
+          isSameBKey(elements.get(0), lastElement)) {
+        elements = elements.subList(1, elements.size());
+      }
+      if (!elements.isEmpty() && !isTrimmed(future)) {
+        lastElement = elements.get(elements.size() - 1);
+        nextPage = fetchPageAfter(lastElement);
+      }
+      page = elements.iterator();
+    }
+    return true;
+  }
+
+  @Override
+  public Element<T> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return page.next();
+  }
+
+  /**
+   * Cancel the page being prefetched and end the iteration.
+   */
+  @Override
+  public void close() {
+    if (nextPage != null) {
+      nextPage.cancel(true);
+      nextPage = null;
+    }
+    page = Collections.<Element<T>>emptyList().iterator();
+  }
+
+  private List<Element<T>> waitForPage(CollectionFuture<Map<Object, Element<T>>> future) {
+    Map<Object, Element<T>> result;
+    try {
+      result = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CollectionOperationException("Interrupted while fetching b+tree page.", e);
+    } catch (ExecutionException e) {
+      throw new CollectionOperationException("Failed to fetch b+tree page.", e);
+    }
+
+    if (result == null) {
+      CollectionOperationStatus status = future.getOperationStatus();
+      if (status != null && (status.getResponse() == CollectionResponse.NOT_FOUND ||
+          status.getResponse() == CollectionResponse.OUT_OF_RANGE)) {
+        return Collections.emptyList();
+      }
+      throw new CollectionOperationException("Failed to fetch b+tree page. status=" +
+          (status == null ? null : status.getMessage()));
+    }
+    return new ArrayList<>(result.values());
+  }
+
+  private static boolean isTrimmed(CollectionFuture<?> future) {
+    CollectionOperationStatus status = future.getOperationStatus();
+    return status != null && status.getResponse() == CollectionResponse.TRIMMED;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K, T> CollectionFuture<Map<Object, Element<T>>> cast(
+      CollectionFuture<Map<K, Element<T>>> future) {
+    Object f = future;
+    return (CollectionFuture<Map<Object, Element<T>>>) f;
+  }
+
+  private static final class LongBKeyCursor<T> extends BTreeCursor<T> {
+    private final long from;
+    private final long to;
+    private final boolean reverse;
+
+    private LongBKeyCursor(ArcusClientIF client, String key, long from, long to,
+                           ElementFlagFilter eFlagFilter, int pageSize, Transcoder<T> tc) {
+      super(client, key, eFlagFilter, pageSize, tc);
+      this.from = from;
+      this.to = to;
+      this.reverse = from > to;
+    }
+
+    @Override
+    protected CollectionFuture<Map<Object, Element<T>>> fetchFirstPage() {
+      return cast(client.asyncBopGet(key, from, to, eFlagFilter, 0, pageSize,
+          false, false, tc));
+    }
+
+    @Override
+    protected CollectionFuture<Map<Object, Element<T>>> fetchPageAfter(Element<T> last) {
+      long bkey = last.getLongBkey();
+      if (bkey == to) {
+        return null;
+      }
+      long next = reverse ? bkey - 1 : bkey + 1;
+      return cast(client.asyncBopGet(key, next, to, eFlagFilter, 0, pageSize,
+          false, false, tc));
+    }
+
+    @Override
+    protected boolean isSameBKey(Element<T> e1, Element<T> e2) {
+      return false;
+    }
+  }
+
+  /**
+   * Byte array bkeys have no simple successor, so each following page
+   * starts at the last bkey seen and the duplicated first element is dropped.
+   */
+  private static final class ByteArrayBKeyCursor<T> extends BTreeCursor<T> {
+    private final byte[] from;
+    private final byte[] to;
+
+    private ByteArrayBKeyCursor(ArcusClientIF client, String key, byte[] from, byte[] to,
+                                ElementFlagFilter eFlagFilter, int pageSize,
+                                Transcoder<T> tc) {
+      super(client, key, eFlagFilter, pageSize, tc);
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected CollectionFuture<Map<Object, Element<T>>> fetchFirstPage() {
+      return cast(client.asyncBopGet(key, from, to, eFlagFilter, 0, pageSize,
+          false, false, tc));
+    }
+
+    @Override
+    protected CollectionFuture<Map<Object, Element<T>>> fetchPageAfter(Element<T> last) {
+      byte[] bkey = last.getByteArrayBkey();
+      if (BTreeUtil.compareByteArraysInLexOrder(bkey, to) == 0) {
+        return null;
+      }
+      return cast(client.asyncBopGet(key, bkey, to, eFlagFilter, 0, pageSize + 1,
+          false, false, tc));
+    }
+
+    @Override
+    protected boolean isSameBKey(Element<T> e1, Element<T> e2) {
+      return BTreeUtil.compareByteArraysInLexOrder(
+          e1.getByteArrayBkey(), e2.getByteArrayBkey()) == 0;
+    }
+  }
+}
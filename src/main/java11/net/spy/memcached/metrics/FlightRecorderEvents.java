@@ -0,0 +1,212 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.ops.Operation;
+
+/**
+ * Java Flight Recorder events of the client.
+ *
+ * This class replaces the no-op class of the same name on Java 11 or later,
+ * so the methods of the two classes must be kept the same.
+ *
+ * Not to weigh on the IO thread, one in every "arcus.jfr.sampleInterval"
+ * (default 100) completed operations is recorded at random, along with every operation
+ * whose response time is "arcus.jfr.slowThreshold" milliseconds (default 10) or more.
+ */
+public final class FlightRecorderEvents {
+
+  private static final String CATEGORY = "Arcus Client";
+
+  private static final int SAMPLE_INTERVAL =
+      Math.max(1, Integer.getInteger("arcus.jfr.sampleInterval", 100));
+  private static final long SLOW_THRESHOLD_NANOS =
+      Long.getLong("arcus.jfr.slowThreshold", 10) * 1000000L;
+
+  private FlightRecorderEvents() {
+  }
+
+  public static void operationCompleted(MemcachedNode node, Operation op, long responseNanos) {
+    if (responseNanos < SLOW_THRESHOLD_NANOS &&
+        ThreadLocalRandom.current().nextInt(SAMPLE_INTERVAL) != 0) {
+      return;
+    }
+    OperationEvent event = new OperationEvent();
+    if (event.shouldCommit()) {
+      event.apiType = op.getAPIType().name();
+      event.node = node.getNodeName();
+      event.success = !op.hasErrored() && !op.isCancelled();
+      event.bytesWritten = op.getBytesWritten();
+      event.bytesRead = op.getBytesRead();
+      event.responseTime = responseNanos;
+      event.commit();
+    }
+  }
+
+  public static void reconnectQueued(MemcachedNode node, boolean immediate, String cause) {
+    ReconnectEvent event = new ReconnectEvent();
+    if (event.shouldCommit()) {
+      event.node = node.getNodeName();
+      event.reconnectCount = node.getReconnectCount();
+      event.immediate = immediate;
+      event.cause = cause;
+      event.commit();
+    }
+  }
+
+  public static void switchover(String group, MemcachedNode from, MemcachedNode to,
+                                int movedOperations) {
+    SwitchoverEvent event = new SwitchoverEvent();
+    if (event.shouldCommit()) {
+      event.group = group;
+      event.from = from.getNodeName();
+      event.to = to == null ? null : to.getNodeName();
+      event.movedOperations = movedOperations;
+      event.commit();
+    }
+  }
+
+  public static void migrationStateChanged(String serviceCode, String type, String state) {
+    MigrationEvent event = new MigrationEvent();
+    if (event.shouldCommit()) {
+      event.serviceCode = serviceCode;
+      event.type = type;
+      event.state = state;
+      event.commit();
+    }
+  }
+
+  public static void cacheListChanged(String serviceCode, int previousSize, int size,
+                                      String cacheList) {
+    CacheListEvent event = new CacheListEvent();
+    if (event.shouldCommit()) {
+      event.serviceCode = serviceCode;
+      event.previousSize = previousSize;
+      event.size = size;
+      event.cacheList = cacheList;
+      event.commit();
+    }
+  }
+
+  @Name("net.spy.memcached.Operation")
+  @Label("Arcus Operation")
+  @Category(CATEGORY)
+  @Description("A sampled operation completed by a response")
+  static final class OperationEvent extends Event {
+    @Label("API Type")
+    String apiType;
+
+    @Label("Node")
+    String node;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Bytes Written")
+    @DataAmount
+    int bytesWritten;
+
+    @Label("Bytes Read")
+    @DataAmount
+    int bytesRead;
+
+    @Label("Response Time")
+    @Description("From the end of the request to the end of the response")
+    @Timespan(Timespan.NANOSECONDS)
+    long responseTime;
+  }
+
+  @Name("net.spy.memcached.Reconnect")
+  @Label("Arcus Reconnect")
+  @Category(CATEGORY)
+  @Description("The connection to a node is closed and queued to be reconnected")
+  static final class ReconnectEvent extends Event {
+    @Label("Node")
+    String node;
+
+    @Label("Reconnect Count")
+    int reconnectCount;
+
+    @Label("Immediate")
+    boolean immediate;
+
+    @Label("Cause")
+    String cause;
+  }
+
+  @Name("net.spy.memcached.Switchover")
+  @Label("Arcus Switchover")
+  @Category(CATEGORY)
+  @Description("The operations of a replica group are moved to its new master")
+  static final class SwitchoverEvent extends Event {
+    @Label("Group")
+    String group;
+
+    @Label("From")
+    String from;
+
+    @Label("To")
+    String to;
+
+    @Label("Moved Operations")
+    int movedOperations;
+  }
+
+  @Name("net.spy.memcached.Migration")
+  @Label("Arcus Migration")
+  @Category(CATEGORY)
+  @Description("The migration type or state of a cluster is changed")
+  static final class MigrationEvent extends Event {
+    @Label("Service Code")
+    String serviceCode;
+
+    @Label("Type")
+    String type;
+
+    @Label("State")
+    String state;
+  }
+
+  @Name("net.spy.memcached.CacheList")
+  @Label("Arcus Cache List Change")
+  @Category(CATEGORY)
+  @Description("The cache list of a cluster is changed")
+  static final class CacheListEvent extends Event {
+    @Label("Service Code")
+    String serviceCode;
+
+    @Label("Previous Size")
+    int previousSize;
+
+    @Label("Size")
+    int size;
+
+    @Label("Cache List")
+    String cacheList;
+  }
+}
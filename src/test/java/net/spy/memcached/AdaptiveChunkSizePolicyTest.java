@@ -0,0 +1,79 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class AdaptiveChunkSizePolicyTest extends TestCase {
+
+  private final MemcachedNode node = new MockMemcachedNode(
+      InetSocketAddress.createUnresolved("localhost", 11211));
+
+  private AdaptiveChunkSizePolicy newPolicy() {
+    return new AdaptiveChunkSizePolicy(10, 1000, 100 * 1000, 100, TimeUnit.MILLISECONDS);
+  }
+
+  public void testDefaultSizeBeforeObservation() {
+    AdaptiveChunkSizePolicy policy = newPolicy();
+    assertEquals(200, policy.getChunkSize(node, 200, Integer.MAX_VALUE));
+    assertEquals(200, policy.getChunkSize(null, 200, Integer.MAX_VALUE));
+    assertEquals(10, policy.getChunkSize(node, 1, Integer.MAX_VALUE));
+    assertEquals(50, policy.getChunkSize(node, 200, 50));
+  }
+
+  public void testLargeValuesShrinkChunks() {
+    AdaptiveChunkSizePolicy policy = newPolicy();
+    // 10KB per key
+    policy.chunkCompleted(node, 200, 200 * 10 * 1000, TimeUnit.MILLISECONDS.toNanos(5));
+    assertEquals(10, policy.getChunkSize(node, 200, Integer.MAX_VALUE));
+  }
+
+  public void testSmallValuesGrowChunks() {
+    AdaptiveChunkSizePolicy policy = newPolicy();
+    // 10 bytes per key
+    policy.chunkCompleted(node, 200, 200 * 10, TimeUnit.MILLISECONDS.toNanos(5));
+    assertEquals(1000, policy.getChunkSize(node, 200, Integer.MAX_VALUE));
+    assertEquals(500, policy.getChunkSize(node, 200, 500));
+  }
+
+  public void testSlowChunksShrinkChunks() {
+    AdaptiveChunkSizePolicy policy = newPolicy();
+    policy.chunkCompleted(node, 400, 400 * 10, TimeUnit.MILLISECONDS.toNanos(500));
+    assertEquals(200, policy.getChunkSize(node, 200, Integer.MAX_VALUE));
+
+    policy.chunkCompleted(node, 200, 200 * 10, TimeUnit.MILLISECONDS.toNanos(5));
+    assertEquals(250, policy.getChunkSize(node, 200, Integer.MAX_VALUE));
+  }
+
+  public void testInvalidBounds() {
+    try {
+      new AdaptiveChunkSizePolicy(0, 10);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      new AdaptiveChunkSizePolicy(10, 5);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.fake.FakeArcusServer;
+import net.spy.memcached.internal.GetFuture;
+import net.spy.memcached.internal.OperationFuture;
+import net.spy.memcached.metrics.LatencyWindow;
+import net.spy.memcached.ops.APIType;
+
+public class AdaptiveTimeoutPolicyTest extends TestCase {
+
+  private static final long OP_TIMEOUT = 700;
+
+  private FakeArcusServer server;
+  private ArcusClient client;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new FakeArcusServer();
+    AdaptiveTimeoutPolicy policy = new AdaptiveTimeoutPolicy(50, 2000).setMultiplier(2);
+    ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+        .setDnsCacheTtlCheck(false)
+        .setOpTimeout(OP_TIMEOUT)
+        .setAdaptiveTimeoutPolicy(policy);
+    client = new ArcusClient(cfb.build(), Collections.singletonList(server.getAddress()));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    client.shutdown();
+    server.shutdown();
+    super.tearDown();
+  }
+
+  public void testInvalidPolicy() {
+    try {
+      new AdaptiveTimeoutPolicy(0, 100);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      new AdaptiveTimeoutPolicy(100, 10);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      new AdaptiveTimeoutPolicy(10, 100).setPercentile(0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      new AdaptiveTimeoutPolicy(10, 100).setMultiplier(0.5);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public void testTimeoutFollowsLatency() throws Exception {
+    // the ceiling applies until enough response times are recorded.
+    OperationFuture<Boolean> set = client.set("adaptive:key", 0, "value");
+    assertTrue(set.get());
+    assertEquals(2000, set.getTimeout());
+
+    for (int i = 0; i < AdaptiveTimeoutPolicy.MIN_SAMPLES; i++) {
+      assertEquals("value", client.get("adaptive:key"));
+    }
+    // the IO thread records the response time after completing the future.
+    awaitLatencies(APIType.GET, AdaptiveTimeoutPolicy.MIN_SAMPLES);
+    // fast gets get the floor, while the other APIs still get the ceiling.
+    GetFuture<Object> get = client.asyncGet("adaptive:key");
+    assertEquals("value", get.get());
+    assertEquals(50, get.getTimeout());
+    assertEquals(2000, client.set("adaptive:key", 0, "value").getTimeout());
+
+    // the gets sent when the server has become slow would time out after the floor.
+    server.setLatency(400, TimeUnit.MILLISECONDS);
+    Object[] futures = new Object[AdaptiveTimeoutPolicy.MIN_SAMPLES];
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] = client.asyncGet("adaptive:key");
+    }
+    for (Object f : futures) {
+      assertEquals(50, ((GetFuture<?>) f).getTimeout());
+      assertEquals("value", ((GetFuture<?>) f).get(5, TimeUnit.SECONDS));
+    }
+    // then the slow gets get a longer timeout than the operation timeout.
+
+    get = client.asyncGet("adaptive:key");
+    assertEquals("value", get.get());
+    assertTrue("timeout=" + get.getTimeout(),
+        get.getTimeout() > OP_TIMEOUT && get.getTimeout() <= 2000);
+
+    MemcachedNode node = client.getAllNodes().iterator().next();
+    assertTrue(node.getStatistics().getLatencies(APIType.GET).getCount()
+        > AdaptiveTimeoutPolicy.MIN_SAMPLES);
+  }
+
+  public void testLatencyIncludesQueueing() throws Exception {
+    assertTrue(client.set("adaptive:key", 0, "value").get());
+
+    // the gets wait in the write queue behind large sets the stalled server does not read.
+    byte[] large = new byte[1000 * 1000];
+    new Random(1).nextBytes(large); // not compressed
+    server.stall();
+    Object[] sets = new Object[16];
+    for (int i = 0; i < sets.length; i++) {
+      sets[i] = client.set("adaptive:large" + i, 0, large);
+    }
+    Object[] futures = new Object[AdaptiveTimeoutPolicy.MIN_SAMPLES];
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] = client.asyncGet("adaptive:key");
+    }
+    Thread.sleep(300);
+    server.resume();
+    for (Object f : sets) {
+      assertEquals(Boolean.TRUE, ((OperationFuture<?>) f).get(5, TimeUnit.SECONDS));
+    }
+    for (Object f : futures) {
+      assertEquals("value", ((GetFuture<?>) f).get(5, TimeUnit.SECONDS));
+    }
+    awaitLatencies(APIType.GET, AdaptiveTimeoutPolicy.MIN_SAMPLES);
+
+    // the round trip of each get is short, but the time in the queue is counted.
+    MemcachedNode node = client.getAllNodes().iterator().next();
+    long median = node.getStatistics().getLatencies(APIType.GET).getValueAtPercentile(50);
+    assertTrue("median=" + median, median >= TimeUnit.MILLISECONDS.toNanos(300));
+    GetFuture<Object> get = client.asyncGet("adaptive:key");
+    assertEquals("value", get.get());
+    assertTrue("timeout=" + get.getTimeout(), get.getTimeout() >= 600);
+  }
+
+  private void awaitLatencies(APIType apiType, long count) throws InterruptedException {
+    MemcachedNode node = client.getAllNodes().iterator().next();
+    for (int i = 0; i < 100; i++) {
+      LatencyWindow window = node.getStatistics().getLatencies(apiType);
+      if (window != null && window.getCount() >= count) {
+        return;
+      }
+      Thread.sleep(10);
+    }
+    fail("Less than " + count + " response times of " + apiType);
+  }
+}
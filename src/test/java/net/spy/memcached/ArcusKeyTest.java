@@ -0,0 +1,76 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class ArcusKeyTest extends TestCase {
+
+  public void testKeyBytes() {
+    String[] keys = {"prefix:key", "한글키", "key with space"};
+    for (String key : keys) {
+      ArcusKey k = ArcusKey.of(key);
+      assertEquals(key, k.getKey());
+      assertTrue(Arrays.equals(KeyUtil.getKeyBytes(key), k.getKeyBytes()));
+    }
+  }
+
+  public void testKetamaHash() {
+    String[] keys = {"a", "prefix:key", "한글키", "0123456789abcdef0123456789"};
+    for (String key : keys) {
+      ArcusKey k = ArcusKey.of(key);
+      long expected = HashAlgorithm.KETAMA_HASH.hash(key);
+      assertEquals(expected, k.hash(HashAlgorithm.KETAMA_HASH));
+      // the cached hash
+      assertEquals(expected, k.hash(HashAlgorithm.KETAMA_HASH));
+    }
+  }
+
+  public void testOtherHashAlgorithm() {
+    ArcusKey k = ArcusKey.of("prefix:key");
+    for (HashAlgorithm alg : HashAlgorithm.values()) {
+      assertEquals(alg.hash("prefix:key"), k.hash(alg));
+    }
+  }
+
+  public void testValidated() {
+    ArcusKey k = ArcusKey.of("prefix:key");
+    assertFalse(k.isValidated((byte) ':'));
+    k.setValidated((byte) ':');
+    assertTrue(k.isValidated((byte) ':'));
+    assertFalse(k.isValidated((byte) '|'));
+  }
+
+  public void testEquals() {
+    ArcusKey k1 = ArcusKey.of("key");
+    ArcusKey k2 = ArcusKey.of("key");
+    assertEquals(k1, k2);
+    assertEquals(k1.hashCode(), k2.hashCode());
+    assertFalse(k1.equals(ArcusKey.of("key2")));
+  }
+
+  public void testNullKey() {
+    try {
+      ArcusKey.of(null);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.fake.FakeArcusServer;
+
+public class CircuitBreakerTest extends TestCase {
+
+  private static final long OP_TIMEOUT = 100;
+
+  private final List<FakeArcusServer> servers = new ArrayList<>();
+  private ArcusClient client;
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (client != null) {
+      client.shutdown();
+    }
+    for (FakeArcusServer server : servers) {
+      server.shutdown();
+    }
+    super.tearDown();
+  }
+
+  private ArcusClient createClient(CircuitBreakerPolicy policy, FailureMode failureMode,
+                                   int serverCount) throws Exception {
+    List<InetSocketAddress> addresses = new ArrayList<>();
+    for (int i = 0; i < serverCount; i++) {
+      FakeArcusServer server = new FakeArcusServer();
+      servers.add(server);
+      addresses.add(server.getAddress());
+    }
+    ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+        .setDnsCacheTtlCheck(false)
+        .setOpTimeout(OP_TIMEOUT)
+        .setTimeoutExceptionThreshold(100000)
+        .setFailureMode(failureMode)
+        .setCircuitBreakerPolicy(policy);
+    client = new ArcusClient(cfb.build(), addresses);
+    return client;
+  }
+
+  public void testInvalidPolicy() {
+    CircuitBreakerPolicy policy = new CircuitBreakerPolicy();
+    for (int threshold : new int[]{0, 101}) {
+      try {
+        policy.setFailureRateThreshold(threshold);
+        fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+    try {
+      policy.setProbes(0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      policy.setHalfOpenTimeout(0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public void testTimeoutsOpenCircuit() throws Exception {
+    createClient(new CircuitBreakerPolicy().setWindow(30000).setOpenDuration(2000)
+        .setProbes(3),
+        FailureMode.Cancel, 1);
+    MemcachedNode node = client.getAllNodes().iterator().next();
+    CircuitBreaker breaker = node.getCircuitBreaker();
+    assertTrue(client.set("circuit:key", 0, "value").get(1, TimeUnit.SECONDS));
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+    servers.get(0).stall();
+    awaitTimeouts(60);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertEquals(1, breaker.getOpenedCount());
+
+    // fail fast instead of waiting for the timeout
+    long start = System.nanoTime();
+    Future<Object> rejected = client.asyncGet("circuit:key");
+    try {
+      rejected.get();
+      fail("The operation must be rejected");
+    } catch (ExecutionException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("circuit open"));
+    }
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < OP_TIMEOUT);
+    assertEquals(1, breaker.getRejectedCount());
+
+    // the probes close the circuit after the open duration
+    servers.get(0).resume();
+    Thread.sleep(2100);
+    for (int i = 0; i < 3; i++) {
+      assertEquals("value", client.asyncGet("circuit:key").get(1, TimeUnit.SECONDS));
+    }
+    // the IO thread resolves the probes after completing their futures.
+    awaitState(breaker, CircuitBreaker.State.CLOSED);
+
+    StatisticsHandler handler = new StatisticsHandler(client);
+    handler.getMBeanInfo();
+    String address = node.getSocketAddress().toString();
+    assertEquals("CLOSED", handler.getAttribute("circuitState-" + address));
+    assertEquals(1L, handler.getAttribute("circuitOpened-" + address));
+  }
+
+  public void testProbesNotWaitedFor() throws Exception {
+    createClient(new CircuitBreakerPolicy().setWindow(30000).setOpenDuration(500)
+        .setProbes(3).setHalfOpenTimeout(300),
+        FailureMode.Cancel, 1);
+    CircuitBreaker breaker = client.getAllNodes().iterator().next().getCircuitBreaker();
+    assertTrue(client.set("circuit:key", 0, "value").get(1, TimeUnit.SECONDS));
+
+    servers.get(0).stall();
+    awaitTimeouts(60);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+    // the probes to the stalled server are never waited for, and time out.
+    Thread.sleep(600);
+    for (int i = 0; i < 3; i++) {
+      client.set("circuit:probe" + i, 0, "value");
+    }
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    awaitState(breaker, CircuitBreaker.State.OPEN);
+    assertEquals(2, breaker.getOpenedCount());
+
+    // the probes to the resumed server close the circuit, also never waited for.
+    servers.get(0).resume();
+    Thread.sleep(600);
+    for (int i = 0; i < 3; i++) {
+      client.set("circuit:probe" + i, 0, "value");
+    }
+    awaitState(breaker, CircuitBreaker.State.CLOSED);
+    assertEquals(2, breaker.getOpenedCount());
+  }
+
+  public void testErrorsOpenCircuit() throws Exception {
+    createClient(new CircuitBreakerPolicy().setWindow(30000), FailureMode.Cancel, 1);
+    CircuitBreaker breaker = client.getAllNodes().iterator().next().getCircuitBreaker();
+    assertTrue(client.set("circuit:key", 0, "value").get(1, TimeUnit.SECONDS));
+
+    // the errors of operations never waited for are failures.
+    servers.get(0).setErrorResponse("SERVER_ERROR out of memory storing object");
+    for (int i = 0; i < 200 && breaker.getState() == CircuitBreaker.State.CLOSED; i++) {
+      client.set("circuit:key", 0, "value");
+      Thread.sleep(1);
+    }
+    awaitState(breaker, CircuitBreaker.State.OPEN);
+    assertEquals(1, breaker.getOpenedCount());
+  }
+
+  public void testLostConnectionsOpenCircuit() throws Exception {
+    createClient(new CircuitBreakerPolicy().setWindow(30000), FailureMode.Cancel, 1);
+    CircuitBreaker breaker = client.getAllNodes().iterator().next().getCircuitBreaker();
+    assertTrue(client.set("circuit:key", 0, "value").get(1, TimeUnit.SECONDS));
+
+    // the operations sent but not answered when the connection is lost are failures.
+    servers.get(0).stall();
+    for (int i = 0; i < 60; i++) {
+      client.asyncGet("circuit:key");
+    }
+    Thread.sleep(100);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    servers.get(0).closeConnections();
+    awaitState(breaker, CircuitBreaker.State.OPEN);
+  }
+
+  public void testTimeoutsOpenCircuitUnderLightLoad() throws Exception {
+    CircuitBreaker breaker = new CircuitBreaker("node",
+        new CircuitBreakerPolicy().setWindow(100));
+    // fewer operations in a window than the minimum samples of the ratio.
+    for (int i = 0; i < 49; i++) {
+      breaker.recordTimeout();
+      Thread.sleep(5);
+    }
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    breaker.recordTimeout();
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+  }
+
+  public void testSlowCallsOpenCircuit() throws Exception {
+    createClient(new CircuitBreakerPolicy().setSlowCallThreshold(20)
+        .setSlowCallRateThreshold(50), FailureMode.Cancel, 1);
+    CircuitBreaker breaker = client.getAllNodes().iterator().next().getCircuitBreaker();
+    assertTrue(client.set("circuit:key", 0, "value").get(1, TimeUnit.SECONDS));
+
+    servers.get(0).setLatency(40, TimeUnit.MILLISECONDS);
+    List<Future<Object>> futures = new ArrayList<>();
+    for (int i = 0; i < 60; i++) {
+      futures.add(client.asyncGet("circuit:key"));
+    }
+    for (Future<Object> f : futures) {
+      assertEquals("value", f.get(1, TimeUnit.SECONDS));
+    }
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+  }
+
+  public void testRedistribute() throws Exception {
+    createClient(new CircuitBreakerPolicy().setWindow(30000), FailureMode.Redistribute, 2);
+    // find a key that has the other node in its node sequence
+    String key = null;
+    for (int i = 0; key == null; i++) {
+      MemcachedNode primary = client.getNodeLocator().getPrimary("circuit:" + i);
+      Iterator<MemcachedNode> sequence = client.getNodeLocator().getSequence("circuit:" + i);
+      while (sequence.hasNext()) {
+        if (!sequence.next().getSocketAddress().equals(primary.getSocketAddress())) {
+          key = "circuit:" + i;
+          break;
+        }
+      }
+    }
+    MemcachedNode stalled = client.getNodeLocator().getPrimary(key);
+    FakeArcusServer stalledServer = servers.get(0).getAddress()
+        .equals(stalled.getSocketAddress()) ? servers.get(0) : servers.get(1);
+    FakeArcusServer other = stalledServer == servers.get(0) ? servers.get(1) : servers.get(0);
+
+    stalledServer.stall();
+    awaitTimeouts(60, key);
+    assertEquals(CircuitBreaker.State.OPEN, stalled.getCircuitBreaker().getState());
+
+    // the operation goes to the other node
+    assertTrue(client.set(key, 0, "value").get(1, TimeUnit.SECONDS));
+    assertTrue(other.getStore().contains(key));
+    assertFalse(stalledServer.getStore().contains(key));
+  }
+
+  private void awaitState(CircuitBreaker breaker, CircuitBreaker.State state)
+      throws InterruptedException {
+    for (int i = 0; i < 200 && breaker.getState() != state; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(state, breaker.getState());
+  }
+
+  private void awaitTimeouts(int count) throws Exception {
+    awaitTimeouts(count, "circuit:key");
+  }
+
+  private void awaitTimeouts(int count, String key) throws Exception {
+    List<Future<Object>> futures = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      futures.add(client.asyncGet(key));
+    }
+    for (Future<Object> f : futures) {
+      try {
+        f.get();
+        fail("The operation must time out");
+      } catch (OperationTimeoutException e) {
+        // expected
+      } catch (ExecutionException e) {
+        // rejected after the circuit has opened
+        assertTrue(e.getMessage(), e.getMessage().contains("circuit open"));
+      }
+    }
+  }
+}
@@ -30,6 +30,7 @@ import java.util.concurrent.BlockingQueue;
 import junit.framework.TestCase;
 
 import net.spy.memcached.auth.AuthDescriptor;
+import net.spy.memcached.metrics.ArcusMetrics;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.transcoders.Transcoder;
@@ -187,6 +188,11 @@ public abstract class ClientBaseCase extends TestCase {
           return inner.shouldOptimize();
         }
 
+        @Override
+        public boolean shouldCoalesceGets() {
+          return inner.shouldCoalesceGets();
+        }
+
         @Override
         public int getReadBufSize() {
           return inner.getReadBufSize();
@@ -217,6 +223,11 @@ public abstract class ClientBaseCase extends TestCase {
           return inner.getTimeoutRatioThreshold();
         }
 
+        @Override
+        public long getTimeoutRatioWindow() {
+          return inner.getTimeoutRatioWindow();
+        }
+
         @Override
         public int getTimeoutDurationThreshold() {
           return inner.getTimeoutDurationThreshold();
@@ -227,6 +238,11 @@ public abstract class ClientBaseCase extends TestCase {
           return inner.getMaxFrontCacheElements();
         }
 
+        @Override
+        public long getMaxFrontCacheOffHeapSize() {
+          return inner.getMaxFrontCacheOffHeapSize();
+        }
+
         @Override
         public String getFrontCacheName() {
           return inner.getFrontCacheName();
@@ -252,6 +268,51 @@ public abstract class ClientBaseCase extends TestCase {
           return inner.getDefaultMaxSMGetKeyChunkSize();
         }
 
+        @Override
+        public ChunkSizePolicy getChunkSizePolicy() {
+          return inner.getChunkSizePolicy();
+        }
+
+        @Override
+        public ArcusMetrics getMetrics() {
+          return inner.getMetrics();
+        }
+
+        @Override
+        public boolean shouldTraceOperations() {
+          return inner.shouldTraceOperations();
+        }
+
+        @Override
+        public long getSlowOperationThreshold() {
+          return inner.getSlowOperationThreshold();
+        }
+
+        @Override
+        public AdaptiveTimeoutPolicy getAdaptiveTimeoutPolicy() {
+          return inner.getAdaptiveTimeoutPolicy();
+        }
+
+        @Override
+        public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+          return inner.getCircuitBreakerPolicy();
+        }
+
+        @Override
+        public long getReconnectRampWindow() {
+          return inner.getReconnectRampWindow();
+        }
+
+        @Override
+        public int getReconnectRampInitialOps() {
+          return inner.getReconnectRampInitialOps();
+        }
+
+        @Override
+        public long getKeepAliveProbeInterval() {
+          return inner.getKeepAliveProbeInterval();
+        }
+
         @Override
         public byte getDelimiter() {
           return inner.getDelimiter();
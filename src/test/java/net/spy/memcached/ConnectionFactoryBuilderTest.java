@@ -28,6 +28,8 @@ import net.spy.memcached.ConnectionFactoryBuilder.Protocol;
 import net.spy.memcached.auth.AuthDescriptor;
 import net.spy.memcached.auth.PlainCallbackHandler;
 import net.spy.memcached.compat.BaseMockCase;
+import net.spy.memcached.metrics.ArcusMetrics;
+import net.spy.memcached.metrics.InMemoryArcusMetrics;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationQueueFactory;
 import net.spy.memcached.protocol.ascii.AsciiMemcachedNodeImpl;
@@ -92,11 +94,24 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
             instanceof AsciiMemcachedNodeImpl);
     assertTrue(f.isDaemon());
     assertFalse(f.shouldOptimize());
+    assertFalse(f.shouldCoalesceGets());
     assertFalse(f.useNagleAlgorithm());
     assertFalse(f.getKeepAlive());
     assertTrue(f.getDnsCacheTtlCheck());
     assertEquals(f.getOpQueueMaxBlockTime(),
             DefaultConnectionFactory.DEFAULT_OP_QUEUE_MAX_BLOCK_TIME);
+    assertTrue(f.getChunkSizePolicy() instanceof FixedChunkSizePolicy);
+    assertNull(f.getMetrics());
+    assertFalse(f.shouldTraceOperations());
+    assertEquals(0, f.getSlowOperationThreshold());
+    assertEquals(DefaultConnectionFactory.DEFAULT_TIMEOUTRATIO_WINDOW,
+            f.getTimeoutRatioWindow());
+    assertNull(f.getAdaptiveTimeoutPolicy());
+    assertNull(f.getCircuitBreakerPolicy());
+    assertEquals(0, f.getReconnectRampWindow());
+    assertEquals(DefaultConnectionFactory.DEFAULT_RECONNECT_RAMP_INITIAL_OPS,
+            f.getReconnectRampInitialOps());
+    assertEquals(0, f.getKeepAliveProbeInterval());
   }
 
   public void testModifications() throws Exception {
@@ -118,9 +133,14 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
     OperationQueueFactory wQueueFactory = new DirectFactory(wQueue);
     AuthDescriptor anAuthDescriptor = new AuthDescriptor(new String[]{"PLAIN"},
             new PlainCallbackHandler("username", "password"));
+    ChunkSizePolicy chunkSizePolicy = new AdaptiveChunkSizePolicy(10, 1000);
+    ArcusMetrics metrics = new InMemoryArcusMetrics();
+    AdaptiveTimeoutPolicy timeoutPolicy = new AdaptiveTimeoutPolicy(10, 1000);
+    CircuitBreakerPolicy circuitBreakerPolicy = new CircuitBreakerPolicy();
 
     ConnectionFactory f = b.setDaemon(true)
             .setShouldOptimize(false)
+            .setShouldCoalesceGets(true)
             .setFailureMode(FailureMode.Redistribute)
             .setHashAlg(HashAlgorithm.KETAMA_HASH)
             .setInitialObservers(Collections.singleton(testObserver))
@@ -137,6 +157,16 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
             .setLocatorType(Locator.CONSISTENT)
             .setOpQueueMaxBlockTime(19)
             .setAuthDescriptor(anAuthDescriptor)
+            .setChunkSizePolicy(chunkSizePolicy)
+            .setMetrics(metrics)
+            .setTraceOperations(true)
+            .setSlowOperationThreshold(100)
+            .setTimeoutRatioWindow(5000)
+            .setAdaptiveTimeoutPolicy(timeoutPolicy)
+            .setCircuitBreakerPolicy(circuitBreakerPolicy)
+            .setReconnectRampWindow(500)
+            .setReconnectRampInitialOps(4)
+            .setKeepAliveProbeInterval(3000)
             .build();
 
     assertEquals(4225, f.getOperationTimeout());
@@ -152,11 +182,22 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
     assertSame(wQueue, f.createWriteOperationQueue());
     assertTrue(f.isDaemon());
     assertFalse(f.shouldOptimize());
+    assertTrue(f.shouldCoalesceGets());
     assertTrue(f.useNagleAlgorithm());
     assertTrue(f.getKeepAlive());
     assertFalse(f.getDnsCacheTtlCheck());
     assertEquals(f.getOpQueueMaxBlockTime(), 19);
     assertSame(anAuthDescriptor, f.getAuthDescriptor());
+    assertSame(chunkSizePolicy, f.getChunkSizePolicy());
+    assertSame(metrics, f.getMetrics());
+    assertTrue(f.shouldTraceOperations());
+    assertEquals(100, f.getSlowOperationThreshold());
+    assertEquals(5000, f.getTimeoutRatioWindow());
+    assertSame(timeoutPolicy, f.getAdaptiveTimeoutPolicy());
+    assertSame(circuitBreakerPolicy, f.getCircuitBreakerPolicy());
+    assertEquals(500, f.getReconnectRampWindow());
+    assertEquals(4, f.getReconnectRampInitialOps());
+    assertEquals(3000, f.getKeepAliveProbeInterval());
 
     MemcachedNode n = new MockMemcachedNode(
             InetSocketAddress.createUnresolved("localhost", 11211));
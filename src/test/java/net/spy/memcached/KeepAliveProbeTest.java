@@ -0,0 +1,217 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.fake.FakeArcusServer;
+import net.spy.memcached.internal.OperationFuture;
+import net.spy.memcached.metrics.InMemoryArcusMetrics;
+import net.spy.memcached.metrics.LatencyWindow;
+import net.spy.memcached.metrics.OperationStats;
+import net.spy.memcached.ops.APIType;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+
+public class KeepAliveProbeTest extends TestCase {
+
+  private static final long PROBE_INTERVAL = 100;
+
+  private final List<FakeArcusServer> servers = new ArrayList<>();
+  private ArcusClient client;
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (client != null) {
+      client.shutdown();
+    }
+    for (FakeArcusServer server : servers) {
+      server.shutdown();
+    }
+    super.tearDown();
+  }
+
+  private FakeArcusServer startServer() throws Exception {
+    FakeArcusServer server = new FakeArcusServer();
+    servers.add(server);
+    return server;
+  }
+
+  private ConnectionFactoryBuilder newBuilder(long probeInterval) {
+    return new ConnectionFactoryBuilder()
+        .setDnsCacheTtlCheck(false)
+        .setOpTimeout(1000)
+        .setMaxReconnectDelay(1)
+        .setKeepAliveProbeInterval(probeInterval);
+  }
+
+  public void testProbeIdleNode() throws Exception {
+    FakeArcusServer server = startServer();
+    client = new ArcusClient(newBuilder(PROBE_INTERVAL).build(),
+        Collections.singletonList(server.getAddress()));
+    assertTrue(client.set("probe:key", 0, "value").get());
+
+    long commands = server.getCommandCount();
+    Thread.sleep(PROBE_INTERVAL * 5);
+    assertTrue(server.getCommandCount() - commands >= 2);
+  }
+
+  public void testReconnectUnansweredProbe() throws Exception {
+    FakeArcusServer server = startServer();
+    client = new ArcusClient(newBuilder(PROBE_INTERVAL).build(),
+        Collections.singletonList(server.getAddress()));
+    assertTrue(client.set("probe:key", 0, "value").get());
+
+    final CountDownLatch lost = addLostLatch();
+    // the connection is found dead without any request from the application
+    server.stall();
+    assertTrue(lost.await(PROBE_INTERVAL * 10, TimeUnit.MILLISECONDS));
+
+    server.resume();
+    MemcachedNode node = client.getAllNodes().iterator().next();
+    for (int i = 0; i < 300 && !node.isActive(); i++) {
+      Thread.sleep(10);
+    }
+    assertEquals("value", client.asyncGet("probe:key").get(1, TimeUnit.SECONDS));
+  }
+
+  public void testProbeQueuedBehindWrites() throws Exception {
+    FakeArcusServer server = startServer();
+    client = new ArcusClient(newBuilder(PROBE_INTERVAL).setOpTimeout(5000).build(),
+        Collections.singletonList(server.getAddress()));
+    assertTrue(client.set("probe:key", 0, "value").get());
+    final CountDownLatch lost = addLostLatch();
+
+    // the node is busy until the server stalls, so no probe is sent before the sets.
+    SerializingTranscoder tc = new SerializingTranscoder();
+    tc.setCompressionThreshold(Integer.MAX_VALUE);
+    byte[] large = new byte[1000 * 1000];
+    long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL * 2);
+    while (System.nanoTime() < end) {
+      assertEquals("value", client.get("probe:key"));
+    }
+    // the probes wait behind large sets the stalled server does not read.
+    server.stall();
+    List<OperationFuture<Boolean>> sets = new ArrayList<>();
+    for (int i = 0; i < 16; i++) {
+      sets.add(client.set("probe:large" + i, 0, large, tc));
+    }
+    assertFalse(lost.await(PROBE_INTERVAL * 6, TimeUnit.MILLISECONDS));
+
+    server.resume();
+    for (OperationFuture<Boolean> f : sets) {
+      assertTrue(f.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, lost.getCount());
+  }
+
+  public void testProbeIsNotUserOperation() throws Exception {
+    FakeArcusServer server = startServer();
+    InMemoryArcusMetrics metrics = new InMemoryArcusMetrics();
+    client = new ArcusClient(newBuilder(PROBE_INTERVAL)
+        .setMetrics(metrics)
+        .setAdaptiveTimeoutPolicy(new AdaptiveTimeoutPolicy(10, 1000))
+        .setCircuitBreakerPolicy(new CircuitBreakerPolicy())
+        .build(),
+        Collections.singletonList(server.getAddress()));
+    assertTrue(client.set("probe:key", 0, "value").get());
+    MemcachedNode node = client.getAllNodes().iterator().next();
+    long versions = getCount(metrics.getStats(APIType.VERSION));
+    LatencyWindow latencies = node.getStatistics().getLatencies(APIType.VERSION);
+    long versionLatencies = latencies == null ? 0 : latencies.getCount();
+
+    long commands = server.getCommandCount();
+    Thread.sleep(PROBE_INTERVAL * 5);
+    assertTrue(server.getCommandCount() - commands >= 2);
+    assertEquals(versions, getCount(metrics.getStats(APIType.VERSION)));
+    latencies = node.getStatistics().getLatencies(APIType.VERSION);
+    assertEquals(versionLatencies, latencies == null ? 0 : latencies.getCount());
+  }
+
+  private static long getCount(OperationStats stats) {
+    return stats == null ? 0 : stats.getCount();
+  }
+
+  private CountDownLatch addLostLatch() {
+    final CountDownLatch lost = new CountDownLatch(1);
+    client.addObserver(new ConnectionObserver() {
+      @Override
+      public void connectionEstablished(SocketAddress sa, int reconnectCount) {
+      }
+
+      @Override
+      public void connectionLost(SocketAddress sa) {
+        lost.countDown();
+      }
+    });
+    return lost;
+  }
+
+  public void testSwitchoverKeepsSocket() throws Exception {
+    assertSwitchover(PROBE_INTERVAL, true);
+  }
+
+  public void testSwitchoverReconnectsWithoutProbes() throws Exception {
+    assertSwitchover(0, false);
+  }
+
+  private void assertSwitchover(long probeInterval, boolean keepSocket) throws Exception {
+    FakeArcusServer master = startServer();
+    FakeArcusServer slave = startServer();
+    ConnectionFactoryBuilder cfb = newBuilder(probeInterval);
+    cfb.internalArcusReplEnabled(true);
+    List<InetSocketAddress> addrs = Arrays.<InetSocketAddress>asList(
+        ArcusReplNodeAddress.create("g0", true, master.getHostPort()),
+        ArcusReplNodeAddress.create("g0", false, slave.getHostPort()));
+    client = new ArcusClient(cfb.build(), addrs);
+    assertTrue(client.set("switchover:key", 0, "value").get());
+
+    MemcachedNode oldMaster = null;
+    for (MemcachedNode node : client.getAllNodes()) {
+      if (((ArcusReplNodeAddress) node.getSocketAddress()).isMaster()) {
+        oldMaster = node;
+      }
+    }
+    assertNotNull(oldMaster);
+    SocketChannel channel = oldMaster.getChannel();
+
+    master.setSwitchover("SWITCHOVER");
+    assertTrue(client.set("switchover:moved", 0, "value").get(1, TimeUnit.SECONDS));
+    assertTrue(slave.getStore().contains("switchover:moved"));
+    assertFalse(master.getStore().contains("switchover:moved"));
+    assertNotSame(oldMaster, oldMaster.getReplicaGroup().getMasterNode());
+
+    if (keepSocket) {
+      assertSame(channel, oldMaster.getChannel());
+      assertTrue(oldMaster.isActive());
+    } else {
+      for (int i = 0; i < 300 && oldMaster.getChannel() == channel; i++) {
+        Thread.sleep(10);
+      }
+      assertNotSame(channel, oldMaster.getChannel());
+    }
+  }
+}
@@ -23,7 +23,9 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
 
@@ -265,4 +267,44 @@ public class MemcachedConnectionTest extends TestCase {
     Thread.sleep(10);
     Assert.assertEquals(reconnectQueue.popReady(System.nanoTime()), node);
   }
+
+  @SuppressWarnings("unchecked")
+  public void testReconnectQueue_jitter() throws Exception {
+    MemcachedConnection.ReconnectQueue reconnectQueue =
+        new MemcachedConnection.ReconnectQueue(8, new Random(1));
+
+    Field reconMapField =
+        MemcachedConnection.ReconnectQueue.class.getDeclaredField("reconMap");
+    reconMapField.setAccessible(true);
+    Map<MemcachedNode, Long> reconMap =
+        (Map<MemcachedNode, Long>) reconMapField.get(reconnectQueue);
+
+    // the first backoff is 2 seconds, the delays are spread over its second half
+    long backoff = TimeUnit.SECONDS.toNanos(2);
+    long minDelay = Long.MAX_VALUE;
+    long maxDelay = 0;
+    for (int i = 0; i < 100; i++) {
+      MemcachedNode node = new MockMemcachedNode(
+          InetSocketAddress.createUnresolved("1.1.1." + i, 11211));
+      long start = System.nanoTime();
+      reconnectQueue.add(node, ReconnDelay.DEFAULT);
+      long delay = reconMap.get(node) - start;
+      Assert.assertTrue(delay >= backoff / 2);
+      Assert.assertTrue(delay <= backoff + (System.nanoTime() - start));
+      minDelay = Math.min(minDelay, delay);
+      maxDelay = Math.max(maxDelay, delay);
+
+      // a default delay does not move the queued reconnect again
+      long reconnectTime = reconMap.get(node);
+      reconnectQueue.replace(node, ReconnDelay.DEFAULT);
+      Assert.assertEquals((long) reconMap.get(node), reconnectTime);
+    }
+    Assert.assertTrue(maxDelay - minDelay > backoff / 4);
+
+    // an immediate reconnect is not delayed
+    MemcachedNode node = reconMap.keySet().iterator().next();
+    reconnectQueue.replace(node, ReconnDelay.IMMEDIATE);
+    Thread.sleep(10);
+    Assert.assertEquals(reconnectQueue.popReady(System.nanoTime()), node);
+  }
 }
@@ -29,7 +29,8 @@ public class MemcachedNodeROImplTest extends MockObjectTestCase {
     Set<String> acceptable = new HashSet<>(Arrays.asList(
             "toString", "getSocketAddress", "getBytesRemainingToWrite",
             "getReconnectCount", "getSelectionOps", "getNodeName", "hasReadOp",
-            "hasWriteOp", "isActive", "isFirstConnecting"));
+            "hasWriteOp", "isActive", "isFirstConnecting", "getStatistics",
+            "getCircuitBreaker"));
 
     for (Method meth : MemcachedNode.class.getMethods()) {
       if (acceptable.contains(meth.getName())) {
@@ -54,6 +55,10 @@ public class MemcachedNodeROImplTest extends MockObjectTestCase {
     for (Class<?> c : parameterTypes) {
       if (c == Boolean.TYPE) {
         args[i++] = false;
+      } else if (c == Long.TYPE) {
+        args[i++] = 0L;
+      } else if (c == Integer.TYPE) {
+        args[i++] = 0;
       } else {
         args[i++] = null;
       }
@@ -25,10 +25,13 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.Collection;
 
+import net.spy.memcached.metrics.NodeStatistics;
 import net.spy.memcached.ops.Operation;
 
 public class MockMemcachedNode implements MemcachedNode {
   private final InetSocketAddress socketAddress;
+  private final NodeStatistics statistics = new NodeStatistics();
+  private CircuitBreaker circuitBreaker = null;
 
   public SocketAddress getSocketAddress() {
     return socketAddress;
@@ -153,6 +156,22 @@ public class MockMemcachedNode implements MemcachedNode {
     return 0;
   }
 
+  public NodeStatistics getStatistics() {
+    return statistics;
+  }
+
+  public void enableCircuitBreaker(CircuitBreakerPolicy policy) {
+    circuitBreaker = new CircuitBreaker(toString(), policy);
+  }
+
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  public void enableReconnectRamp(long window, int initialOps) {
+    // noop
+  }
+
   public void setChannel(SocketChannel to) {
     // noop
   }
@@ -230,7 +249,7 @@ public class MockMemcachedNode implements MemcachedNode {
     // noop
   }
 
-  public void enableTimeoutRatio() {
+  public void enableTimeoutRatio(long window) {
     // noop
   }
 
@@ -280,5 +299,11 @@ public class MockMemcachedNode implements MemcachedNode {
     // noop
     return false;
   }
+
+  @Override
+  public boolean hasInFlightOperations() {
+    // noop
+    return false;
+  }
   /* ENABLE_REPLICATION end */
 }
@@ -0,0 +1,106 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.Collections;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.fake.FakeArcusServer;
+import net.spy.memcached.internal.CheckedOperationTimeoutException;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationLifecycle;
+
+public class OperationLifecycleTest extends TestCase {
+
+  private FakeArcusServer server;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new FakeArcusServer();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    server.shutdown();
+    super.tearDown();
+  }
+
+  private ArcusClient createClient(ConnectionFactoryBuilder cfb) throws Exception {
+    return new ArcusClient(cfb.setDnsCacheTtlCheck(false).setOpTimeout(1000).build(),
+        Collections.singletonList(server.getAddress()));
+  }
+
+  public void testTracedOperation() throws Exception {
+    ArcusClient client = createClient(new ConnectionFactoryBuilder()
+        .setSlowOperationThreshold(50));
+    try {
+      assertTrue(client.set("lifecycle:key", 0, "value").get());
+
+      server.stall();
+      Future<Object> future = client.asyncGet("lifecycle:key");
+      Operation op = null;
+      try {
+        future.get(100, TimeUnit.MILLISECONDS);
+        fail("The stalled server must not respond");
+      } catch (CheckedOperationTimeoutException e) {
+        assertTrue(e.getMessage(), e.getMessage().contains(
+            "writeCompleted +") && e.getMessage().contains("firstResponse -, completed -]"));
+        op = e.getOperations().iterator().next();
+      }
+      assertFalse(op.isLifecycleRecorded(OperationLifecycle.COMPLETED));
+
+      // the slow operation is logged when it is completed
+      server.resume();
+      assertEquals("value", future.get());
+      long previous = op.getLifecycleTimestamp(OperationLifecycle.CREATED);
+      for (OperationLifecycle event : OperationLifecycle.values()) {
+        assertTrue(event + " is not recorded", op.isLifecycleRecorded(event));
+        long timestamp = op.getLifecycleTimestamp(event);
+        assertTrue(event + " is recorded before the previous event", timestamp - previous >= 0);
+        previous = timestamp;
+      }
+      assertTrue(op.isWriteCompleted());
+      assertTrue(TimedOutMessageFactory.createLifecycleMessage(op).matches(
+          "\\[enqueued \\+\\d+us, writeQueued \\+\\d+us, writeStarted \\+\\d+us, " +
+          "writeCompleted \\+\\d+us, firstResponse \\+\\d+us, completed \\+\\d+us\\]"));
+    } finally {
+      client.shutdown();
+    }
+  }
+
+  public void testUntracedOperation() throws Exception {
+    ArcusClient client = createClient(new ConnectionFactoryBuilder());
+    try {
+      server.stall();
+      try {
+        client.asyncGet("lifecycle:key").get(100, TimeUnit.MILLISECONDS);
+        fail("The stalled server must not respond");
+      } catch (CheckedOperationTimeoutException e) {
+        assertFalse(e.getMessage(), e.getMessage().contains("enqueued"));
+        Operation op = e.getOperations().iterator().next();
+        assertFalse(op.isLifecycleRecorded(OperationLifecycle.CREATED));
+      }
+      server.resume();
+    } finally {
+      client.shutdown();
+    }
+  }
+}
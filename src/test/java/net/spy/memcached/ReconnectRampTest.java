@@ -0,0 +1,112 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.fake.FakeArcusServer;
+
+public class ReconnectRampTest extends TestCase {
+
+  private static final long LATENCY = 50;
+
+  private FakeArcusServer server;
+  private ArcusClient client;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new FakeArcusServer();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    if (client != null) {
+      client.shutdown();
+    }
+    server.shutdown();
+    super.tearDown();
+  }
+
+  private void createClient(long rampWindow) throws Exception {
+    ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+        .setDnsCacheTtlCheck(false)
+        .setOpTimeout(5000)
+        .setMaxReconnectDelay(1)
+        .setReconnectRampWindow(rampWindow)
+        .setReconnectRampInitialOps(1);
+    client = new ArcusClient(cfb.build(), Collections.singletonList(server.getAddress()));
+    assertTrue(client.set("ramp:key", 0, "value").get());
+    server.setLatency(LATENCY, TimeUnit.MILLISECONDS);
+  }
+
+  public void testRampAfterReconnect() throws Exception {
+    createClient(1000);
+    // the first connection is not limited
+    assertTrue(getMillis(20) < LATENCY * 4);
+
+    reconnect();
+    // 1, 2, 4 and 8 in-flight operations in each 100ms
+    assertTrue(getMillis(20) >= LATENCY * 4);
+
+    // the limit is gone after the window
+    Thread.sleep(1000);
+    assertTrue(getMillis(20) < LATENCY * 4);
+  }
+
+  public void testNoRamp() throws Exception {
+    createClient(0);
+    reconnect();
+    assertTrue(getMillis(20) < LATENCY * 4);
+  }
+
+  private void reconnect() throws Exception {
+    MemcachedNode node = client.getAllNodes().iterator().next();
+    server.closeConnections();
+    // the closed connection is found by reading a response
+    for (int i = 0; i < 200 && node.isActive(); i++) {
+      client.asyncGet("ramp:key");
+      Thread.sleep(10);
+    }
+    assertFalse(node.isActive());
+    for (int i = 0; i < 500 && !node.isActive(); i++) {
+      Thread.sleep(10);
+    }
+    assertTrue(node.isActive());
+  }
+
+  /**
+   * Get the time for pipelined gets to complete.
+   */
+  private long getMillis(int count) throws Exception {
+    long start = System.nanoTime();
+    List<Future<Object>> futures = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      futures.add(client.asyncGet("ramp:key"));
+    }
+    for (Future<Object> f : futures) {
+      assertEquals("value", f.get(5, TimeUnit.SECONDS));
+    }
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+  }
+}
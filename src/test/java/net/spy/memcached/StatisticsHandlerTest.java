@@ -0,0 +1,85 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import javax.management.MBeanAttributeInfo;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.fake.FakeArcusServer;
+import net.spy.memcached.metrics.NodeStatistics;
+
+public class StatisticsHandlerTest extends TestCase {
+
+  public void testNodeStatistics() throws Exception {
+    FakeArcusServer server = new FakeArcusServer();
+    ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder()
+        .setDnsCacheTtlCheck(false)
+        .setOpTimeout(1000)
+        .build(), Collections.singletonList(server.getAddress()));
+    try {
+      // random bytes are not compressed by the transcoder
+      byte[] value = new byte[512 * 1024];
+      new Random(1).nextBytes(value);
+      assertTrue(client.set("stats:large", 0, value).get());
+      for (int i = 0; i < 100; i++) {
+        assertTrue(client.set("stats:" + i, 0, "value").get());
+        assertEquals("value", client.asyncGet("stats:" + i).get());
+      }
+
+      MemcachedNode node = client.getAllNodes().iterator().next();
+      NodeStatistics statistics = node.getStatistics();
+      // the version operation sent at the connection is counted too
+      assertTrue(statistics.getCompleted() >= 201);
+      assertEquals(statistics.getCompleted(), statistics.getResponseTime().getCount());
+      assertTrue(statistics.getBytesWritten() > value.length);
+      assertTrue(statistics.getBytesRead() >= 100 * "STORED\r\n".length());
+      assertTrue(statistics.getSelects() > 0);
+      assertTrue(statistics.getResponseTime().getMax() > 0);
+
+      StatisticsHandler handler = new StatisticsHandler(client);
+      Set<String> names = new HashSet<>();
+      for (MBeanAttributeInfo info : handler.getMBeanInfo().getAttributes()) {
+        names.add(info.getName());
+      }
+      String address = node.getSocketAddress().toString();
+      for (String name : new String[]{"addedQ", "inputQ-" + address,
+          "bytesRead-" + address, "completedPerSecond-" + address, "rttP99-" + address}) {
+        assertTrue(name, names.contains(name));
+      }
+      assertFalse(names.contains("role-" + address));
+      assertEquals(statistics.getBytesRead(), handler.getAttribute("bytesRead-" + address));
+      assertEquals(statistics.getCompleted(), handler.getAttribute("completed-" + address));
+      assertEquals(statistics.getPartialWrites(),
+          handler.getAttribute("partialWrites-" + address));
+      assertTrue((Long) handler.getAttribute("rttMax-" + address) >= 0);
+      // the future is completed before the operation is removed from the read queue
+      for (int i = 0; i < 100 && node.hasReadOp(); i++) {
+        Thread.sleep(10);
+      }
+      assertEquals(0, handler.getAttribute("readQ-" + address));
+    } finally {
+      client.shutdown();
+      server.shutdown();
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.fake.FakeArcusServer;
+import net.spy.memcached.fake.FaultInjectingProxy;
+import net.spy.memcached.fake.FaultInjectingProxy.LatencyDistribution;
+
+/**
+ * Scenarios of a replica group switchover with network faults
+ * between the client and the master.
+ * They report the recovery time, the operations lost
+ * and the slowest operation around the switchover.
+ */
+public class SwitchoverRecoveryTest extends TestCase {
+
+  private static final long OP_TIMEOUT = 500;
+
+  private FakeArcusServer master;
+  private FakeArcusServer slave;
+  private FaultInjectingProxy masterProxy;
+  private FaultInjectingProxy slaveProxy;
+  private ArcusClient client;
+  private MemcachedNode oldMaster;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    master = new FakeArcusServer();
+    slave = new FakeArcusServer();
+    masterProxy = new FaultInjectingProxy(master.getAddress(), 1);
+    slaveProxy = new FaultInjectingProxy(slave.getAddress(), 2);
+
+    ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+        .setDnsCacheTtlCheck(false)
+        .setOpTimeout(OP_TIMEOUT)
+        .setTimeoutExceptionThreshold(4)
+        .setMaxReconnectDelay(1);
+    cfb.internalArcusReplEnabled(true);
+    List<InetSocketAddress> addrs = Arrays.<InetSocketAddress>asList(
+        ArcusReplNodeAddress.create("g0", true, masterProxy.getHostPort()),
+        ArcusReplNodeAddress.create("g0", false, slaveProxy.getHostPort()));
+    client = new ArcusClient(cfb.build(), addrs);
+    assertTrue(client.set("switchover:key", 0, "value").get());
+
+    for (MemcachedNode node : client.getAllNodes()) {
+      if (((ArcusReplNodeAddress) node.getSocketAddress()).isMaster()) {
+        oldMaster = node;
+      }
+    }
+    assertNotNull(oldMaster);
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    client.shutdown();
+    masterProxy.shutdown();
+    slaveProxy.shutdown();
+    master.shutdown();
+    slave.shutdown();
+    super.tearDown();
+  }
+
+  public void testSwitchoverWithSlowMaster() throws Exception {
+    masterProxy.getDefaultFaults().setLatency(
+        LatencyDistribution.uniform(20, 40, TimeUnit.MILLISECONDS));
+    master.setSwitchover("SWITCHOVER");
+
+    Recovery recovery = awaitSwitchover(10000);
+    assertTrue(recovery.toString(), recovery.recovered);
+    // the set answered with SWITCHOVER is moved to the new master, not lost.
+    assertEquals(recovery.toString(), 0, recovery.lost);
+    assertFalse(master.getStore().contains("switchover:moved"));
+  }
+
+  public void testSwitchoverWithMasterReset() throws Exception {
+    master.setSwitchover("SWITCHOVER");
+    masterProxy.resetConnections();
+
+    Recovery recovery = awaitSwitchover(10000);
+    assertTrue(recovery.toString(), recovery.recovered);
+    assertTrue(masterProxy.getAcceptedCount() >= 2);
+  }
+
+  public void testSwitchoverWithRefusedMaster() throws Exception {
+    masterProxy.setRefuseConnections(true);
+    masterProxy.resetConnections();
+    master.setSwitchover("SWITCHOVER");
+    masterProxy.schedule(1000, TimeUnit.MILLISECONDS,
+        () -> masterProxy.setRefuseConnections(false));
+
+    Recovery recovery = awaitSwitchover(10000);
+    assertTrue(recovery.toString(), recovery.recovered);
+  }
+
+  /**
+   * Send sets until one is stored on the new master.
+   */
+  private Recovery awaitSwitchover(long timeoutMillis) throws InterruptedException {
+    Recovery recovery = new Recovery();
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while (System.nanoTime() < deadline) {
+      long begin = System.nanoTime();
+      boolean success;
+      try {
+        success = client.set("switchover:moved", 0, "value")
+            .get(OP_TIMEOUT, TimeUnit.MILLISECONDS);
+      } catch (Exception e) {
+        success = false;
+      }
+      long end = System.nanoTime();
+      recovery.maxLatencyMillis = Math.max(recovery.maxLatencyMillis,
+          TimeUnit.NANOSECONDS.toMillis(end - begin));
+      if (success && slave.getStore().contains("switchover:moved")) {
+        recovery.recovered = oldMaster != oldMaster.getReplicaGroup().getMasterNode();
+        break;
+      }
+      recovery.lost++;
+      Thread.sleep(10);
+    }
+    recovery.millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    return recovery;
+  }
+
+  private static final class Recovery {
+    private boolean recovered = false;
+    private long millis;
+    private int lost = 0;
+    private long maxLatencyMillis = 0;
+
+    @Override
+    public String toString() {
+      return "Recovery[recovered=" + recovered + ", millis=" + millis +
+          ", lost=" + lost + ", maxLatencyMillis=" + maxLatencyMillis + "]";
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.collection;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.CollectionTranscoder;
+
+public class CollectionPipedInsertTest extends TestCase {
+
+  private CollectionTranscoder tc;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    tc = new CollectionTranscoder();
+    tc.setCompressionThreshold(Integer.MAX_VALUE);
+  }
+
+  private static String toString(ByteBuffer bb) {
+    byte[] bytes = new byte[bb.remaining()];
+    bb.get(bytes);
+    return new String(bytes);
+  }
+
+  public void testListCommand() {
+    CollectionPipedInsert<Object> insert = new CollectionPipedInsert.ListPipedInsert<>(
+        "key", 0, Arrays.<Object>asList("a", "bc"), null, tc);
+    assertEquals("lop insert key 0 1 pipe\r\na\r\n" +
+        "lop insert key 1 2\r\nbc\r\n", toString(insert.getAsciiCommand()));
+  }
+
+  public void testBTreeCommandWithAttributes() {
+    Map<Long, Object> map = new LinkedHashMap<>();
+    map.put(1L, "a");
+    map.put(2L, "b");
+    CollectionAttributes attr = new CollectionAttributes();
+    attr.setExpireTime(10);
+    CollectionPipedInsert<Object> insert = new CollectionPipedInsert.BTreePipedInsert<>(
+        "key", map, attr, tc);
+    String create = CollectionCreate.makeCreateClause(attr, 0);
+    assertEquals("bop insert key 1 1 " + create + " pipe\r\na\r\n" +
+        "bop insert key 2 1 " + create + "\r\nb\r\n", toString(insert.getAsciiCommand()));
+  }
+
+  public void testByteArraysBTreeCommand() {
+    List<Element<Object>> elements = new ArrayList<>();
+    elements.add(new Element<>(new byte[]{0x01}, "a", new byte[]{0x0F}));
+    elements.add(new Element<>(new byte[]{0x02}, "b", (byte[]) null));
+    CollectionPipedInsert<Object> insert = new CollectionPipedInsert.ByteArraysBTreePipedInsert<>(
+        "key", elements, null, tc);
+    assertEquals("bop insert key 0x01 0x0F 1 pipe\r\na\r\n" +
+        "bop insert key 0x02 1\r\nb\r\n", toString(insert.getAsciiCommand()));
+  }
+
+  public void testEncodedOnce() {
+    final AtomicInteger encoded = new AtomicInteger();
+    CollectionTranscoder countingTc = new CollectionTranscoder() {
+      @Override
+      public CachedData encode(Object o) {
+        encoded.incrementAndGet();
+        return super.encode(o);
+      }
+    };
+    CollectionPipedInsert<Object> insert = new CollectionPipedInsert.SetPipedInsert<>(
+        "key", Arrays.<Object>asList("a", "b", "c"), null, countingTc);
+    insert.encode();
+    assertEquals(3, encoded.get());
+    assertEquals("sop insert key 1 pipe\r\na\r\nsop insert key 1 pipe\r\nb\r\n" +
+        "sop insert key 1\r\nc\r\n", toString(insert.getAsciiCommand()));
+
+    // sending again from the next operation index slices the encoded commands
+    insert.setNextOpIndex(1);
+    assertEquals("sop insert key 1 pipe\r\nb\r\nsop insert key 1\r\nc\r\n",
+        toString(insert.getAsciiCommand()));
+    assertEquals(3, encoded.get());
+  }
+
+  public void testEncodingFailureThrownToCaller() {
+    CollectionTranscoder failingTc = new CollectionTranscoder() {
+      @Override
+      public CachedData encode(Object o) {
+        throw new IllegalArgumentException("cannot encode " + o);
+      }
+    };
+    CollectionPipedInsert<Object> insert = new CollectionPipedInsert.SetPipedInsert<>(
+        "key", Arrays.<Object>asList("a"), null, failingTc);
+    try {
+      insert.encode();
+      fail("The transcoder exception must be thrown");
+    } catch (IllegalArgumentException e) {
+      assertEquals("cannot encode a", e.getMessage());
+    }
+  }
+
+  public void testRelease() {
+    CollectionPipedInsert<Object> insert = new CollectionPipedInsert.SetPipedInsert<>(
+        "key", Arrays.<Object>asList("a"), null, tc);
+    String expected = toString(insert.getAsciiCommand());
+    insert.release();
+    assertEquals(expected, toString(insert.getAsciiCommand()));
+  }
+
+  public void testRestartFromNextOpIndex() {
+    CollectionPipedInsert<Object> insert = new CollectionPipedInsert.ListPipedInsert<>(
+        "key", -1, Arrays.<Object>asList("a", "b", "c"), null, tc);
+    insert.setNextOpIndex(2);
+    assertEquals("lop insert key -1 1\r\nc\r\n", toString(insert.getAsciiCommand()));
+  }
+
+  public void testEncodeInAdvance() {
+    Map<Long, Object> map = new LinkedHashMap<>();
+    for (long i = 0; i < 100; i++) {
+      map.put(i, i % 2 == 0 ? "value" + i : i);
+    }
+    String expected = toString(new CollectionPipedInsert.BTreePipedInsert<>(
+        "key", map, null, tc).getAsciiCommand());
+
+    CollectionPipedInsert<Object> insert = new CollectionPipedInsert.BTreePipedInsert<>(
+        "key", map, null, tc);
+    insert.encode();
+    assertEquals(expected, toString(insert.getAsciiCommand()));
+  }
+}
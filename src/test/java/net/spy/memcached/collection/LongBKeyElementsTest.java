@@ -0,0 +1,87 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.collection;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+import net.spy.memcached.transcoders.Transcoder;
+
+public class LongBKeyElementsTest extends TestCase {
+
+  private final Transcoder<Object> tc = new SerializingTranscoder();
+
+  private void add(LongBKeyElements<Object> elements, long bkey) {
+    CachedData cd = tc.encode("value" + bkey);
+    elements.add(bkey, cd.getFlags(), null, cd.getData());
+  }
+
+  public void testAscending() {
+    LongBKeyElements<Object> elements = new LongBKeyElements<>(2, false, tc);
+    for (long bkey = 10; bkey < 20; bkey += 2) {
+      add(elements, bkey);
+    }
+
+    assertEquals(5, elements.size());
+    assertEquals(10, elements.getBkey(0));
+    assertEquals("value18", elements.getValue(4));
+    assertEquals(2, elements.indexOf(14));
+    assertEquals(-1, elements.indexOf(15));
+    assertEquals("value16", elements.get(16));
+    assertNull(elements.get(20));
+
+    Element<Object> element = elements.getElement(1);
+    assertEquals(12, element.getLongBkey());
+    assertEquals("value12", element.getValue());
+  }
+
+  public void testDescending() {
+    LongBKeyElements<Object> elements = new LongBKeyElements<>(10, true, tc);
+    for (long bkey = 9; bkey >= 0; bkey--) {
+      add(elements, bkey);
+    }
+
+    assertTrue(elements.isReverse());
+    for (long bkey = 0; bkey < 10; bkey++) {
+      assertEquals(9 - bkey, elements.indexOf(bkey));
+    }
+    assertEquals(-1, elements.indexOf(10));
+  }
+
+  public void testUnsortedFallsBackToScan() {
+    LongBKeyElements<Object> elements = new LongBKeyElements<>(3, false, tc);
+    add(elements, 5);
+    add(elements, 1);
+    add(elements, 3);
+
+    assertEquals(1, elements.indexOf(1));
+    assertEquals(2, elements.indexOf(3));
+  }
+
+  public void testEmpty() {
+    LongBKeyElements<Object> elements = new LongBKeyElements<>(0, false, tc);
+    assertTrue(elements.isEmpty());
+    assertEquals(-1, elements.indexOf(1));
+    try {
+      elements.getBkey(0);
+      fail("IndexOutOfBoundsException expected");
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,562 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.fake;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.spy.memcached.HashAlgorithm;
+import net.spy.memcached.compat.log.Logger;
+import net.spy.memcached.compat.log.LoggerFactory;
+import net.spy.memcached.fake.FakeArcusStore.Redirector;
+import net.spy.memcached.fake.FakeArcusStore.Reply;
+
+/**
+ * In-process server speaking the Arcus ASCII protocol on a loopback port.
+ *
+ * It serves key-value items, lists, sets, maps and b+trees from a
+ * {@link FakeArcusStore}, so the whole client stack can be exercised
+ * without a memcached instance. Faults can be injected while it runs:
+ * <ul>
+ *   <li>{@link #setLatency(long, TimeUnit)} delays every response.</li>
+ *   <li>{@link #stall()} stops reading requests and writing responses
+ *   until {@link #resume()}.</li>
+ *   <li>{@link #redirect(String, String)} answers NOT_MY_KEY for a key.</li>
+ *   <li>{@link #setSwitchover(String)} answers SWITCHOVER or REPL_SLAVE
+ *   to the commands that modify items.</li>
+ *   <li>{@link #setErrorResponse(String)} answers an error line to the commands.</li>
+ *   <li>{@link #closeConnections()} drops the connected clients.</li>
+ * </ul>
+ * All sockets are served by a single daemon thread.
+ */
+public class FakeArcusServer {
+
+  static final String VERSION = "1.13.5";
+
+  private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  private final FakeArcusStore store;
+  private final Selector selector;
+  private final ServerSocketChannel serverChannel;
+  private final InetSocketAddress address;
+  private final Thread ioThread;
+
+  private final List<Connection> connections = new ArrayList<>();
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final Map<String, String> redirects = new ConcurrentHashMap<>();
+  private final AtomicLong commandCount = new AtomicLong();
+  private final AtomicInteger connectionCount = new AtomicInteger();
+
+  private volatile long latencyNanos = 0;
+  private volatile boolean stalled = false;
+  private volatile String switchoverResponse = null;
+  private volatile String errorResponse = null;
+  private volatile boolean running = true;
+
+  private final Redirector redirector = key -> {
+    String owner = redirects.get(key);
+    return owner == null ? null : notMyKey(key) + " " + owner;
+  };
+  private final Redirector pipeRedirector = key ->
+      redirects.containsKey(key) ? notMyKey(key) : null;
+
+  /**
+   * Start a server with an empty store on an ephemeral port.
+   */
+  public FakeArcusServer() throws IOException {
+    this(new FakeArcusStore());
+  }
+
+  /**
+   * Start a server with the given store on an ephemeral port.
+   */
+  public FakeArcusServer(FakeArcusStore store) throws IOException {
+    this(store, 0);
+  }
+
+  /**
+   * Start a server with the given store.
+   *
+   * @param port the loopback port to listen on, 0 for an ephemeral port
+   */
+  public FakeArcusServer(FakeArcusStore store, int port) throws IOException {
+    this.store = store;
+    this.selector = Selector.open();
+    this.serverChannel = ServerSocketChannel.open();
+    serverChannel.configureBlocking(false);
+    serverChannel.socket().setReuseAddress(true);
+    serverChannel.bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port));
+    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    this.address = (InetSocketAddress) serverChannel.getLocalAddress();
+    this.ioThread = new Thread(this::run, "FakeArcusServer-" + address.getPort());
+    ioThread.setDaemon(true);
+    ioThread.start();
+  }
+
+  public InetSocketAddress getAddress() {
+    return address;
+  }
+
+  /**
+   * Get the address in the "host:port" form used by the client and the owner
+   * of NOT_MY_KEY responses.
+   */
+  public String getHostPort() {
+    return address.getAddress().getHostAddress() + ":" + address.getPort();
+  }
+
+  public FakeArcusStore getStore() {
+    return store;
+  }
+
+  /**
+   * Get the number of commands received so far.
+   */
+  public long getCommandCount() {
+    return commandCount.get();
+  }
+
+  /**
+   * Get the number of connected clients.
+   */
+  public int getConnectionCount() {
+    return connectionCount.get();
+  }
+
+  /**
+   * Delay every response by the given time, 0 to respond immediately.
+   * The order of responses of a connection is kept.
+   */
+  public void setLatency(long latency, TimeUnit unit) {
+    latencyNanos = unit.toNanos(latency);
+    selector.wakeup();
+  }
+
+  /**
+   * Stop reading requests and writing responses, as a hung server would.
+   * Connections are still accepted.
+   */
+  public void stall() {
+    stalled = true;
+    selector.wakeup();
+  }
+
+  /**
+   * Serve again the requests held since {@link #stall()}.
+   */
+  public void resume() {
+    stalled = false;
+    selector.wakeup();
+  }
+
+  public boolean isStalled() {
+    return stalled;
+  }
+
+  /**
+   * Answer NOT_MY_KEY with the given owner to every command on the key,
+   * as a node migrating the key would.
+   *
+   * @param owner "host:port" of the node that owns the key
+   */
+  public void redirect(String key, String owner) {
+    redirects.put(key, owner);
+  }
+
+  public void clearRedirects() {
+    redirects.clear();
+  }
+
+  /**
+   * Answer the given line to every command modifying items.
+   *
+   * @param response "SWITCHOVER" or "REPL_SLAVE", or null to serve them again
+   */
+  public void setSwitchover(String response) {
+    switchoverResponse = response;
+  }
+
+  /**
+   * Answer the given line to every command but version, which the client
+   * sends on connection.
+   *
+   * @param response an error line such as "SERVER_ERROR out of memory",
+   *                 or null to serve the commands again
+   */
+  public void setErrorResponse(String response) {
+    errorResponse = response;
+  }
+
+  /**
+   * Close the connections of all clients.
+   */
+  public void closeConnections() {
+    tasks.add(() -> {
+      for (Connection c : connections) {
+        c.close();
+      }
+      connections.clear();
+    });
+    selector.wakeup();
+  }
+
+  /**
+   * Close all connections and stop the server.
+   */
+  public void shutdown() throws InterruptedException {
+    running = false;
+    selector.wakeup();
+    ioThread.join();
+  }
+
+  private String notMyKey(String key) {
+    long point = HashAlgorithm.KETAMA_HASH.hash(key);
+    return "NOT_MY_KEY " + point + " " + point;
+  }
+
+  private void run() {
+    try {
+      while (running) {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+          task.run();
+        }
+        selector.select(serviceConnections());
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+          SelectionKey key = it.next();
+          it.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept();
+          } else if (key.isReadable() && !stalled) {
+            Connection c = (Connection) key.attachment();
+            try {
+              c.read();
+            } catch (IOException e) {
+              c.close();
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("Fake arcus server stopped by an error.", e);
+    } finally {
+      for (Connection c : connections) {
+        c.close();
+      }
+      connections.clear();
+      try {
+        serverChannel.close();
+        selector.close();
+      } catch (IOException e) {
+        logger.warn("Failed to close the fake arcus server.", e);
+      }
+    }
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel;
+    while ((channel = serverChannel.accept()) != null) {
+      channel.configureBlocking(false);
+      channel.socket().setTcpNoDelay(true);
+      connections.add(new Connection(channel));
+      connectionCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * Write the responses that are due and update the interest of each connection.
+   *
+   * @return milliseconds until the next response is due, 0 if none is pending
+   */
+  private long serviceConnections() {
+    long now = System.nanoTime();
+    long nextDue = Long.MAX_VALUE;
+    Iterator<Connection> it = connections.iterator();
+    while (it.hasNext()) {
+      Connection c = it.next();
+      if (!c.isOpen()) {
+        it.remove();
+        continue;
+      }
+      if (stalled) {
+        c.key.interestOps(0);
+        continue;
+      }
+      boolean blocked;
+      try {
+        blocked = !c.writeDue(now);
+      } catch (IOException e) {
+        c.close();
+        it.remove();
+        continue;
+      }
+      if (!blocked && !c.output.isEmpty()) {
+        nextDue = Math.min(nextDue, c.output.peek().due);
+      }
+      c.key.interestOps(SelectionKey.OP_READ | (blocked ? SelectionKey.OP_WRITE : 0));
+    }
+    if (nextDue == Long.MAX_VALUE) {
+      return 0;
+    }
+    return Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextDue - now) + 1);
+  }
+
+  private static String[] tokenize(String line) {
+    List<String> tokens = new ArrayList<>();
+    for (String token : line.split(" ")) {
+      if (!token.isEmpty()) {
+        tokens.add(token);
+      }
+    }
+    return tokens.toArray(new String[0]);
+  }
+
+  private static boolean isSwitchover(Reply reply) {
+    return reply.startsWith("SWITCHOVER") || reply.startsWith("REPL_SLAVE");
+  }
+
+  private static final class Output {
+    private final long due;
+    private final ByteBuffer buffer;
+
+    private Output(long due, ByteBuffer buffer) {
+      this.due = due;
+      this.buffer = buffer;
+    }
+  }
+
+  private final class Connection {
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final ArrayDeque<Output> output = new ArrayDeque<>();
+    private long lastDue = 0;
+
+    private byte[] in = new byte[READ_BUFFER_SIZE];
+    private int inStart = 0;
+    private int inEnd = 0;
+
+    private String[] pendingTokens;
+    private int pendingLength;
+    private boolean pendingNoreply;
+    private boolean pendingPipe;
+
+    private Reply pipeReply;
+    private int pipeCount = 0;
+    private boolean pipeStopped = false;
+    private boolean pipeRedirected = false;
+
+    private Connection(SocketChannel channel) throws IOException {
+      this.channel = channel;
+      this.key = channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    private boolean isOpen() {
+      return channel.isOpen();
+    }
+
+    private void close() {
+      if (channel.isOpen()) {
+        connectionCount.decrementAndGet();
+        key.cancel();
+        try {
+          channel.close();
+        } catch (IOException e) {
+          // ignore
+        }
+      }
+    }
+
+    private void read() throws IOException {
+      if (inEnd == in.length) {
+        if (inStart > 0) {
+          System.arraycopy(in, inStart, in, 0, inEnd - inStart);
+          inEnd -= inStart;
+          inStart = 0;
+        } else {
+          in = Arrays.copyOf(in, in.length * 2);
+        }
+      }
+      int read = channel.read(ByteBuffer.wrap(in, inEnd, in.length - inEnd));
+      if (read < 0) {
+        close();
+        return;
+      }
+      inEnd += read;
+      process();
+      if (inStart == inEnd) {
+        inStart = 0;
+        inEnd = 0;
+      }
+    }
+
+    private void process() {
+      while (true) {
+        if (pendingTokens == null) {
+          int eol = indexOfCrlf();
+          if (eol < 0) {
+            return;
+          }
+          String line = new String(in, inStart, eol - inStart, StandardCharsets.UTF_8);
+          inStart = eol + 2;
+          String[] tokens = tokenize(line);
+          if (tokens.length == 0) {
+            continue;
+          }
+          String last = tokens[tokens.length - 1];
+          boolean noreply = "noreply".equals(last);
+          boolean pipe = "pipe".equals(last);
+          if (noreply || pipe) {
+            tokens = Arrays.copyOf(tokens, tokens.length - 1);
+          }
+          int length;
+          try {
+            length = FakeArcusStore.getDataLength(tokens);
+          } catch (RuntimeException e) {
+            Reply reply = new Reply();
+            reply.line("CLIENT_ERROR bad command line format");
+            send(reply.toByteArray());
+            continue;
+          }
+          if (length < 0) {
+            handle(tokens, null, noreply, pipe);
+            continue;
+          }
+          pendingTokens = tokens;
+          pendingLength = length;
+          pendingNoreply = noreply;
+          pendingPipe = pipe;
+        }
+        if (inEnd - inStart < pendingLength + 2) {
+          return;
+        }
+        byte[] data = Arrays.copyOfRange(in, inStart, inStart + pendingLength);
+        inStart += pendingLength + 2;
+        String[] tokens = pendingTokens;
+        pendingTokens = null;
+        handle(tokens, data, pendingNoreply, pendingPipe);
+      }
+    }
+
+    private int indexOfCrlf() {
+      for (int i = inStart; i < inEnd - 1; i++) {
+        if (in[i] == '\r' && in[i + 1] == '\n') {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Execute a command. The responses of piped commands are held until
+     * the last command of the pipe, which has no pipe keyword, and then sent
+     * in a RESPONSE block. A redirected or switched over command ends the pipe.
+     */
+    private void handle(String[] tokens, byte[] data, boolean noreply, boolean pipe) {
+      commandCount.incrementAndGet();
+      boolean inPipe = pipe || pipeReply != null;
+      Reply reply = new Reply();
+      if (!pipeStopped) {
+        String error = errorResponse;
+        String switchover = switchoverResponse;
+        if (error != null && !"version".equals(tokens[0])) {
+          reply.line(error);
+        } else if (switchover != null && FakeArcusStore.isUpdate(tokens)) {
+          reply.line(switchover);
+        } else {
+          store.execute(tokens, data, reply, inPipe ? pipeRedirector : redirector);
+        }
+      }
+      if (!inPipe) {
+        if (!noreply) {
+          send(reply.toByteArray());
+        }
+        return;
+      }
+
+      if (pipeReply == null) {
+        pipeReply = new Reply();
+      }
+      if (!pipeStopped) {
+        pipeReply.raw(reply.toByteArray());
+        pipeCount++;
+        pipeRedirected = reply.startsWith("NOT_MY_KEY");
+        pipeStopped = pipeRedirected || isSwitchover(reply);
+      }
+      if (!pipe) {
+        Reply response = new Reply();
+        response.line("RESPONSE " + pipeCount);
+        response.raw(pipeReply.toByteArray());
+        if (!pipeStopped || pipeRedirected) {
+          response.line("END");
+        }
+        send(response.toByteArray());
+        pipeReply = null;
+        pipeCount = 0;
+        pipeStopped = false;
+        pipeRedirected = false;
+      }
+    }
+
+    private void send(byte[] bytes) {
+      long due = Math.max(System.nanoTime() + latencyNanos, lastDue);
+      lastDue = due;
+      output.add(new Output(due, ByteBuffer.wrap(bytes)));
+    }
+
+    /**
+     * Write the responses that are due.
+     *
+     * @return false if the socket buffer is full
+     */
+    private boolean writeDue(long now) throws IOException {
+      while (!output.isEmpty() && output.peek().due - now <= 0) {
+        ByteBuffer buffer = output.peek().buffer;
+        channel.write(buffer);
+        if (buffer.hasRemaining()) {
+          return false;
+        }
+        output.poll();
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,427 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.fake;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.ArcusClient;
+import net.spy.memcached.CachedData;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.FixedChunkSizePolicy;
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.collection.CollectionAttributes;
+import net.spy.memcached.collection.CollectionOverflowAction;
+import net.spy.memcached.collection.CollectionPipedInsert;
+import net.spy.memcached.collection.Element;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.collection.ElementFlagFilter.CompOperands;
+import net.spy.memcached.collection.SMGetElement;
+import net.spy.memcached.collection.SMGetMode;
+import net.spy.memcached.internal.CollectionFuture;
+import net.spy.memcached.transcoders.CollectionTranscoder;
+import net.spy.memcached.ops.CollectionOperationStatus;
+
+public class FakeArcusServerTest extends TestCase {
+
+  private FakeArcusServer server;
+  private ArcusClient client;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new FakeArcusServer();
+    ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+        .setDnsCacheTtlCheck(false)
+        .setOpTimeout(1000);
+    client = new ArcusClient(cfb.build(),
+        Collections.singletonList(server.getAddress()));
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    client.shutdown();
+    server.shutdown();
+    super.tearDown();
+  }
+
+  public void testKeyValue() throws Exception {
+    assertTrue(client.set("kv:a", 0, "a").get());
+    assertTrue(client.set("kv:b", 0, "b").get());
+    assertFalse(client.add("kv:a", 0, "x").get());
+    assertEquals("a", client.get("kv:a"));
+
+    Map<String, Object> values = client.asyncGetBulk(Arrays.asList("kv:a", "kv:b", "kv:c"))
+        .get(1, TimeUnit.SECONDS);
+    assertEquals(2, values.size());
+    assertEquals("b", values.get("kv:b"));
+
+    assertTrue(client.set("kv:n", 0, "10").get());
+    assertEquals(15, client.incr("kv:n", 5));
+    assertTrue(client.delete("kv:a").get());
+    assertNull(client.get("kv:a"));
+  }
+
+  public void testListSetAndMap() throws Exception {
+    CollectionAttributes attr = new CollectionAttributes();
+    assertTrue(client.asyncLopInsert("list", -1, "a", attr).get());
+    assertTrue(client.asyncLopInsert("list", -1, "b", null).get());
+    assertTrue(client.asyncLopInsert("list", 0, "c", null).get());
+    assertEquals(Arrays.asList("c", "a", "b"),
+        client.asyncLopGet("list", 0, -1, false, false).get());
+    assertEquals(Arrays.asList("b", "a"),
+        client.asyncLopGet("list", 2, 1, true, false).get());
+    assertEquals(Collections.singletonList("c"),
+        client.asyncLopGet("list", 0, 10, false, false).get());
+
+    assertTrue(client.asyncSopInsert("set", "x", attr).get());
+    assertFalse(client.asyncSopInsert("set", "x", attr).get());
+    assertTrue(client.asyncSopExist("set", "x").get());
+    assertFalse(client.asyncSopExist("set", "y").get());
+
+    assertTrue(client.asyncMopInsert("map", "f1", "v1", attr).get());
+    assertTrue(client.asyncMopInsert("map", "f2", "v2", null).get());
+    Map<String, Object> fields = client.asyncMopGet("map",
+        Collections.singletonList("f2"), false, false).get();
+    assertEquals(Collections.singletonMap("f2", "v2"), fields);
+    assertEquals(2, client.asyncMopGet("map", false, false).get().size());
+  }
+
+  public void testBTree() throws Exception {
+    CollectionAttributes attr = new CollectionAttributes();
+    for (long bkey = 0; bkey < 10; bkey++) {
+      byte[] eflag = {(byte) (bkey % 2)};
+      assertTrue(client.asyncBopInsert("btree", bkey, eflag, "v" + bkey, attr).get());
+    }
+    ElementFlagFilter odd = new ElementFlagFilter(CompOperands.Equal, new byte[]{1});
+    Map<Long, Element<Object>> elements =
+        client.asyncBopGet("btree", 9, 0, odd, 1, 2, false, false).get();
+    assertEquals(Arrays.asList(7L, 5L), new ArrayList<>(elements.keySet()));
+    assertEquals("v7", elements.get(7L).getValue());
+    assertEquals(Integer.valueOf(5),
+        client.asyncBopGetItemCount("btree", 0, 9, odd).get());
+
+    assertTrue(client.asyncBopDelete("btree", 0, 4, ElementFlagFilter.DO_NOT_FILTER,
+        0, false).get());
+    assertEquals(5, client.asyncBopGet("btree", 0, 9, ElementFlagFilter.DO_NOT_FILTER,
+        0, 0, false, false).get().size());
+  }
+
+  public void testPipedInsert() throws Exception {
+    Map<Long, Object> elements = new TreeMap<>();
+    for (long bkey = 0; bkey < 600; bkey++) {
+      elements.put(bkey, "v" + bkey);
+    }
+    CollectionAttributes attr = new CollectionAttributes();
+    attr.setMaxCount(500);
+    attr.setOverflowAction(CollectionOverflowAction.error);
+    Map<Integer, CollectionOperationStatus> failed =
+        client.asyncBopPipedInsertBulk("piped", elements, attr).get();
+    assertEquals(100, failed.size());
+    assertEquals(500, client.asyncBopGet("piped", 0, 1000,
+        ElementFlagFilter.DO_NOT_FILTER, 0, 0, false, false).get().size());
+  }
+
+  public void testPipedInsertEncodingFailure() throws Exception {
+    Map<Long, Object> elements = new TreeMap<>();
+    for (long bkey = 0; bkey < 1500; bkey++) {
+      elements.put(bkey, "v" + bkey);
+    }
+    CollectionTranscoder failingTc = new CollectionTranscoder() {
+      @Override
+      public CachedData encode(Object o) {
+        if ("v1200".equals(o)) {
+          throw new IllegalArgumentException("cannot encode " + o);
+        }
+        return super.encode(o);
+      }
+    };
+    try {
+      client.asyncBopPipedInsertBulk("piped", elements, new CollectionAttributes(), failingTc);
+      fail("The transcoder exception must be thrown to the caller");
+    } catch (IllegalArgumentException e) {
+      assertEquals("cannot encode v1200", e.getMessage());
+    }
+    // the chunks before the failed one are sent, and the IO thread keeps working.
+    assertEquals(1000, client.asyncBopGet("piped", 0, 2000,
+        ElementFlagFilter.DO_NOT_FILTER, 0, 0, false, false).get().size());
+  }
+
+  public void testGetBulkChunkTimedFromWrite() throws Exception {
+    final List<Long> elapsed = Collections.synchronizedList(new ArrayList<Long>());
+    ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+        .setDnsCacheTtlCheck(false)
+        .setOpTimeout(5000)
+        .setChunkSizePolicy(new FixedChunkSizePolicy() {
+          @Override
+          public void chunkCompleted(MemcachedNode node, int keyCount,
+                                     long responseBytes, long elapsedNanos) {
+            elapsed.add(elapsedNanos);
+          }
+        });
+    ArcusClient timedClient = new ArcusClient(cfb.build(),
+        Collections.singletonList(server.getAddress()));
+    try {
+      byte[] value = new byte[1000 * 1000];
+      new Random().nextBytes(value);
+      List<Future<Boolean>> sets = new ArrayList<>();
+
+      // the get bulk is queued in the client behind the sets the server does not read.
+      server.stall();
+      for (int i = 0; i < 24; i++) {
+        sets.add(timedClient.set("large:" + i, 0, value));
+      }
+      Future<Map<String, Object>> bulk = timedClient.asyncGetBulk(Arrays.asList("large:0", "large:1"));
+      Thread.sleep(500);
+      server.resume();
+
+      assertEquals(2, bulk.get(5, TimeUnit.SECONDS).size());
+      for (Future<Boolean> set : sets) {
+        assertTrue(set.get(5, TimeUnit.SECONDS));
+      }
+      assertEquals(1, elapsed.size());
+      assertTrue(elapsed.get(0) + "ns", elapsed.get(0) < TimeUnit.MILLISECONDS.toNanos(500));
+    } finally {
+      timedClient.shutdown();
+    }
+  }
+
+  public void testSortMergeGetIgnoresChunkSizePolicy() throws Exception {
+    ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+        .setDnsCacheTtlCheck(false)
+        .setOpTimeout(1000)
+        .setChunkSizePolicy(new FixedChunkSizePolicy() {
+          @Override
+          public int getChunkSize(MemcachedNode node, int defaultSize, int limit) {
+            return 1;
+          }
+        });
+    ArcusClient policyClient = new ArcusClient(cfb.build(),
+        Collections.singletonList(server.getAddress()));
+    try {
+      CollectionAttributes attr = new CollectionAttributes();
+      for (long bkey = 0; bkey < 3; bkey++) {
+        assertTrue(policyClient.asyncBopInsert("smget:" + bkey, bkey, null, "v" + bkey, attr)
+            .get());
+      }
+      long commands = server.getCommandCount();
+      List<SMGetElement<Object>> result = policyClient.asyncBopSortMergeGet(
+          Arrays.asList("smget:0", "smget:1", "smget:2"), 0, 10,
+          ElementFlagFilter.DO_NOT_FILTER, 10, SMGetMode.UNIQUE).get();
+      assertEquals(3, result.size());
+      // smget does not report its chunks, so its keys are not split by the policy.
+      assertEquals(1, server.getCommandCount() - commands);
+    } finally {
+      policyClient.shutdown();
+    }
+  }
+
+  public void testPipedInsertLaterEncodingFailure() throws Exception {
+    Map<Long, Object> elements = new TreeMap<>();
+    for (long bkey = 0; bkey < 3000; bkey++) {
+      elements.put(bkey, "v" + bkey);
+    }
+    CollectionTranscoder failingTc = new CollectionTranscoder() {
+      @Override
+      public CachedData encode(Object o) {
+        if ("v2600".equals(o)) {
+          throw new IllegalArgumentException("cannot encode " + o);
+        }
+        return super.encode(o);
+      }
+    };
+    CollectionFuture<Map<Integer, CollectionOperationStatus>> future =
+        client.asyncBopPipedInsertBulk("piped", elements, new CollectionAttributes(), failingTc);
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("The transcoder exception must be thrown by the future");
+    } catch (ExecutionException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("cannot encode v2600"));
+    }
+    assertTrue(future.isDone());
+    // the chunks before the failed one are stored, and the later ones are cancelled.
+    assertEquals(2500, client.asyncBopGet("piped", 0, 3000,
+        ElementFlagFilter.DO_NOT_FILTER, 0, 0, false, false).get().size());
+  }
+
+  public void testPipedInsertAfterShutdown() throws Exception {
+    Map<Long, Object> elements = new TreeMap<>();
+    for (long bkey = 0; bkey < 1000; bkey++) {
+      elements.put(bkey, "v" + bkey);
+    }
+    CollectionAttributes attr = new CollectionAttributes();
+    // the encoder threads are created by the first piped insert.
+    assertTrue(client.asyncBopPipedInsertBulk("piped", elements, attr)
+        .get(5, TimeUnit.SECONDS).isEmpty());
+
+    client.shutdown();
+    try {
+      client.asyncBopPipedInsertBulk("piped", elements, attr);
+      fail("A piped insert after shutdown must be refused");
+    } catch (IllegalStateException e) {
+      assertEquals("Shutting down", e.getMessage());
+    }
+  }
+
+  public void testPipedInsertWindow() throws Exception {
+    Map<Long, Object> elements = new TreeMap<>();
+    for (long bkey = 0; bkey < 50000; bkey++) {
+      elements.put(bkey, "v" + bkey);
+    }
+    final AtomicInteger encoded = new AtomicInteger(0);
+    CollectionTranscoder countingTc = new CollectionTranscoder() {
+      @Override
+      public CachedData encode(Object o) {
+        encoded.incrementAndGet();
+        return super.encode(o);
+      }
+    };
+    CollectionAttributes attr = new CollectionAttributes();
+    attr.setMaxCount(50000);
+
+    server.stall();
+    CollectionFuture<Map<Integer, CollectionOperationStatus>> future =
+        client.asyncBopPipedInsertBulk("piped", elements, attr, countingTc);
+    Thread.sleep(300);
+    // only the 4 chunks of the window are encoded while the server does not answer.
+    assertEquals(4 * CollectionPipedInsert.MAX_PIPED_ITEM_COUNT, encoded.get());
+    assertFalse(future.isDone());
+
+    server.resume();
+    assertTrue(future.get(10, TimeUnit.SECONDS).isEmpty());
+    assertEquals(50000, encoded.get());
+  }
+
+  public void testSortMergeGet() throws Exception {
+    CollectionAttributes attr = new CollectionAttributes();
+    for (long bkey = 0; bkey < 10; bkey++) {
+      String key = bkey % 2 == 0 ? "smget:even" : "smget:odd";
+      assertTrue(client.asyncBopInsert(key, bkey, null, "v" + bkey, attr).get());
+    }
+    List<SMGetElement<Object>> result = client.asyncBopSortMergeGet(
+        Arrays.asList("smget:even", "smget:odd", "smget:none"), 8, 3,
+        ElementFlagFilter.DO_NOT_FILTER, 4, SMGetMode.UNIQUE).get();
+    assertEquals(4, result.size());
+    for (int i = 0; i < 4; i++) {
+      assertEquals(8 - i, result.get(i).getBkey());
+    }
+  }
+
+  public void testAttributesAndFlushPrefix() throws Exception {
+    CollectionAttributes attr = new CollectionAttributes();
+    attr.setMaxCount(100);
+    assertTrue(client.asyncLopInsert("prefix:list", 0, "a", attr).get());
+    assertEquals(Long.valueOf(100), client.asyncGetAttr("prefix:list").get().getMaxCount());
+
+    CollectionAttributes update = new CollectionAttributes();
+    update.setMaxCount(200);
+    assertTrue(client.asyncSetAttr("prefix:list", update).get());
+    CollectionAttributes result = client.asyncGetAttr("prefix:list").get();
+    assertEquals(Long.valueOf(200), result.getMaxCount());
+    assertEquals(Long.valueOf(1), result.getCount());
+
+    assertTrue(client.set("other:kv", 0, "v").get());
+    assertTrue(client.flush("prefix").get());
+    assertFalse(server.getStore().contains("prefix:list"));
+    assertTrue(server.getStore().contains("other:kv"));
+  }
+
+  public void testLatency() throws Exception {
+    assertTrue(client.set("latency", 0, "v").get());
+    server.setLatency(200, TimeUnit.MILLISECONDS);
+    long start = System.nanoTime();
+    assertEquals("v", client.asyncGet("latency").get());
+    assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+  }
+
+  public void testStall() throws Exception {
+    assertTrue(client.set("stall", 0, "v").get());
+    server.stall();
+    try {
+      client.asyncGet("stall").get(300, TimeUnit.MILLISECONDS);
+      fail("The get should time out while the server stalls.");
+    } catch (TimeoutException e) {
+      // expected
+    }
+    server.resume();
+    assertEquals("v", client.asyncGet("stall").get(1, TimeUnit.SECONDS));
+  }
+
+  public void testNotMyKeyAndSwitchover() throws Exception {
+    server.redirect("moved", "127.0.0.1:11299");
+    try (Socket socket = new Socket(server.getAddress().getAddress(),
+        server.getAddress().getPort())) {
+      OutputStream out = socket.getOutputStream();
+      BufferedReader in = new BufferedReader(
+          new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+      out.write("set moved 0 0 1\r\nv\r\n".getBytes(StandardCharsets.UTF_8));
+      assertTrue(in.readLine().matches("NOT_MY_KEY \\d+ \\d+ 127.0.0.1:11299"));
+
+      out.write("get moved here\r\n".getBytes(StandardCharsets.UTF_8));
+      assertTrue(in.readLine().startsWith("NOT_MY_KEY "));
+      assertEquals("moved", in.readLine());
+      assertEquals("END", in.readLine());
+
+      server.setSwitchover("SWITCHOVER");
+      out.write("set here 0 0 1\r\nv\r\n".getBytes(StandardCharsets.UTF_8));
+      assertEquals("SWITCHOVER", in.readLine());
+
+      server.setSwitchover(null);
+      out.write("set here 0 0 1\r\nv\r\nget here\r\n".getBytes(StandardCharsets.UTF_8));
+      assertEquals("STORED", in.readLine());
+      assertEquals("VALUE here 0 1", in.readLine());
+      assertEquals("v", in.readLine());
+      assertEquals("END", in.readLine());
+    }
+  }
+
+  public void testCloseConnections() throws Exception {
+    assertTrue(client.set("reconnect", 0, "v").get());
+    assertEquals(1, server.getConnectionCount());
+    server.closeConnections();
+    long deadline = System.currentTimeMillis() + 5000;
+    Object value = null;
+    while (value == null && System.currentTimeMillis() < deadline) {
+      try {
+        value = client.asyncGet("reconnect").get(1, TimeUnit.SECONDS);
+      } catch (ExecutionException | TimeoutException e) {
+        Thread.sleep(100);
+      } catch (RuntimeException e) {
+        Thread.sleep(100);
+      }
+    }
+    assertEquals("v", value);
+  }
+}
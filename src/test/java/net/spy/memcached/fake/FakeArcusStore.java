@@ -0,0 +1,1319 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.fake;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import net.spy.memcached.fake.FakeItem.BKey;
+import net.spy.memcached.fake.FakeItem.BTreeElement;
+import net.spy.memcached.fake.FakeItem.BTreeItem;
+import net.spy.memcached.fake.FakeItem.CollectionItem;
+import net.spy.memcached.fake.FakeItem.EFlagFilter;
+import net.spy.memcached.fake.FakeItem.KvItem;
+import net.spy.memcached.fake.FakeItem.ListItem;
+import net.spy.memcached.fake.FakeItem.MapItem;
+import net.spy.memcached.fake.FakeItem.SetItem;
+import net.spy.memcached.util.BTreeUtil;
+
+/**
+ * In-memory storage of a {@link FakeArcusServer}.
+ *
+ * Executes the Arcus ASCII commands of key-value items, lists, sets, maps
+ * and b+trees, including sort-merge get, attributes and flush by prefix.
+ * A store can be shared by several servers, e.g. to stand for the master
+ * and the slave of a replication group.
+ */
+public class FakeArcusStore {
+
+  private static final long MAX_RELATIVE_EXPTIME = 60 * 60 * 24 * 30;
+  private static final long MAX_COUNT_LIMIT = 50000;
+  private static final String PREFIX_DELIMITER = ":";
+
+  /**
+   * Resolves the NOT_MY_KEY response of a key.
+   */
+  interface Redirector {
+    /**
+     * @return the NOT_MY_KEY line, or null if the key is served here
+     */
+    String notMyKey(String key);
+  }
+
+  private final Map<String, FakeItem> items = new HashMap<>();
+  private long casCounter = 0;
+  private int maxGetCount = 0;
+
+  /**
+   * Limit the number of elements returned by a b+tree get,
+   * like the element limit of a collection get response of the server.
+   *
+   * @param maxGetCount the maximum number of elements, 0 for no limit
+   */
+  public synchronized void setMaxGetCount(int maxGetCount) {
+    this.maxGetCount = maxGetCount;
+  }
+
+  /**
+   * Remove all items.
+   */
+  public synchronized void flushAll() {
+    items.clear();
+  }
+
+  /**
+   * Get the number of items stored, including expired ones not yet removed.
+   */
+  public synchronized int size() {
+    return items.size();
+  }
+
+  public synchronized boolean contains(String key) {
+    return lookup(key) != null;
+  }
+
+  /**
+   * Get the length of the data block that follows the command line.
+   *
+   * @param tokens the command line without a trailing noreply or pipe
+   * @return -1 if the command has no data block
+   */
+  static int getDataLength(String[] tokens) {
+    String cmd = tokens[0];
+    switch (cmd) {
+      case "set":
+      case "add":
+      case "replace":
+      case "append":
+      case "prepend":
+      case "cas":
+        return Integer.parseInt(tokens[4]);
+      case "mget":
+      case "mgets":
+        return Integer.parseInt(tokens[1]);
+      case "lop":
+      case "sop":
+      case "mop":
+      case "bop":
+        break;
+      default:
+        return -1;
+    }
+    if (tokens.length < 3) {
+      return -1;
+    }
+    String sub = tokens[1];
+    switch (cmd + " " + sub) {
+      case "lop insert":
+      case "mop insert":
+      case "mop upsert":
+      case "mop update":
+        return Integer.parseInt(tokens[4]);
+      case "sop insert":
+      case "sop delete":
+      case "sop exist":
+        return Integer.parseInt(tokens[3]);
+      case "mop get":
+      case "mop delete": {
+        int length = Integer.parseInt(tokens[3]);
+        return length > 0 ? length : -1;
+      }
+      case "bop insert":
+      case "bop upsert":
+        return Integer.parseInt(tokens[tokens[4].startsWith("0x") ? 5 : 4]);
+      case "bop update": {
+        int length = Integer.parseInt(tokens[tokens.length - 1]);
+        return length >= 0 ? length : -1;
+      }
+      case "bop smget":
+      case "bop mget":
+        return Integer.parseInt(tokens[2]);
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * Check if the command modifies the store.
+   */
+  static boolean isUpdate(String[] tokens) {
+    switch (tokens[0]) {
+      case "set":
+      case "add":
+      case "replace":
+      case "append":
+      case "prepend":
+      case "cas":
+      case "delete":
+      case "incr":
+      case "decr":
+      case "setattr":
+      case "flush_all":
+      case "flush_prefix":
+        return true;
+      case "lop":
+      case "sop":
+      case "mop":
+      case "bop":
+        if (tokens.length < 2) {
+          return false;
+        }
+        switch (tokens[1]) {
+          case "create":
+          case "insert":
+          case "upsert":
+          case "update":
+          case "delete":
+          case "incr":
+          case "decr":
+            return true;
+          case "get":
+            String last = tokens[tokens.length - 1];
+            return "delete".equals(last) || "drop".equals(last);
+          default:
+            return false;
+        }
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Get the key of a single key command.
+   *
+   * @return null if the command has no key or more than one key
+   */
+  static String getKey(String[] tokens) {
+    switch (tokens[0]) {
+      case "set":
+      case "add":
+      case "replace":
+      case "append":
+      case "prepend":
+      case "cas":
+      case "delete":
+      case "incr":
+      case "decr":
+      case "getattr":
+      case "setattr":
+        return tokens.length > 1 ? tokens[1] : null;
+      case "lop":
+      case "sop":
+      case "mop":
+      case "bop":
+        if (tokens.length < 3 || "smget".equals(tokens[1]) || "mget".equals(tokens[1])) {
+          return null;
+        }
+        return tokens[2];
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Execute a command and write its response.
+   *
+   * @param tokens     the command line without a trailing noreply or pipe
+   * @param data       the data block of the command, or null
+   * @param reply      where the response is written
+   * @param redirector resolves keys not served by the calling server
+   */
+  synchronized void execute(String[] tokens, byte[] data, Reply reply,
+                            Redirector redirector) {
+    try {
+      String key = getKey(tokens);
+      String notMyKey = key == null ? null : redirector.notMyKey(key);
+      if (notMyKey != null) {
+        reply.line(notMyKey);
+        return;
+      }
+      switch (tokens[0]) {
+        case "get":
+        case "gets":
+          get(Arrays.asList(tokens).subList(1, tokens.length), tokens[0].equals("gets"),
+              reply, redirector);
+          break;
+        case "mget":
+        case "mgets":
+          get(Arrays.asList(toString(data).split(" ")), tokens[0].equals("mgets"),
+              reply, redirector);
+          break;
+        case "set":
+        case "add":
+        case "replace":
+        case "append":
+        case "prepend":
+        case "cas":
+          store(tokens, data, reply);
+          break;
+        case "delete":
+          reply.line(remove(tokens[1]) ? "DELETED" : "NOT_FOUND");
+          break;
+        case "incr":
+        case "decr":
+          mutate(tokens, reply);
+          break;
+        case "getattr":
+          getAttributes(tokens[1], reply);
+          break;
+        case "setattr":
+          setAttributes(tokens, reply);
+          break;
+        case "flush_all":
+          items.clear();
+          reply.line("OK");
+          break;
+        case "flush_prefix":
+          reply.line(flushPrefix(tokens[1]) ? "OK" : "NOT_FOUND");
+          break;
+        case "version":
+          reply.line("VERSION " + FakeArcusServer.VERSION);
+          break;
+        case "stats":
+          reply.line("END");
+          break;
+        case "lop":
+        case "sop":
+        case "mop":
+        case "bop":
+          collection(tokens, data, reply, redirector);
+          break;
+        default:
+          reply.line("ERROR unknown command");
+          break;
+      }
+    } catch (RuntimeException e) {
+      reply.clear();
+      reply.line("CLIENT_ERROR bad command line format");
+    }
+  }
+
+  private FakeItem lookup(String key) {
+    FakeItem item = items.get(key);
+    if (item != null && item.isExpired(System.currentTimeMillis())) {
+      items.remove(key);
+      return null;
+    }
+    return item;
+  }
+
+  private boolean remove(String key) {
+    return lookup(key) != null && items.remove(key) != null;
+  }
+
+  private long nextCas() {
+    return ++casCounter;
+  }
+
+  private static long toExpireAt(long exptime, boolean sticky) {
+    if (exptime == 0 || (exptime < 0 && sticky)) {
+      return 0;
+    }
+    if (exptime < 0) {
+      return 1;
+    }
+    if (exptime > MAX_RELATIVE_EXPTIME) {
+      return exptime * 1000;
+    }
+    return System.currentTimeMillis() + exptime * 1000;
+  }
+
+  private static long toExptime(FakeItem item) {
+    if (item.expireAt == 0) {
+      return 0;
+    }
+    return Math.max(1, (item.expireAt - System.currentTimeMillis() + 999) / 1000);
+  }
+
+  private static String toString(byte[] data) {
+    return new String(data, StandardCharsets.UTF_8);
+  }
+
+  /* key-value items */
+
+  private void get(List<String> keys, boolean withCas, Reply reply, Redirector redirector) {
+    Map<String, List<String>> redirected = new LinkedHashMap<>();
+    for (String key : keys) {
+      String notMyKey = redirector.notMyKey(key);
+      if (notMyKey != null) {
+        List<String> list = redirected.get(notMyKey);
+        if (list == null) {
+          list = new ArrayList<>();
+          redirected.put(notMyKey, list);
+        }
+        list.add(key);
+        continue;
+      }
+      FakeItem item = lookup(key);
+      if (item instanceof KvItem) {
+        KvItem kv = (KvItem) item;
+        reply.line("VALUE " + key + " " + kv.flags + " " + kv.data.length +
+            (withCas ? " " + kv.cas : ""));
+        reply.data(kv.data);
+      }
+    }
+    for (Map.Entry<String, List<String>> entry : redirected.entrySet()) {
+      reply.line(entry.getKey());
+      for (String key : entry.getValue()) {
+        reply.line(key);
+      }
+    }
+    reply.line("END");
+  }
+
+  private void store(String[] tokens, byte[] data, Reply reply) {
+    String cmd = tokens[0];
+    String key = tokens[1];
+    int flags = Integer.parseInt(tokens[2]);
+    long exptime = Long.parseLong(tokens[3]);
+    FakeItem old = lookup(key);
+    if (old != null && !(old instanceof KvItem) && !cmd.equals("set")) {
+      reply.line("TYPE_MISMATCH");
+      return;
+    }
+    KvItem item = (KvItem) (old instanceof KvItem ? old : null);
+    switch (cmd) {
+      case "add":
+        if (old != null) {
+          reply.line("NOT_STORED");
+          return;
+        }
+        break;
+      case "replace":
+        if (item == null) {
+          reply.line("NOT_STORED");
+          return;
+        }
+        break;
+      case "append":
+      case "prepend":
+        if (item == null) {
+          reply.line("NOT_STORED");
+          return;
+        }
+        byte[] merged = new byte[item.data.length + data.length];
+        byte[] first = cmd.equals("append") ? item.data : data;
+        byte[] second = cmd.equals("append") ? data : item.data;
+        System.arraycopy(first, 0, merged, 0, first.length);
+        System.arraycopy(second, 0, merged, first.length, second.length);
+        item.data = merged;
+        item.cas = nextCas();
+        reply.line("STORED");
+        return;
+      case "cas":
+        if (item == null) {
+          reply.line("NOT_FOUND");
+          return;
+        }
+        if (item.cas != Long.parseLong(tokens[5])) {
+          reply.line("EXISTS");
+          return;
+        }
+        break;
+      default:
+        break;
+    }
+    KvItem stored = new KvItem();
+    stored.flags = flags;
+    stored.expireAt = toExpireAt(exptime, false);
+    stored.data = data;
+    stored.cas = nextCas();
+    items.put(key, stored);
+    reply.line("STORED");
+  }
+
+  private void mutate(String[] tokens, Reply reply) {
+    String key = tokens[1];
+    long delta = Long.parseLong(tokens[2]);
+    FakeItem item = lookup(key);
+    if (item == null) {
+      if (tokens.length < 6) {
+        reply.line("NOT_FOUND");
+        return;
+      }
+      KvItem created = new KvItem();
+      created.flags = Integer.parseInt(tokens[3]);
+      created.expireAt = toExpireAt(Long.parseLong(tokens[4]), false);
+      created.data = tokens[5].getBytes(StandardCharsets.US_ASCII);
+      created.cas = nextCas();
+      items.put(key, created);
+      reply.line(tokens[5]);
+      return;
+    }
+    if (!(item instanceof KvItem)) {
+      reply.line("TYPE_MISMATCH");
+      return;
+    }
+    KvItem kv = (KvItem) item;
+    long value = Long.parseLong(toString(kv.data).trim());
+    value = tokens[0].equals("incr") ? value + delta : Math.max(0, value - delta);
+    kv.data = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    kv.cas = nextCas();
+    reply.line(Long.toString(value));
+  }
+
+  private boolean flushPrefix(String prefix) {
+    boolean found = false;
+    Iterator<String> it = items.keySet().iterator();
+    while (it.hasNext()) {
+      String key = it.next();
+      int index = key.indexOf(PREFIX_DELIMITER);
+      if ("<null>".equals(prefix) ? index < 0 :
+          index >= 0 && key.substring(0, index).equals(prefix)) {
+        it.remove();
+        found = true;
+      }
+    }
+    return found;
+  }
+
+  /* attributes */
+
+  private void getAttributes(String key, Reply reply) {
+    FakeItem item = lookup(key);
+    if (item == null) {
+      reply.line("NOT_FOUND");
+      return;
+    }
+    reply.line("ATTR flags=" + item.flags);
+    reply.line("ATTR expiretime=" + toExptime(item));
+    reply.line("ATTR type=" + item.getType());
+    if (item instanceof CollectionItem) {
+      CollectionItem coll = (CollectionItem) item;
+      reply.line("ATTR count=" + coll.count());
+      reply.line("ATTR maxcount=" + coll.maxCount);
+      reply.line("ATTR overflowaction=" + coll.overflowAction);
+      reply.line("ATTR readable=" + (coll.readable ? "on" : "off"));
+    }
+    if (item instanceof BTreeItem) {
+      BTreeItem btree = (BTreeItem) item;
+      reply.line("ATTR maxbkeyrange=0");
+      reply.line("ATTR minbkey=" +
+          (btree.elements.isEmpty() ? "-1" : btree.elements.firstKey().toString()));
+      reply.line("ATTR maxbkey=" +
+          (btree.elements.isEmpty() ? "-1" : btree.elements.lastKey().toString()));
+      reply.line("ATTR trimmed=0");
+    }
+    reply.line("END");
+  }
+
+  private void setAttributes(String[] tokens, Reply reply) {
+    FakeItem item = lookup(tokens[1]);
+    if (item == null) {
+      reply.line("NOT_FOUND");
+      return;
+    }
+    for (int i = 2; i < tokens.length; i++) {
+      String[] attr = tokens[i].split("=");
+      if (attr.length != 2) {
+        reply.line("ATTR_ERROR bad value");
+        return;
+      }
+      String name = attr[0];
+      String value = attr[1];
+      if ("expiretime".equals(name)) {
+        item.expireAt = toExpireAt(Long.parseLong(value), item instanceof CollectionItem);
+      } else if (item instanceof CollectionItem && "maxcount".equals(name)) {
+        ((CollectionItem) item).maxCount = toMaxCount(Long.parseLong(value));
+      } else if (item instanceof CollectionItem && "overflowaction".equals(name)) {
+        ((CollectionItem) item).overflowAction = value;
+      } else if (item instanceof CollectionItem && "readable".equals(name)) {
+        ((CollectionItem) item).readable = "on".equals(value);
+      } else {
+        reply.line("ATTR_ERROR not found");
+        return;
+      }
+    }
+    reply.line("OK");
+  }
+
+  /* collection items */
+
+  private static long toMaxCount(long maxCount) {
+    if (maxCount < 0 || maxCount > MAX_COUNT_LIMIT) {
+      return MAX_COUNT_LIMIT;
+    }
+    return maxCount == 0 ? FakeItem.DEFAULT_MAX_COUNT : maxCount;
+  }
+
+  private static CollectionItem newCollection(String cmd) {
+    switch (cmd) {
+      case "lop":
+        return new ListItem();
+      case "sop":
+        return new SetItem();
+      case "mop":
+        return new MapItem();
+      default:
+        return new BTreeItem();
+    }
+  }
+
+  /**
+   * Create a collection from the attributes starting at the given token:
+   * {@code <flags> <exptime> <maxcount> [<ovflaction>] [unreadable]}.
+   */
+  private static CollectionItem newCollection(String cmd, String[] tokens, int start) {
+    CollectionItem item = newCollection(cmd);
+    item.flags = Integer.parseInt(tokens[start]);
+    item.expireAt = toExpireAt(Long.parseLong(tokens[start + 1]), true);
+    item.maxCount = toMaxCount(Long.parseLong(tokens[start + 2]));
+    for (int i = start + 3; i < tokens.length; i++) {
+      if ("unreadable".equals(tokens[i])) {
+        item.readable = false;
+      } else if (!"getrim".equals(tokens[i])) {
+        item.overflowAction = tokens[i];
+      }
+    }
+    return item;
+  }
+
+  /**
+   * Find the collection of the key, creating it if the command has a create clause
+   * at the given token.
+   *
+   * @return null if the response has already been written
+   */
+  private CollectionItem findCollection(String cmd, String key, String[] tokens,
+                                        int createIndex, Reply reply) {
+    FakeItem item = lookup(key);
+    if (item == null) {
+      if (createIndex < 0 || createIndex >= tokens.length ||
+          !"create".equals(tokens[createIndex])) {
+        reply.line("NOT_FOUND");
+        return null;
+      }
+      CollectionItem created = newCollection(cmd, tokens, createIndex + 1);
+      items.put(key, created);
+      return created;
+    }
+    if (item.getClass() != newCollection(cmd).getClass()) {
+      reply.line("TYPE_MISMATCH");
+      return null;
+    }
+    return (CollectionItem) item;
+  }
+
+  private void collection(String[] tokens, byte[] data, Reply reply, Redirector redirector) {
+    String cmd = tokens[0];
+    String sub = tokens[1];
+    if ("bop".equals(cmd) && "smget".equals(sub)) {
+      sortMergeGet(tokens, data, reply, redirector);
+      return;
+    }
+    String key = tokens[2];
+    if ("create".equals(sub)) {
+      if (lookup(key) != null) {
+        reply.line("EXISTS");
+      } else {
+        items.put(key, newCollection(cmd, tokens, 3));
+        reply.line("CREATED");
+      }
+      return;
+    }
+    switch (cmd + " " + sub) {
+      case "lop insert":
+        listInsert(tokens, data, reply);
+        break;
+      case "lop get":
+      case "lop delete":
+        listGetOrDelete(tokens, reply);
+        break;
+      case "sop insert":
+        setInsert(tokens, data, reply);
+        break;
+      case "sop get":
+        setGet(tokens, reply);
+        break;
+      case "sop delete":
+      case "sop exist":
+        setDeleteOrExist(tokens, data, reply);
+        break;
+      case "mop insert":
+      case "mop upsert":
+      case "mop update":
+        mapStore(tokens, data, reply);
+        break;
+      case "mop get":
+      case "mop delete":
+        mapGetOrDelete(tokens, data, reply);
+        break;
+      case "bop insert":
+      case "bop upsert":
+        btreeInsert(tokens, data, reply);
+        break;
+      case "bop update":
+        btreeUpdate(tokens, data, reply);
+        break;
+      case "bop get":
+      case "bop delete":
+      case "bop count":
+        btreeGetDeleteOrCount(tokens, reply);
+        break;
+      case "bop incr":
+      case "bop decr":
+        btreeMutate(tokens, reply);
+        break;
+      default:
+        reply.line("CLIENT_ERROR not supported by the fake server");
+        break;
+    }
+  }
+
+  private String storedResponse(boolean created) {
+    return created ? "CREATED_STORED" : "STORED";
+  }
+
+  private void writeValueHeader(CollectionItem item, int count, Reply reply) {
+    reply.line("VALUE " + item.flags + " " + count);
+  }
+
+  /**
+   * Finish a get response, removing the item if it has been emptied with drop.
+   */
+  private void endGet(String key, CollectionItem item, boolean delete, boolean drop,
+                      Reply reply) {
+    if (!delete) {
+      reply.line("END");
+    } else if (drop && item.count() == 0) {
+      items.remove(key);
+      reply.line("DELETED_DROPPED");
+    } else {
+      reply.line("DELETED");
+    }
+  }
+
+  private void endDelete(String key, CollectionItem item, int deleted, boolean drop,
+                         Reply reply) {
+    if (deleted == 0) {
+      reply.line("NOT_FOUND_ELEMENT");
+    } else if (drop && item.count() == 0) {
+      items.remove(key);
+      reply.line("DELETED_DROPPED");
+    } else {
+      reply.line("DELETED");
+    }
+  }
+
+  private void listInsert(String[] tokens, byte[] data, Reply reply) {
+    String key = tokens[2];
+    boolean exists = lookup(key) != null;
+    ListItem list = (ListItem) findCollection("lop", key, tokens, 5, reply);
+    if (list == null) {
+      return;
+    }
+    int size = list.count();
+    int index = Integer.parseInt(tokens[3]);
+    if (index < 0) {
+      index = size + index + 1;
+    }
+    if (index < 0 || index > size) {
+      reply.line("OUT_OF_RANGE");
+      return;
+    }
+    if (list.isFull()) {
+      if ("head_trim".equals(list.overflowAction) && index > 0) {
+        list.elements.remove(0);
+        index--;
+      } else if ("tail_trim".equals(list.overflowAction) && index < size) {
+        list.elements.remove(size - 1);
+      } else {
+        reply.line("OVERFLOWED");
+        return;
+      }
+    }
+    list.elements.add(index, data);
+    reply.line(storedResponse(!exists));
+  }
+
+  private void listGetOrDelete(String[] tokens, Reply reply) {
+    String key = tokens[2];
+    boolean get = "get".equals(tokens[1]);
+    ListItem list = (ListItem) findCollection("lop", key, tokens, -1, reply);
+    if (list == null) {
+      return;
+    }
+    if (get && !list.readable) {
+      reply.line("UNREADABLE");
+      return;
+    }
+    String last = tokens[tokens.length - 1];
+    boolean drop = "drop".equals(last);
+    boolean delete = !get || drop || "delete".equals(last);
+
+    int size = list.count();
+    String[] range = tokens[3].split("\\.\\.");
+    int from = Integer.parseInt(range[0]);
+    int to = range.length > 1 ? Integer.parseInt(range[1]) : from;
+    from = from < 0 ? size + from : from;
+    to = to < 0 ? size + to : to;
+    boolean reverse = from > to;
+    int lo = Math.max(0, Math.min(from, to));
+    int hi = Math.min(size - 1, Math.max(from, to));
+    if (lo > hi) {
+      reply.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    List<byte[]> selected = new ArrayList<>(list.elements.subList(lo, hi + 1));
+    if (reverse) {
+      Collections.reverse(selected);
+    }
+    if (delete) {
+      list.elements.subList(lo, hi + 1).clear();
+    }
+    if (!get) {
+      endDelete(key, list, selected.size(), drop, reply);
+      return;
+    }
+    writeValueHeader(list, selected.size(), reply);
+    for (byte[] element : selected) {
+      reply.element(element);
+    }
+    endGet(key, list, delete, drop, reply);
+  }
+
+  private void setInsert(String[] tokens, byte[] data, Reply reply) {
+    String key = tokens[2];
+    boolean exists = lookup(key) != null;
+    SetItem set = (SetItem) findCollection("sop", key, tokens, 4, reply);
+    if (set == null) {
+      return;
+    }
+    ByteBuffer element = ByteBuffer.wrap(data);
+    if (set.elements.contains(element)) {
+      reply.line("ELEMENT_EXISTS");
+    } else if (set.isFull()) {
+      reply.line("OVERFLOWED");
+    } else {
+      set.elements.add(element);
+      reply.line(storedResponse(!exists));
+    }
+  }
+
+  private void setGet(String[] tokens, Reply reply) {
+    String key = tokens[2];
+    SetItem set = (SetItem) findCollection("sop", key, tokens, -1, reply);
+    if (set == null) {
+      return;
+    }
+    if (!set.readable) {
+      reply.line("UNREADABLE");
+      return;
+    }
+    String last = tokens[tokens.length - 1];
+    boolean drop = "drop".equals(last);
+    boolean delete = drop || "delete".equals(last);
+    int count = Integer.parseInt(tokens[3]);
+    if (set.count() == 0) {
+      reply.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    List<ByteBuffer> selected = new ArrayList<>();
+    for (ByteBuffer element : set.elements) {
+      if (count > 0 && selected.size() == count) {
+        break;
+      }
+      selected.add(element);
+    }
+    writeValueHeader(set, selected.size(), reply);
+    for (ByteBuffer element : selected) {
+      reply.element(element.array());
+      if (delete) {
+        set.elements.remove(element);
+      }
+    }
+    endGet(key, set, delete, drop, reply);
+  }
+
+  private void setDeleteOrExist(String[] tokens, byte[] data, Reply reply) {
+    String key = tokens[2];
+    SetItem set = (SetItem) findCollection("sop", key, tokens, -1, reply);
+    if (set == null) {
+      return;
+    }
+    ByteBuffer element = ByteBuffer.wrap(data);
+    if ("exist".equals(tokens[1])) {
+      if (!set.readable) {
+        reply.line("UNREADABLE");
+      } else {
+        reply.line(set.elements.contains(element) ? "EXIST" : "NOT_EXIST");
+      }
+      return;
+    }
+    boolean removed = set.elements.remove(element);
+    endDelete(key, set, removed ? 1 : 0, "drop".equals(tokens[tokens.length - 1]), reply);
+  }
+
+  private void mapStore(String[] tokens, byte[] data, Reply reply) {
+    String key = tokens[2];
+    String sub = tokens[1];
+    String field = tokens[3];
+    boolean exists = lookup(key) != null;
+    MapItem map = (MapItem) findCollection("mop", key, tokens,
+        "update".equals(sub) ? -1 : 5, reply);
+    if (map == null) {
+      return;
+    }
+    boolean hasField = map.elements.containsKey(field);
+    if ("update".equals(sub)) {
+      if (!hasField) {
+        reply.line("NOT_FOUND_ELEMENT");
+      } else {
+        map.elements.put(field, data);
+        reply.line("UPDATED");
+      }
+      return;
+    }
+    if (hasField && "insert".equals(sub)) {
+      reply.line("ELEMENT_EXISTS");
+      return;
+    }
+    if (!hasField && map.isFull()) {
+      reply.line("OVERFLOWED");
+      return;
+    }
+    map.elements.put(field, data);
+    reply.line(hasField ? "REPLACED" : storedResponse(!exists));
+  }
+
+  private void mapGetOrDelete(String[] tokens, byte[] data, Reply reply) {
+    String key = tokens[2];
+    boolean get = "get".equals(tokens[1]);
+    MapItem map = (MapItem) findCollection("mop", key, tokens, -1, reply);
+    if (map == null) {
+      return;
+    }
+    if (get && !map.readable) {
+      reply.line("UNREADABLE");
+      return;
+    }
+    String last = tokens[tokens.length - 1];
+    boolean drop = "drop".equals(last);
+    boolean delete = !get || drop || "delete".equals(last);
+
+    List<String> fields = new ArrayList<>();
+    if (data == null) {
+      fields.addAll(map.elements.keySet());
+    } else {
+      for (String field : toString(data).split("[ ,]")) {
+        if (map.elements.containsKey(field)) {
+          fields.add(field);
+        }
+      }
+    }
+    if (fields.isEmpty()) {
+      reply.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    if (get) {
+      writeValueHeader(map, fields.size(), reply);
+    }
+    for (String field : fields) {
+      byte[] element = delete ? map.elements.remove(field) : map.elements.get(field);
+      if (get) {
+        reply.element(field, element);
+      }
+    }
+    if (get) {
+      endGet(key, map, delete, drop, reply);
+    } else {
+      endDelete(key, map, fields.size(), drop, reply);
+    }
+  }
+
+  private void btreeInsert(String[] tokens, byte[] data, Reply reply) {
+    String key = tokens[2];
+    boolean upsert = "upsert".equals(tokens[1]);
+    BKey bkey = BKey.parse(tokens[3]);
+    boolean hasEFlag = tokens[4].startsWith("0x");
+    byte[] eflag = hasEFlag ? BTreeUtil.hexStringToByteArrays(tokens[4]) : null;
+    boolean exists = lookup(key) != null;
+    BTreeItem btree = (BTreeItem) findCollection("bop", key, tokens, hasEFlag ? 6 : 5, reply);
+    if (btree == null) {
+      return;
+    }
+    if (!btree.acceptsBKey(bkey)) {
+      reply.line("BKEY_MISMATCH");
+      return;
+    }
+    BTreeElement old = btree.elements.get(bkey);
+    if (old != null) {
+      if (!upsert) {
+        reply.line("ELEMENT_EXISTS");
+        return;
+      }
+      btree.elements.put(bkey, new BTreeElement(eflag, data));
+      reply.line("REPLACED");
+      return;
+    }
+    if (btree.isFull()) {
+      String action = btree.overflowAction;
+      boolean smallest = action.startsWith("smallest");
+      if ("error".equals(action)) {
+        reply.line("OVERFLOWED");
+        return;
+      }
+      BKey edge = smallest ? btree.elements.firstKey() : btree.elements.lastKey();
+      if ((smallest && bkey.compareTo(edge) < 0) || (!smallest && bkey.compareTo(edge) > 0)) {
+        reply.line("OUT_OF_RANGE");
+        return;
+      }
+      btree.elements.remove(edge);
+    }
+    btree.elements.put(bkey, new BTreeElement(eflag, data));
+    reply.line(storedResponse(!exists));
+  }
+
+  private void btreeUpdate(String[] tokens, byte[] data, Reply reply) {
+    String key = tokens[2];
+    BTreeItem btree = (BTreeItem) findCollection("bop", key, tokens, -1, reply);
+    if (btree == null) {
+      return;
+    }
+    BKey bkey = BKey.parse(tokens[3]);
+    if (!btree.acceptsBKey(bkey)) {
+      reply.line("BKEY_MISMATCH");
+      return;
+    }
+    BTreeElement element = btree.elements.get(bkey);
+    if (element == null) {
+      reply.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    int eflagTokens = tokens.length - 5;
+    if (eflagTokens == 0 && data == null) {
+      reply.line("NOTHING_TO_UPDATE");
+      return;
+    }
+    if (eflagTokens == 1) {
+      element.eflag = "0".equals(tokens[4]) ? null : BTreeUtil.hexStringToByteArrays(tokens[4]);
+    } else if (eflagTokens == 3) {
+      int offset = Integer.parseInt(tokens[4]);
+      byte[] operand = BTreeUtil.hexStringToByteArrays(tokens[6]);
+      if (element.eflag == null || element.eflag.length < offset + operand.length) {
+        reply.line("EFLAG_MISMATCH");
+        return;
+      }
+      for (int i = 0; i < operand.length; i++) {
+        switch (tokens[5]) {
+          case "&":
+            element.eflag[offset + i] &= operand[i];
+            break;
+          case "|":
+            element.eflag[offset + i] |= operand[i];
+            break;
+          default:
+            element.eflag[offset + i] ^= operand[i];
+            break;
+        }
+      }
+    }
+    if (data != null) {
+      element.data = data;
+    }
+    reply.line("UPDATED");
+  }
+
+  /**
+   * Select the elements of a bkey range in the order of the range.
+   */
+  private static NavigableMap<BKey, BTreeElement> selectRange(BTreeItem btree, String range) {
+    String[] bounds = range.split("\\.\\.");
+    BKey from = BKey.parse(bounds[0]);
+    BKey to = bounds.length > 1 ? BKey.parse(bounds[1]) : from;
+    if (from.compareTo(to) <= 0) {
+      return btree.elements.subMap(from, true, to, true);
+    }
+    return btree.elements.subMap(to, true, from, true).descendingMap();
+  }
+
+  private void btreeGetDeleteOrCount(String[] tokens, Reply reply) {
+    String key = tokens[2];
+    String sub = tokens[1];
+    BTreeItem btree = (BTreeItem) findCollection("bop", key, tokens, -1, reply);
+    if (btree == null) {
+      return;
+    }
+    if (!"delete".equals(sub) && !btree.readable) {
+      reply.line("UNREADABLE");
+      return;
+    }
+    String range = tokens[3];
+    if (!btree.acceptsBKey(BKey.parse(range.split("\\.\\.")[0]))) {
+      reply.line("BKEY_MISMATCH");
+      return;
+    }
+    int index = 4;
+    EFlagFilter filter = EFlagFilter.parse(tokens, index);
+    if (filter != null) {
+      index += filter.getTokenCount();
+    }
+    List<Long> numbers = new ArrayList<>();
+    while (index < tokens.length && FakeItem.isNumber(tokens[index])) {
+      numbers.add(Long.parseLong(tokens[index++]));
+    }
+    String last = tokens[tokens.length - 1];
+    boolean drop = "drop".equals(last);
+    boolean delete = "delete".equals(sub) || drop || "delete".equals(last);
+    long offset = numbers.size() > 1 ? numbers.get(0) : 0;
+    long count = numbers.isEmpty() ? 0 : numbers.get(numbers.size() - 1);
+    if (maxGetCount > 0 && "get".equals(sub) && (count == 0 || count > maxGetCount)) {
+      count = maxGetCount;
+    }
+
+    List<BKey> selected = new ArrayList<>();
+    long skipped = 0;
+    for (Map.Entry<BKey, BTreeElement> entry : selectRange(btree, range).entrySet()) {
+      if (filter != null && !filter.matches(entry.getValue().eflag)) {
+        continue;
+      }
+      if (skipped++ < offset) {
+        continue;
+      }
+      if (count > 0 && selected.size() == count) {
+        break;
+      }
+      selected.add(entry.getKey());
+    }
+    if ("count".equals(sub)) {
+      reply.line("COUNT=" + selected.size());
+      return;
+    }
+    if ("delete".equals(sub)) {
+      for (BKey bkey : selected) {
+        btree.elements.remove(bkey);
+      }
+      endDelete(key, btree, selected.size(), drop, reply);
+      return;
+    }
+    if (selected.isEmpty()) {
+      reply.line("NOT_FOUND_ELEMENT");
+      return;
+    }
+    writeValueHeader(btree, selected.size(), reply);
+    for (BKey bkey : selected) {
+      BTreeElement element = delete ? btree.elements.remove(bkey) : btree.elements.get(bkey);
+      reply.element(bkey, element);
+    }
+    endGet(key, btree, delete, drop, reply);
+  }
+
+  private void btreeMutate(String[] tokens, Reply reply) {
+    String key = tokens[2];
+    BTreeItem btree = (BTreeItem) findCollection("bop", key, tokens, -1, reply);
+    if (btree == null) {
+      return;
+    }
+    BKey bkey = BKey.parse(tokens[3]);
+    if (!btree.acceptsBKey(bkey)) {
+      reply.line("BKEY_MISMATCH");
+      return;
+    }
+    long delta = Long.parseLong(tokens[4]);
+    BTreeElement element = btree.elements.get(bkey);
+    if (element == null) {
+      if (tokens.length < 6) {
+        reply.line("NOT_FOUND_ELEMENT");
+        return;
+      }
+      if (btree.isFull()) {
+        reply.line("OVERFLOWED");
+        return;
+      }
+      byte[] eflag = tokens.length > 6 ? BTreeUtil.hexStringToByteArrays(tokens[6]) : null;
+      btree.elements.put(bkey, new BTreeElement(eflag,
+          tokens[5].getBytes(StandardCharsets.US_ASCII)));
+      reply.line(tokens[5]);
+      return;
+    }
+    long value = Long.parseLong(toString(element.data).trim());
+    value = "incr".equals(tokens[1]) ? value + delta : Math.max(0, value - delta);
+    element.data = Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    reply.line(Long.toString(value));
+  }
+
+  /**
+   * The new sort-merge get:
+   * {@code bop smget <lenkeys> <numkeys> <range> [<efilter>] <count> <unique|duplicate>}.
+   */
+  private void sortMergeGet(String[] tokens, byte[] data, Reply reply, Redirector redirector) {
+    String mode = tokens[tokens.length - 1];
+    if (!"unique".equals(mode) && !"duplicate".equals(mode)) {
+      reply.line("CLIENT_ERROR not supported by the fake server");
+      return;
+    }
+    String range = tokens[4];
+    EFlagFilter filter = EFlagFilter.parse(tokens, 5);
+    int count = Integer.parseInt(tokens[tokens.length - 2]);
+    String[] bounds = range.split("\\.\\.");
+    BKey from = BKey.parse(bounds[0]);
+    boolean reverse = bounds.length > 1 && from.compareTo(BKey.parse(bounds[1])) > 0;
+
+    List<Object[]> elements = new ArrayList<>();
+    List<String> missed = new ArrayList<>();
+    for (String key : toString(data).split("[ ,]")) {
+      String notMyKey = redirector.notMyKey(key);
+      if (notMyKey != null) {
+        missed.add(key + " " + notMyKey);
+        continue;
+      }
+      FakeItem item = lookup(key);
+      if (item == null) {
+        missed.add(key + " NOT_FOUND");
+        continue;
+      }
+      if (!(item instanceof BTreeItem)) {
+        reply.line("TYPE_MISMATCH");
+        return;
+      }
+      BTreeItem btree = (BTreeItem) item;
+      if (!btree.readable) {
+        missed.add(key + " UNREADABLE");
+        continue;
+      }
+      if (!btree.acceptsBKey(from)) {
+        reply.line("BKEY_MISMATCH");
+        return;
+      }
+      int found = 0;
+      for (Map.Entry<BKey, BTreeElement> entry : selectRange(btree, range).entrySet()) {
+        if (found == count) {
+          break;
+        }
+        if (filter == null || filter.matches(entry.getValue().eflag)) {
+          elements.add(new Object[]{key, btree.flags, entry.getKey(), entry.getValue()});
+          found++;
+        }
+      }
+    }
+    elements.sort((a, b) -> {
+      int cmp = ((BKey) a[2]).compareTo((BKey) b[2]);
+      if (cmp == 0) {
+        cmp = ((String) a[0]).compareTo((String) b[0]);
+      }
+      return reverse ? -cmp : cmp;
+    });
+
+    List<Object[]> merged = new ArrayList<>();
+    boolean duplicated = false;
+    for (Object[] element : elements) {
+      if (merged.size() == count) {
+        break;
+      }
+      if (!merged.isEmpty() && merged.get(merged.size() - 1)[2].equals(element[2])) {
+        duplicated = true;
+        if ("unique".equals(mode)) {
+          continue;
+        }
+      }
+      merged.add(element);
+    }
+    reply.line("ELEMENTS " + merged.size());
+    for (Object[] element : merged) {
+      reply.element(element[0] + " " + element[1], (BKey) element[2],
+          (BTreeElement) element[3]);
+    }
+    reply.line("MISSED_KEYS " + missed.size());
+    for (String line : missed) {
+      reply.line(line);
+    }
+    reply.line("TRIMMED_KEYS 0");
+    reply.line(duplicated && "duplicate".equals(mode) ? "DUPLICATED" : "END");
+  }
+
+  /**
+   * Response of a command.
+   */
+  static final class Reply {
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    void line(String line) {
+      byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+      out.write(bytes, 0, bytes.length);
+      out.write(CRLF, 0, CRLF.length);
+    }
+
+    void data(byte[] data) {
+      out.write(data, 0, data.length);
+      out.write(CRLF, 0, CRLF.length);
+    }
+
+    /**
+     * Write a collection element: {@code [<header> ]<bytes> <data>}.
+     */
+    void element(String header, byte[] data) {
+      String prefix = (header == null ? "" : header + " ") + data.length + " ";
+      byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+      out.write(bytes, 0, bytes.length);
+      data(data);
+    }
+
+    void element(byte[] data) {
+      element((String) null, data);
+    }
+
+    void element(BKey bkey, BTreeElement element) {
+      element((String) null, bkey, element);
+    }
+
+    void element(String header, BKey bkey, BTreeElement element) {
+      StringBuilder sb = new StringBuilder();
+      if (header != null) {
+        sb.append(header).append(' ');
+      }
+      sb.append(bkey);
+      if (element.eflag != null) {
+        sb.append(' ').append(BTreeUtil.toHex(element.eflag));
+      }
+      element(sb.toString(), element.data);
+    }
+
+    void raw(byte[] bytes) {
+      out.write(bytes, 0, bytes.length);
+    }
+
+    void clear() {
+      out.reset();
+    }
+
+    boolean startsWith(String prefix) {
+      byte[] bytes = out.toByteArray();
+      return bytes.length >= prefix.length() &&
+          new String(bytes, 0, prefix.length(), StandardCharsets.UTF_8).equals(prefix);
+    }
+
+    int size() {
+      return out.size();
+    }
+
+    byte[] toByteArray() {
+      return out.toByteArray();
+    }
+  }
+}
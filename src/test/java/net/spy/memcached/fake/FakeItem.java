@@ -0,0 +1,314 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.fake;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import net.spy.memcached.util.BTreeUtil;
+
+/**
+ * Items kept by {@link FakeArcusStore}.
+ */
+abstract class FakeItem {
+
+  static final long DEFAULT_MAX_COUNT = 4000;
+
+  int flags;
+  long expireAt;
+  long cas;
+
+  abstract String getType();
+
+  boolean isExpired(long now) {
+    return expireAt > 0 && expireAt <= now;
+  }
+
+  static final class KvItem extends FakeItem {
+    byte[] data;
+
+    @Override
+    String getType() {
+      return "kv";
+    }
+  }
+
+  abstract static class CollectionItem extends FakeItem {
+    long maxCount = DEFAULT_MAX_COUNT;
+    String overflowAction;
+    boolean readable = true;
+
+    abstract int count();
+
+    boolean isFull() {
+      return count() >= maxCount;
+    }
+  }
+
+  static final class ListItem extends CollectionItem {
+    final List<byte[]> elements = new ArrayList<>();
+
+    ListItem() {
+      overflowAction = "tail_trim";
+    }
+
+    @Override
+    String getType() {
+      return "list";
+    }
+
+    @Override
+    int count() {
+      return elements.size();
+    }
+  }
+
+  static final class SetItem extends CollectionItem {
+    final Set<ByteBuffer> elements = new LinkedHashSet<>();
+
+    SetItem() {
+      overflowAction = "error";
+    }
+
+    @Override
+    String getType() {
+      return "set";
+    }
+
+    @Override
+    int count() {
+      return elements.size();
+    }
+  }
+
+  static final class MapItem extends CollectionItem {
+    final Map<String, byte[]> elements = new LinkedHashMap<>();
+
+    MapItem() {
+      overflowAction = "error";
+    }
+
+    @Override
+    String getType() {
+      return "map";
+    }
+
+    @Override
+    int count() {
+      return elements.size();
+    }
+  }
+
+  static final class BTreeItem extends CollectionItem {
+    final TreeMap<BKey, BTreeElement> elements = new TreeMap<>();
+
+    BTreeItem() {
+      overflowAction = "smallest_trim";
+    }
+
+    @Override
+    String getType() {
+      return "b+tree";
+    }
+
+    @Override
+    int count() {
+      return elements.size();
+    }
+
+    /**
+     * Check if the bkey has the same type as the bkeys already stored.
+     */
+    boolean acceptsBKey(BKey bkey) {
+      return elements.isEmpty() || elements.firstKey().isByteArray() == bkey.isByteArray();
+    }
+  }
+
+  static final class BTreeElement {
+    byte[] eflag;
+    byte[] data;
+
+    BTreeElement(byte[] eflag, byte[] data) {
+      this.eflag = eflag;
+      this.data = data;
+    }
+  }
+
+  /**
+   * A b+tree bkey, either an unsigned long or a byte array.
+   */
+  static final class BKey implements Comparable<BKey> {
+    private final long longBKey;
+    private final byte[] byteArrayBKey;
+
+    private BKey(long longBKey, byte[] byteArrayBKey) {
+      this.longBKey = longBKey;
+      this.byteArrayBKey = byteArrayBKey;
+    }
+
+    static BKey parse(String token) {
+      if (token.startsWith("0x")) {
+        return new BKey(0, BTreeUtil.hexStringToByteArrays(token));
+      }
+      return new BKey(Long.parseUnsignedLong(token), null);
+    }
+
+    boolean isByteArray() {
+      return byteArrayBKey != null;
+    }
+
+    @Override
+    public int compareTo(BKey o) {
+      if (byteArrayBKey != null) {
+        return BTreeUtil.compareByteArraysInLexOrder(byteArrayBKey, o.byteArrayBKey);
+      }
+      return Long.compareUnsigned(longBKey, o.longBKey);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof BKey && isByteArray() == ((BKey) o).isByteArray() &&
+          compareTo((BKey) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return byteArrayBKey != null ? ByteBuffer.wrap(byteArrayBKey).hashCode() :
+          Long.hashCode(longBKey);
+    }
+
+    @Override
+    public String toString() {
+      return byteArrayBKey != null ? BTreeUtil.toHex(byteArrayBKey) :
+          Long.toUnsignedString(longBKey);
+    }
+  }
+
+  /**
+   * An element flag filter of the form
+   * {@code <fwhere> [<bitwop> <fvalue>] <compop> <fvalue>[,<fvalue>...]}.
+   */
+  static final class EFlagFilter {
+    private static final String BIT_OPS = "&|^";
+
+    private final int offset;
+    private final String bitOp;
+    private final byte[] bitValue;
+    private final String compOp;
+    private final List<byte[]> compValues = new ArrayList<>();
+    private final int length;
+
+    private EFlagFilter(String[] tokens, int start) {
+      int i = start;
+      offset = Integer.parseInt(tokens[i++]);
+      if (BIT_OPS.contains(tokens[i])) {
+        bitOp = tokens[i++];
+        bitValue = BTreeUtil.hexStringToByteArrays(tokens[i++]);
+      } else {
+        bitOp = null;
+        bitValue = null;
+      }
+      compOp = tokens[i++];
+      for (String value : tokens[i++].split(",")) {
+        compValues.add(BTreeUtil.hexStringToByteArrays(value));
+      }
+      length = i - start;
+    }
+
+    /**
+     * Parse the filter starting at the given token if there is one.
+     *
+     * @return null if the tokens do not start with a filter
+     */
+    static EFlagFilter parse(String[] tokens, int start) {
+      if (start + 2 >= tokens.length || !isNumber(tokens[start])) {
+        return null;
+      }
+      String next = tokens[start + 1];
+      if ((next.length() == 2 && "EQ NE LT LE GT GE".contains(next)) ||
+          (next.length() == 1 && BIT_OPS.contains(next))) {
+        return new EFlagFilter(tokens, start);
+      }
+      return null;
+    }
+
+    int getTokenCount() {
+      return length;
+    }
+
+    boolean matches(byte[] eflag) {
+      int size = compValues.get(0).length;
+      if (eflag == null || eflag.length < offset + size) {
+        return false;
+      }
+      byte[] target = new byte[size];
+      for (int i = 0; i < size; i++) {
+        byte b = eflag[offset + i];
+        if (bitOp != null) {
+          switch (bitOp) {
+            case "&":
+              b &= bitValue[i];
+              break;
+            case "|":
+              b |= bitValue[i];
+              break;
+            default:
+              b ^= bitValue[i];
+              break;
+          }
+        }
+        target[i] = b;
+      }
+      if ("EQ".equals(compOp) || "NE".equals(compOp)) {
+        boolean found = false;
+        for (byte[] value : compValues) {
+          found |= BTreeUtil.compareByteArraysInLexOrder(target, value) == 0;
+        }
+        return "EQ".equals(compOp) == found;
+      }
+      int cmp = BTreeUtil.compareByteArraysInLexOrder(target, compValues.get(0));
+      switch (compOp) {
+        case "LT":
+          return cmp < 0;
+        case "LE":
+          return cmp <= 0;
+        case "GT":
+          return cmp > 0;
+        default:
+          return cmp >= 0;
+      }
+    }
+  }
+
+  static boolean isNumber(String token) {
+    if (token.isEmpty()) {
+      return false;
+    }
+    for (int i = token.charAt(0) == '-' ? 1 : 0; i < token.length(); i++) {
+      if (!Character.isDigit(token.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
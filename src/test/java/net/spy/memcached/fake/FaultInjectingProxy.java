@@ -0,0 +1,546 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.fake;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.spy.memcached.compat.log.Logger;
+import net.spy.memcached.compat.log.LoggerFactory;
+
+/**
+ * TCP proxy on a loopback port that forwards to a server and injects
+ * network faults, to reproduce timeouts, reconnects and failovers.
+ *
+ * Every accepted connection is forwarded to the target with its own
+ * {@link Faults}, which are the default faults of the proxy unless replaced
+ * with {@link ProxyConnection#setFaults(Faults)}. The faults apply to both
+ * directions and can be changed at any time:
+ * <ul>
+ *   <li>a {@link LatencyDistribution} delays every chunk of data.
+ *   The order of the data is kept.</li>
+ *   <li>a bandwidth cap limits the bytes per second.</li>
+ *   <li>a fragment size splits the data into small writes,
+ *   each with its own delay.</li>
+ *   <li>half-open discards all data while the sockets stay open,
+ *   as if the peer had vanished without closing.</li>
+ * </ul>
+ * Connections can also be reset, and new connections refused,
+ * and any of these can be put on a schedule with
+ * {@link #schedule(long, TimeUnit, Runnable)}.
+ * Random delays come from a seeded generator per connection,
+ * so a scenario is reproducible.
+ */
+public class FaultInjectingProxy {
+
+  private static final int BUFFER_SIZE = 16 * 1024;
+
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  private final InetSocketAddress target;
+  private final long seed;
+  private final ServerSocket serverSocket;
+  private final InetSocketAddress address;
+  private final Thread acceptThread;
+  private final ScheduledExecutorService scheduler;
+
+  private final Faults defaultFaults = new Faults();
+  private final List<ProxyConnection> connections = new CopyOnWriteArrayList<>();
+  private final AtomicInteger acceptedCount = new AtomicInteger();
+
+  private volatile boolean refuseConnections = false;
+  private volatile boolean running = true;
+
+  /**
+   * Start a proxy to the given server on an ephemeral port.
+   */
+  public FaultInjectingProxy(InetSocketAddress target) throws IOException {
+    this(target, 0);
+  }
+
+  /**
+   * Start a proxy to the given server on an ephemeral port.
+   *
+   * @param seed seed of the random delays of the connections
+   */
+  public FaultInjectingProxy(InetSocketAddress target, long seed) throws IOException {
+    this.target = target;
+    this.seed = seed;
+    this.serverSocket = new ServerSocket();
+    serverSocket.setReuseAddress(true);
+    serverSocket.bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+    this.address = (InetSocketAddress) serverSocket.getLocalSocketAddress();
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "FaultInjectingProxy-" + address.getPort() + "-scheduler");
+      t.setDaemon(true);
+      return t;
+    });
+    this.acceptThread = new Thread(this::acceptLoop,
+        "FaultInjectingProxy-" + address.getPort());
+    acceptThread.setDaemon(true);
+    acceptThread.start();
+  }
+
+  public InetSocketAddress getAddress() {
+    return address;
+  }
+
+  /**
+   * Get the address in the "host:port" form used by the client.
+   */
+  public String getHostPort() {
+    return address.getAddress().getHostAddress() + ":" + address.getPort();
+  }
+
+  public InetSocketAddress getTarget() {
+    return target;
+  }
+
+  /**
+   * Get the faults given to the connections accepted from now on,
+   * and to the open connections that have not been given their own.
+   */
+  public Faults getDefaultFaults() {
+    return defaultFaults;
+  }
+
+  /**
+   * Get the open connections in the order they were accepted.
+   */
+  public List<ProxyConnection> getConnections() {
+    return new ArrayList<>(connections);
+  }
+
+  /**
+   * Get the number of connections accepted so far, including refused ones.
+   */
+  public int getAcceptedCount() {
+    return acceptedCount.get();
+  }
+
+  /**
+   * Wait until the given number of connections have been accepted.
+   *
+   * @return false if the time has run out
+   */
+  public boolean awaitAcceptedCount(int count, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (acceptedCount.get() < count) {
+      if (System.nanoTime() >= deadline) {
+        return false;
+      }
+      Thread.sleep(5);
+    }
+    return true;
+  }
+
+  /**
+   * Reset every new connection right after accepting it,
+   * as a host without a listening server would.
+   */
+  public void setRefuseConnections(boolean refuse) {
+    refuseConnections = refuse;
+  }
+
+  /**
+   * Reset all open connections. Both peers see a connection reset.
+   */
+  public void resetConnections() {
+    for (ProxyConnection c : connections) {
+      c.reset();
+    }
+  }
+
+  /**
+   * Run the action after the given delay, e.g. to change faults in the
+   * middle of a scenario.
+   */
+  public ScheduledFuture<?> schedule(long delay, TimeUnit unit, Runnable action) {
+    return scheduler.schedule(action, delay, unit);
+  }
+
+  public void shutdown() {
+    running = false;
+    scheduler.shutdownNow();
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      logger.debug("Failed to close the proxy socket: %s", e.getMessage());
+    }
+    for (ProxyConnection c : connections) {
+      c.close();
+    }
+    try {
+      acceptThread.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void acceptLoop() {
+    while (running) {
+      Socket client;
+      try {
+        client = serverSocket.accept();
+      } catch (IOException e) {
+        if (running) {
+          logger.warn("Failed to accept a connection: %s", e.getMessage());
+        }
+        continue;
+      }
+      int id = acceptedCount.getAndIncrement();
+      if (refuseConnections) {
+        resetQuietly(client);
+        continue;
+      }
+      try {
+        Socket server = new Socket();
+        server.connect(target, 1000);
+        ProxyConnection c = new ProxyConnection(id, client, server, new Random(seed + id));
+        connections.add(c);
+        c.start();
+      } catch (IOException e) {
+        logger.info("Failed to connect to %s: %s", target, e.getMessage());
+        resetQuietly(client);
+      }
+    }
+  }
+
+  private static void resetQuietly(Socket socket) {
+    try {
+      socket.setSoLinger(true, 0);
+    } catch (SocketException e) {
+      // closed already
+    }
+    closeQuietly(socket);
+  }
+
+  private static void closeQuietly(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+
+  /**
+   * Delay added to a chunk of data.
+   */
+  public interface LatencyDistribution {
+
+    LatencyDistribution NONE = random -> 0;
+
+    /**
+     * Get the next delay in nanoseconds.
+     */
+    long nextDelayNanos(Random random);
+
+    static LatencyDistribution fixed(long delay, TimeUnit unit) {
+      long nanos = unit.toNanos(delay);
+      return random -> nanos;
+    }
+
+    static LatencyDistribution uniform(long min, long max, TimeUnit unit) {
+      long minNanos = unit.toNanos(min);
+      long range = unit.toNanos(max) - minNanos;
+      return random -> minNanos + (long) (random.nextDouble() * range);
+    }
+
+    /**
+     * The base delay, replaced by the spike delay with the given probability.
+     */
+    static LatencyDistribution spikes(long base, long spike, double probability,
+                                      TimeUnit unit) {
+      long baseNanos = unit.toNanos(base);
+      long spikeNanos = unit.toNanos(spike);
+      return random -> random.nextDouble() < probability ? spikeNanos : baseNanos;
+    }
+  }
+
+  /**
+   * Faults injected into a connection.
+   */
+  public static final class Faults {
+    private volatile LatencyDistribution latency = LatencyDistribution.NONE;
+    private volatile long bytesPerSecond = 0;
+    private volatile int fragmentSize = 0;
+    private volatile boolean halfOpen = false;
+
+    public Faults setLatency(LatencyDistribution latency) {
+      this.latency = latency;
+      return this;
+    }
+
+    /**
+     * Limit the bytes per second of each direction, 0 for no limit.
+     */
+    public Faults setBandwidth(long bytesPerSecond) {
+      this.bytesPerSecond = bytesPerSecond;
+      return this;
+    }
+
+    /**
+     * Forward the data in writes of at most the given size, 0 to forward
+     * the data as it is read.
+     */
+    public Faults setFragmentSize(int fragmentSize) {
+      this.fragmentSize = fragmentSize;
+      return this;
+    }
+
+    /**
+     * Discard all data while the sockets stay open.
+     * Data discarded is lost even after half-open is turned off.
+     */
+    public Faults setHalfOpen(boolean halfOpen) {
+      this.halfOpen = halfOpen;
+      return this;
+    }
+
+    /**
+     * Remove all faults.
+     */
+    public Faults clear() {
+      latency = LatencyDistribution.NONE;
+      bytesPerSecond = 0;
+      fragmentSize = 0;
+      halfOpen = false;
+      return this;
+    }
+  }
+
+  /**
+   * A client connection forwarded to the target.
+   */
+  public final class ProxyConnection {
+    private final int id;
+    private final Socket client;
+    private final Socket server;
+    private final Random random;
+    private final Pump upstream;
+    private final Pump downstream;
+    private final AtomicInteger finishedPumps = new AtomicInteger();
+    private volatile Faults faults = null;
+    private volatile boolean closed = false;
+
+    private ProxyConnection(int id, Socket client, Socket server, Random random)
+        throws IOException {
+      this.id = id;
+      this.client = client;
+      this.server = server;
+      this.random = random;
+      client.setTcpNoDelay(true);
+      server.setTcpNoDelay(true);
+      this.upstream = new Pump("up", client, server);
+      this.downstream = new Pump("down", server, client);
+    }
+
+    private void start() {
+      upstream.start();
+      downstream.start();
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public Faults getFaults() {
+      Faults f = faults;
+      return f == null ? defaultFaults : f;
+    }
+
+    /**
+     * Give this connection its own faults, null to follow the default faults.
+     */
+    public void setFaults(Faults faults) {
+      this.faults = faults;
+    }
+
+    /**
+     * Get the number of bytes forwarded from the client to the server.
+     */
+    public long getBytesUpstream() {
+      return upstream.bytes.get();
+    }
+
+    /**
+     * Get the number of bytes forwarded from the server to the client.
+     */
+    public long getBytesDownstream() {
+      return downstream.bytes.get();
+    }
+
+    public boolean isClosed() {
+      return closed;
+    }
+
+    /**
+     * Close both sockets with a connection reset.
+     */
+    public void reset() {
+      closed = true;
+      connections.remove(this);
+      resetQuietly(client);
+      resetQuietly(server);
+    }
+
+    /**
+     * Close both sockets normally.
+     */
+    public void close() {
+      closed = true;
+      connections.remove(this);
+      closeQuietly(client);
+      closeQuietly(server);
+    }
+
+    private long nextDelayNanos() {
+      LatencyDistribution latency = getFaults().latency;
+      synchronized (random) {
+        return latency.nextDelayNanos(random);
+      }
+    }
+
+    /**
+     * Forwarding of one direction. The reader queues every chunk with the
+     * time it is due, and the writer writes the chunks when they are due,
+     * so a delay does not reduce the throughput.
+     */
+    private final class Pump {
+      private final Socket in;
+      private final Socket out;
+      private final BlockingQueue<Chunk> queue = new LinkedBlockingQueue<>();
+      private final AtomicLong bytes = new AtomicLong();
+      private final Thread reader;
+      private final Thread writer;
+      private long lastDue = 0;
+
+      private Pump(String direction, Socket in, Socket out) {
+        this.in = in;
+        this.out = out;
+        String name = "FaultInjectingProxy-" + address.getPort() + "-" + id + "-" + direction;
+        this.reader = new Thread(this::read, name + "-reader");
+        this.writer = new Thread(this::write, name + "-writer");
+        reader.setDaemon(true);
+        writer.setDaemon(true);
+      }
+
+      private void start() {
+        reader.start();
+        writer.start();
+      }
+
+      private void read() {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+          InputStream is = in.getInputStream();
+          int n;
+          while ((n = is.read(buffer)) > 0) {
+            Faults f = getFaults();
+            if (f.halfOpen) {
+              continue;
+            }
+            int size = f.fragmentSize > 0 ? f.fragmentSize : n;
+            for (int off = 0; off < n; off += size) {
+              byte[] data = Arrays.copyOfRange(buffer, off, Math.min(n, off + size));
+              lastDue = Math.max(lastDue, System.nanoTime() + nextDelayNanos());
+              queue.add(new Chunk(data, lastDue));
+            }
+          }
+        } catch (IOException e) {
+          // reset or closed
+        }
+        queue.add(Chunk.EOF);
+      }
+
+      private void write() {
+        long allowedAt = 0;
+        try {
+          OutputStream os = out.getOutputStream();
+          while (true) {
+            Chunk chunk = queue.take();
+            if (chunk == Chunk.EOF) {
+              out.shutdownOutput();
+              break;
+            }
+            sleepUntil(chunk.due);
+            Faults f = getFaults();
+            if (f.halfOpen) {
+              continue;
+            }
+            long bps = f.bytesPerSecond;
+            if (bps > 0) {
+              sleepUntil(allowedAt);
+              allowedAt = Math.max(allowedAt, System.nanoTime()) +
+                  chunk.data.length * TimeUnit.SECONDS.toNanos(1) / bps;
+            }
+            // counted before the write, so that the receiver sees the count
+            bytes.addAndGet(chunk.data.length);
+            os.write(chunk.data);
+            os.flush();
+          }
+        } catch (IOException e) {
+          close();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        if (finishedPumps.incrementAndGet() == 2) {
+          close();
+        }
+      }
+
+      private void sleepUntil(long time) throws InterruptedException {
+        long wait;
+        while ((wait = time - System.nanoTime()) > 0) {
+          TimeUnit.NANOSECONDS.sleep(wait);
+        }
+      }
+    }
+  }
+
+  private static final class Chunk {
+    private static final Chunk EOF = new Chunk(new byte[0], 0);
+
+    private final byte[] data;
+    private final long due;
+
+    private Chunk(byte[] data, long due) {
+      this.data = data;
+      this.due = due;
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.fake;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.ArcusClient;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.collection.CollectionAttributes;
+import net.spy.memcached.collection.Element;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.fake.FaultInjectingProxy.Faults;
+import net.spy.memcached.fake.FaultInjectingProxy.LatencyDistribution;
+import net.spy.memcached.fake.FaultInjectingProxy.ProxyConnection;
+
+/**
+ * Scenarios of network faults between the client and a fake server.
+ * The recovery scenarios report the recovery time, the operations lost
+ * and the slowest operation around the reconnect.
+ */
+public class FaultInjectingProxyTest extends TestCase {
+
+  private static final long OP_TIMEOUT = 200;
+
+  private FakeArcusServer server;
+  private FaultInjectingProxy proxy;
+  private ArcusClient client;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new FakeArcusServer();
+    proxy = new FaultInjectingProxy(server.getAddress(), 1);
+    ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+        .setDnsCacheTtlCheck(false)
+        .setOpTimeout(OP_TIMEOUT)
+        .setTimeoutExceptionThreshold(4)
+        .setMaxReconnectDelay(1);
+    client = new ArcusClient(cfb.build(), Collections.singletonList(proxy.getAddress()));
+    assertTrue(client.set("proxy:key", 0, "value").get());
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    client.shutdown();
+    proxy.shutdown();
+    server.shutdown();
+    super.tearDown();
+  }
+
+  public void testLatency() throws Exception {
+    proxy.getDefaultFaults().setLatency(LatencyDistribution.fixed(50, TimeUnit.MILLISECONDS));
+    long start = System.nanoTime();
+    assertEquals("value", client.asyncGet("proxy:key").get(1, TimeUnit.SECONDS));
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertTrue("elapsed=" + elapsed, elapsed >= 100);
+
+    // the delay of each chunk does not add up for pipelined requests:
+    // one after another, the requests would take at least 20 * 2 * 200ms.
+    proxy.getDefaultFaults().setLatency(LatencyDistribution.uniform(200, 400,
+        TimeUnit.MILLISECONDS));
+    start = System.nanoTime();
+    Future<?>[] futures = new Future<?>[20];
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] = client.asyncGet("proxy:key");
+    }
+    for (Future<?> f : futures) {
+      assertEquals("value", f.get(8, TimeUnit.SECONDS));
+    }
+    elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    assertTrue("elapsed=" + elapsed, elapsed >= 400 && elapsed < 8000);
+  }
+
+  public void testBandwidth() throws Exception {
+    byte[] value = new byte[100 * 1024];
+    new Random(1).nextBytes(value);
+    proxy.getDefaultFaults().setBandwidth(256 * 1024);
+    long start = System.nanoTime();
+    assertTrue(client.set("proxy:large", 0, value).get(5, TimeUnit.SECONDS));
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    // 100KB at 256KB/s takes about 400ms.
+    assertTrue("elapsed=" + elapsed, elapsed >= 200);
+
+    proxy.getDefaultFaults().clear();
+    assertTrue(Arrays.equals(value,
+        (byte[]) client.asyncGet("proxy:large").get(1, TimeUnit.SECONDS)));
+  }
+
+  public void testFragmentedWrites() throws Exception {
+    assertTrue(client.asyncBopInsert("proxy:btree", 1, null, "a",
+        new CollectionAttributes()).get());
+    assertTrue(client.asyncBopInsert("proxy:btree", 2, null, "b", null).get());
+
+    proxy.getDefaultFaults().setFragmentSize(1)
+        .setLatency(LatencyDistribution.uniform(0, 1, TimeUnit.MILLISECONDS));
+    for (int i = 0; i < 3; i++) {
+      assertEquals("value", client.asyncGet("proxy:key").get(2, TimeUnit.SECONDS));
+      Map<String, Object> values = client.asyncGetBulk(Arrays.asList("proxy:key", "proxy:none"))
+          .get(2, TimeUnit.SECONDS);
+      assertEquals(Collections.singletonMap("proxy:key", "value"), values);
+      Map<Long, Element<Object>> elements = client.asyncBopGet("proxy:btree", 0, 10,
+          ElementFlagFilter.DO_NOT_FILTER, 0, 10, false, false).get(2, TimeUnit.SECONDS);
+      assertEquals(2, elements.size());
+    }
+  }
+
+  public void testHalfOpenConnection() throws Exception {
+    proxy.getDefaultFaults().setHalfOpen(true);
+    proxy.schedule(1500, TimeUnit.MILLISECONDS, () -> proxy.getDefaultFaults().clear());
+
+    Recovery recovery = awaitRecovery(10000);
+    assertTrue(recovery.toString(), recovery.recovered);
+    assertTrue(recovery.toString(), recovery.lost > 4);
+    // the client has given up the half-open connection after continuous timeouts
+    assertTrue(proxy.getAcceptedCount() >= 2);
+  }
+
+  public void testConnectionReset() throws Exception {
+    assertEquals(1, proxy.getConnections().size());
+    ProxyConnection first = proxy.getConnections().get(0);
+    assertTrue(first.getBytesUpstream() > 0);
+    assertTrue(first.getBytesDownstream() > 0);
+
+    proxy.resetConnections();
+    assertTrue(first.isClosed());
+
+    Recovery recovery = awaitRecovery(10000);
+    assertTrue(recovery.toString(), recovery.recovered);
+    assertTrue(proxy.awaitAcceptedCount(2, 1, TimeUnit.SECONDS));
+    assertEquals(1, proxy.getConnections().size());
+  }
+
+  public void testRefusedReconnect() throws Exception {
+    proxy.setRefuseConnections(true);
+    proxy.resetConnections();
+    proxy.schedule(2500, TimeUnit.MILLISECONDS, () -> proxy.setRefuseConnections(false));
+
+    Recovery recovery = awaitRecovery(10000);
+    assertTrue(recovery.toString(), recovery.recovered);
+    assertTrue(recovery.toString(), recovery.millis >= 1000);
+    // at least one reconnect has been refused before the successful one
+    assertTrue(proxy.getAcceptedCount() >= 3);
+  }
+
+  public void testConnectionFaults() throws Exception {
+    ProxyConnection connection = proxy.getConnections().get(0);
+    connection.setFaults(new Faults().setHalfOpen(true));
+    try {
+      client.asyncGet("proxy:key").get(OP_TIMEOUT * 2, TimeUnit.MILLISECONDS);
+      fail("The request must be discarded");
+    } catch (Exception e) {
+      // expected
+    }
+    assertFalse(proxy.getDefaultFaults() == connection.getFaults());
+
+    connection.setFaults(null);
+    assertSame(proxy.getDefaultFaults(), connection.getFaults());
+  }
+
+  /**
+   * Send gets until one succeeds.
+   */
+  private Recovery awaitRecovery(long timeoutMillis) throws InterruptedException {
+    Recovery recovery = new Recovery();
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while (System.nanoTime() < deadline) {
+      long begin = System.nanoTime();
+      boolean success;
+      try {
+        success = "value".equals(
+            client.asyncGet("proxy:key").get(OP_TIMEOUT, TimeUnit.MILLISECONDS));
+      } catch (Exception e) {
+        success = false;
+      }
+      long end = System.nanoTime();
+      recovery.maxLatencyMillis = Math.max(recovery.maxLatencyMillis,
+          TimeUnit.NANOSECONDS.toMillis(end - begin));
+      if (success) {
+        recovery.recovered = true;
+        break;
+      }
+      recovery.lost++;
+      Thread.sleep(10);
+    }
+    recovery.millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    return recovery;
+  }
+
+  private static final class Recovery {
+    private boolean recovered = false;
+    private long millis;
+    private int lost = 0;
+    private long maxLatencyMillis = 0;
+
+    @Override
+    public String toString() {
+      return "Recovery[recovered=" + recovered + ", millis=" + millis +
+          ", lost=" + lost + ", maxLatencyMillis=" + maxLatencyMillis + "]";
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+
+public class OperationFutureTest extends TestCase {
+
+  private static final OperationStatus SUCCESS =
+      new OperationStatus(true, "STORED", StatusCode.SUCCESS);
+
+  public void testCompletedBeforeGet() throws Exception {
+    OperationFuture<Boolean> future = new OperationFuture<>(1000);
+    future.set(true, SUCCESS);
+    future.signalComplete();
+
+    assertTrue(future.get());
+    assertSame(SUCCESS, future.getStatus());
+  }
+
+  public void testTimeout() throws Exception {
+    OperationFuture<Boolean> future = new OperationFuture<>(1000);
+    future.setOperation(new CheckedOperationTimeoutExceptionTest.TestOperation());
+    try {
+      future.get(10, TimeUnit.MILLISECONDS);
+      fail();
+    } catch (TimeoutException e) {
+      // expected
+    }
+  }
+
+  public void testWaitersAreWokenUp() throws Exception {
+    final OperationFuture<String> future = new OperationFuture<>(10000);
+    final int numWaiters = 4;
+    final CountDownLatch started = new CountDownLatch(numWaiters);
+    final CountDownLatch done = new CountDownLatch(numWaiters);
+    final AtomicReference<Object> failure = new AtomicReference<>();
+
+    for (int i = 0; i < numWaiters; i++) {
+      new Thread(new Runnable() {
+        public void run() {
+          started.countDown();
+          try {
+            if (!"value".equals(future.get())) {
+              failure.set("unexpected value");
+            }
+          } catch (Exception e) {
+            failure.set(e);
+          }
+          done.countDown();
+        }
+      }).start();
+    }
+    started.await();
+    Thread.sleep(50);
+
+    future.set("value", SUCCESS);
+    future.signalComplete();
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertNull(failure.get());
+  }
+
+  public void testInterrupted() throws Exception {
+    OperationFuture<Boolean> future = new OperationFuture<>(10000);
+    Thread.currentThread().interrupt();
+    try {
+      future.get();
+      fail();
+    } catch (InterruptedException e) {
+      // expected
+    }
+  }
+
+  public void testLatchFuture() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    OperationFuture<Boolean> future = new OperationFuture<>(latch, 1000);
+    future.set(false, SUCCESS);
+    latch.countDown();
+    assertFalse(future.get());
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal.result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.collection.BKeyObject;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.collection.SMGetContinuation;
+import net.spy.memcached.collection.SMGetElement;
+import net.spy.memcached.collection.SMGetMode;
+import net.spy.memcached.ops.CollectionOperationStatus;
+import net.spy.memcached.ops.OperationStatus;
+
+public class SMGetResultImplTest extends TestCase {
+
+  private static List<SMGetElement<String>> run(String key, long... bkeys) {
+    List<SMGetElement<String>> list = new ArrayList<>();
+    for (long bkey : bkeys) {
+      list.add(new SMGetElement<>(key, bkey, null, key + bkey));
+    }
+    return list;
+  }
+
+  private static List<Long> bkeys(List<SMGetElement<String>> elements) {
+    List<Long> list = new ArrayList<>();
+    for (SMGetElement<String> e : elements) {
+      list.add(e.getBkey());
+    }
+    return list;
+  }
+
+  public void testMergeAscending() {
+    SMGetResultImpl<String> result = new SMGetResultImpl<>(5, false, false);
+    result.mergeSMGetElements(run("a", 1, 4, 7, 10));
+    result.mergeSMGetElements(run("b", 2, 5, 8));
+    result.mergeSMGetElements(run("c", 3, 6));
+    result.makeResultOperationStatus();
+
+    assertEquals("[1, 2, 3, 4, 5]", bkeys(result.getFinalResult()).toString());
+    assertEquals("END", result.getOperationStatus().getMessage());
+  }
+
+  public void testMergeDescending() {
+    SMGetResultImpl<String> result = new SMGetResultImpl<>(4, false, true);
+    result.mergeSMGetElements(run("a", 10, 7, 4));
+    result.mergeSMGetElements(run("b", 9, 8, 1));
+    result.makeResultOperationStatus();
+
+    assertEquals("[10, 9, 8, 7]", bkeys(result.getFinalResult()).toString());
+  }
+
+  public void testDuplicatedBkey() {
+    SMGetResultImpl<String> result = new SMGetResultImpl<>(10, false, false);
+    result.mergeSMGetElements(run("b", 1, 2));
+    result.mergeSMGetElements(run("a", 2, 3));
+    result.makeResultOperationStatus();
+
+    List<SMGetElement<String>> merged = result.getFinalResult();
+    assertEquals("[1, 2, 2, 3]", bkeys(merged).toString());
+    assertEquals("a", merged.get(1).getKey());
+    assertEquals("b", merged.get(2).getKey());
+    assertEquals("DUPLICATED", result.getOperationStatus().getMessage());
+  }
+
+  public void testUniqueKeepsFirstKey() {
+    SMGetResultImpl<String> result = new SMGetResultImpl<>(10, true, false);
+    result.mergeSMGetElements(run("b", 1, 2));
+    result.mergeSMGetElements(run("a", 2, 3));
+    result.makeResultOperationStatus();
+
+    List<SMGetElement<String>> merged = result.getFinalResult();
+    assertEquals("[1, 2, 3]", bkeys(merged).toString());
+    assertEquals("a", merged.get(1).getKey());
+    assertEquals("END", result.getOperationStatus().getMessage());
+
+    result = new SMGetResultImpl<>(10, true, true);
+    result.mergeSMGetElements(run("a", 3, 2));
+    result.mergeSMGetElements(run("b", 2, 1));
+    result.makeResultOperationStatus();
+    merged = result.getFinalResult();
+    assertEquals("[3, 2, 1]", bkeys(merged).toString());
+    assertEquals("b", merged.get(1).getKey());
+  }
+
+  public void testTrimmedKeysBeyondLastElement() {
+    SMGetResultImpl<String> result = new SMGetResultImpl<>(2, false, false);
+    result.mergeSMGetElements(run("a", 1, 2, 3));
+    result.addTrimmedKey("b", new BKeyObject(5L));
+    result.addTrimmedKey("c", new BKeyObject(1L));
+    result.makeResultOperationStatus();
+
+    assertEquals(1, result.getMergedTrimmedKeys().size());
+    assertEquals("c", result.getMergedTrimmedKeys().get(0).getKey());
+  }
+
+  public void testFailedOperationStatus() {
+    SMGetResultImpl<String> result = new SMGetResultImpl<>(10, false, false);
+    result.mergeSMGetElements(run("a", 1, 2));
+    result.setFailedOperationStatus(new OperationStatus(false, "FAILED"));
+    result.mergeSMGetElements(run("b", 3));
+
+    assertTrue(result.getFinalResult().isEmpty());
+    assertFalse(result.getOperationStatus().isSuccess());
+  }
+
+  public void testContinuationSkipsReturnedElements() {
+    SMGetContinuation first = new SMGetContinuation(Arrays.asList("a", "b", "c"), 0, 100,
+        ElementFlagFilter.DO_NOT_FILTER, SMGetMode.DUPLICATE);
+    assertEquals(0, first.getSkipCount());
+
+    SMGetResultImpl<String> result = new SMGetResultImpl<>(3, false, false, first, 3);
+    result.mergeSMGetElements(run("a", 1, 2, 4));
+    result.mergeSMGetElements(run("b", 2, 5));
+    result.makeResultOperationStatus();
+    assertEquals("[1, 2, 2]", bkeys(result.getFinalResult()).toString());
+
+    SMGetContinuation second = result.getNextContinuation();
+    assertTrue(second.hasNext());
+    assertEquals(2L, second.getFrom().getLongBKey().longValue());
+    assertEquals(2, second.getSkipCount());
+
+    result = new SMGetResultImpl<>(3, false, false, second, 3 + second.getSkipCount());
+    result.mergeSMGetElements(run("a", 2, 4, 6));
+    result.mergeSMGetElements(run("b", 2, 5));
+    result.makeResultOperationStatus();
+    assertEquals("[4, 5, 6]", bkeys(result.getFinalResult()).toString());
+    assertFalse(result.getNextContinuation().hasNext());
+  }
+
+  public void testContinuationKeepsElementsLeftByMerge() {
+    SMGetContinuation first = new SMGetContinuation(Arrays.asList("a", "b"), 0, 100,
+        ElementFlagFilter.DO_NOT_FILTER, SMGetMode.DUPLICATE);
+    // no node returns as many elements as requested, but the merge stops at the count
+    SMGetResultImpl<String> result = new SMGetResultImpl<>(10, false, false, first, 10);
+    result.mergeSMGetElements(run("a", 1, 3, 5, 7, 9, 11));
+    result.mergeSMGetElements(run("b", 2, 4, 6, 8, 10, 12));
+    result.makeResultOperationStatus();
+    assertEquals(10, result.getFinalResult().size());
+
+    SMGetContinuation second = result.getNextContinuation();
+    assertTrue(second.hasNext());
+    result = new SMGetResultImpl<>(10, false, false, second, 10 + second.getSkipCount());
+    result.mergeSMGetElements(run("a", 11));
+    result.mergeSMGetElements(run("b", 10, 12));
+    result.makeResultOperationStatus();
+    assertEquals("[11, 12]", bkeys(result.getFinalResult()).toString());
+    assertFalse(result.getNextContinuation().hasNext());
+  }
+
+  public void testContinuationUniqueMode() {
+    SMGetContinuation first = new SMGetContinuation(Arrays.asList("a", "b"), 10, 0,
+        ElementFlagFilter.DO_NOT_FILTER, SMGetMode.UNIQUE);
+    SMGetResultImpl<String> result = new SMGetResultImpl<>(2, true, true, first, 2);
+    result.mergeSMGetElements(run("a", 9, 7));
+    result.mergeSMGetElements(run("b", 9, 8));
+    result.makeResultOperationStatus();
+    assertEquals("[9, 8]", bkeys(result.getFinalResult()).toString());
+
+    SMGetContinuation second = result.getNextContinuation();
+    assertEquals(1, second.getSkipCount());
+    result = new SMGetResultImpl<>(2, true, true, second, 3);
+    result.mergeSMGetElements(run("a", 7, 3));
+    result.mergeSMGetElements(run("b", 8, 5, 1));
+    result.makeResultOperationStatus();
+    assertEquals("[7, 5]", bkeys(result.getFinalResult()).toString());
+    assertTrue(result.getNextContinuation().hasNext());
+  }
+
+  public void testContinuationDropsMissedAndTrimmedKeys() {
+    SMGetContinuation first = new SMGetContinuation(Arrays.asList("a", "b", "c", "d"), 0, 100,
+        ElementFlagFilter.DO_NOT_FILTER, SMGetMode.DUPLICATE);
+    SMGetResultImpl<String> result = new SMGetResultImpl<>(2, false, false, first, 2);
+    result.mergeSMGetElements(run("a", 1, 5));
+    result.addMissedKey("b", new CollectionOperationStatus(
+        new OperationStatus(false, "NOT_FOUND")));
+    result.addTrimmedKey("c", new BKeyObject(2L));
+    result.addTrimmedKey("d", new BKeyObject(10L));
+    result.makeResultOperationStatus();
+
+    SMGetContinuation second = result.getNextContinuation();
+    assertEquals(Arrays.asList("a", "d"), second.getKeyList());
+    assertTrue(second.getMissedKeys().containsKey("b"));
+    assertTrue(second.getTrimmedKeys().containsKey("c"));
+  }
+
+  public void testContinuationNotCreatedOnFailure() {
+    SMGetContinuation first = new SMGetContinuation(Arrays.asList("a"), 0, 100,
+        ElementFlagFilter.DO_NOT_FILTER, SMGetMode.DUPLICATE);
+    SMGetResultImpl<String> result = new SMGetResultImpl<>(2, false, false, first, 2);
+    result.setFailedOperationStatus(new OperationStatus(false, "FAILED"));
+    assertNull(result.getNextContinuation());
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.metrics;
+
+import java.util.Collections;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.ArcusClient;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.collection.CollectionAttributes;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.fake.FakeArcusServer;
+import net.spy.memcached.ops.APIType;
+import net.spy.memcached.ops.OperationType;
+
+public class InMemoryArcusMetricsTest extends TestCase {
+
+  public void testHistogramPercentiles() {
+    AtomicHistogram histogram = new AtomicHistogram();
+    assertEquals(0, histogram.getValueAtPercentile(99));
+    assertEquals(0.0, histogram.getMean());
+
+    for (long v = 1; v <= 100000; v++) {
+      histogram.record(v * 1000);
+    }
+    assertEquals(100000, histogram.getCount());
+    assertEquals(100000000, histogram.getMax());
+    assertEquals(50000500.0, histogram.getMean(), 1.0);
+    assertWithin(50000000, histogram.getValueAtPercentile(50));
+    assertWithin(99000000, histogram.getValueAtPercentile(99));
+    assertWithin(99900000, histogram.getValueAtPercentile(99.9));
+    assertEquals(100000000, histogram.getValueAtPercentile(100));
+  }
+
+  public void testHistogramBuckets() {
+    long[] values = {0, 1, 127, 128, 129, 255, 256, 1000, 123456789, Long.MAX_VALUE};
+    for (long v : values) {
+      int index = AtomicHistogram.indexOf(v);
+      long highest = AtomicHistogram.highestValueOf(index);
+      assertTrue(highest >= v);
+      assertTrue(highest - v <= v / 64);
+      if (index > 0) {
+        assertTrue(AtomicHistogram.highestValueOf(index - 1) < v);
+      }
+    }
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue("expected " + expected + " but was " + actual,
+        actual >= expected && actual <= expected + expected / 64);
+  }
+
+  public void testAggregation() throws Exception {
+    InMemoryArcusMetrics metrics = new InMemoryArcusMetrics();
+    assertNull(metrics.getStats(APIType.GET));
+    assertTrue(metrics.getAPIStats().isEmpty());
+
+    metrics.operationCompleted(APIType.GET, OperationType.READ, 1000);
+    metrics.operationFailed(APIType.GET, OperationType.READ, 3000);
+    metrics.operationCancelled(APIType.GET, OperationType.READ, 5000000);
+    metrics.operationTimedOut(APIType.GET, OperationType.READ);
+    metrics.operationCompleted(APIType.BOP_GET, OperationType.READ, 2000);
+    metrics.operationCompleted(APIType.SET, OperationType.WRITE, 1000);
+    metrics.bytesWritten(APIType.SET, OperationType.WRITE, 20);
+    metrics.bytesRead(APIType.SET, OperationType.WRITE, 8);
+
+    OperationStats get = metrics.getStats(APIType.GET);
+    assertEquals(3, get.getCount());
+    assertEquals(1, get.getCompleted());
+    assertEquals(1, get.getFailed());
+    assertEquals(1, get.getCancelled());
+    assertEquals(1, get.getTimedOut());
+    // cancelled operations are not in the latencies
+    assertEquals(2, get.getLatency().getCount());
+    assertEquals(3000, get.getLatency().getMax());
+
+    OperationStats read = metrics.getStats(OperationType.READ);
+    assertEquals(4, read.getCount());
+    assertEquals(3, read.getLatency().getCount());
+    assertEquals(1, metrics.getStats(OperationType.WRITE).getCompleted());
+    assertEquals(20, metrics.getStats(APIType.SET).getBytesWritten());
+    assertEquals(8, metrics.getStats(OperationType.WRITE).getBytesRead());
+    assertEquals(3, metrics.getAPIStats().size());
+    assertEquals(2, metrics.getOperationTypeStats().size());
+
+    MetricsMBean mbean = new MetricsMBean(metrics);
+    assertEquals(3L, mbean.getAttribute("count-GET"));
+    assertEquals(1L, mbean.getAttribute("timedOut-READ"));
+    assertEquals(3L, mbean.getAttribute("max-GET"));
+    assertEquals(2.0, (Double) mbean.getAttribute("mean-GET"), 0.01);
+    assertNull(mbean.getAttribute("count-LOP_GET"));
+    assertEquals(5 * (7 + 5), mbean.getMBeanInfo().getAttributes().length);
+    for (MBeanAttributeInfo info : mbean.getMBeanInfo().getAttributes()) {
+      assertNotNull(mbean.getAttribute(info.getName()));
+    }
+    try {
+      mbean.getAttribute("count-UNKNOWN");
+      fail("Undefined type must be rejected");
+    } catch (AttributeNotFoundException e) {
+      // expected
+    }
+  }
+
+  public void testClientOperations() throws Exception {
+    FakeArcusServer server = new FakeArcusServer();
+    InMemoryArcusMetrics metrics = new InMemoryArcusMetrics();
+    ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder()
+        .setDnsCacheTtlCheck(false)
+        .setOpTimeout(1000)
+        .setMetrics(metrics)
+        .build(), Collections.singletonList(server.getAddress()));
+    try {
+      for (int i = 0; i < 10; i++) {
+        assertTrue(client.set("metrics:" + i, 0, "value").get());
+        assertEquals("value", client.asyncGet("metrics:" + i).get());
+      }
+      assertTrue(client.asyncBopInsert("metrics:btree", 1, null, "a",
+          new CollectionAttributes()).get());
+      assertEquals(1, client.asyncBopGet("metrics:btree", 0, 10,
+          ElementFlagFilter.DO_NOT_FILTER, 0, 10, false, false).get().size());
+
+      OperationStats set = metrics.getStats(APIType.SET);
+      assertEquals(10, set.getCompleted());
+      assertEquals(10, set.getLatency().getCount());
+      assertTrue(set.getLatency().getMax() > 0);
+      assertTrue(set.getBytesWritten() > 10 * "set metrics:0 0 0 5\r\nvalue\r\n".length() - 10);
+      assertEquals(10 * "STORED\r\n".length(), set.getBytesRead());
+      assertEquals(10, metrics.getStats(APIType.GET).getCompleted());
+      assertEquals(1, metrics.getStats(APIType.BOP_INSERT).getCompleted());
+      assertEquals(1, metrics.getStats(APIType.BOP_GET).getCompleted());
+      assertEquals(11, metrics.getStats(OperationType.READ).getCompleted());
+
+      server.stall();
+      Future<Object> timedOut = client.asyncGet("metrics:0");
+      try {
+        timedOut.get(100, TimeUnit.MILLISECONDS);
+        fail("The stalled server must not respond");
+      } catch (Exception e) {
+        // expected
+      }
+      assertEquals(1, metrics.getStats(APIType.GET).getTimedOut());
+      assertTrue(timedOut.cancel(true));
+      assertEquals(1, metrics.getStats(APIType.GET).getCancelled());
+      assertEquals(10, metrics.getStats(APIType.GET).getLatency().getCount());
+      server.resume();
+    } finally {
+      client.shutdown();
+      server.shutdown();
+    }
+  }
+}
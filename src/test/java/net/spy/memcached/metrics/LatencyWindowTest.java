@@ -0,0 +1,79 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class LatencyWindowTest extends TestCase {
+
+  private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  public void testBuckets() {
+    int bits = LatencyWindow.SUB_BUCKET_BITS;
+    long[] values = {0, 1, 3, 4, 7, 8, 9, 1000, 123456789, 1L << 40, Long.MAX_VALUE};
+    for (long v : values) {
+      int index = AtomicHistogram.indexOf(v, bits);
+      long highest = AtomicHistogram.highestValueOf(index, bits);
+      assertTrue(highest >= v);
+      assertTrue(highest - v <= v / 4);
+      if (index > 0) {
+        assertTrue(AtomicHistogram.highestValueOf(index - 1, bits) < v);
+      }
+    }
+  }
+
+  public void testPercentile() {
+    LatencyWindow window = new LatencyWindow(0);
+    assertEquals(0, window.getValueAtPercentile(99));
+    for (int i = 1; i <= 100; i++) {
+      window.record(i * MILLIS, i);
+    }
+    assertEquals(100, window.getCount());
+    assertWithin(50 * MILLIS, window.getValueAtPercentile(50));
+    assertWithin(99 * MILLIS, window.getValueAtPercentile(99));
+  }
+
+  public void testGenerations() {
+    long now = 0;
+    LatencyWindow window = new LatencyWindow(now);
+    for (int i = 0; i < LatencyWindow.GENERATION_SIZE; i++) {
+      window.record(100 * MILLIS, now);
+    }
+    // the slow generation is still in the window.
+    for (int i = 0; i < LatencyWindow.GENERATION_SIZE; i++) {
+      window.record(MILLIS, now);
+    }
+    assertWithin(100 * MILLIS, window.getValueAtPercentile(99));
+    // the slow generation is dropped.
+    window.record(MILLIS, now);
+    assertEquals(LatencyWindow.GENERATION_SIZE + 1, window.getCount());
+    assertWithin(MILLIS, window.getValueAtPercentile(99));
+
+    // every generation is dropped after a long idle time.
+    now += 2 * LatencyWindow.GENERATION_NANOS;
+    window.record(10 * MILLIS, now);
+    assertEquals(1, window.getCount());
+    assertWithin(10 * MILLIS, window.getValueAtPercentile(50));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue("expected " + expected + " but was " + actual,
+        actual >= expected && actual <= expected + expected / 4);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class SlidingTimeoutWindowTest extends TestCase {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final SlidingTimeoutWindow window = new SlidingTimeoutWindow(1, TimeUnit.SECONDS);
+
+  public void testRatio() {
+    long now = 10 * SECOND;
+    for (int i = 0; i < 200; i++) {
+      window.record(i % 4 == 0, now);
+    }
+    assertEquals(25, window.getTimeoutRatio(now));
+  }
+
+  public void testMinimumSamples() {
+    long now = 10 * SECOND;
+    for (int i = 0; i < 10; i++) {
+      window.record(i < 5, now);
+    }
+    // 5 timeouts out of 10 operations are counted against 100 operations.
+    assertEquals(5, window.getTimeoutRatio(now));
+  }
+
+  public void testLightLoad() {
+    // 30 operations a second, all timed out.
+    long now = 10 * SECOND;
+    for (int i = 0; i < 120; i++) {
+      now += SECOND / 30;
+      window.record(true, now);
+    }
+    // the last 100 operations are counted regardless of the window.
+    assertEquals(100, window.getTimeoutRatio(now));
+
+    for (int i = 0; i < 50; i++) {
+      now += SECOND / 30;
+      window.record(false, now);
+    }
+    assertEquals(50, window.getTimeoutRatio(now));
+  }
+
+  public void testSliding() {
+    long start = -3 * SECOND;
+    for (int i = 0; i < 100; i++) {
+      window.record(true, start);
+    }
+    long later = start + SECOND / 2;
+    for (int i = 0; i < 100; i++) {
+      window.record(false, later);
+    }
+    assertEquals(50, window.getTimeoutRatio(later));
+    // the timeouts slide out of the window.
+    assertEquals(0, window.getTimeoutRatio(start + SECOND + SECOND / 10));
+    // the bucket of the timeouts is reused for a new interval.
+    window.record(true, start + 2 * SECOND);
+    assertEquals(1, window.getTimeoutRatio(start + 2 * SECOND));
+  }
+
+  public void testReset() {
+    for (int i = 0; i < 100; i++) {
+      window.record(true);
+    }
+    assertEquals(100, window.getTimeoutRatio());
+    window.reset();
+    assertEquals(0, window.getTimeoutRatio());
+  }
+
+  public void testConcurrentRecords() throws Exception {
+    final long now = 10 * SECOND;
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(new Runnable() {
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            window.record(i % 10 == 0, now);
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(10, window.getTimeoutRatio(now));
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+
+public class OffHeapLocalCacheManagerTest extends TestCase {
+
+  private OffHeapLocalCacheManager newCache(int maxElements, long maxBytes) {
+    return new OffHeapLocalCacheManager("test", maxElements, 5, maxBytes,
+        new SerializingTranscoder());
+  }
+
+  public void testPutAndGet() {
+    OffHeapLocalCacheManager cache = newCache(10, 1024 * 1024);
+    String value = "value";
+    assertTrue(cache.put("key", value));
+    assertEquals(value, cache.get("key"));
+    assertNull(cache.get("nokey"));
+    assertNull(cache.get("nokey", new SerializingTranscoder()));
+  }
+
+  public void testPutEncodedValue() {
+    OffHeapLocalCacheManager cache = newCache(10, 1024 * 1024);
+    final CachedData received = new SerializingTranscoder().encode("value");
+    SerializingTranscoder tc = new SerializingTranscoder() {
+      @Override
+      public CachedData encode(Object o) {
+        throw new AssertionError("The received value must not be encoded again");
+      }
+    };
+    assertTrue(cache.put("key", "value", tc, received));
+    assertEquals("value", cache.get("key", tc));
+  }
+
+  public void testCopyOnRead() {
+    OffHeapLocalCacheManager cache = newCache(10, 1024 * 1024);
+    List<Integer> value = new ArrayList<>();
+    value.add(1);
+    assertTrue(cache.put("key", value));
+    value.add(2);
+
+    Object first = cache.get("key");
+    Object second = cache.get("key");
+    assertEquals(1, ((List<?>) first).size());
+    assertNotSame(first, second);
+  }
+
+  public void testLargeValueSpansBlocks() {
+    OffHeapLocalCacheManager cache = newCache(10, 1024 * 1024);
+    byte[] value = new byte[OffHeapLocalCacheManager.BLOCK_SIZE * 3 + 7];
+    for (int i = 0; i < value.length; i++) {
+      value[i] = (byte) i;
+    }
+    assertTrue(cache.put("key", value));
+    byte[] cached = cache.get("key");
+    assertEquals(value.length, cached.length);
+    for (int i = 0; i < value.length; i++) {
+      assertEquals(value[i], cached[i]);
+    }
+  }
+
+  public void testDelete() {
+    OffHeapLocalCacheManager cache = newCache(10, 1024 * 1024);
+    cache.put("key", "value");
+    cache.delete("key");
+    assertNull(cache.get("key"));
+    assertEquals(0, cache.size());
+  }
+
+  public void testMaxElements() {
+    OffHeapLocalCacheManager cache = newCache(3, 1024 * 1024);
+    cache.put("key0", "value0");
+    cache.put("key1", "value1");
+    cache.put("key2", "value2");
+    cache.get("key0");
+    cache.put("key3", "value3");
+
+    assertEquals(3, cache.size());
+    assertEquals("value0", cache.get("key0"));
+    assertNull(cache.get("key1"));
+  }
+
+  public void testMemoryBudget() {
+    long budget = OffHeapLocalCacheManager.BLOCK_SIZE * 8;
+    OffHeapLocalCacheManager cache = newCache(1000, budget);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(cache.put("key" + i, new byte[OffHeapLocalCacheManager.BLOCK_SIZE]));
+    }
+    assertTrue(cache.getAllocatedBytes() <= budget);
+    assertTrue(cache.size() < 100);
+    assertNotNull(cache.get("key99"));
+    assertNull(cache.get("key0"));
+
+    assertFalse(cache.put("huge", new byte[(int) budget * 2]));
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StatusCode;
+
+public class CoalescedGetCallbackTest extends TestCase {
+
+  private final ConcurrentMap<String, CoalescedGetCallback> inflight =
+      new ConcurrentHashMap<>();
+
+  public void testDispatchToAttachedCallbacks() {
+    RecordingCallback first = new RecordingCallback();
+    RecordingCallback second = new RecordingCallback();
+    CoalescedGetCallback cb = new CoalescedGetCallback(inflight, "key", first);
+    inflight.put("key", cb);
+
+    assertTrue(cb.attach(second));
+    assertEquals(2, cb.numCallbacks());
+
+    cb.gotData("key", 3, new byte[]{1, 2});
+    cb.receivedStatus(new OperationStatus(true, "END", StatusCode.SUCCESS));
+    cb.complete();
+
+    for (RecordingCallback rc : new RecordingCallback[]{first, second}) {
+      assertEquals(3, rc.flags);
+      assertEquals(2, rc.data.length);
+      assertTrue(rc.status.isSuccess());
+      assertTrue(rc.completed);
+    }
+    assertFalse(inflight.containsKey("key"));
+  }
+
+  public void testAttachAfterComplete() {
+    CoalescedGetCallback cb = new CoalescedGetCallback(inflight, "key",
+        new RecordingCallback());
+    inflight.put("key", cb);
+    cb.receivedStatus(new OperationStatus(false, "NOT_FOUND", StatusCode.ERR_NOT_FOUND));
+    cb.complete();
+
+    RecordingCallback late = new RecordingCallback();
+    assertFalse(cb.attach(late));
+    assertFalse(late.completed);
+  }
+
+  public void testCompleteWithoutData() {
+    RecordingCallback first = new RecordingCallback();
+    CoalescedGetCallback cb = new CoalescedGetCallback(inflight, "key", first);
+    cb.receivedStatus(new OperationStatus(true, "END", StatusCode.SUCCESS));
+    cb.complete();
+
+    assertNull(first.data);
+    assertTrue(first.status.isSuccess());
+    assertTrue(first.completed);
+  }
+
+  private static class RecordingCallback implements GetOperation.Callback {
+    private int flags;
+    private byte[] data;
+    private OperationStatus status;
+    private boolean completed;
+
+    public void gotData(String key, int f, byte[] d) {
+      flags = f;
+      data = d;
+    }
+
+    public void receivedStatus(OperationStatus s) {
+      status = s;
+    }
+
+    public void complete() {
+      completed = true;
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class GetCommandBuilderTest extends TestCase {
+
+  private static String toString(ByteBuffer bb) throws Exception {
+    byte[] bytes = new byte[bb.remaining()];
+    bb.get(bytes);
+    return new String(bytes, "UTF-8");
+  }
+
+  public void testGet() throws Exception {
+    assertEquals("get key\r\n",
+        toString(GetCommandBuilder.build("get", Collections.singletonList("key"))));
+    assertEquals("gets key1 key2\r\n",
+        toString(GetCommandBuilder.build("gets", Arrays.asList("key1", "key2"))));
+  }
+
+  public void testMGet() throws Exception {
+    assertEquals("mget 9 2\r\nkey1 key2\r\n",
+        toString(GetCommandBuilder.build("mget", Arrays.asList("key1", "key2"))));
+    assertEquals("mgets 3 1\r\nkey\r\n",
+        toString(GetCommandBuilder.build("mgets", Collections.singletonList("key"))));
+  }
+
+  public void testNonAsciiKeys() throws Exception {
+    List<String> keys = Arrays.asList("key", "키", "prefix:값");
+    String keysString = "key 키 prefix:값";
+    ByteBuffer bb = GetCommandBuilder.build("mget", keys);
+    assertEquals("mget " + keysString.getBytes("UTF-8").length + " 3\r\n" +
+        keysString + "\r\n", toString(bb));
+  }
+}
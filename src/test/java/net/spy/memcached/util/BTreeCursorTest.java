@@ -0,0 +1,85 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.util;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.ArcusClient;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.collection.CollectionAttributes;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.fake.FakeArcusServer;
+
+public class BTreeCursorTest extends TestCase {
+
+  private static final String KEY = "cursor:btree";
+
+  private FakeArcusServer server;
+  private ArcusClient client;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    server = new FakeArcusServer();
+    client = new ArcusClient(new ConnectionFactoryBuilder().setDnsCacheTtlCheck(false).build(),
+        Collections.singletonList(server.getAddress()));
+    for (int i = 0; i < 25; i++) {
+      assertTrue(client.asyncBopInsert(KEY, i, null, "value" + i,
+          new CollectionAttributes()).get(1, TimeUnit.SECONDS));
+    }
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    client.shutdown();
+    server.shutdown();
+    super.tearDown();
+  }
+
+  public void testShortPagesDoNotEndIteration() {
+    // the server returns fewer elements than the page size
+    server.getStore().setMaxGetCount(3);
+
+    BTreeCursor<Object> cursor = client.bopCursor(KEY, 0, 100,
+        ElementFlagFilter.DO_NOT_FILTER, 10);
+    long expected = 0;
+    while (cursor.hasNext()) {
+      assertEquals(expected++, cursor.next().getLongBkey());
+    }
+    assertEquals(25, expected);
+  }
+
+  public void testByteArrayBKeyShortPages() throws Exception {
+    String key = "cursor:bytes";
+    for (int i = 0; i < 10; i++) {
+      assertTrue(client.asyncBopInsert(key, new byte[]{(byte) i}, null, "value" + i,
+          new CollectionAttributes()).get(1, TimeUnit.SECONDS));
+    }
+    server.getStore().setMaxGetCount(2);
+
+    BTreeCursor<Object> cursor = client.bopCursor(key, new byte[]{0}, new byte[]{100},
+        ElementFlagFilter.DO_NOT_FILTER, 4);
+    int expected = 0;
+    while (cursor.hasNext()) {
+      assertEquals(expected++, cursor.next().getByteArrayBkey()[0]);
+    }
+    assertEquals(10, expected);
+  }
+}
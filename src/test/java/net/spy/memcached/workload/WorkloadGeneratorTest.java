@@ -0,0 +1,135 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.workload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import net.spy.memcached.ArcusClientPool;
+import net.spy.memcached.fake.FakeArcusServer;
+import net.spy.memcached.metrics.AtomicHistogram;
+
+public class WorkloadGeneratorTest extends TestCase {
+
+  public void testHistogramPercentiles() {
+    AtomicHistogram histogram = new AtomicHistogram();
+    for (long v = 1; v <= 100000; v++) {
+      histogram.record(v * 1000);
+    }
+    assertEquals(100000, histogram.getCount());
+    assertEquals(100000000, histogram.getMax());
+    assertWithin(50000000, histogram.getValueAtPercentile(50));
+    assertWithin(99000000, histogram.getValueAtPercentile(99));
+    assertWithin(99900000, histogram.getValueAtPercentile(99.9));
+    assertEquals(100000000, histogram.getValueAtPercentile(100));
+
+    AtomicHistogram other = new AtomicHistogram();
+    other.record(200000000);
+    histogram.add(other);
+    assertEquals(100001, histogram.getCount());
+    assertEquals(200000000, histogram.getMax());
+    assertEquals(200000000, histogram.getValueAtPercentile(100));
+    assertWithin(50000000, histogram.getValueAtPercentile(50));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue("expected " + expected + " but was " + actual,
+        actual >= expected && actual <= expected + expected / 64);
+  }
+
+  public void testZipfDistribution() {
+    Random random = new Random(1);
+    KeyDistribution uniform = KeyDistribution.create("uniform", 1000, 0.99);
+    KeyDistribution zipf = KeyDistribution.create("zipf", 1000, 0.99);
+    int[] uniformCounts = new int[1000];
+    int[] zipfCounts = new int[1000];
+    for (int i = 0; i < 100000; i++) {
+      uniformCounts[uniform.next(random)]++;
+      zipfCounts[zipf.next(random)]++;
+    }
+    assertTrue(uniformCounts[0] < 200);
+    assertTrue(zipfCounts[0] > 10000);
+    assertTrue(zipfCounts[0] > zipfCounts[1]);
+    assertTrue(zipfCounts[1] > zipfCounts[100]);
+  }
+
+  public void testParseOptions() {
+    WorkloadOptions options = WorkloadOptions.parse(new String[]{
+        "--fake", "--threads=4", "--rate=1000", "--mix=get=3,bopget=1",
+        "--value-size=10-100", "--key-dist=zipf"});
+    assertTrue(options.fake);
+    assertEquals(4, options.threads);
+    assertEquals(1000, options.rate);
+    assertEquals(3, options.mix[WorkloadOperation.GET.ordinal()]);
+    assertEquals(0, options.mix[WorkloadOperation.SET.ordinal()]);
+    assertEquals(1, options.mix[WorkloadOperation.BOP_GET.ordinal()]);
+    assertEquals(10, options.minValueSize);
+    assertEquals(100, options.maxValueSize);
+    assertTrue(options.usesCollections());
+
+    assertInvalid("--threads=4");
+    assertInvalid("--fake", "--servers=127.0.0.1:11211");
+    assertInvalid("--fake", "--mix=get=0");
+    assertInvalid("--fake", "--mix=incr=1");
+    assertInvalid("--fake", "--key-dist=gauss");
+    assertInvalid("--fake", "--unknown=1");
+  }
+
+  private static void assertInvalid(String... args) {
+    try {
+      WorkloadOptions.parse(args);
+      fail("Options must be rejected : " + String.join(" ", args));
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public void testRunAgainstFakeServer() throws Exception {
+    WorkloadOptions options = WorkloadOptions.parse(new String[]{
+        "--fake", "--threads=2", "--rate=1000", "--duration=1", "--warmup=0",
+        "--mix=get=4,set=2,mget=1,bopinsert=1,bopget=1,smget=1",
+        "--keys=100", "--btrees=10", "--bkey-range=1000", "--smget-keys=3",
+        "--preload"});
+    FakeArcusServer server = new FakeArcusServer();
+    ArcusClientPool client = WorkloadGenerator.createClient(options, server.getHostPort());
+    try {
+      WorkloadGenerator generator = new WorkloadGenerator(options, client);
+      generator.preload();
+      assertEquals(100 + 10, server.getStore().size());
+
+      WorkloadResult result = generator.run();
+      long count = result.getTotal().responseTime.getCount();
+      assertTrue("count=" + count, count > 500 && count <= 1000);
+      assertEquals(0, result.getTotal().errors);
+      for (WorkloadOperation op : WorkloadOperation.values()) {
+        assertTrue(result.getStats(op).responseTime.getCount() > 0);
+      }
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      result.print(new PrintStream(out, true, "UTF-8"));
+      String report = out.toString("UTF-8");
+      assertTrue(report.contains("open loop at 1000 ops/sec"));
+      assertTrue(report.contains("smget"));
+    } finally {
+      client.shutdown();
+      server.shutdown();
+    }
+  }
+}
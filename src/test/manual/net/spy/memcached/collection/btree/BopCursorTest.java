@@ -0,0 +1,119 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.collection.btree;
+
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.collection.BaseIntegrationTest;
+import net.spy.memcached.collection.CollectionAttributes;
+import net.spy.memcached.collection.Element;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.util.BTreeCursor;
+
+public class BopCursorTest extends BaseIntegrationTest {
+
+  private final String key = "BopCursorTest";
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    mc.delete(key).get();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    mc.delete(key).get();
+    super.tearDown();
+  }
+
+  private void insertLongBKeys(int count) throws Exception {
+    for (int i = 0; i < count; i++) {
+      assertTrue(mc.asyncBopInsert(key, i, null, "value" + i,
+          new CollectionAttributes()).get(1000, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  public void testLongBKeyAscending() throws Exception {
+    insertLongBKeys(25);
+
+    BTreeCursor<Object> cursor = mc.bopCursor(key, 0, 100,
+        ElementFlagFilter.DO_NOT_FILTER, 10);
+    long expected = 0;
+    while (cursor.hasNext()) {
+      Element<Object> element = cursor.next();
+      assertEquals(expected, element.getLongBkey());
+      assertEquals("value" + expected, element.getValue());
+      expected++;
+    }
+    assertEquals(25, expected);
+  }
+
+  public void testLongBKeyDescending() throws Exception {
+    insertLongBKeys(20);
+
+    BTreeCursor<Object> cursor = mc.bopCursor(key, 19, 5,
+        ElementFlagFilter.DO_NOT_FILTER, 5);
+    long expected = 19;
+    while (cursor.hasNext()) {
+      assertEquals(expected--, cursor.next().getLongBkey());
+    }
+    assertEquals(4, expected);
+  }
+
+  public void testByteArrayBKey() throws Exception {
+    for (int i = 0; i < 23; i++) {
+      assertTrue(mc.asyncBopInsert(key, new byte[]{(byte) i}, null, "value" + i,
+          new CollectionAttributes()).get(1000, TimeUnit.MILLISECONDS));
+    }
+
+    BTreeCursor<Object> cursor = mc.bopCursor(key, new byte[]{0}, new byte[]{100},
+        ElementFlagFilter.DO_NOT_FILTER, 4);
+    int expected = 0;
+    while (cursor.hasNext()) {
+      Element<Object> element = cursor.next();
+      assertEquals(expected, element.getByteArrayBkey()[0]);
+      assertEquals("value" + expected, element.getValue());
+      expected++;
+    }
+    assertEquals(23, expected);
+  }
+
+  public void testNotFound() throws Exception {
+    BTreeCursor<Object> cursor = mc.bopCursor(key, 0, 100,
+        ElementFlagFilter.DO_NOT_FILTER, 10);
+    assertFalse(cursor.hasNext());
+  }
+
+  public void testClose() throws Exception {
+    insertLongBKeys(30);
+
+    BTreeCursor<Object> cursor = mc.bopCursor(key, 0, 100,
+        ElementFlagFilter.DO_NOT_FILTER, 10);
+    assertTrue(cursor.hasNext());
+    cursor.close();
+    assertFalse(cursor.hasNext());
+  }
+
+  public void testInvalidPageSize() throws Exception {
+    try {
+      mc.bopCursor(key, 0, 100, ElementFlagFilter.DO_NOT_FILTER, 0);
+      fail("pageSize must be a positive number.");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
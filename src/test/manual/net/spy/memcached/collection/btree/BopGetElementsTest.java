@@ -0,0 +1,95 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.collection.btree;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.collection.BTreeOrder;
+import net.spy.memcached.collection.BaseIntegrationTest;
+import net.spy.memcached.collection.CollectionAttributes;
+import net.spy.memcached.collection.CollectionResponse;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.collection.LongBKeyElements;
+import net.spy.memcached.collection.LongBKeyGetResult;
+import net.spy.memcached.internal.CollectionFuture;
+import net.spy.memcached.ops.CollectionOperationStatus;
+
+public class BopGetElementsTest extends BaseIntegrationTest {
+
+  private final String key = "BopGetElementsTest";
+  private final String key2 = "BopGetElementsTest2";
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    mc.delete(key).get();
+    mc.delete(key2).get();
+    for (int i = 0; i < 10; i++) {
+      assertTrue(mc.asyncBopInsert(key, i, null, "value" + i,
+          new CollectionAttributes()).get(1000, TimeUnit.MILLISECONDS));
+    }
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    mc.delete(key).get();
+    mc.delete(key2).get();
+    super.tearDown();
+  }
+
+  public void testGetElements() throws Exception {
+    LongBKeyElements<Object> elements = mc.asyncBopGetElements(key, 8, 2,
+        ElementFlagFilter.DO_NOT_FILTER, 0, 100, false, false)
+        .get(1000, TimeUnit.MILLISECONDS);
+    assertEquals(7, elements.size());
+    assertEquals(8, elements.getBkey(0));
+    assertEquals("value2", elements.getValue(6));
+    assertEquals(3, elements.indexOf(5));
+  }
+
+  public void testGetElementsNotFound() throws Exception {
+    CollectionFuture<LongBKeyElements<Object>> future = mc.asyncBopGetElements(key2, 0, 10,
+        ElementFlagFilter.DO_NOT_FILTER, 0, 100, false, false);
+    assertNull(future.get(1000, TimeUnit.MILLISECONDS));
+    assertEquals(CollectionResponse.NOT_FOUND, future.getOperationStatus().getResponse());
+  }
+
+  public void testGetElementsByPosition() throws Exception {
+    LongBKeyElements<Object> elements = mc.asyncBopGetElementsByPosition(key,
+        BTreeOrder.DESC, 0, 3).get(1000, TimeUnit.MILLISECONDS);
+    assertEquals(4, elements.size());
+    assertEquals(9, elements.getBkey(0));
+    assertEquals("value6", elements.get(6));
+  }
+
+  public void testGetBulkElements() throws Exception {
+    Map<String, LongBKeyGetResult<Object>> results = mc.asyncBopGetBulkElements(
+        Arrays.asList(key, key2), 0, 4, ElementFlagFilter.DO_NOT_FILTER, 0, 10)
+        .get(1000, TimeUnit.MILLISECONDS);
+    assertEquals(2, results.size());
+
+    LongBKeyElements<Object> elements = results.get(key).getElements();
+    assertEquals(5, elements.size());
+    assertEquals("value4", elements.getValue(4));
+
+    CollectionOperationStatus status = results.get(key2).getCollectionResponse();
+    assertEquals(CollectionResponse.NOT_FOUND, status.getResponse());
+    assertNull(results.get(key2).getElements());
+  }
+}
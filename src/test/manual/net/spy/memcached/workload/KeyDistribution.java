@@ -0,0 +1,115 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.workload;
+
+import java.util.Random;
+
+/**
+ * Distribution of the key indexes accessed by a workload.
+ */
+abstract class KeyDistribution {
+
+  protected final int keyCount;
+
+  protected KeyDistribution(int keyCount) {
+    if (keyCount <= 0) {
+      throw new IllegalArgumentException("keyCount must be a positive number.");
+    }
+    this.keyCount = keyCount;
+  }
+
+  public int getKeyCount() {
+    return keyCount;
+  }
+
+  /**
+   * Get the next key index between 0 (inclusive) and the key count (exclusive).
+   */
+  public abstract int next(Random random);
+
+  static KeyDistribution create(String name, int keyCount, double zipfTheta) {
+    if ("uniform".equals(name)) {
+      return new Uniform(keyCount);
+    }
+    if ("zipf".equals(name)) {
+      return new Zipf(keyCount, zipfTheta);
+    }
+    throw new IllegalArgumentException("Unknown key distribution : " + name);
+  }
+
+  static final class Uniform extends KeyDistribution {
+    Uniform(int keyCount) {
+      super(keyCount);
+    }
+
+    @Override
+    public int next(Random random) {
+      return random.nextInt(keyCount);
+    }
+  }
+
+  /**
+   * Zipfian distribution where the key index 0 is the most popular,
+   * generated with the method of Gray et al, "Quickly generating
+   * billion-record synthetic databases".
+   */
+  static final class Zipf extends KeyDistribution {
+    private final double theta;
+    private final double alpha;
+    private final double zetaN;
+    private final double eta;
+    private final double halfPowTheta;
+
+    Zipf(int keyCount, double theta) {
+      super(keyCount);
+      if (theta <= 0 || theta >= 1) {
+        throw new IllegalArgumentException("zipf theta must be between 0 and 1.");
+      }
+      this.theta = theta;
+      this.alpha = 1.0 / (1.0 - theta);
+      this.zetaN = zeta(keyCount, theta);
+      this.eta = (1 - Math.pow(2.0 / keyCount, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+      this.halfPowTheta = 1.0 + Math.pow(0.5, theta);
+    }
+
+    private static double zeta(int n, double theta) {
+      double sum = 0;
+      for (int i = 1; i <= n; i++) {
+        sum += 1 / Math.pow(i, theta);
+      }
+      return sum;
+    }
+
+    public double getTheta() {
+      return theta;
+    }
+
+    @Override
+    public int next(Random random) {
+      double u = random.nextDouble();
+      double uz = u * zetaN;
+      if (uz < 1.0) {
+        return 0;
+      }
+      if (uz < halfPowTheta) {
+        return Math.min(1, keyCount - 1);
+      }
+      int index = (int) (keyCount * Math.pow(eta * u - eta + 1, alpha));
+      return Math.min(index, keyCount - 1);
+    }
+  }
+}
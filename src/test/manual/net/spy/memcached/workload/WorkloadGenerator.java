@@ -0,0 +1,378 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.workload;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+import net.spy.memcached.AddrUtil;
+import net.spy.memcached.ArcusClient;
+import net.spy.memcached.ArcusClientPool;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.collection.CollectionAttributes;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.collection.SMGetMode;
+import net.spy.memcached.fake.FakeArcusServer;
+import net.spy.memcached.metrics.AtomicHistogram;
+
+/**
+ * Load generator that runs a configurable mix of operations
+ * through an {@link ArcusClientPool} and reports throughput and latency.
+ *
+ * With a target rate, every worker sends its operations on a fixed schedule
+ * regardless of how long the previous operation took (open loop), and the
+ * latency of an operation is measured from its scheduled start.
+ * A stall of the client or the server is therefore charged to every operation
+ * that should have been sent during the stall, which corrects the coordinated
+ * omission of closed loop measurements. The time from the actual send is
+ * reported separately as the service time.
+ * Without a target rate, every worker sends the next operation as soon as
+ * the previous one completes (closed loop) and only the service time is known.
+ *
+ * Run with --help to see the options.
+ */
+public final class WorkloadGenerator {
+
+  private static final int PRELOAD_WINDOW = 1000;
+  private static final int PRELOAD_ELEMENTS = 100;
+
+  private final WorkloadOptions options;
+  private final ArcusClientPool client;
+  private final KeyDistribution keys;
+  private final KeyDistribution btrees;
+  private final byte[] valueSource;
+  private final int totalWeight;
+
+  WorkloadGenerator(WorkloadOptions options, ArcusClientPool client) {
+    this.options = options;
+    this.client = client;
+    this.keys = KeyDistribution.create(options.keyDistribution, options.keyCount,
+        options.zipfTheta);
+    this.btrees = KeyDistribution.create(options.keyDistribution, options.btreeCount,
+        options.zipfTheta);
+    this.valueSource = new byte[options.maxValueSize];
+    new Random(options.seed).nextBytes(valueSource);
+    int weights = 0;
+    for (int weight : options.mix) {
+      weights += weight;
+    }
+    this.totalWeight = weights;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (Arrays.asList(args).contains("--help")) {
+      System.out.print(WorkloadOptions.USAGE);
+      return;
+    }
+    WorkloadOptions options;
+    try {
+      options = WorkloadOptions.parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.print(WorkloadOptions.USAGE);
+      System.exit(1);
+      return;
+    }
+
+    FakeArcusServer server = options.fake ? new FakeArcusServer() : null;
+    ArcusClientPool client = createClient(options,
+        server == null ? options.servers : server.getHostPort());
+    try {
+      WorkloadGenerator generator = new WorkloadGenerator(options, client);
+      if (options.preload) {
+        generator.preload();
+      }
+      generator.run().print(System.out);
+    } finally {
+      client.shutdown();
+      if (server != null) {
+        server.shutdown();
+      }
+    }
+  }
+
+  static ArcusClientPool createClient(WorkloadOptions options, String servers)
+      throws IOException {
+    ConnectionFactoryBuilder cfb = new ConnectionFactoryBuilder()
+        .setOpTimeout(options.opTimeout);
+    if (options.admin != null) {
+      return ArcusClient.createArcusClientPool(options.admin, options.service, cfb,
+          options.poolSize);
+    }
+    if (options.fake) {
+      cfb.setDnsCacheTtlCheck(false);
+    }
+    ArcusClient[] clients = new ArcusClient[options.poolSize];
+    for (int i = 0; i < clients.length; i++) {
+      clients[i] = new ArcusClient(cfb.build(), AddrUtil.getAddresses(servers));
+    }
+    return new ArcusClientPool(options.poolSize, clients);
+  }
+
+  /**
+   * Store every key and fill every b+tree, so that reads of the run hit.
+   */
+  void preload() throws Exception {
+    Random random = new Random(options.seed);
+    List<Future<Boolean>> window = new ArrayList<>(PRELOAD_WINDOW);
+    for (int i = 0; i < options.keyCount; i++) {
+      window.add(client.set(kvKey(i), 0, nextValue(random)));
+      if (window.size() == PRELOAD_WINDOW) {
+        waitFor(window);
+      }
+    }
+    if (options.usesCollections()) {
+      long step = Math.max(1, options.bkeyRange / PRELOAD_ELEMENTS);
+      for (int i = 0; i < options.btreeCount; i++) {
+        for (long bkey = 0; bkey < options.bkeyRange && bkey < step * PRELOAD_ELEMENTS;
+             bkey += step) {
+          window.add(client.asyncBopInsert(btreeKey(i), bkey, null, nextValue(random),
+              new CollectionAttributes()));
+          if (window.size() == PRELOAD_WINDOW) {
+            waitFor(window);
+          }
+        }
+      }
+    }
+    waitFor(window);
+  }
+
+  private void waitFor(List<Future<Boolean>> futures) throws Exception {
+    for (Future<Boolean> f : futures) {
+      f.get(options.opTimeout * 10, TimeUnit.MILLISECONDS);
+    }
+    futures.clear();
+  }
+
+  /**
+   * Run the workload for the warmup and the measured duration.
+   */
+  WorkloadResult run() throws InterruptedException {
+    long warmupNanos = TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+    long durationNanos = TimeUnit.SECONDS.toNanos(options.durationSeconds);
+    long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+    long measureStart = start + warmupNanos;
+    long end = measureStart + durationNanos;
+    long interval = options.rate > 0
+        ? Math.max(1, options.threads * TimeUnit.SECONDS.toNanos(1) / options.rate) : 0;
+
+    Worker[] workers = new Worker[options.threads];
+    Thread[] threads = new Thread[options.threads];
+    for (int i = 0; i < workers.length; i++) {
+      long first = start + interval * i / options.threads;
+      workers[i] = new Worker(new Random(options.seed + i), first, interval,
+          measureStart, end);
+      threads[i] = new Thread(workers[i], "workload-" + i);
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+
+    WorkloadResult result = new WorkloadResult(options, durationNanos);
+    for (int i = 0; i < workers.length; i++) {
+      threads[i].join();
+      result.add(workers[i].stats, workers[i].unsent);
+    }
+    return result;
+  }
+
+  private WorkloadOperation nextOperation(Random random) {
+    int n = random.nextInt(totalWeight);
+    for (WorkloadOperation op : WorkloadOperation.values()) {
+      n -= options.mix[op.ordinal()];
+      if (n < 0) {
+        return op;
+      }
+    }
+    throw new IllegalStateException("Invalid operation mix.");
+  }
+
+  /**
+   * Execute the operation and wait for its completion.
+   *
+   * @return false if the operation has failed or timed out
+   */
+  private boolean execute(WorkloadOperation op, Random random)
+      throws InterruptedException {
+    Future<?> future;
+    switch (op) {
+      case GET:
+        future = client.asyncGet(kvKey(keys.next(random)));
+        break;
+      case SET:
+        future = client.set(kvKey(keys.next(random)), 0, nextValue(random));
+        break;
+      case MGET:
+        future = client.asyncGetBulk(kvKeys(random));
+        break;
+      case BOP_INSERT:
+        future = client.asyncBopInsert(btreeKey(btrees.next(random)), nextBkey(random),
+            null, nextValue(random), new CollectionAttributes());
+        break;
+      case BOP_GET:
+        future = client.asyncBopGet(btreeKey(btrees.next(random)), nextBkey(random),
+            options.bkeyRange - 1, ElementFlagFilter.DO_NOT_FILTER, 0,
+            options.bopGetCount, false, false);
+        break;
+      case SMGET:
+        future = client.asyncBopSortMergeGet(btreeKeys(random), nextBkey(random),
+            options.bkeyRange - 1, ElementFlagFilter.DO_NOT_FILTER,
+            options.smgetCount, SMGetMode.UNIQUE);
+        break;
+      default:
+        throw new IllegalStateException("Unknown operation : " + op);
+    }
+    try {
+      future.get(options.opTimeout, TimeUnit.MILLISECONDS);
+      return true;
+    } catch (ExecutionException | TimeoutException e) {
+      future.cancel(true);
+      return false;
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
+  private String kvKey(int index) {
+    return options.prefix + ":kv" + index;
+  }
+
+  private String btreeKey(int index) {
+    return options.prefix + ":btree" + index;
+  }
+
+  private List<String> kvKeys(Random random) {
+    Set<String> set = new LinkedHashSet<>();
+    for (int i = 0; i < options.mgetKeys; i++) {
+      set.add(kvKey(keys.next(random)));
+    }
+    return new ArrayList<>(set);
+  }
+
+  private List<String> btreeKeys(Random random) {
+    Set<String> set = new LinkedHashSet<>();
+    int attempts = options.smgetKeys * 10;
+    while (set.size() < options.smgetKeys && attempts-- > 0) {
+      set.add(btreeKey(btrees.next(random)));
+    }
+    for (int i = 0; set.size() < options.smgetKeys; i++) {
+      set.add(btreeKey(i));
+    }
+    return new ArrayList<>(set);
+  }
+
+  private long nextBkey(Random random) {
+    return (long) (random.nextDouble() * options.bkeyRange);
+  }
+
+  private byte[] nextValue(Random random) {
+    int size = options.minValueSize;
+    if (options.maxValueSize > size) {
+      size += random.nextInt(options.maxValueSize - size + 1);
+    }
+    return Arrays.copyOf(valueSource, size);
+  }
+
+  /**
+   * Latencies of one kind of operation.
+   */
+  static final class OperationStats {
+    final AtomicHistogram responseTime = new AtomicHistogram();
+    final AtomicHistogram serviceTime = new AtomicHistogram();
+    long errors = 0;
+
+    void add(OperationStats other) {
+      responseTime.add(other.responseTime);
+      serviceTime.add(other.serviceTime);
+      errors += other.errors;
+    }
+  }
+
+  private final class Worker implements Runnable {
+    private final Random random;
+    private final long interval;
+    private final long measureStart;
+    private final long end;
+    private final OperationStats[] stats =
+        new OperationStats[WorkloadOperation.values().length];
+    private long intended;
+    private long unsent = 0;
+
+    private Worker(Random random, long first, long interval, long measureStart, long end) {
+      this.random = random;
+      this.intended = first;
+      this.interval = interval;
+      this.measureStart = measureStart;
+      this.end = end;
+      for (int i = 0; i < stats.length; i++) {
+        stats[i] = new OperationStats();
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          long now = System.nanoTime();
+          if (interval > 0) {
+            while (now < intended) {
+              LockSupport.parkNanos(intended - now);
+              now = System.nanoTime();
+            }
+          } else {
+            intended = now;
+          }
+          if (intended >= end) {
+            break;
+          }
+          if (now >= end) {
+            // the target rate has not been sustained
+            unsent = (end - intended + interval - 1) / interval;
+            break;
+          }
+
+          WorkloadOperation op = nextOperation(random);
+          long begin = System.nanoTime();
+          boolean success = execute(op, random);
+          long done = System.nanoTime();
+
+          if (intended >= measureStart) {
+            OperationStats s = stats[op.ordinal()];
+            s.responseTime.record(done - intended);
+            s.serviceTime.record(done - begin);
+            if (!success) {
+              s.errors++;
+            }
+          }
+          intended += interval;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
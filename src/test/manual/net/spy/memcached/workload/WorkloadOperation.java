@@ -0,0 +1,52 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.workload;
+
+/**
+ * Operations that can be mixed into a workload.
+ */
+enum WorkloadOperation {
+  GET("get"),
+  SET("set"),
+  MGET("mget"),
+  BOP_INSERT("bopinsert"),
+  BOP_GET("bopget"),
+  SMGET("smget");
+
+  private final String name;
+
+  WorkloadOperation(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isCollection() {
+    return this == BOP_INSERT || this == BOP_GET || this == SMGET;
+  }
+
+  static WorkloadOperation fromName(String name) {
+    for (WorkloadOperation op : values()) {
+      if (op.name.equals(name)) {
+        return op;
+      }
+    }
+    throw new IllegalArgumentException("Unknown operation : " + name);
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.workload;
+
+/**
+ * Options of a workload, given on the command line as {@code --name=value}.
+ */
+final class WorkloadOptions {
+
+  static final String USAGE =
+      "Usage: java " + WorkloadGenerator.class.getName() + " [options]\n" +
+      "Target (one of):\n" +
+      "  --fake                   start an in-process fake server\n" +
+      "  --servers=h:p,h:p        cache server addresses\n" +
+      "  --admin=h:p --service=s  Arcus admin addresses and service code\n" +
+      "Client:\n" +
+      "  --pool=1                 number of clients in the ArcusClientPool\n" +
+      "  --timeout=1000           operation timeout in milliseconds\n" +
+      "Load:\n" +
+      "  --threads=16             number of concurrent workers\n" +
+      "  --rate=0                 target ops/sec of all workers, 0 for closed loop\n" +
+      "  --duration=30            measured seconds\n" +
+      "  --warmup=5               seconds run before measuring\n" +
+      "  --mix=get=9,set=1        weights of get, set, mget, bopinsert, bopget, smget\n" +
+      "  --preload                store every key and b+tree element before the run\n" +
+      "  --seed=1                 random seed of the workers\n" +
+      "Data:\n" +
+      "  --prefix=workload        key prefix\n" +
+      "  --keys=10000             number of key-value keys\n" +
+      "  --key-dist=uniform       uniform or zipf\n" +
+      "  --zipf-theta=0.99        skew of the zipf distribution\n" +
+      "  --value-size=100         value size in bytes, or min-max\n" +
+      "  --mget-keys=10           keys of an mget\n" +
+      "  --btrees=100             number of b+tree keys\n" +
+      "  --bkey-range=10000       bkeys are chosen between 0 and bkey-range\n" +
+      "  --bop-get-count=10       elements of a bop get\n" +
+      "  --smget-keys=10          b+trees of an smget\n" +
+      "  --smget-count=50         elements of an smget\n";
+
+  boolean fake = false;
+  String servers = null;
+  String admin = null;
+  String service = null;
+
+  int poolSize = 1;
+  long opTimeout = 1000;
+
+  int threads = 16;
+  long rate = 0;
+  int durationSeconds = 30;
+  int warmupSeconds = 5;
+  final int[] mix = new int[WorkloadOperation.values().length];
+  boolean preload = false;
+  long seed = 1;
+
+  String prefix = "workload";
+  int keyCount = 10000;
+  String keyDistribution = "uniform";
+  double zipfTheta = 0.99;
+  int minValueSize = 100;
+  int maxValueSize = 100;
+  int mgetKeys = 10;
+  int btreeCount = 100;
+  long bkeyRange = 10000;
+  int bopGetCount = 10;
+  int smgetKeys = 10;
+  int smgetCount = 50;
+
+  WorkloadOptions() {
+    setMix("get=9,set=1");
+  }
+
+  static WorkloadOptions parse(String[] args) {
+    WorkloadOptions options = new WorkloadOptions();
+    for (String arg : args) {
+      if (!arg.startsWith("--")) {
+        throw new IllegalArgumentException("Invalid option : " + arg);
+      }
+      int eq = arg.indexOf('=');
+      String name = eq < 0 ? arg.substring(2) : arg.substring(2, eq);
+      String value = eq < 0 ? null : arg.substring(eq + 1);
+      options.set(name, value);
+    }
+    options.validate();
+    return options;
+  }
+
+  private void set(String name, String value) {
+    if ("fake".equals(name) || "preload".equals(name)) {
+      boolean flag = value == null || Boolean.parseBoolean(value);
+      if ("fake".equals(name)) {
+        fake = flag;
+      } else {
+        preload = flag;
+      }
+      return;
+    }
+    if (value == null) {
+      throw new IllegalArgumentException("Option --" + name + " needs a value.");
+    }
+    switch (name) {
+      case "servers":
+        servers = value;
+        break;
+      case "admin":
+        admin = value;
+        break;
+      case "service":
+        service = value;
+        break;
+      case "pool":
+        poolSize = Integer.parseInt(value);
+        break;
+      case "timeout":
+        opTimeout = Long.parseLong(value);
+        break;
+      case "threads":
+        threads = Integer.parseInt(value);
+        break;
+      case "rate":
+        rate = Long.parseLong(value);
+        break;
+      case "duration":
+        durationSeconds = Integer.parseInt(value);
+        break;
+      case "warmup":
+        warmupSeconds = Integer.parseInt(value);
+        break;
+      case "mix":
+        setMix(value);
+        break;
+      case "seed":
+        seed = Long.parseLong(value);
+        break;
+      case "prefix":
+        prefix = value;
+        break;
+      case "keys":
+        keyCount = Integer.parseInt(value);
+        break;
+      case "key-dist":
+        keyDistribution = value;
+        break;
+      case "zipf-theta":
+        zipfTheta = Double.parseDouble(value);
+        break;
+      case "value-size":
+        int dash = value.indexOf('-');
+        minValueSize = Integer.parseInt(dash < 0 ? value : value.substring(0, dash));
+        maxValueSize = dash < 0 ? minValueSize : Integer.parseInt(value.substring(dash + 1));
+        break;
+      case "mget-keys":
+        mgetKeys = Integer.parseInt(value);
+        break;
+      case "btrees":
+        btreeCount = Integer.parseInt(value);
+        break;
+      case "bkey-range":
+        bkeyRange = Long.parseLong(value);
+        break;
+      case "bop-get-count":
+        bopGetCount = Integer.parseInt(value);
+        break;
+      case "smget-keys":
+        smgetKeys = Integer.parseInt(value);
+        break;
+      case "smget-count":
+        smgetCount = Integer.parseInt(value);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown option : --" + name);
+    }
+  }
+
+  private void setMix(String value) {
+    for (int i = 0; i < mix.length; i++) {
+      mix[i] = 0;
+    }
+    for (String entry : value.split(",")) {
+      int eq = entry.indexOf('=');
+      if (eq < 0) {
+        throw new IllegalArgumentException("Invalid mix entry : " + entry);
+      }
+      WorkloadOperation op = WorkloadOperation.fromName(entry.substring(0, eq).trim());
+      mix[op.ordinal()] = Integer.parseInt(entry.substring(eq + 1).trim());
+    }
+  }
+
+  void validate() {
+    int targets = (fake ? 1 : 0) + (servers != null ? 1 : 0) + (admin != null ? 1 : 0);
+    if (targets != 1) {
+      throw new IllegalArgumentException("Exactly one of --fake, --servers and --admin " +
+          "must be given.");
+    }
+    if (admin != null && service == null) {
+      throw new IllegalArgumentException("--service must be given with --admin.");
+    }
+    int weights = 0;
+    for (int weight : mix) {
+      if (weight < 0) {
+        throw new IllegalArgumentException("Mix weights must not be negative.");
+      }
+      weights += weight;
+    }
+    if (weights == 0) {
+      throw new IllegalArgumentException("At least one operation must be in the mix.");
+    }
+    if (poolSize <= 0 || threads <= 0 || durationSeconds <= 0 || warmupSeconds < 0 ||
+        rate < 0 || opTimeout <= 0) {
+      throw new IllegalArgumentException("Invalid client or load option.");
+    }
+    if (keyCount <= 0 || minValueSize < 0 || maxValueSize < minValueSize ||
+        mgetKeys <= 0 || btreeCount <= 0 || bkeyRange <= 0 || bopGetCount <= 0 ||
+        smgetKeys <= 0 || smgetKeys > btreeCount || smgetCount <= 0 || smgetCount > 1000) {
+      throw new IllegalArgumentException("Invalid data option.");
+    }
+    KeyDistribution.create(keyDistribution, 1, zipfTheta);
+  }
+
+  boolean usesCollections() {
+    for (WorkloadOperation op : WorkloadOperation.values()) {
+      if (op.isCollection() && mix[op.ordinal()] > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
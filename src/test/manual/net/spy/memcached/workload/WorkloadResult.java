@@ -0,0 +1,122 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.workload;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.metrics.AtomicHistogram;
+import net.spy.memcached.workload.WorkloadGenerator.OperationStats;
+
+/**
+ * Throughput and latencies of a workload run, merged from all workers.
+ */
+final class WorkloadResult {
+
+  private static final double[] PERCENTILES = {50.0, 99.0, 99.9};
+
+  private final WorkloadOptions options;
+  private final long durationNanos;
+  private final OperationStats[] stats = new OperationStats[WorkloadOperation.values().length];
+  private final OperationStats total = new OperationStats();
+  private long unsent = 0;
+
+  WorkloadResult(WorkloadOptions options, long durationNanos) {
+    this.options = options;
+    this.durationNanos = durationNanos;
+    for (int i = 0; i < stats.length; i++) {
+      stats[i] = new OperationStats();
+    }
+  }
+
+  void add(OperationStats[] workerStats, long workerUnsent) {
+    for (int i = 0; i < stats.length; i++) {
+      stats[i].add(workerStats[i]);
+      total.add(workerStats[i]);
+    }
+    unsent += workerUnsent;
+  }
+
+  OperationStats getStats(WorkloadOperation op) {
+    return stats[op.ordinal()];
+  }
+
+  OperationStats getTotal() {
+    return total;
+  }
+
+  /**
+   * Get the number of operations that were scheduled but not sent
+   * before the end of the run, because the target rate was not sustained.
+   */
+  long getUnsent() {
+    return unsent;
+  }
+
+  double getThroughput() {
+    return total.responseTime.getCount() * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos;
+  }
+
+  void print(PrintStream out) {
+    boolean openLoop = options.rate > 0;
+    out.printf("%d threads, %s, %d s measured after %d s warmup%n", options.threads,
+        openLoop ? "open loop at " + options.rate + " ops/sec" : "closed loop",
+        options.durationSeconds, options.warmupSeconds);
+    out.printf("%d keys, %d b+trees, %s key distribution, %d-%d byte values%n",
+        options.keyCount, options.btreeCount, options.keyDistribution,
+        options.minValueSize, options.maxValueSize);
+    out.printf("Throughput: %.1f ops/sec%n", getThroughput());
+    if (unsent > 0) {
+      out.printf("WARNING: %d scheduled operations were not sent, " +
+          "the target rate was not sustained.%n", unsent);
+    }
+
+    if (openLoop) {
+      out.println();
+      out.println("Response time from the scheduled start (corrected for coordinated omission)");
+      printTable(out, true);
+    }
+    out.println();
+    out.println("Service time from the actual send" +
+        (openLoop ? "" : " (closed loop, not corrected for coordinated omission)"));
+    printTable(out, false);
+  }
+
+  private void printTable(PrintStream out, boolean response) {
+    out.printf("%-10s %10s %12s %8s", "op", "count", "ops/sec", "errors");
+    for (double p : PERCENTILES) {
+      out.printf(" %10s", "p" + (p == Math.rint(p) ? String.valueOf((int) p) : p) + "(us)");
+    }
+    out.printf(" %10s%n", "max(us)");
+    for (WorkloadOperation op : WorkloadOperation.values()) {
+      if (stats[op.ordinal()].responseTime.getCount() > 0) {
+        printRow(out, op.getName(), stats[op.ordinal()], response);
+      }
+    }
+    printRow(out, "total", total, response);
+  }
+
+  private void printRow(PrintStream out, String name, OperationStats s, boolean response) {
+    AtomicHistogram histogram = response ? s.responseTime : s.serviceTime;
+    out.printf("%-10s %10d %12.1f %8d", name, histogram.getCount(),
+        histogram.getCount() * (double) TimeUnit.SECONDS.toNanos(1) / durationNanos, s.errors);
+    for (double p : PERCENTILES) {
+      out.printf(" %10.1f", histogram.getValueAtPercentile(p) / 1000.0);
+    }
+    out.printf(" %10.1f%n", histogram.getMax() / 1000.0);
+  }
+}